@@ -35,6 +35,7 @@ public class FiltersHelper {
         public static final String REQUEST_AUTH_TYPE_KEY = "ovirt_aaa_auth_type";
         public static final String REQUEST_LOGIN_FILTER_AUTHENTICATION_DONE =
                 "ovirt_aaa_login_filter_authentication_done";
+        public static final String REQUEST_CACHED_SESSION_KEY = "ovirt_aaa_cached_session";
         public static final String HEADER_AUTHORIZATION = "Authorization";
         public static final String HEADER_WWW_AUTHENTICATE = "WWW-Authenticate";
         public static final String HEADER_PREFER = "Prefer";
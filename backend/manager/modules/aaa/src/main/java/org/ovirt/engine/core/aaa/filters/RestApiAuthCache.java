@@ -0,0 +1,267 @@
+package org.ovirt.engine.core.aaa.filters;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import javax.naming.InitialContext;
+
+import org.ovirt.engine.core.common.action.ActionParametersBase;
+import org.ovirt.engine.core.common.action.ActionType;
+import org.ovirt.engine.core.utils.EngineLocalConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Caches the engine sessions created for REST API requests with {@code Basic} credentials, for a short time, so that
+ * clients which do not reuse sessions are not authenticated by SSO on every request. The sessions are cached by a
+ * salted hash of the credentials and the address of the client.
+ * <p>
+ * The cache owns these sessions: they outlive the requests they were created for, and are logged out once they
+ * expire, are evicted or are replaced, and no request uses them any longer. The sessions are validated with the engine
+ * before they are reused, and dropped once they are no longer valid. The cache is bounded, and disabled unless a
+ * positive time to live is configured.
+ * <p>
+ * The sessions of {@code Bearer} tokens are not cached: the engine finds them by the token in memory, which costs as
+ * much as validating a cached one.
+ */
+public class RestApiAuthCache {
+
+    private static final Logger log = LoggerFactory.getLogger(RestApiAuthCache.class);
+
+    private static final long DEFAULT_TTL_IN_SECONDS = 0;
+    private static final int DEFAULT_SIZE = 1000;
+    private static final String HASH_ALGORITHM = "HmacSHA256";
+    private static final int SALT_LENGTH = 32;
+
+    private static volatile RestApiAuthCache instance;
+
+    public static RestApiAuthCache getInstance() {
+        if (instance == null) {
+            synchronized (RestApiAuthCache.class) {
+                if (instance == null) {
+                    EngineLocalConfig config = EngineLocalConfig.getInstance();
+                    instance = new RestApiAuthCache(
+                            config.getLong("REST_API_AUTH_CACHE_TTL_IN_SECONDS", DEFAULT_TTL_IN_SECONDS),
+                            config.getInteger("REST_API_AUTH_CACHE_SIZE", DEFAULT_SIZE),
+                            RestApiAuthCache::logoutSession,
+                            System::nanoTime);
+                }
+            }
+        }
+        return instance;
+    }
+
+    private final long ttlInNanos;
+    private final int size;
+    private final Consumer<String> sessionCloser;
+    private final LongSupplier clock;
+    private final SecretKeySpec salt;
+
+    // ordered by insertion, that is by expiration
+    private final Map<String, CachedSession> basicSessions = new LinkedHashMap<>();
+
+    RestApiAuthCache(long ttlInSeconds, int size, Consumer<String> sessionCloser, LongSupplier clock) {
+        this.ttlInNanos = TimeUnit.SECONDS.toNanos(Math.max(0, ttlInSeconds));
+        this.size = size;
+        this.sessionCloser = sessionCloser;
+        this.clock = clock;
+        byte[] saltBytes = new byte[SALT_LENGTH];
+        new SecureRandom().nextBytes(saltBytes);
+        this.salt = new SecretKeySpec(saltBytes, HASH_ALGORITHM);
+        if (isEnabled()) {
+            log.info("REST API sessions are cached for {} seconds, up to {} sessions", ttlInSeconds, size);
+        }
+    }
+
+    public boolean isEnabled() {
+        return ttlInNanos > 0 && size > 0;
+    }
+
+    /**
+     * Returns the cached session of the given {@code Basic} credentials, which the caller has to
+     * {@link #release(CachedSession) release} once the request is done, or {@code null} if there is none
+     */
+    public CachedSession acquireBasicSession(String remoteAddress, String authorizationHeader) {
+        String key = hash(remoteAddress + "\n" + authorizationHeader);
+        List<String> sessionsToClose = new ArrayList<>();
+        CachedSession session;
+        synchronized (this) {
+            purge(sessionsToClose);
+            session = basicSessions.get(key);
+            if (session != null) {
+                session.users++;
+            }
+        }
+        closeSessions(sessionsToClose);
+        return session;
+    }
+
+    /**
+     * Caches the session just created for the given {@code Basic} credentials, on behalf of the current request,
+     * which has to {@link #release(CachedSession) release} it once done
+     */
+    public CachedSession putBasicSession(String remoteAddress, String authorizationHeader, String engineSessionId) {
+        String key = hash(remoteAddress + "\n" + authorizationHeader);
+        CachedSession session = new CachedSession(key, engineSessionId, clock.getAsLong() + ttlInNanos);
+        session.users = 1;
+        List<String> sessionsToClose = new ArrayList<>();
+        synchronized (this) {
+            purge(sessionsToClose);
+            // removed first, so the new session is ordered last
+            retire(basicSessions.remove(key), sessionsToClose);
+            basicSessions.put(key, session);
+            evictEldest(sessionsToClose);
+        }
+        closeSessions(sessionsToClose);
+        return session;
+    }
+
+    /**
+     * Releases a session acquired by the current request, logging it out if it is no longer cached and no other
+     * request uses it
+     */
+    public void release(CachedSession session) {
+        boolean close;
+        synchronized (this) {
+            session.users--;
+            close = session.retired && session.owned && session.users == 0;
+        }
+        if (close) {
+            closeSessions(List.of(session.engineSessionId));
+        }
+    }
+
+    /**
+     * Drops the given {@code Basic} session from the cache, as it is no longer valid
+     */
+    public void invalidate(CachedSession session) {
+        synchronized (this) {
+            if (basicSessions.get(session.key) == session) {
+                basicSessions.remove(session.key);
+            }
+            session.retired = true;
+            // the session is no longer valid, so there is nothing to log out
+            session.owned = false;
+        }
+    }
+
+    /**
+     * Drops all the cached entries of the given session, once it is logged out
+     */
+    public void invalidateSession(String engineSessionId) {
+        if (!isEnabled() || engineSessionId == null) {
+            return;
+        }
+        synchronized (this) {
+            for (Iterator<CachedSession> iterator = basicSessions.values().iterator(); iterator.hasNext();) {
+                CachedSession session = iterator.next();
+                if (engineSessionId.equals(session.engineSessionId)) {
+                    iterator.remove();
+                    session.retired = true;
+                    session.owned = false;
+                }
+            }
+        }
+    }
+
+    private void purge(List<String> sessionsToClose) {
+        long now = clock.getAsLong();
+        for (Iterator<CachedSession> iterator = basicSessions.values().iterator(); iterator.hasNext();) {
+            CachedSession session = iterator.next();
+            if (now - session.expiration < 0) {
+                break;
+            }
+            iterator.remove();
+            retire(session, sessionsToClose);
+        }
+    }
+
+    private void evictEldest(List<String> sessionsToClose) {
+        for (Iterator<CachedSession> iterator = basicSessions.values().iterator();
+                basicSessions.size() > size && iterator.hasNext();) {
+            CachedSession session = iterator.next();
+            iterator.remove();
+            retire(session, sessionsToClose);
+        }
+    }
+
+    private void retire(CachedSession session, List<String> sessionsToClose) {
+        if (session == null || session.retired) {
+            return;
+        }
+        session.retired = true;
+        if (session.owned && session.users == 0) {
+            sessionsToClose.add(session.engineSessionId);
+        }
+    }
+
+    private void closeSessions(List<String> engineSessionIds) {
+        for (String engineSessionId : engineSessionIds) {
+            try {
+                sessionCloser.accept(engineSessionId);
+            } catch (RuntimeException e) {
+                log.error("Cannot log out cached REST API session: {}", e.getMessage());
+                log.debug("Exception", e);
+            }
+        }
+    }
+
+    private String hash(String value) {
+        try {
+            Mac mac = Mac.getInstance(HASH_ALGORITHM);
+            mac.init(salt);
+            return Base64.getEncoder().encodeToString(mac.doFinal(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void logoutSession(String engineSessionId) {
+        try {
+            InitialContext ctx = new InitialContext();
+            try {
+                FiltersHelper.getBackend(ctx).runAction(ActionType.LogoutSession,
+                        new ActionParametersBase(engineSessionId));
+            } finally {
+                ctx.close();
+            }
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * A cached engine session
+     */
+    public static class CachedSession {
+        private final String key;
+        private final String engineSessionId;
+        private final long expiration;
+        // a session which is no longer valid is not owned, there is nothing to log out
+        private boolean owned = true;
+        private boolean retired;
+        private int users;
+
+        private CachedSession(String key, String engineSessionId, long expiration) {
+            this.key = key;
+            this.engineSessionId = engineSessionId;
+            this.expiration = expiration;
+        }
+
+        public String getEngineSessionId() {
+            return engineSessionId;
+        }
+    }
+}
@@ -79,8 +79,10 @@ public class RestApiSessionMgmtFilter implements Filter {
 
             if (FiltersHelper.isAuthenticated(req)) {
                 String headerValue = req.getHeader(FiltersHelper.Constants.HEADER_AUTHORIZATION);
+                // cached sessions are logged out by the cache, once they are no longer cached
                 if ((headerValue == null || !headerValue.startsWith(BEARER)) &&
-                        (prefer & FiltersHelper.PREFER_PERSISTENCE_AUTH) == 0) {
+                        (prefer & FiltersHelper.PREFER_PERSISTENCE_AUTH) == 0 &&
+                        req.getAttribute(FiltersHelper.Constants.REQUEST_CACHED_SESSION_KEY) == null) {
                     InitialContext ctx = new InitialContext();
                     try {
                         FiltersHelper.getBackend(ctx).runAction(
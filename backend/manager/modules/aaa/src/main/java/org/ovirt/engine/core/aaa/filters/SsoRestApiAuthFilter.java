@@ -43,16 +43,31 @@ public class SsoRestApiAuthFilter implements Filter {
             log.debug("SsoRestApiAuthFilter authenticating with sso");
             authenticateWithSso(req);
         }
-        chain.doFilter(request, response);
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            RestApiAuthCache.CachedSession cachedSession =
+                    (RestApiAuthCache.CachedSession) req.getAttribute(FiltersHelper.Constants.REQUEST_CACHED_SESSION_KEY);
+            if (cachedSession != null) {
+                RestApiAuthCache.getInstance().release(cachedSession);
+            }
+        }
     }
 
     protected void authenticateWithSso(HttpServletRequest req) {
         String headerValue = req.getHeader(FiltersHelper.Constants.HEADER_AUTHORIZATION);
         if (headerValue != null && (headerValue.startsWith(BASIC) || headerValue.startsWith(BEARER))) {
+            RestApiAuthCache cache = RestApiAuthCache.getInstance();
+            // sessions kept by the HTTP session of the client are not cached, their life cycle is managed by the client
+            boolean cacheBasicSession = cache.isEnabled()
+                    && (FiltersHelper.getPrefer(req) & FiltersHelper.PREFER_PERSISTENCE_AUTH) == 0;
             try {
                 String token;
                 boolean userSessionExists = false;
                 if (headerValue.startsWith(BASIC)) {
+                    if (cacheBasicSession && authenticateWithCachedSession(req, headerValue, cache)) {
+                        return;
+                    }
                     log.debug("SsoRestApiAuthFilter authenticating using BASIC header");
                     Map<String, Object> response = SsoOAuthServiceUtils.authenticate(req, scope);
                     FiltersHelper.isStatusOk(response);
@@ -90,7 +105,11 @@ public class SsoRestApiAuthFilter implements Filter {
                             !Arrays.asList(scope.trim().split("\\s *")).contains("ovirt-app-api")) {
                         throw new RuntimeException("The required scope ovirt-app-api is not granted.");
                     }
-                    SsoUtils.createUserSession(req, payload, false);
+                    String engineSessionId = SsoUtils.createUserSession(req, payload, false);
+                    if (headerValue.startsWith(BASIC) && cacheBasicSession) {
+                        req.setAttribute(FiltersHelper.Constants.REQUEST_CACHED_SESSION_KEY,
+                                cache.putBasicSession(req.getRemoteAddr(), headerValue, engineSessionId));
+                    }
                 }
             } catch (Exception e) {
                 req.setAttribute(
@@ -102,6 +121,26 @@ public class SsoRestApiAuthFilter implements Filter {
         }
     }
 
+    /**
+     * Authenticates the request with the session cached for its credentials, if there is one and it is still valid
+     */
+    private boolean authenticateWithCachedSession(HttpServletRequest req, String headerValue, RestApiAuthCache cache) {
+        RestApiAuthCache.CachedSession cachedSession = cache.acquireBasicSession(req.getRemoteAddr(), headerValue);
+        if (cachedSession == null) {
+            return false;
+        }
+        if (!FiltersHelper.isSessionValid(cachedSession.getEngineSessionId())) {
+            log.debug("SsoRestApiAuthFilter cached session is no longer valid");
+            cache.invalidate(cachedSession);
+            cache.release(cachedSession);
+            return false;
+        }
+        log.debug("SsoRestApiAuthFilter authenticated BASIC header with a cached session");
+        req.setAttribute(SessionConstants.HTTP_SESSION_ENGINE_SESSION_ID_KEY, cachedSession.getEngineSessionId());
+        req.setAttribute(FiltersHelper.Constants.REQUEST_CACHED_SESSION_KEY, cachedSession);
+        return true;
+    }
+
     @Override
     public void destroy() {
         // empty
@@ -12,6 +12,7 @@ import javax.servlet.http.HttpSession;
 import org.apache.commons.lang.StringUtils;
 import org.ovirt.engine.core.aaa.SsoOAuthServiceUtils;
 import org.ovirt.engine.core.aaa.filters.FiltersHelper;
+import org.ovirt.engine.core.aaa.filters.RestApiAuthCache;
 import org.ovirt.engine.core.common.action.ActionParametersBase;
 import org.ovirt.engine.core.common.action.ActionType;
 import org.ovirt.engine.core.common.constants.SessionConstants;
@@ -51,6 +52,7 @@ public class SsoLogoutServlet extends HttpServlet {
                             ActionType.LogoutSession,
                             new ActionParametersBase(engineSessionId)
                     );
+                    RestApiAuthCache.getInstance().invalidateSession(engineSessionId);
                 } finally {
                     ctx.close();
                 }
@@ -0,0 +1,104 @@
+package org.ovirt.engine.core.aaa.filters;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class RestApiAuthCacheTest {
+
+    private static final String ADDRESS = "192.0.2.1";
+    private static final String BASIC = "Basic YWRtaW5AaW50ZXJuYWw6cGFzc3dvcmQ=";
+    private static final String OTHER_BASIC = "Basic dXNlckBpbnRlcm5hbDpwYXNzd29yZA==";
+
+    private final List<String> closedSessions = new ArrayList<>();
+    private long now;
+    private RestApiAuthCache cache;
+
+    @BeforeEach
+    public void setUp() {
+        cache = new RestApiAuthCache(60, 2, closedSessions::add, () -> now);
+    }
+
+    private void advance(long seconds) {
+        now += TimeUnit.SECONDS.toNanos(seconds);
+    }
+
+    @Test
+    public void testDisabledByDefault() {
+        assertFalse(new RestApiAuthCache(0, 1000, closedSessions::add, () -> now).isEnabled());
+        assertTrue(cache.isEnabled());
+    }
+
+    @Test
+    public void testBasicSessionIsReused() {
+        cache.release(cache.putBasicSession(ADDRESS, BASIC, "session"));
+        RestApiAuthCache.CachedSession session = cache.acquireBasicSession(ADDRESS, BASIC);
+        cache.release(session);
+
+        assertEquals("session", session.getEngineSessionId());
+        assertNull(cache.acquireBasicSession("192.0.2.2", BASIC));
+        assertNull(cache.acquireBasicSession(ADDRESS, OTHER_BASIC));
+        assertTrue(closedSessions.isEmpty());
+    }
+
+    @Test
+    public void testExpiredSessionIsClosedOnceReleased() {
+        RestApiAuthCache.CachedSession session = cache.putBasicSession(ADDRESS, BASIC, "session");
+        advance(61);
+
+        assertNull(cache.acquireBasicSession(ADDRESS, BASIC));
+        assertTrue(closedSessions.isEmpty());
+
+        cache.release(session);
+        assertEquals(Collections.singletonList("session"), closedSessions);
+    }
+
+    @Test
+    public void testReplacedSessionIsClosed() {
+        cache.release(cache.putBasicSession(ADDRESS, BASIC, "old"));
+        cache.release(cache.putBasicSession(ADDRESS, BASIC, "new"));
+
+        assertEquals(Collections.singletonList("old"), closedSessions);
+        RestApiAuthCache.CachedSession session = cache.acquireBasicSession(ADDRESS, BASIC);
+        assertEquals("new", session.getEngineSessionId());
+    }
+
+    @Test
+    public void testEldestSessionIsEvicted() {
+        cache.release(cache.putBasicSession("192.0.2.1", BASIC, "first"));
+        cache.release(cache.putBasicSession("192.0.2.2", BASIC, "second"));
+        cache.release(cache.putBasicSession("192.0.2.3", BASIC, "third"));
+
+        assertEquals(Collections.singletonList("first"), closedSessions);
+        assertNull(cache.acquireBasicSession("192.0.2.1", BASIC));
+    }
+
+    @Test
+    public void testInvalidSessionIsNotClosed() {
+        cache.release(cache.putBasicSession(ADDRESS, BASIC, "session"));
+        RestApiAuthCache.CachedSession session = cache.acquireBasicSession(ADDRESS, BASIC);
+        cache.invalidate(session);
+        cache.release(session);
+
+        assertNull(cache.acquireBasicSession(ADDRESS, BASIC));
+        assertTrue(closedSessions.isEmpty());
+    }
+
+    @Test
+    public void testLoggedOutSessionIsDropped() {
+        cache.release(cache.putBasicSession(ADDRESS, BASIC, "session"));
+        cache.invalidateSession("session");
+
+        assertNull(cache.acquireBasicSession(ADDRESS, BASIC));
+        assertTrue(closedSessions.isEmpty());
+    }
+}
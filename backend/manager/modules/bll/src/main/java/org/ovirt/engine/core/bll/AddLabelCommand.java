@@ -28,6 +28,7 @@ public class AddLabelCommand<T extends LabelActionParameters> extends LabelComma
                 .build();
 
         labelDao.save(label);
+        schedulingSnapshotCache.invalidateAffinityGroups();
         vmStaticDao.incrementDbGenerationForVms(new ArrayList<Guid>(label.getVms()));
         setSucceeded(true);
         setActionReturnValue(label.getId());
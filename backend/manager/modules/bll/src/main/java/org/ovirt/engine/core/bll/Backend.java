@@ -74,7 +74,6 @@ import org.ovirt.engine.core.compat.WindowsJavaTimezoneMapping;
 import org.ovirt.engine.core.dal.dbbroker.DbConnectionUtil;
 import org.ovirt.engine.core.dal.dbbroker.generic.DBConfigUtils;
 import org.ovirt.engine.core.dal.job.ExecutionMessageDirector;
-import org.ovirt.engine.core.dal.utils.CacheManager;
 import org.ovirt.engine.core.dao.ClusterDao;
 import org.ovirt.engine.core.dao.VdcOptionDao;
 import org.ovirt.engine.core.dao.VdsDao;
@@ -233,8 +232,6 @@ public class Backend implements BackendInternal, BackendCommandObjectsHandler {
         // save host that HE VM was running on prior to engine startup
         serviceLoader.load(PreviousHostedEngineHost.class);
 
-        // initialize CDI services
-        serviceLoader.load(CacheManager.class);
         // initialize configuration utils to use DB
         Config.setConfigUtils(dbConfigUtils);
 
@@ -12,6 +12,7 @@ import org.ovirt.engine.core.bll.context.CommandContext;
 import org.ovirt.engine.core.bll.network.cluster.NetworkHelper;
 import org.ovirt.engine.core.bll.network.macpool.ReadMacPool;
 import org.ovirt.engine.core.bll.profiles.CpuProfileHelper;
+import org.ovirt.engine.core.bll.scheduling.SchedulingSnapshotCache;
 import org.ovirt.engine.core.bll.utils.PermissionSubject;
 import org.ovirt.engine.core.common.AuditLogType;
 import org.ovirt.engine.core.common.action.ChangeVMClusterParameters;
@@ -49,6 +50,8 @@ public class ChangeVMClusterCommand<T extends ChangeVMClusterParameters> extends
     private AffinityGroupDao affinityGroupDao;
     @Inject
     private LabelDao labelDao;
+    @Inject
+    private SchedulingSnapshotCache schedulingSnapshotCache;
 
     @Inject
     private NetworkHelper networkHelper;
@@ -170,6 +173,7 @@ public class ChangeVMClusterCommand<T extends ChangeVMClusterParameters> extends
             String groups = allAffinityGroupsByVmId.stream().map(AffinityGroup::getName).collect(Collectors.joining(" "));
             log.info("Due to cluster change, removing VM from associated affinity group(s): {}", groups);
             affinityGroupDao.setAffinityGroupsForVm(vmId, Collections.emptyList());
+            schedulingSnapshotCache.invalidateAffinityGroups();
         }
     }
 
@@ -179,6 +183,7 @@ public class ChangeVMClusterCommand<T extends ChangeVMClusterParameters> extends
             String labelNames = labels.stream().map(Label::getName).collect(Collectors.joining(" "));
             log.info("Due to cluster change, removing VM from associated label(s): {}", labelNames);
             labelDao.updateLabelsForVm(vmId, Collections.emptyList());
+            schedulingSnapshotCache.invalidateAffinityGroups();
         }
     }
 
@@ -6,6 +6,7 @@ import java.util.List;
 import javax.inject.Inject;
 
 import org.ovirt.engine.core.bll.context.CommandContext;
+import org.ovirt.engine.core.bll.scheduling.SchedulingSnapshotCache;
 import org.ovirt.engine.core.bll.utils.PermissionSubject;
 import org.ovirt.engine.core.common.VdcObjectType;
 import org.ovirt.engine.core.common.action.LabelActionParametersBase;
@@ -20,6 +21,9 @@ public abstract class LabelCommandBase<T extends LabelActionParametersBase> exte
     @Inject
     protected LabelDao labelDao;
 
+    @Inject
+    protected SchedulingSnapshotCache schedulingSnapshotCache;
+
     protected Label getLabel() {
         if (label == null && getLabelId() != null) {
             label = labelDao.get(getLabelId());
@@ -187,6 +187,7 @@ public class MigrateMultipleVmsCommand<T extends MigrateMultipleVmsParameters> e
                 .hostBlackList(getHostBlackList())
                 .hostWhiteList(getHostWhiteList())
                 .ignoreHardVmToVmAffinity(shouldIgnoreVmAffinity)
+                .batchPlacement(true)
                 .delay(true)
                 .correlationId(getCorrelationId())
                 .schedule(vms);
@@ -28,6 +28,8 @@ public class RemoveAuditLogByIdCommand<T extends RemoveAuditLogByIdParameters> e
     private AuditLogDirector auditLogDirector;
     @Inject
     private AuditLogDao auditLogDao;
+    @Inject
+    private EventFloodRegulator eventFloodRegulator;
     private AuditLog auditLog;
 
     public RemoveAuditLogByIdCommand(T parameters, CommandContext cmdContext) {
@@ -54,8 +56,7 @@ public class RemoveAuditLogByIdCommand<T extends RemoveAuditLogByIdParameters> e
         AuditLogable logableToClear = createAuditLogableImpl(auditLog);
 
         // clean cache manager entry (if exists)
-        EventFloodRegulator eventFloodRegulator = new EventFloodRegulator(logableToClear, auditLog.getLogType());
-        eventFloodRegulator.evict();
+        eventFloodRegulator.evict(logableToClear, auditLog.getLogType());
         setSucceeded(true);
     }
 
@@ -8,6 +8,7 @@ import javax.inject.Inject;
 
 import org.ovirt.engine.core.bll.context.CommandContext;
 import org.ovirt.engine.core.bll.kubevirt.ForceClusterResourcesRemover;
+import org.ovirt.engine.core.bll.scheduling.arem.AffinityViolationIndex;
 import org.ovirt.engine.core.common.AuditLogType;
 import org.ovirt.engine.core.common.action.ClusterParametersBase;
 import org.ovirt.engine.core.common.businessentities.VmPool;
@@ -35,6 +36,8 @@ public class RemoveClusterCommand<T extends ClusterParametersBase> extends Clust
     private VmPoolDao vmPoolDao;
     @Inject
     private ForceClusterResourcesRemover clusterResourcesRemover;
+    @Inject
+    private AffinityViolationIndex affinityViolationIndex;
 
     public RemoveClusterCommand(T parameters, CommandContext cmdContext) {
         super(parameters, cmdContext);
@@ -44,11 +47,13 @@ public class RemoveClusterCommand<T extends ClusterParametersBase> extends Clust
     protected void executeCommand() {
         if (isForceRemovalOfUnmanagedCluster()) {
             clusterResourcesRemover.forceRemove(getCluster().getId());
+            affinityViolationIndex.clusterRemoved(getCluster().getId());
             setSucceeded(true);
             return;
         }
 
         clusterDao.remove(getCluster().getId());
+        affinityViolationIndex.clusterRemoved(getCluster().getId());
         setSucceeded(true);
     }
 
@@ -4,12 +4,16 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
 
 import javax.inject.Inject;
 
 import org.ovirt.engine.core.bll.context.CommandContext;
+import org.ovirt.engine.core.bll.scheduling.SchedulingManager;
 import org.ovirt.engine.core.common.action.ActionParametersBase;
 import org.ovirt.engine.core.common.action.ActionType;
+import org.ovirt.engine.core.common.businessentities.VM;
+import org.ovirt.engine.core.common.businessentities.VMStatus;
 import org.ovirt.engine.core.compat.Guid;
 import org.ovirt.engine.core.dao.VmStaticDao;
 
@@ -18,6 +22,9 @@ public class RunVMActionRunner extends SortedMultipleActionsRunnerBase {
     @Inject
     private VmStaticDao vmStaticDao;
 
+    @Inject
+    private SchedulingManager schedulingManager;
+
     public RunVMActionRunner(ActionType actionType, List<ActionParametersBase> parameters, CommandContext commandContext, boolean isInternal) {
         super(actionType, parameters, commandContext, isInternal);
     }
@@ -44,4 +51,51 @@ public class RunVMActionRunner extends SortedMultipleActionsRunnerBase {
 
     }
 
+    @Override
+    protected void runCommands() {
+        placeVms();
+        super.runCommands();
+    }
+
+    /**
+     * Places the VMs of pools which are started together in one scheduling call per cluster, so equivalent VMs of a
+     * pool share the filtering of the hosts. Each command then checks and runs its VM on the host it was placed on.
+     */
+    private void placeVms() {
+        Map<Guid, List<RunVmCommand<?>>> commandsByCluster = getCommands().stream()
+                .filter(command -> command.getReturnValue().isValid())
+                .filter(RunVmCommand.class::isInstance)
+                .map(command -> (RunVmCommand<?>) command)
+                .filter(this::canBePlacedWithOtherVms)
+                .collect(Collectors.groupingBy(command -> command.getVm().getClusterId()));
+
+        for (List<RunVmCommand<?>> commands : commandsByCluster.values()) {
+            if (commands.size() < 2) {
+                continue;
+            }
+
+            List<VM> vms = commands.stream().map(RunVmCommand::getVm).collect(Collectors.toList());
+            schedulingManager.prepareCall(commands.get(0).getCluster())
+                    .batchPlacement(true)
+                    .delay(true)
+                    .correlationId(commands.get(0).getCorrelationId())
+                    .schedule(vms);
+        }
+    }
+
+    private boolean canBePlacedWithOtherVms(RunVmCommand<?> command) {
+        return command.getVm().getVmPoolId() != null
+                && command.getVm().getStatus() == VMStatus.Down
+                && command.getVdsWhiteList().isEmpty()
+                && command.getPredefinedVdsIdListToRunOn().isEmpty();
+    }
+
+    @Override
+    protected void executeValidatedCommand(CommandBase<?> command) {
+        super.executeValidatedCommand(command);
+        // The command did not get to run the VM on the host it was placed on
+        if (command instanceof RunVmCommand && !command.getReturnValue().getSucceeded()) {
+            schedulingManager.releaseBatchPlacement(((RunVmCommand<?>) command).getVm().getStaticData());
+        }
+    }
 }
@@ -124,6 +124,8 @@ public class RunVmCommand<T extends RunVmParams> extends RunVmCommandBase<T>
     private boolean needsHostDevices = false;
     private InitializationType initializationType;
     protected VmPayload vmPayload;
+    /** The host the VM was placed on together with other VMs started along with it */
+    private Guid batchPlacedVdsId;
 
     public static final String ISO_PREFIX = "iso://";
     public static final String STATELESS_SNAPSHOT_DESCRIPTION = "stateless snapshot";
@@ -915,14 +917,45 @@ public class RunVmCommand<T extends RunVmParams> extends RunVmCommandBase<T>
         }
     }
 
-    protected boolean getVdsToRunOn() {
+    /**
+     * Schedules the VM on the host it was placed on when it was scheduled together with other VMs started along with
+     * it. Only that host is allowed, so it has to be still up in the cluster of the VM and pass the filters. The
+     * host is used once, a rerun of the VM schedules it again.
+     */
+    private Optional<Guid> getBatchPlacedVdsToRunOn() {
+        schedulingManager.releaseBatchPlacement(getVm().getStaticData())
+                .ifPresent(vdsId -> batchPlacedVdsId = vdsId);
+        Guid placedVdsId = batchPlacedVdsId;
+        batchPlacedVdsId = null;
+        if (placedVdsId == null
+                || !getVdsWhiteList().isEmpty() && !getVdsWhiteList().contains(placedVdsId)) {
+            return Optional.empty();
+        }
+
         Optional<Guid> vdsToRunOn = schedulingManager.prepareCall(getCluster())
                 .hostBlackList(getRunVdssList())
-                .hostWhiteList(getVdsWhiteList())
-                .destHostIdList(getPredefinedVdsIdListToRunOn())
-                .delay(true)
+                .hostWhiteList(Collections.singletonList(placedVdsId))
                 .correlationId(getCorrelationId())
                 .schedule(getVm());
+        if (!vdsToRunOn.isPresent()) {
+            log.info("Host '{}' the VM '{}' was placed on cannot run it anymore, scheduling the VM again",
+                    placedVdsId,
+                    getVmId());
+        }
+        return vdsToRunOn;
+    }
+
+    protected boolean getVdsToRunOn() {
+        Optional<Guid> vdsToRunOn = getBatchPlacedVdsToRunOn();
+        if (!vdsToRunOn.isPresent()) {
+            vdsToRunOn = schedulingManager.prepareCall(getCluster())
+                    .hostBlackList(getRunVdssList())
+                    .hostWhiteList(getVdsWhiteList())
+                    .destHostIdList(getPredefinedVdsIdListToRunOn())
+                    .delay(true)
+                    .correlationId(getCorrelationId())
+                    .schedule(getVm());
+        }
 
         setVdsId(vdsToRunOn.orElse(null));
         if (vdsToRunOn.isPresent()) {
@@ -1078,6 +1111,9 @@ public class RunVmCommand<T extends RunVmParams> extends RunVmCommandBase<T>
                     String.format("$DcVersion %1$s", getStoragePool().getCompatibilityVersion()));
         }
 
+        // The resources pending for the VM on the host it was placed on would be counted twice by the validation
+        schedulingManager.releaseBatchPlacement(vm.getStaticData()).ifPresent(vdsId -> batchPlacedVdsId = vdsId);
+
         RunVmValidator runVmValidator = getRunVmValidator();
 
         if (!runVmValidator.canRunVm(
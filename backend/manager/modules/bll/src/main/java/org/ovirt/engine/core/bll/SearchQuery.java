@@ -4,7 +4,6 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
-import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -60,7 +59,6 @@ import org.ovirt.engine.core.common.queries.QueryType;
 import org.ovirt.engine.core.common.queries.SearchParameters;
 import org.ovirt.engine.core.compat.DateTime;
 import org.ovirt.engine.core.compat.Guid;
-import org.ovirt.engine.core.compat.TimeSpan;
 import org.ovirt.engine.core.compat.Version;
 import org.ovirt.engine.core.dao.AuditLogDao;
 import org.ovirt.engine.core.dao.ClusterDao;
@@ -92,9 +90,11 @@ import org.ovirt.engine.core.utils.lock.EngineLock;
 import org.ovirt.engine.core.utils.lock.LockManager;
 
 public class SearchQuery<P extends SearchParameters> extends QueriesCommandBase<P> {
-    private static final Map<String, QueryData> queriesCache = new HashMap<>();
     public static final String LDAP = "LDAP";
 
+    @Inject
+    private SearchQueryCache queriesCache;
+
     @Inject
     private QuotaManager quotaManager;
 
@@ -510,10 +510,7 @@ public class SearchQuery<P extends SearchParameters> extends QueriesCommandBase<
                     StringUtils.join(AD_SEARCH_TYPES, "|")));
 
     private QueryData initQueryData(boolean useCache) {
-        final String ASTR = "*";
         QueryData data = null;
-        boolean isExistsValue = false;
-        boolean IsFromYesterday = false;
         boolean isSafe = false;
         String searchKey = "";
         try {
@@ -521,24 +518,22 @@ public class SearchQuery<P extends SearchParameters> extends QueriesCommandBase<
                 throw new RuntimeException(String.format("Illegal max count value for query : %s", getParameters().getMaxCount()));
             }
             String searchText = getParameters().getSearchPattern();
-            // do not cache expressions with '*' since it is translated to specific IDs that might be changed
-            useCache = useCache && !searchText.contains(ASTR);
+            Guid permissionsUserId = getParameters().isFiltered() && getParameters().isPermissionsFiltered()
+                    ? getUserID()
+                    : null;
             if (useCache) {
-                // first lets check the cache of queries.
-                searchKey = String.format("%1$s,%2$s,%3$s", searchText, getParameters().getMaxCount(), getParameters().getCaseSensitive());
+                // first lets check the cache of queries, expired entries are dropped by the cache.
+                searchKey = String.format("%1$s,%2$s,%3$s,%4$s,%5$s",
+                        searchText,
+                        getParameters().getMaxCount(),
+                        getParameters().getCaseSensitive(),
+                        getParameters().getSearchFrom(),
+                        permissionsUserId);
                 data = queriesCache.get(searchKey);
-                isExistsValue = data != null;
-
-                if (isExistsValue) {
-                    TimeSpan span = DateTime.getNow().subtract(new Date(data.getDate()));
-                    if (span.Days >= 1) {
-                        IsFromYesterday = true;
-                    }
-                }
             }
             // query not in cache or the cached entry is too old, process the
             // search text.
-            if (!isExistsValue || IsFromYesterday) {
+            if (data == null) {
                 log.debug("ResourceManager::searchBusinessObjects(''{}'') - entered", searchText);
                 final char AT='@';
                 String queryAuthz = null;
@@ -593,6 +588,7 @@ public class SearchQuery<P extends SearchParameters> extends QueriesCommandBase<
                 searchObj.setMaxCount(Math.min(Integer.MAX_VALUE, getParameters().getMaxCount()));
                 // setting FromSearch value
                 searchObj.setSearchFrom(getParameters().getSearchFrom());
+                searchObj.setPermissionsUserId(permissionsUserId);
                 if (searchObj.getError() != SyntaxError.NO_ERROR) {
                     int startPos = searchObj.getErrorStartPos();
                     int endPos = searchObj.getErrorEndPos();
@@ -609,7 +605,7 @@ public class SearchQuery<P extends SearchParameters> extends QueriesCommandBase<
                                     :
                                     searchObj.getError().toString();
                     getQueryReturnValue().setExceptionString(error);
-                    if (!queriesCache.containsKey(searchKey)) {
+                    if (!queriesCache.contains(searchKey)) {
                         // log error only once
                         log.info(
                                 "ResourceManager::searchBusinessObjects - erroneous search text - ''{}'' error - ''{}''",
@@ -622,7 +618,7 @@ public class SearchQuery<P extends SearchParameters> extends QueriesCommandBase<
                     return null;
                 }
                 if (!searchObj.getvalid()) {
-                    if (!queriesCache.containsKey(searchKey)) {
+                    if (!queriesCache.contains(searchKey)) {
                         log.warn("ResourceManager::searchBusinessObjects - Invalid search text - ''{}''", searchText);
                         queriesCache.put(searchKey, null);
                     }
@@ -638,26 +634,27 @@ public class SearchQuery<P extends SearchParameters> extends QueriesCommandBase<
                 // when looking for tags , the query contains all parent children tag id's
                 // statically, therefore , in order to reflect changes in the parent tree
                 // we should not rely on the cached query in such case and have to build the
-                // query from scratch.
-                if (!containsStaticInValues(data.getQuery())) {
+                // query from scratch. Other wildcards are translated to LIKE patterns, so
+                // such queries can be cached.
+                if (useCache && !containsStaticInValues(data.getQuery())) {
                     queriesCache.put(searchKey, data);
                 }
             }
         } catch (SearchEngineIllegalCharacterException e) {
-            if (!queriesCache.containsKey(searchKey)) {
+            if (!queriesCache.contains(searchKey)) {
                 log.error("Search expression can not end with ESCAPE character: {}",
                         getParameters().getSearchPattern());
                 queriesCache.put(searchKey, null);
             }
             data = null;
         } catch (SqlInjectionException e) {
-            if (!queriesCache.containsKey(searchKey)) {
+            if (!queriesCache.contains(searchKey)) {
                 log.error("Sql Injection in search: {}", getParameters().getSearchPattern());
                 queriesCache.put(searchKey, null);
             }
             data = null;
         } catch (RuntimeException ex) {
-            if (!queriesCache.containsKey(searchKey)) {
+            if (!queriesCache.contains(searchKey)) {
                 log.warn("Illegal search: {}: {}", getParameters().getSearchPattern(), ex.getMessage());
                 log.debug("Exception", ex);
                 queriesCache.put(searchKey, null);
@@ -673,6 +670,8 @@ public class SearchQuery<P extends SearchParameters> extends QueriesCommandBase<
 
     private static boolean containsStaticInValues(String query) {
         final String MATCH_IN_TAG_ID_CLAUSE = "with_tags.tag_id in";
-        return query.toLowerCase().contains(MATCH_IN_TAG_ID_CLAUSE);
+        final String MATCH_IN_TAG_NAME_CLAUSE = "with_tags.tag_name in";
+        String lowerCaseQuery = query.toLowerCase();
+        return lowerCaseQuery.contains(MATCH_IN_TAG_ID_CLAUSE) || lowerCaseQuery.contains(MATCH_IN_TAG_NAME_CLAUSE);
     }
 }
@@ -0,0 +1,198 @@
+package org.ovirt.engine.core.bll;
+
+import java.lang.management.ManagementFactory;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.inject.Singleton;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.ovirt.engine.core.aaa.QueryData;
+import org.ovirt.engine.core.utils.EngineLocalConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Caches the SQL queries generated for search expressions, so a search which is repeated (by dashboards, REST
+ * pollers etc.) doesn't have to be analyzed again by the syntax checker.
+ * <p>
+ * The cache is bounded both by size and by the age of its entries. When it grows over its maximal size, the least
+ * recently used entries are evicted. An entry may hold a {@code null} query, marking a search expression which is
+ * known to be erroneous, so the error is reported only once.
+ */
+@Singleton
+public class SearchQueryCache implements SearchQueryCacheMXBean {
+
+    private static final Logger log = LoggerFactory.getLogger(SearchQueryCache.class);
+
+    private static final int DEFAULT_MAX_SIZE = 10000;
+    private static final long DEFAULT_TTL_IN_SECONDS = TimeUnit.DAYS.toSeconds(1);
+
+    private final Map<String, CachedQuery> cache = new ConcurrentHashMap<>();
+    /** A lock which makes sure only a single thread evicts entries at a time **/
+    private final Lock evictionLock = new ReentrantLock();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    private int maxSize;
+    private long ttlMillis;
+
+    private MBeanServer platformMBeanServer;
+    private ObjectName objectName;
+
+    public SearchQueryCache() {
+        this(DEFAULT_MAX_SIZE, TimeUnit.SECONDS.toMillis(DEFAULT_TTL_IN_SECONDS));
+    }
+
+    SearchQueryCache(int maxSize, long ttlMillis) {
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlMillis;
+    }
+
+    @PostConstruct
+    public void init() {
+        EngineLocalConfig config = EngineLocalConfig.getInstance();
+        maxSize = config.getInteger("SEARCH_QUERY_CACHE_MAX_SIZE", DEFAULT_MAX_SIZE);
+        ttlMillis = TimeUnit.SECONDS.toMillis(
+                config.getLong("SEARCH_QUERY_CACHE_TTL_IN_SECONDS", DEFAULT_TTL_IN_SECONDS));
+        try {
+            objectName = new ObjectName("SearchQueryCache:type=" + getClass().getName());
+            platformMBeanServer = ManagementFactory.getPlatformMBeanServer();
+            platformMBeanServer.registerMBean(this, objectName);
+        } catch (Exception e) {
+            log.warn("Problem during registration of search query cache into JMX: {}", e.getMessage());
+            log.debug("Exception", e);
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        try {
+            if (objectName != null) {
+                platformMBeanServer.unregisterMBean(objectName);
+            }
+        } catch (Exception e) {
+            log.warn("Problem during unregistration of search query cache from JMX: {}", e.getMessage());
+            log.debug("Exception", e);
+        }
+    }
+
+    /**
+     * Returns the cached query of the given search key, or {@code null} if there is no valid query cached for it
+     */
+    public QueryData get(String searchKey) {
+        CachedQuery cachedQuery = getIfNotExpired(searchKey);
+        if (cachedQuery == null || cachedQuery.data == null) {
+            misses.increment();
+            return null;
+        }
+        cachedQuery.lastAccess = System.currentTimeMillis();
+        hits.increment();
+        return cachedQuery.data;
+    }
+
+    /**
+     * Returns whether the given search key is cached, either with a query or marked as erroneous
+     */
+    public boolean contains(String searchKey) {
+        return getIfNotExpired(searchKey) != null;
+    }
+
+    /**
+     * Caches the query generated for the given search key, a {@code null} query marks the search as erroneous
+     */
+    public void put(String searchKey, QueryData data) {
+        cache.put(searchKey, new CachedQuery(data, System.currentTimeMillis()));
+        if (cache.size() > maxSize) {
+            evictLeastRecentlyUsed();
+        }
+    }
+
+    private CachedQuery getIfNotExpired(String searchKey) {
+        CachedQuery cachedQuery = cache.get(searchKey);
+        if (cachedQuery != null && System.currentTimeMillis() - cachedQuery.created >= ttlMillis) {
+            if (cache.remove(searchKey, cachedQuery)) {
+                evictions.increment();
+            }
+            return null;
+        }
+        return cachedQuery;
+    }
+
+    /**
+     * Evicts the least recently used entries, leaving some headroom so the eviction doesn't run on every insert of a
+     * full cache
+     */
+    private void evictLeastRecentlyUsed() {
+        if (!evictionLock.tryLock()) {
+            return;
+        }
+        try {
+            int targetSize = maxSize - Math.max(1, maxSize / 10);
+            int toEvict = cache.size() - targetSize;
+            if (toEvict <= 0) {
+                return;
+            }
+            cache.entrySet()
+                    .stream()
+                    .sorted(Comparator.comparingLong(entry -> entry.getValue().lastAccess))
+                    .limit(toEvict)
+                    .forEach(entry -> {
+                        if (cache.remove(entry.getKey(), entry.getValue())) {
+                            evictions.increment();
+                        }
+                    });
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    @Override
+    public int getSize() {
+        return cache.size();
+    }
+
+    @Override
+    public long getHits() {
+        return hits.sum();
+    }
+
+    @Override
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    @Override
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    @Override
+    public void clear() {
+        log.info("Clearing the search query cache");
+        cache.clear();
+    }
+
+    private static class CachedQuery {
+
+        private final QueryData data;
+        private final long created;
+        private volatile long lastAccess;
+
+        public CachedQuery(QueryData data, long created) {
+            this.data = data;
+            this.created = created;
+            this.lastAccess = created;
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package org.ovirt.engine.core.bll;
+
+/**
+ * The following interface is used as interface for JMX bean of the search query cache
+ */
+public interface SearchQueryCacheMXBean {
+
+    /**
+     * The following method will return the number of search expressions currently kept in the cache
+     */
+    int getSize();
+
+    /**
+     * The following method will return the number of lookups which were served from the cache
+     */
+    long getHits();
+
+    /**
+     * The following method will return the number of lookups which had to generate the query
+     */
+    long getMisses();
+
+    /**
+     * The following method will return the number of entries which were evicted because the cache was full or
+     * because they expired
+     */
+    long getEvictions();
+
+    /**
+     * The following method will allow to clear the cache via JMX console
+     */
+    void clear();
+}
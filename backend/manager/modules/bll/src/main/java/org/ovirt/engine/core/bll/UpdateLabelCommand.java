@@ -29,6 +29,7 @@ public class UpdateLabelCommand extends LabelCommandBase<LabelActionParameters>
         Collection changedVms = CollectionUtils.disjunction(label.getVms(), getParameters().getLabel().getVms());
         vmStaticDao.incrementDbGenerationForVms(new ArrayList<>(changedVms));
         labelDao.update(getParameters().getLabel());
+        schedulingSnapshotCache.invalidateAffinityGroups();
         setActionReturnValue(getParameters().getLabel());
         setSucceeded(true);
     }
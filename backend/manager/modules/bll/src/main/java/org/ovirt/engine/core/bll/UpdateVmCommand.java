@@ -28,6 +28,7 @@ import org.ovirt.engine.core.bll.quota.QuotaClusterConsumptionParameter;
 import org.ovirt.engine.core.bll.quota.QuotaConsumptionParameter;
 import org.ovirt.engine.core.bll.quota.QuotaSanityParameter;
 import org.ovirt.engine.core.bll.quota.QuotaVdsDependent;
+import org.ovirt.engine.core.bll.scheduling.SchedulingSnapshotCache;
 import org.ovirt.engine.core.bll.scheduling.SlaValidator;
 import org.ovirt.engine.core.bll.scheduling.utils.VdsCpuUnitPinningHelper;
 import org.ovirt.engine.core.bll.snapshots.SnapshotVmConfigurationHelper;
@@ -179,6 +180,8 @@ public class UpdateVmCommand<T extends VmManagementParametersBase> extends VmMan
     @Inject
     private LabelDao labelDao;
     @Inject
+    private SchedulingSnapshotCache schedulingSnapshotCache;
+    @Inject
     private NetworkHelper networkHelper;
     @Inject
     private IconUtils iconUtils;
@@ -1768,6 +1771,10 @@ public class UpdateVmCommand<T extends VmManagementParametersBase> extends VmMan
                     .collect(Collectors.toList());
             labelDao.updateLabelsForVm(getVmId(), labelIds);
         }
+
+        if (affinityGroups != null || affinityLabels != null) {
+            schedulingSnapshotCache.invalidateAffinityGroups();
+        }
     }
 
     @Override
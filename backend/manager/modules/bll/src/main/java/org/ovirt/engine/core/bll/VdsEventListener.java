@@ -23,6 +23,7 @@ import org.ovirt.engine.core.bll.hostdev.HostDeviceManager;
 import org.ovirt.engine.core.bll.interfaces.BackendInternal;
 import org.ovirt.engine.core.bll.job.ExecutionHandler;
 import org.ovirt.engine.core.bll.scheduling.SchedulingManager;
+import org.ovirt.engine.core.bll.scheduling.arem.AffinityViolationIndex;
 import org.ovirt.engine.core.bll.storage.pool.StoragePoolStatusHandler;
 import org.ovirt.engine.core.bll.tasks.CommandCoordinatorUtil;
 import org.ovirt.engine.core.common.AuditLogType;
@@ -130,6 +131,8 @@ public class VdsEventListener implements IVdsEventListener {
     @Inject
     private SchedulingManager schedulingManager;
     @Inject
+    private AffinityViolationIndex affinityViolationIndex;
+    @Inject
     private AuditLogDirector auditLogDirector;
     @Inject
     private GlusterBrickDao glusterBrickDao;
@@ -482,6 +485,13 @@ public class VdsEventListener implements IVdsEventListener {
         schedulingManager.updateHostSchedulingStats(vds);
     }
 
+    @Override
+    public void vmsMovedToHost(List<Guid> vmIds, Guid vdsId) {
+        if (!vmIds.isEmpty()) {
+            affinityViolationIndex.vmsMoved(vmIds);
+        }
+    }
+
     @Override
     public void updateSlaPolicies(final List<Guid> vmIds, final Guid vdsId) {
         if (vmIds.isEmpty()) {
@@ -107,6 +107,10 @@ public class VmPoolHandler implements BackendService {
         return success;
     }
 
+    public void releaseVm(Guid vmId) {
+        lockManager.releaseLock(createLock(vmId));
+    }
+
     public Guid acquireVm(Guid vmId, boolean leaveLocked) {
         if (!leaveLocked) {
             return vmId;
@@ -1,5 +1,7 @@
 package org.ovirt.engine.core.bll;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -20,6 +22,7 @@ import javax.inject.Singleton;
 import org.apache.commons.lang.exception.ExceptionUtils;
 import org.ovirt.engine.core.bll.interfaces.BackendInternal;
 import org.ovirt.engine.core.bll.job.ExecutionHandler;
+import org.ovirt.engine.core.bll.scheduling.SchedulingManager;
 import org.ovirt.engine.core.common.AuditLogType;
 import org.ovirt.engine.core.common.BackendService;
 import org.ovirt.engine.core.common.VdcObjectType;
@@ -37,6 +40,7 @@ import org.ovirt.engine.core.compat.Guid;
 import org.ovirt.engine.core.dal.dbbroker.auditloghandling.AuditLogDirector;
 import org.ovirt.engine.core.dal.dbbroker.auditloghandling.AuditLogable;
 import org.ovirt.engine.core.dal.dbbroker.auditloghandling.AuditLogableImpl;
+import org.ovirt.engine.core.dao.ClusterDao;
 import org.ovirt.engine.core.dao.VmDao;
 import org.ovirt.engine.core.dao.VmPoolDao;
 import org.ovirt.engine.core.dao.VmStaticDao;
@@ -65,6 +69,10 @@ public class VmPoolMonitor implements BackendService {
     @Inject
     private VmStaticDao vmStaticDao;
     @Inject
+    private ClusterDao clusterDao;
+    @Inject
+    private SchedulingManager schedulingManager;
+    @Inject
     protected BackendInternal backend;
     @Inject
     @ThreadPools(ThreadPools.ThreadPoolType.EngineScheduledThreadPool)
@@ -162,12 +170,21 @@ public class VmPoolMonitor implements BackendService {
                         .iterator();
         while (failedAttempts < maxFailedAttempts && prestartedVms < numOfVmsToPrestart
                 && iterator.hasNext()) {
-            Guid vmId = iterator.next();
-            if (prestartVm(vmId, !vmPool.isStateful(), vmPool.getName())) {
-                prestartedVms++;
-                failedAttempts = 0;
-            } else {
-                failedAttempts++;
+            List<Guid> vmIds = new ArrayList<>();
+            while (vmIds.size() < numOfVmsToPrestart - prestartedVms && iterator.hasNext()) {
+                vmIds.add(iterator.next());
+            }
+
+            Map<Guid, Guid> vmToHost = placeVms(vmPool, vmIds);
+            for (Guid vmId : vmIds) {
+                if (failedAttempts >= maxFailedAttempts) {
+                    releaseVm(vmId, vmToHost.containsKey(vmId));
+                } else if (prestartVm(vmId, !vmPool.isStateful(), vmPool.getName(), vmToHost.get(vmId))) {
+                    prestartedVms++;
+                    failedAttempts = 0;
+                } else {
+                    failedAttempts++;
+                }
             }
         }
 
@@ -214,19 +231,46 @@ public class VmPoolMonitor implements BackendService {
         }
     }
 
+    /**
+     * Places the given VMs to prestart by one scheduling call, so the equivalent VMs of the pool share the filtering
+     * of the hosts. A single VM is left to be scheduled by its run command.
+     * @return the hosts the VMs were placed on, by VM
+     */
+    private Map<Guid, Guid> placeVms(VmPool vmPool, List<Guid> vmIds) {
+        if (vmIds.size() < 2) {
+            return Collections.emptyMap();
+        }
+
+        return schedulingManager.prepareCall(clusterDao.get(vmPool.getClusterId()))
+                .batchPlacement(true)
+                .delay(true)
+                .schedule(vmDao.getVmsByIds(vmIds));
+    }
+
+    /**
+     * Releases a selected VM which is not going to be prestarted after all.
+     */
+    private void releaseVm(Guid vmId, boolean placed) {
+        vmPoolHandler.releaseVm(vmId);
+        if (placed) {
+            schedulingManager.clearPendingVm(vmStaticDao.get(vmId));
+        }
+    }
+
     /**
      * Prestarts the given VM.
+     * @param scheduledVdsId the host the VM was placed on, or null if the VM is yet to be scheduled
      * @return whether or not succeeded to prestart the VM
      */
-    private boolean prestartVm(Guid vmGuid, boolean runAsStateless, String poolName) {
+    private boolean prestartVm(Guid vmGuid, boolean runAsStateless, String poolName, Guid scheduledVdsId) {
         VmStatic vmToPrestart = vmStaticDao.get(vmGuid);
-        return runVmFromPool(vmToPrestart, runAsStateless, poolName);
+        return runVmFromPool(vmToPrestart, runAsStateless, poolName, scheduledVdsId);
     }
 
     /**
      * Run the given VM as stateless.
      */
-    private boolean runVmFromPool(VmStatic vmToRun, boolean runAsStateless, String poolName) {
+    private boolean runVmFromPool(VmStatic vmToRun, boolean runAsStateless, String poolName, Guid scheduledVdsId) {
         log.info("Running VM '{}' as {}", vmToRun.getName(), runAsStateless ? "stateless" : "stateful");
         startingVm(vmToRun.getId());
 
@@ -240,6 +284,9 @@ public class VmPoolMonitor implements BackendService {
 
         if (!prestartingVmSucceeded) {
             startingVmCompleted(vmToRun.getId(), "RunVmCommand execution failed");
+            if (scheduledVdsId != null) {
+                schedulingManager.clearPendingVm(vmToRun);
+            }
 
             AuditLogable log = new AuditLogableImpl();
             log.addCustomValue("VmPoolName", poolName);
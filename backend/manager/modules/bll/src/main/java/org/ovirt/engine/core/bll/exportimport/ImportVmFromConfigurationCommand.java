@@ -16,6 +16,7 @@ import org.apache.commons.collections.MapUtils;
 import org.apache.commons.lang.StringUtils;
 import org.ovirt.engine.core.bll.NonTransactiveCommandAttribute;
 import org.ovirt.engine.core.bll.context.CommandContext;
+import org.ovirt.engine.core.bll.scheduling.SchedulingSnapshotCache;
 import org.ovirt.engine.core.bll.scheduling.arem.AffinityRulesUtils;
 import org.ovirt.engine.core.bll.storage.disk.image.DisksFilter;
 import org.ovirt.engine.core.bll.storage.ovfstore.DrMappingHelper;
@@ -86,6 +87,8 @@ public class ImportVmFromConfigurationCommand<T extends ImportVmFromConfParamete
     @Inject
     private LabelDao labelDao;
     @Inject
+    private SchedulingSnapshotCache schedulingSnapshotCache;
+    @Inject
     private RoleDao roleDao;
 
     public ImportVmFromConfigurationCommand(Guid commandId) {
@@ -299,6 +302,9 @@ public class ImportVmFromConfigurationCommand<T extends ImportVmFromConfParamete
     @Override
     public void addVmToAffinityGroups() {
         cachedAffinityGroups.forEach(affinityGroup -> affinityGroupDao.update(affinityGroup));
+        if (!cachedAffinityGroups.isEmpty()) {
+            schedulingSnapshotCache.invalidateAffinityGroups();
+        }
     }
 
     @Override
@@ -307,6 +313,9 @@ public class ImportVmFromConfigurationCommand<T extends ImportVmFromConfParamete
             affinityLabel.addVm(getParameters().getVm());
             labelDao.update(affinityLabel);
         });
+        if (!cachedAffinityLabels.isEmpty()) {
+            schedulingSnapshotCache.invalidateAffinityGroups();
+        }
     }
 
     private static ArrayList<DiskImage> getDiskImageListFromDiskMap(Map<Guid, Disk> diskMap) {
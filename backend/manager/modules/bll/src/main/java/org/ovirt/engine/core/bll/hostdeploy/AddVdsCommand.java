@@ -23,6 +23,7 @@ import org.ovirt.engine.core.bll.host.provider.HostProviderProxy;
 import org.ovirt.engine.core.bll.job.ExecutionContext;
 import org.ovirt.engine.core.bll.job.ExecutionHandler;
 import org.ovirt.engine.core.bll.provider.ProviderProxyFactory;
+import org.ovirt.engine.core.bll.scheduling.SchedulingSnapshotCache;
 import org.ovirt.engine.core.bll.utils.ClusterUtils;
 import org.ovirt.engine.core.bll.utils.EngineSSHClient;
 import org.ovirt.engine.core.bll.utils.PermissionSubject;
@@ -97,6 +98,8 @@ public class AddVdsCommand<T extends AddVdsActionParameters> extends VdsCommand<
     @Inject
     private LabelDao labelDao;
     @Inject
+    private SchedulingSnapshotCache schedulingSnapshotCache;
+    @Inject
     private ClusterUtils clusterUtils;
     @Inject
     private AffinityValidator affinityValidator;
@@ -599,5 +602,9 @@ public class AddVdsCommand<T extends AddVdsActionParameters> extends VdsCommand<
                     .collect(Collectors.toList());
             labelDao.addHostToLabels(getVdsId(), labelIds);
         }
+
+        if (affinityGroups != null || affinityLabels != null) {
+            schedulingSnapshotCache.invalidateAffinityGroups();
+        }
     }
 }
@@ -19,6 +19,7 @@ import org.ovirt.engine.core.bll.context.CommandContext;
 import org.ovirt.engine.core.bll.hostedengine.HostedEngineHelper;
 import org.ovirt.engine.core.bll.job.ExecutionHandler;
 import org.ovirt.engine.core.bll.network.cluster.NetworkClusterHelper;
+import org.ovirt.engine.core.bll.scheduling.SchedulingSnapshotCache;
 import org.ovirt.engine.core.bll.validator.AffinityValidator;
 import org.ovirt.engine.core.bll.validator.UpdateHostValidator;
 import org.ovirt.engine.core.common.AuditLogType;
@@ -98,6 +99,8 @@ public class UpdateVdsCommand<T extends UpdateVdsActionParameters>  extends VdsC
     private AffinityGroupDao affinityGroupDao;
     @Inject
     private LabelDao labelDao;
+    @Inject
+    private SchedulingSnapshotCache schedulingSnapshotCache;
 
     private BiConsumer<AuditLogable, AuditLogDirector> affinityGroupLoggingMethod = (a, b) -> {};
 
@@ -369,5 +372,9 @@ public class UpdateVdsCommand<T extends UpdateVdsActionParameters>  extends VdsC
                     .collect(Collectors.toList());
             labelDao.updateLabelsForHost(getVdsId(), labelIds);
         }
+
+        if (affinityGroups != null || affinityLabels != null) {
+            schedulingSnapshotCache.invalidateAffinityGroups();
+        }
     }
 }
@@ -7,12 +7,15 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Condition;
-import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
@@ -36,7 +39,13 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * The following class an implementation of internal locking mechanism
+ * The following class an implementation of internal locking mechanism.
+ * <p>
+ * The keys are spread over a fixed number of stripes, each guarded by its own {@link ReentrantLock}. An operation
+ * only takes the stripes of the keys it touches (always in ascending stripe order, so two multi-key operations can
+ * not deadlock), which lets unrelated locks be acquired and released concurrently. Threads waiting in
+ * {@code acquireLockWait()} are parked on a condition of the specific key that blocked them, so releasing a lock
+ * only wakes up the threads that are waiting for the released keys.
  */
 @Startup
 @Singleton(name = "LockManager")
@@ -45,12 +54,14 @@ import org.slf4j.LoggerFactory;
 @Local(LockManager.class)
 public class InMemoryLockManager implements LockManager, LockManagerMonitorMXBean {
 
+    /** Number of stripes the keys are spread over, must be a power of two **/
+    private static final int STRIPES_COUNT = 256;
+
     /** A map which is contains all internal representation of locks **/
-    private final Map<String, InternalLockView> locks = new HashMap<>();
-    /** A lock which is used to synchronized acquireLock(), acquireLockWait() and releaseLock() operations **/
-    private final Lock globalLock = new ReentrantLock();
-    /** A condition which is used in order to notify for waiting threads that some lock was released**/
-    private final Condition releasedLock = globalLock.newCondition();
+    private final Map<String, InternalLockView> locks = new ConcurrentHashMap<>();
+    /** The stripes which are used to synchronize acquireLock(), acquireLockWait() and releaseLock() operations **/
+    private final Stripe[] stripes = IntStream.range(0, STRIPES_COUNT).mapToObj(i -> new Stripe())
+            .toArray(Stripe[]::new);
 
     private MBeanServer platformMBeanServer;
     private ObjectName objectName = null;
@@ -79,11 +90,11 @@ public class InMemoryLockManager implements LockManager, LockManagerMonitorMXBea
     @Override
     public LockingResult acquireLock(EngineLock lock) {
         log.debug("Before acquiring lock '{}'", lock);
-        globalLock.lock();
+        int[] stripeIndexes = lockStripes(lock);
         try {
             return acquireLockInternal(lock);
         } finally {
-            globalLock.unlock();
+            unlockStripes(stripeIndexes);
         }
     }
 
@@ -91,16 +102,12 @@ public class InMemoryLockManager implements LockManager, LockManagerMonitorMXBea
     public void acquireLockWait(EngineLock lock) {
         log.debug("Before acquiring and wait lock '{}'", lock);
         validateLockForAcquireAndWait(lock);
-        globalLock.lock();
         try {
-            while (!acquireLockInternal(lock).isAcquired()) {
+            while (!acquireLockOrAwait(lock, false, 0L).getFirst().isAcquired()) {
                 log.info("Failed to acquire lock and wait lock '{}'", lock);
-                releasedLock.await();
             }
         } catch (InterruptedException ignore) {
 
-        } finally {
-            globalLock.unlock();
         }
     }
 
@@ -113,27 +120,96 @@ public class InMemoryLockManager implements LockManager, LockManagerMonitorMXBea
         }
         long timeoutNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
         LockingResult lockAcquired = LockingResult.fail();
-        globalLock.lock();
         try {
             do {
-                lockAcquired = acquireLockInternal(lock);
+                Pair<LockingResult, Long> attempt = acquireLockOrAwait(lock, true, timeoutNanos);
+                lockAcquired = attempt.getFirst();
                 if (!lockAcquired.isAcquired()) {
                     if (timeoutNanos <= 0L) {
                         log.info("Failed to acquire lock because timeout was reached. lock {}", lock);
                         break;
                     }
                     log.info("Failed to acquire lock, will try again until timeout. lock '{}'", lock);
-                    timeoutNanos = releasedLock.awaitNanos(timeoutNanos);
                 }
+                timeoutNanos = attempt.getSecond();
             } while (!lockAcquired.isAcquired());
         } catch (InterruptedException ignore) {
             log.info("Acquire lock operation was interrupted. lock '{}'", lock);
-        } finally {
-            globalLock.unlock();
         }
         return lockAcquired;
     }
 
+    /**
+     * The following method tries to acquire the lock once. If the lock can not be acquired, the calling thread is
+     * parked on the wait queue of the key which blocked it, until that key is released or the timeout elapses.
+     * @param timed
+     *            - whether the wait is bounded by {@code timeoutNanos}
+     * @return the result of the attempt and the remaining timeout in nanoseconds
+     */
+    private Pair<LockingResult, Long> acquireLockOrAwait(EngineLock lock, boolean timed, long timeoutNanos)
+            throws InterruptedException {
+        int[] stripeIndexes = lockStripes(lock);
+        String blockingKey;
+        Stripe blockingStripe;
+        try {
+            LockingResult result = acquireLockInternal(lock);
+            if (result.isAcquired() || timed && timeoutNanos <= 0L) {
+                return new Pair<>(result, timeoutNanos);
+            }
+            blockingKey = findBlockingKey(lock);
+            if (blockingKey == null) {
+                return new Pair<>(result, timeoutNanos);
+            }
+            // keep holding the stripe of the blocking key after the others are released, so its release
+            // can not be missed before this thread starts waiting on it
+            blockingStripe = stripes[stripeIndex(blockingKey)];
+            blockingStripe.lock.lock();
+        } finally {
+            unlockStripes(stripeIndexes);
+        }
+
+        try {
+            Condition keyReleased = blockingStripe.enqueue(blockingKey);
+            try {
+                if (timed) {
+                    timeoutNanos = keyReleased.awaitNanos(timeoutNanos);
+                } else {
+                    keyReleased.await();
+                }
+            } finally {
+                blockingStripe.dequeue(blockingKey);
+            }
+        } finally {
+            blockingStripe.lock.unlock();
+        }
+        return new Pair<>(LockingResult.fail(), timeoutNanos);
+    }
+
+    /**
+     * Returns the key of the given lock which conflicts with an already held lock, should be called while the stripes
+     * of the lock are held
+     */
+    private String findBlockingKey(EngineLock lock) {
+        if (lock.getSharedLocks() != null) {
+            for (Entry<String, Pair<String, String>> entry : lock.getSharedLocks().entrySet()) {
+                String key = buildHashMapKey(entry);
+                InternalLockView internalLockView = locks.get(key);
+                if (internalLockView != null && internalLockView.getExclusive()) {
+                    return key;
+                }
+            }
+        }
+        if (lock.getExclusiveLocks() != null) {
+            for (Entry<String, Pair<String, String>> entry : lock.getExclusiveLocks().entrySet()) {
+                String key = buildHashMapKey(entry);
+                if (locks.containsKey(key)) {
+                    return key;
+                }
+            }
+        }
+        return null;
+    }
+
     private void validateLockForAcquireAndWait(EngineLock lock) {
         if (lock.getSharedLocks() != null && lock.getExclusiveLocks().size() > 1) {
             log.error("Trying to acquire or wait on shared or more than one exclusive locks '{}'", lock);
@@ -144,7 +220,7 @@ public class InMemoryLockManager implements LockManager, LockManagerMonitorMXBea
     @Override
     public void releaseLock(EngineLock lock) {
         log.debug("Before releasing a lock '{}'", lock);
-        globalLock.lock();
+        int[] stripeIndexes = lockStripes(lock);
         try {
             if (lock.getSharedLocks() != null) {
                 lock.getSharedLocks().entrySet().stream().forEach(entry ->
@@ -154,21 +230,23 @@ public class InMemoryLockManager implements LockManager, LockManagerMonitorMXBea
                 lock.getExclusiveLocks().entrySet().stream().forEach(entry ->
                     releaseExclusiveLock(buildHashMapKey(entry)));
             }
-            releasedLock.signalAll();
         } finally {
-            globalLock.unlock();
+            unlockStripes(stripeIndexes);
         }
     }
 
     @Override
     public void clear() {
         log.warn("Cleaning all in memory locks");
-        globalLock.lock();
+        int[] stripeIndexes = IntStream.range(0, STRIPES_COUNT).toArray();
+        lockStripes(stripeIndexes);
         try {
             locks.clear();
-            releasedLock.signalAll();
+            for (Stripe stripe : stripes) {
+                stripe.signalAll();
+            }
         } finally {
-            globalLock.unlock();
+            unlockStripes(stripeIndexes);
         }
     }
 
@@ -177,7 +255,8 @@ public class InMemoryLockManager implements LockManager, LockManagerMonitorMXBea
         log.warn("The following lock is going to be released via external call, lockId '{}', error message can be"
                 + " left for shared lock",
                 lockId);
-        globalLock.lock();
+        Stripe stripe = stripes[stripeIndex(lockId)];
+        stripe.lock.lock();
         try {
             InternalLockView lock = locks.get(lockId);
             if (lock == null) {
@@ -189,9 +268,8 @@ public class InMemoryLockManager implements LockManager, LockManagerMonitorMXBea
             } else {
                 releaseSharedLock(lockId, null);
             }
-            releasedLock.signalAll();
         } finally {
-            globalLock.unlock();
+            stripe.lock.unlock();
         }
         log.warn("Lock '{}' was released via external call", lockId);
         return true;
@@ -200,11 +278,9 @@ public class InMemoryLockManager implements LockManager, LockManagerMonitorMXBea
     @Override
     public List<String> showAllLocks() {
         log.debug("All in memory locks will be shown");
-        globalLock.lock();
         try {
             return locks.entrySet().stream().map(this::createLockDescription).collect(Collectors.toList());
         } finally {
-            globalLock.unlock();
             log.debug("All in memory locks were shown");
         }
     }
@@ -213,6 +289,42 @@ public class InMemoryLockManager implements LockManager, LockManagerMonitorMXBea
         return "The object id is : " + e.getKey() + ' ' + e.getValue();
     }
 
+    /**
+     * Returns the index of the stripe which guards the given key
+     */
+    private static int stripeIndex(String key) {
+        int hash = key.hashCode();
+        return (hash ^ (hash >>> 16)) & (STRIPES_COUNT - 1);
+    }
+
+    /**
+     * Locks all the stripes which guard the keys of the given lock, in ascending order
+     * @return the indexes of the locked stripes, to be passed to {@link #unlockStripes(int[])}
+     */
+    private int[] lockStripes(EngineLock lock) {
+        int[] stripeIndexes = Stream.of(lock.getSharedLocks(), lock.getExclusiveLocks())
+                .filter(Objects::nonNull)
+                .flatMap(regions -> regions.entrySet().stream())
+                .mapToInt(entry -> stripeIndex(buildHashMapKey(entry)))
+                .distinct()
+                .sorted()
+                .toArray();
+        lockStripes(stripeIndexes);
+        return stripeIndexes;
+    }
+
+    private void lockStripes(int[] stripeIndexes) {
+        for (int stripeIndex : stripeIndexes) {
+            stripes[stripeIndex].lock.lock();
+        }
+    }
+
+    private void unlockStripes(int[] stripeIndexes) {
+        for (int i = stripeIndexes.length - 1; i >= 0; i--) {
+            stripes[stripeIndexes[i]].lock.unlock();
+        }
+    }
+
     /**
      * Internal method should build a key for lock
      */
@@ -307,6 +419,7 @@ public class InMemoryLockManager implements LockManager, LockManagerMonitorMXBea
         InternalLockView lock = locks.get(key);
         if (lock != null && lock.getExclusive()) {
             locks.remove(key);
+            stripes[stripeIndex(key)].signal(key);
             log.debug("The exclusive lock for key '{}' is released and lock is removed from map", key);
         } else if (lock == null) {
             log.warn("Trying to release exclusive lock which does not exist, lock key: '{}'", key);
@@ -323,6 +436,7 @@ public class InMemoryLockManager implements LockManager, LockManagerMonitorMXBea
                 log.debug("The shared lock for key '{}' is released.", key);
                 if (lock.getCount() == 0) {
                     locks.remove(key);
+                    stripes[stripeIndex(key)].signal(key);
                     log.debug("The shared lock for key '{}' is removed from map", key);
                 } else {
                     lock.removeMessage(message);
@@ -337,12 +451,20 @@ public class InMemoryLockManager implements LockManager, LockManagerMonitorMXBea
 
     @Override
     public LockInfo getLockInfo(String key) {
-        InternalLockView internalLockView = locks.get(key);
-        if (internalLockView == null) {
-            return null;
+        InternalLockView internalLockView;
+        Set<String> messages;
+        Stripe stripe = stripes[stripeIndex(key)];
+        stripe.lock.lock();
+        try {
+            internalLockView = locks.get(key);
+            if (internalLockView == null) {
+                return null;
+            }
+            messages = internalLockView.getMessages();
+        } finally {
+            stripe.lock.unlock();
         }
 
-        Set<String> messages = internalLockView.getMessages();
         messages.remove(EngineMessage.ACTION_TYPE_FAILED_OBJECT_LOCKED.name());
         if (messages.isEmpty()) {
             // EngineMessage.ACTION_TYPE_FAILED_OBJECT_LOCKED should only be used for
@@ -361,6 +483,52 @@ public class InMemoryLockManager implements LockManager, LockManagerMonitorMXBea
                 .anyMatch(entry -> getLockInfo(buildHashMapKey(entry)) != null);
     }
 
+    /**
+     * The following class represents a stripe of keys, together with the wait queues of the threads which are waiting
+     * for keys of that stripe to be released. All the methods should be called while the stripe lock is held.
+     */
+    private static class Stripe {
+
+        private final ReentrantLock lock = new ReentrantLock();
+        /** Contains the wait queues of keys which currently have waiting threads **/
+        private final Map<String, KeyWaitQueue> waitQueues = new HashMap<>();
+
+        public Condition enqueue(String key) {
+            KeyWaitQueue waitQueue = waitQueues.computeIfAbsent(key, k -> new KeyWaitQueue(lock.newCondition()));
+            waitQueue.waiters++;
+            return waitQueue.condition;
+        }
+
+        public void dequeue(String key) {
+            KeyWaitQueue waitQueue = waitQueues.get(key);
+            if (waitQueue != null && --waitQueue.waiters == 0) {
+                waitQueues.remove(key);
+            }
+        }
+
+        public void signal(String key) {
+            KeyWaitQueue waitQueue = waitQueues.get(key);
+            if (waitQueue != null) {
+                waitQueue.condition.signalAll();
+            }
+        }
+
+        public void signalAll() {
+            waitQueues.values().forEach(waitQueue -> waitQueue.condition.signalAll());
+        }
+    }
+
+    private static class KeyWaitQueue {
+
+        private final Condition condition;
+        /** Number of threads waiting on the condition **/
+        private int waiters;
+
+        public KeyWaitQueue(Condition condition) {
+            this.condition = condition;
+        }
+    }
+
     /**
      * The following class represents different locks which are kept inside InMemoryLockManager
      */
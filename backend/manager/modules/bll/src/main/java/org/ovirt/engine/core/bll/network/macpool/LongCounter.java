@@ -0,0 +1,163 @@
+package org.ovirt.engine.core.bll.network.macpool;
+
+/**
+ * Associative array counting occurrences of long keys. The keys and counts are kept in primitive arrays using open
+ * addressing with linear probing, so no object is created per key; a pool with a million of custom MACs or duplicates
+ * then costs a few tens of megabytes less than with boxed keys and counters.
+ */
+class LongCounter {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final boolean allowDuplicate;
+
+    private long[] keys;
+
+    /**
+     * number of occurrences of the key in the same slot; zero marks a free slot.
+     */
+    private int[] counts;
+    private int mask;
+    private int size;
+
+    LongCounter(boolean allowDuplicate) {
+        this.allowDuplicate = allowDuplicate;
+        allocate(INITIAL_CAPACITY);
+    }
+
+    /**
+     * add key if possible, incrementing number of its occurrences.
+     * @param key key to add.
+     * @return true if key was added && count incremented.
+     */
+    public boolean increase(long key) {
+        return increase(key, allowDuplicate);
+    }
+
+    public boolean increase(long key, boolean allowDuplicate) {
+        int slot = findSlot(key);
+        if (counts[slot] == 0) {
+            keys[slot] = key;
+            counts[slot] = 1;
+            size++;
+            if (size * 4L > keys.length * 3L) {
+                rehash(keys.length * 2);
+            }
+            return true;
+        } else if (allowDuplicate) {
+            counts[slot]++;
+            return true;
+        } else {
+            return false;
+        }
+    }
+
+    /**
+     * decrements number of its occurrences, removing key if count reaches zero.
+     *
+     * @param key key to remove.
+     */
+    public void decrease(long key) {
+        int slot = findSlot(key);
+        if (counts[slot] == 0) {
+            return;
+        }
+
+        counts[slot]--;
+        if (counts[slot] == 0) {
+            size--;
+            closeGap(slot);
+        }
+    }
+
+    /**
+     * @param key key to look for
+     * @return true if there's at least one occurrence of given key.
+     */
+    public boolean contains(long key) {
+        return counts[findSlot(key)] != 0;
+    }
+
+    /**
+     * @param key key to look for
+     * @return number of occurrences of given key, zero when key was not added.
+     */
+    public int count(long key) {
+        return counts[findSlot(key)];
+    }
+
+    public boolean containsDuplicates() {
+        for (int count : counts) {
+            if (count > 1) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean containsCounts() {
+        return size > 0;
+    }
+
+    /**
+     * @return number of distinct keys.
+     */
+    public int size() {
+        return size;
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        counts = new int[capacity];
+        mask = capacity - 1;
+    }
+
+    /**
+     * @return slot holding given key, or free slot where given key belongs if it was not added.
+     */
+    private int findSlot(long key) {
+        int slot = homeSlot(key);
+        while (counts[slot] != 0 && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private int homeSlot(long key) {
+        // MACs come in sequences, so the bits are mixed to spread neighbouring keys over the table
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    /**
+     * Moves back the keys following freed slot, which would not be found behind the gap anymore.
+     */
+    private void closeGap(int freedSlot) {
+        int gap = freedSlot;
+        int slot = (gap + 1) & mask;
+        while (counts[slot] != 0) {
+            int distanceFromHome = (slot - homeSlot(keys[slot])) & mask;
+            int distanceFromGap = (slot - gap) & mask;
+            if (distanceFromHome >= distanceFromGap) {
+                keys[gap] = keys[slot];
+                counts[gap] = counts[slot];
+                gap = slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        counts[gap] = 0;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        int[] oldCounts = counts;
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldCounts[i] != 0) {
+                int slot = findSlot(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                counts[slot] = oldCounts[i];
+            }
+        }
+    }
+}
@@ -1,28 +1,39 @@
 package org.ovirt.engine.core.bll.network.macpool;
 
-import java.util.function.Predicate;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 import org.ovirt.engine.core.dao.network.VmNicDao;
 import org.ovirt.engine.core.di.Injector;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-class MacAddressGlobalUsageTester implements Predicate<String> {
+class MacAddressGlobalUsageTester implements MacsInUseTester {
     private static final Logger log = LoggerFactory.getLogger(MacAddressGlobalUsageTester.class);
     private final boolean allowDuplicates;
     private final VmNicDao vmNicDao;
 
     MacAddressGlobalUsageTester(boolean allowDuplicates) {
+        this(allowDuplicates, Injector.get(VmNicDao.class));
+    }
+
+    MacAddressGlobalUsageTester(boolean allowDuplicates, VmNicDao vmNicDao) {
         this.allowDuplicates = allowDuplicates;
-        vmNicDao = Injector.get(VmNicDao.class);
+        this.vmNicDao = vmNicDao;
     }
 
     @Override
-    public boolean test(String macAddress) {
-        if (!allowDuplicates && !vmNicDao.getPluggedForMac(macAddress).isEmpty()) {
-            log.debug("Attempted to allocate mac {} but it is already in use on a plugged interface", macAddress);
-            return true;
+    public Set<String> getMacsInUse(List<String> macAddresses) {
+        if (allowDuplicates || macAddresses.isEmpty()) {
+            return Collections.emptySet();
+        }
+
+        Set<String> macsInUse = new HashSet<>(vmNicDao.getPluggedMacsIn(macAddresses));
+        if (!macsInUse.isEmpty()) {
+            log.debug("Attempted to allocate macs {} but they are already in use on plugged interfaces", macsInUse);
         }
-        return false;
+        return macsInUse;
     }
 }
@@ -4,6 +4,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.stream.Stream;
 
 import org.apache.commons.lang.math.LongRange;
 import org.ovirt.engine.core.common.AuditLogType;
@@ -42,12 +43,16 @@ public final class MacPoolUsingRanges implements MacPool {
 
     }
 
-    void initialize(boolean engineStartup, List<String> macsForMacPool) {
+    void initialize(boolean engineStartup, Stream<String> macsForMacPool) {
         log.info("Initializing {}", this);
         this.macsStorage = createMacsStorage(this.rangesBoundaries);
-        auditIfPoolAlmostEmpty();
-        log.debug("Initializing {} with macs: {}", this, macsForMacPool);
-        List<String> notAddedMacs = addMacs(macsForMacPool);
+        List<String> notAddedMacs = new ArrayList<>();
+        macsForMacPool.forEach(mac -> {
+            log.debug("Initializing {} with mac: {}", this, mac);
+            if (!macsStorage.useMac(MacAddressRangeUtils.macToLong(mac))) {
+                notAddedMacs.add(mac);
+            }
+        });
 
         if (!notAddedMacs.isEmpty()) {
             if (engineStartup) {
@@ -59,13 +64,16 @@ public final class MacPoolUsingRanges implements MacPool {
                         AuditLogType.MAC_ADDRESS_VIOLATES_NO_DUPLICATES_SETTING,
                         auditLogMessage);
 
-                forceAddMacs(notAddedMacs);
+                notAddedMacs.forEach(mac -> macsStorage.useMacNoDuplicityCheck(MacAddressRangeUtils.macToLong(mac)));
             } else {
                 throw new EngineException(EngineError.MAC_POOL_INITIALIZATION_FAILED,
                         "Unable to initialize MAC pool due to existing duplicates");
             }
         }
 
+        // the emptiness is audited once for the whole pool, not after every added MAC
+        logWhenMacPoolIsEmpty();
+
         log.info("Finished initializing {}. Available MACs in pool: {}", this, macsStorage.getAvailableMacsCount());
     }
 
@@ -162,18 +170,6 @@ public final class MacPoolUsingRanges implements MacPool {
         return notAddedMacs;
     }
 
-    private void forceAddMac(String mac) {
-        log.debug("Forcibly allocating custom mac address {} from {}", mac, this);
-        macsStorage.useMacNoDuplicityCheck(MacAddressRangeUtils.macToLong(mac));
-        logWhenMacPoolIsEmpty();
-    }
-
-    private void forceAddMacs(List<String> macs) {
-        for (String mac : macs) {
-            forceAddMac(mac);
-        }
-    }
-
     @Override
     public boolean isMacInUse(String mac) {
         boolean result = macsStorage.isMacInUse(MacAddressRangeUtils.macToLong(mac));
@@ -0,0 +1,24 @@
+package org.ovirt.engine.core.bll.network.macpool;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Tells which of the MACs picked for allocation are already in use outside of the MAC pool, and so should be skipped.
+ * The MACs are tested in blocks, so the test can be done by a single query for all of them.
+ */
+@FunctionalInterface
+interface MacsInUseTester {
+
+    /**
+     * tester not skipping any MAC.
+     */
+    MacsInUseTester NONE = macAddresses -> Collections.emptySet();
+
+    /**
+     * @param macAddresses MACs picked for allocation.
+     * @return those of given MACs, which are in use.
+     */
+    Set<String> getMacsInUse(List<String> macAddresses);
+}
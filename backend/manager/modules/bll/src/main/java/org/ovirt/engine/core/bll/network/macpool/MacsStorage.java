@@ -1,9 +1,9 @@
 package org.ovirt.engine.core.bll.network.macpool;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.function.Predicate;
 
 import org.apache.commons.lang.Validate;
 import org.ovirt.engine.core.common.AuditLogType;
@@ -16,27 +16,29 @@ import org.ovirt.engine.core.di.Injector;
 
 class MacsStorage {
     private final boolean allowDuplicates;
-    private List<Range> ranges = new LinkedList<>();
-    private ObjectCounter<Long> customMacs;
+    private List<Range> ranges = new ArrayList<>();
+    private RangesIndex rangesIndex;
+    private LongCounter customMacs;
     private int startIndexForEmptyRangeSearch = 0;
-    private Predicate<String> skipAllocationPredicate;
+    private MacsInUseTester macsInUseTester;
 
     public MacsStorage(boolean allowDuplicates) {
         this(allowDuplicates, new MacAddressGlobalUsageTester(allowDuplicates));
     }
 
-    MacsStorage(boolean allowDuplicates, Predicate<String> skipAllocationPredicate) {
+    MacsStorage(boolean allowDuplicates, MacsInUseTester macsInUseTester) {
         this.allowDuplicates = allowDuplicates;
-        customMacs = new ObjectCounter<>(this.allowDuplicates);
-        this.skipAllocationPredicate = skipAllocationPredicate;
+        customMacs = new LongCounter(this.allowDuplicates);
+        this.macsInUseTester = macsInUseTester;
     }
 
-    void setSkipAllocationPredicate(Predicate<String> skipAllocationPredicate) {
-        this.skipAllocationPredicate = skipAllocationPredicate;
+    void setMacsInUseTester(MacsInUseTester macsInUseTester) {
+        this.macsInUseTester = macsInUseTester;
     }
 
     Range addRange(Range range) {
         ranges.add(range);
+        rangesIndex = null;
         return range;
     }
 
@@ -81,16 +83,16 @@ class MacsStorage {
         }
 
         final List<Long> result = new LinkedList<>();
-        int remainingMacs = allocateAvailableMacs(result, numberOfMacs, this.skipAllocationPredicate);
+        int remainingMacs = allocateAvailableMacs(result, numberOfMacs, this.macsInUseTester);
         if (remainingMacs > 0) {
             auditAllocatingMacsInUse(remainingMacs);
-            allocateAvailableMacs(result, remainingMacs, any -> false);
+            allocateAvailableMacs(result, remainingMacs, MacsInUseTester.NONE);
         }
 
         return result;
     }
 
-    private int allocateAvailableMacs(List<Long> allocatedMacs, int numberOfMacs, Predicate<String> skipAllocationPredicate) {
+    private int allocateAvailableMacs(List<Long> allocatedMacs, int numberOfMacs, MacsInUseTester macsInUseTester) {
         int remainingRanges = ranges.size();
         int reminaingMacs = numberOfMacs;
         while (reminaingMacs > 0 && remainingRanges > 0) {
@@ -101,7 +103,7 @@ class MacsStorage {
             int allocatingMacsCount = Math.min(availableMacsCount, reminaingMacs);
 
             final List<Long> allocatedMacsForRange = rangeWithAvailableMac.allocateMacs(
-                allocatingMacsCount, skipAllocationPredicate
+                allocatingMacsCount, macsInUseTester
             );
 
             if (allocatedMacsForRange.size() > 0) {
@@ -154,12 +156,10 @@ class MacsStorage {
     }
 
     private Range findIncludingRange(long mac) {
-        for (Range range : ranges) {
-            if (range.contains(mac)) {
-                return range;
-            }
+        if (rangesIndex == null) {
+            rangesIndex = new RangesIndex(ranges);
         }
-        return null;
+        return rangesIndex.findIncludingRange(mac);
     }
 
     boolean isMacInRange(Long mac) {
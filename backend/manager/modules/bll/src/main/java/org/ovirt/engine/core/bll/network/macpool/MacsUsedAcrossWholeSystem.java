@@ -49,9 +49,10 @@ public class MacsUsedAcrossWholeSystem {
      *
      * @param macPoolId pool being initialized
      *
-     * @return all MACs which should be registered in MAC pool.
+     * @return all MACs which should be registered in MAC pool. The interfaces of the VMs are loaded while the stream is
+     * consumed, so the MACs of the whole pool are not held in memory at once.
      */
-    public List<String> getMacsForMacPool(Guid macPoolId) {
+    public Stream<String> getMacsForMacPool(Guid macPoolId) {
         List<Guid> idsOfAllClustersHavingMacPool = getIdsOfAllClustersHavingMacPool(macPoolId);
 
         Map<Guid, VM> vmsById = getAllVmsInClusters(idsOfAllClustersHavingMacPool)
@@ -62,13 +63,10 @@ public class MacsUsedAcrossWholeSystem {
         Map<Guid, List<VmNetworkInterface>> snapshottedInterfacesByVmId =
                 statelessSnapshotsOfRunningVMs.collect(Collectors.toMap(VM::getId, VM::getInterfaces));
 
-        List<String> macsToBeAllocated = vmsById.keySet()
+        return vmsById.keySet()
                 .stream()
                 .flatMap(vmId -> calculateAllMacsUsedInVmAndItsSnapshot(getVmInterfaces(vmId),
-                        snapshottedInterfacesByVmId.get(vmId)))
-                .collect(Collectors.toList());
-
-        return macsToBeAllocated;
+                        snapshottedInterfacesByVmId.get(vmId)));
     }
 
     private Stream<VM> getStatelessSnapshots(Map<Guid, VM> vmsById) {
@@ -143,6 +141,10 @@ public class MacsUsedAcrossWholeSystem {
     private Stream<String> calculateAllMacsUsedInVmAndItsSnapshot(List<? extends VmNic> vmInterfaces,
             List<? extends VmNic> snapshotInterfaces) {
 
+        if (snapshotInterfaces == null) {
+            return macAddressesOfInterfaces(vmInterfaces).filter(Objects::nonNull);
+        }
+
         CountMacUsageDifference countMacUsageDifference =
                 new CountMacUsageDifference(macAddressesOfInterfaces(snapshotInterfaces),
                         macAddressesOfInterfaces(vmInterfaces));
@@ -3,7 +3,7 @@ package org.ovirt.engine.core.bll.network.macpool;
 import java.util.ArrayList;
 import java.util.BitSet;
 import java.util.List;
-import java.util.function.Predicate;
+import java.util.Set;
 
 import org.apache.commons.lang.Validate;
 import org.apache.commons.lang.math.LongRange;
@@ -14,9 +14,9 @@ class Range {
     private final int numberOfMacsInRange;
 
     /**
-     * object counter, which holds number of MACs duplicates.
+     * counter, which holds number of MACs duplicates by their index in range.
      */
-    private final ObjectCounter<Integer> macDuplicityCount = new ObjectCounter<>(true);
+    private final LongCounter macDuplicityCount = new LongCounter(true);
     private int availableMacsCount;
 
     private BitSet usedMacs;
@@ -39,6 +39,14 @@ class Range {
         return range.containsLong(mac);
     }
 
+    long getFirstMac() {
+        return range.getMinimumLong();
+    }
+
+    long getLastMac() {
+        return range.getMaximumLong();
+    }
+
     public boolean containsDuplicates() {
         return macDuplicityCount.containsCounts();
     }
@@ -106,7 +114,7 @@ class Range {
         return numberOfMacsInRange;
     }
 
-    public List<Long> allocateMacs(int numberOfMacs, Predicate<String> skipAllocationPredicate) {
+    public List<Long> allocateMacs(int numberOfMacs, MacsInUseTester macsInUseTester) {
         if (numberOfMacs > getAvailableCount()) {
             throw new IllegalStateException("Insufficient amount of free MACs.");
         }
@@ -116,17 +124,29 @@ class Range {
         int remainingMacs = numberOfMacs;
         int remainingAttempts = availableMacsCount;
         while (remainingMacs > 0 && remainingAttempts > 0) {
-            remainingAttempts -= 1;
-            final long mac = findUnusedMac();
-            String macAddress = MacAddressRangeUtils.macToString(mac);
-            if (skipAllocationPredicate.test(macAddress)) {
-                continue;
+            // pick exactly as many unused macs as missing, so none of them is passed over needlessly
+            int blockSize = Math.min(remainingMacs, remainingAttempts);
+            remainingAttempts -= blockSize;
+            List<Long> block = new ArrayList<>(blockSize);
+            List<String> blockAddresses = new ArrayList<>(blockSize);
+            for (int i = 0; i < blockSize; i++) {
+                long mac = findUnusedMac();
+                block.add(mac);
+                blockAddresses.add(MacAddressRangeUtils.macToString(mac));
             }
 
-            // Well duplicates may be allowed, but we're using unallocated mac.
-            use(mac, false);
-            result.add(mac);
-            remainingMacs -= 1;
+            Set<String> macsInUse = macsInUseTester.getMacsInUse(blockAddresses);
+            for (int i = 0; i < blockSize; i++) {
+                if (macsInUse.contains(blockAddresses.get(i))) {
+                    continue;
+                }
+
+                // Well duplicates may be allowed, but we're using unallocated mac.
+                long mac = block.get(i);
+                use(mac, false);
+                result.add(mac);
+                remainingMacs -= 1;
+            }
         }
 
         return result;
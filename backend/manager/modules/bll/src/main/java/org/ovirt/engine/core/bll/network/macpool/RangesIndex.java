@@ -0,0 +1,57 @@
+package org.ovirt.engine.core.bll.network.macpool;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Finds the range including a MAC by a binary search, instead of testing the ranges one by one. The ranges of a pool
+ * may overlap, so their boundaries split the MACs into segments, each of them included in the same ranges; every
+ * segment is assigned the first of its including ranges, as the first range was used by the linear search.
+ */
+class RangesIndex {
+
+    /**
+     * first MACs of the segments, ascending.
+     */
+    private final long[] segmentStarts;
+
+    /**
+     * range including the segment of the same index, or {@code null} for a gap between ranges.
+     */
+    private final Range[] segmentRanges;
+
+    RangesIndex(List<Range> ranges) {
+        long[] boundaries = ranges.stream()
+                .flatMapToLong(range -> Arrays.stream(new long[] { range.getFirstMac(), range.getLastMac() + 1 }))
+                .sorted()
+                .distinct()
+                .toArray();
+
+        segmentStarts = boundaries;
+        segmentRanges = new Range[boundaries.length];
+        for (int i = 0; i < boundaries.length; i++) {
+            segmentRanges[i] = findFirstIncludingRange(ranges, boundaries[i]);
+        }
+    }
+
+    private static Range findFirstIncludingRange(List<Range> ranges, long mac) {
+        for (Range range : ranges) {
+            if (range.getFirstMac() <= mac && mac <= range.getLastMac()) {
+                return range;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return first range including given MAC, or {@code null} if no range includes it.
+     */
+    Range findIncludingRange(long mac) {
+        int index = Arrays.binarySearch(segmentStarts, mac);
+        if (index < 0) {
+            // the segment starting before the insertion point
+            index = -index - 2;
+        }
+        return index < 0 ? null : segmentRanges[index];
+    }
+}
@@ -0,0 +1,38 @@
+package org.ovirt.engine.core.bll.network.vm;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.inject.Inject;
+
+import org.ovirt.engine.core.bll.QueriesCommandBase;
+import org.ovirt.engine.core.bll.context.EngineContext;
+import org.ovirt.engine.core.common.businessentities.network.VmNetworkInterface;
+import org.ovirt.engine.core.common.queries.IdsQueryParameters;
+import org.ovirt.engine.core.compat.Guid;
+import org.ovirt.engine.core.dao.network.VmNetworkInterfaceDao;
+
+/**
+ * Returns the interfaces of several VMs at once, mapped by the id of their VM. VMs without interfaces are not mapped.
+ */
+public class GetVmInterfacesByVmIdsQuery<P extends IdsQueryParameters> extends QueriesCommandBase<P> {
+    @Inject
+    private VmNetworkInterfaceDao vmNetworkInterfaceDao;
+
+    public GetVmInterfacesByVmIdsQuery(P parameters, EngineContext engineContext) {
+        super(parameters, engineContext);
+    }
+
+    @Override
+    protected void executeQueryCommand() {
+        Map<Guid, List<VmNetworkInterface>> result = new HashMap<>();
+        for (VmNetworkInterface iface : vmNetworkInterfaceDao.getAllForVms(getParameters().getIds(),
+                getUserID(),
+                getParameters().isFiltered())) {
+            result.computeIfAbsent(iface.getVmId(), vmId -> new ArrayList<>()).add(iface);
+        }
+        getQueryReturnValue().setReturnValue(result);
+    }
+}
@@ -80,6 +80,16 @@ public abstract class PolicyUnitImpl {
         return hosts;
     }
 
+    /**
+     * Returns whether the filter decides about every host regardless of the other hosts it is given,
+     * so it can be run concurrently with other filters on the same hosts and the results intersected.
+     * Filters are not independent unless they say so, as most of them use the pending resources or the whole
+     * list of hosts.
+     */
+    public boolean isFilterIndependent() {
+        return false;
+    }
+
     public List<Pair<Guid, Integer>> score(SchedulingContext context, List<VDS> hosts, List<VM> vmGroup) {
         return vmGroup.stream()
                 .flatMap(vm -> score(context, hosts, vm).stream())
@@ -0,0 +1,124 @@
+package org.ovirt.engine.core.bll.scheduling;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.stream.Collectors;
+
+import javax.annotation.PostConstruct;
+import javax.inject.Singleton;
+
+import org.ovirt.engine.core.utils.EngineLocalConfig;
+import org.ovirt.engine.core.utils.threadpool.ThreadPoolUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs independent policy units of a single scheduling concurrently on the engine thread pool.
+ * <p>
+ * If the configured parallelism is greater than 1, up to that many tasks of a call run at the same time: the calling
+ * thread runs the first task and the others are submitted to the engine thread pool. The calling thread then runs
+ * the submitted tasks which no pool thread has started yet, so a busy pool only makes the call sequential. Otherwise
+ * the tasks are run one after another in the calling thread. In both cases the results are returned in the order of
+ * the tasks, so the caller can merge them exactly as if the policy units were run sequentially.
+ */
+@Singleton
+public class PolicyUnitsExecutor {
+
+    private static final Logger log = LoggerFactory.getLogger(PolicyUnitsExecutor.class);
+
+    private static final int DEFAULT_PARALLELISM = 0;
+
+    private int parallelism;
+
+    public PolicyUnitsExecutor() {
+        this(DEFAULT_PARALLELISM);
+    }
+
+    PolicyUnitsExecutor(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    @PostConstruct
+    public void init() {
+        parallelism = EngineLocalConfig.getInstance()
+                .getInteger("SCHEDULING_POLICY_UNITS_PARALLELISM", DEFAULT_PARALLELISM);
+        if (isParallel()) {
+            log.info("Scheduling policy units are run by up to {} threads", parallelism);
+        }
+    }
+
+    /**
+     * Returns whether the policy units are run concurrently
+     */
+    public boolean isParallel() {
+        return parallelism > 1;
+    }
+
+    /**
+     * Runs the given tasks and waits for all of them to finish
+     *
+     * @return the results of the tasks, in the order of the tasks
+     * @throws RuntimeException the exception thrown by the first failed task, in the order of the tasks
+     */
+    public <T> List<T> invokeAll(List<Callable<T>> tasks) {
+        List<FutureTask<T>> futureTasks = tasks.stream()
+                .map(FutureTask::new)
+                .collect(Collectors.toList());
+
+        if (isParallel()) {
+            for (FutureTask<T> futureTask : futureTasks.subList(1, Math.min(parallelism, futureTasks.size()))) {
+                try {
+                    ThreadPoolUtil.execute(futureTask);
+                } catch (RejectedExecutionException e) {
+                    // The task is run by the calling thread
+                }
+            }
+        }
+        // A task which was already started by a pool thread is not run again
+        futureTasks.forEach(FutureTask::run);
+
+        // Wait for all the tasks first, so no task of this scheduling is left running when one fails
+        RuntimeException failure = null;
+        List<T> results = new ArrayList<>(futureTasks.size());
+        for (FutureTask<T> futureTask : futureTasks) {
+            try {
+                results.add(getResult(futureTask));
+            } catch (RuntimeException e) {
+                if (failure == null) {
+                    failure = e;
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        return results;
+    }
+
+    private static <T> T getResult(FutureTask<T> futureTask) {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return futureTask.get();
+                } catch (InterruptedException e) {
+                    // The task has to finish before the scheduling goes on
+                    interrupted = true;
+                }
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new RuntimeException(e.getCause());
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
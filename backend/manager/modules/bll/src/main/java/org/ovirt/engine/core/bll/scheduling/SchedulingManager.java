@@ -15,10 +15,10 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
-import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import javax.annotation.PostConstruct;
@@ -89,9 +89,7 @@ import org.ovirt.engine.core.dal.dbbroker.auditloghandling.AuditLogableImpl;
 import org.ovirt.engine.core.dal.dbbroker.auditloghandling.MessageBundler;
 import org.ovirt.engine.core.dao.ClusterDao;
 import org.ovirt.engine.core.dao.VdsDao;
-import org.ovirt.engine.core.dao.VdsNumaNodeDao;
 import org.ovirt.engine.core.dao.VmNumaNodeDao;
-import org.ovirt.engine.core.dao.scheduling.AffinityGroupDao;
 import org.ovirt.engine.core.dao.scheduling.ClusterPolicyDao;
 import org.ovirt.engine.core.dao.scheduling.PolicyUnitDao;
 import org.ovirt.engine.core.di.Injector;
@@ -139,16 +137,16 @@ public class SchedulingManager implements BackendService {
     @Inject
     private VmNumaNodeDao vmNumaNodeDao;
     @Inject
-    private VdsNumaNodeDao vdsNumaNodeDao;
-    @Inject
-    private AffinityGroupDao affinityGroupDao;
-    @Inject
     private RunVmDelayer runVmDelayer;
     @Inject
     @ThreadPools(ThreadPools.ThreadPoolType.EngineScheduledThreadPool)
     private ManagedScheduledExecutorService executor;
     @Inject
     private VdsCpuUnitPinningHelper vdsCpuUnitPinningHelper;
+    @Inject
+    private PolicyUnitsExecutor policyUnitsExecutor;
+    @Inject
+    private SchedulingSnapshotCache snapshotCache;
 
     private PendingResourceManager pendingResourceManager;
 
@@ -169,6 +167,11 @@ public class SchedulingManager implements BackendService {
 
     private final Map<Guid, Boolean> clusterId2isHaReservationSafe = new HashMap<>();
 
+    /**
+     * [vm id, host id] map of the VMs placed by a batch placement which did not run on their host yet
+     */
+    private final ConcurrentHashMap<Guid, Guid> batchPlacements = new ConcurrentHashMap<>();
+
     private final Guid defaultSelectorGuid = InternalPolicyUnits.getGuid(RankSelectorPolicyUnit.class);
 
     private final int vcpuLoadPerCore = Config.<Integer>getValue(ConfigValues.VcpuConsumptionPercentage);
@@ -196,7 +199,8 @@ public class SchedulingManager implements BackendService {
         log.info("Initialized Scheduling manager");
     }
 
-    private void initializePendingResourceManager() {
+    // Visible for testing
+    void initializePendingResourceManager() {
         pendingResourceManager = new PendingResourceManager(resourceManager);
     }
 
@@ -316,11 +320,35 @@ public class SchedulingManager implements BackendService {
         Map<Guid, Pair<EngineMessage, String>> filteredOutReasons;
         Map<Guid, String> hostNames;
         PerHostMessages details;
+        /** Maps policy unit name -> run time in nanoseconds **/
+        Map<String, Long> unitTimes;
+        /** Hosts which passed the filters **/
+        List<VDS> passedHosts;
 
         public SchedulingResult() {
             filteredOutReasons = new HashMap<>();
             hostNames = new HashMap<>();
             details = new PerHostMessages();
+            unitTimes = new LinkedHashMap<>();
+            passedHosts = Collections.emptyList();
+        }
+
+        public void addUnitTime(String unitName, long nanos) {
+            unitTimes.merge(unitName, nanos, Long::sum);
+        }
+
+        public void setPassedHosts(List<VDS> passedHosts) {
+            this.passedHosts = passedHosts;
+        }
+
+        public List<VDS> getPassedHosts() {
+            return passedHosts;
+        }
+
+        public String getUnitTimesMessage() {
+            return unitTimes.entrySet().stream()
+                    .map(e -> String.format("%s=%.3fms", e.getKey(), e.getValue() / 1_000_000.0))
+                    .collect(Collectors.joining(", "));
         }
 
         public void addReason(Guid id, String hostName, EngineMessage filterType, String filterName) {
@@ -362,6 +390,7 @@ public class SchedulingManager implements BackendService {
             boolean ignoreHardVmToVmAffinity,
             boolean doNotGroupVms,
             boolean stateless,
+            boolean batchPlacement,
             List<String> messages,
             boolean delayWhenNeeded,
             String correlationId) {
@@ -383,31 +412,53 @@ public class SchedulingManager implements BackendService {
             splitFunctions(policy.getFunctions(), context);
             context.setShouldWeighClusterHosts(shouldWeighClusterHosts(cluster));
 
-            Function<List<VM>, Optional<Guid>> findBestHost = group -> {
-                context.getMessages().clear();
-                refreshCachedPendingValues(hosts);
-                return selectHost(policy, hosts, group, destHostIdList, context, correlationId);
-            };
-
             Map<Guid, VDS> hostsMap = hosts.stream().collect(Collectors.toMap(VDS::getId, h -> h));
 
+            List<List<VM>> vmGroups = groupVms(vms, context);
+            Set<Guid> vmsInAffinityGroups = Collections.emptySet();
+            if (batchPlacement) {
+                vmGroups = sortForBatchPlacement(vmGroups);
+                vmsInAffinityGroups = snapshotCache.getAffinityGroupsWithFlatLabels(cluster.getId()).stream()
+                        .flatMap(ag -> ag.getVmIds().stream())
+                        .collect(Collectors.toSet());
+            }
+            // Maps a key of equivalent VMs -> hosts which passed the filters for the last placed one of them
+            Map<List<Object>, List<VDS>> batchCandidates = new HashMap<>();
+
             Set<Guid> hostsToNotifyPending = new HashSet<>();
             List<Runnable> vfsUpdates = new ArrayList<>();
             Map<Guid, Guid> vmToHostAssignment = new HashMap<>();
-            for (List<VM> vmGroup : groupVms(vms, context)) {
-                Optional<Guid> bestHost = findBestHost.apply(vmGroup);
+            for (List<VM> vmGroup : vmGroups) {
+                List<Object> batchKey = batchPlacement ? batchPlacementKey(vmGroup, vmsInAffinityGroups) : null;
+                List<VDS> candidates = batchKey != null ? batchCandidates.getOrDefault(batchKey, hosts) : hosts;
+
+                SchedulingResult result = new SchedulingResult();
+                Optional<Guid> bestHost = selectHost(policy, candidates, vmGroup, destHostIdList, context,
+                        correlationId, result);
                 // The delay is executed only once
                 if (delayWhenNeeded && context.isShouldDelay()) {
                     log.debug("Delaying scheduling...");
                     runVmDelayer.delay(hosts.stream().map(VDS::getId).collect(Collectors.toList()));
                     context.setCanDelay(false);
-                    bestHost = findBestHost.apply(vmGroup);
+                    // The pending resources may have been released during the delay, the hosts filtered out
+                    // before it are candidates again
+                    batchCandidates.clear();
+                    candidates = hosts;
+                    result = new SchedulingResult();
+                    bestHost = selectHost(policy, candidates, vmGroup, destHostIdList, context, correlationId,
+                            result);
                 }
 
                 if (!bestHost.isPresent()) {
                     continue;
                 }
 
+                // Placing a VM only takes resources from a host, so a host filtered out for a VM
+                // would be filtered out for the following equivalent VMs as well
+                if (batchKey != null) {
+                    batchCandidates.put(batchKey, result.getPassedHosts());
+                }
+
                 Guid bestHostId = bestHost.get();
                 vmGroup.forEach(vm -> vmToHostAssignment.put(vm.getId(), bestHostId));
 
@@ -443,6 +494,9 @@ public class SchedulingManager implements BackendService {
                     addPendingResources(vm, host, numaConsumptionPerVm.getOrDefault(vm.getId(), Collections.emptyMap()), dedicatedCpuPinning);
                     hostsToNotifyPending.add(bestHostId);
                     vfsUpdates.add(() -> markVfsAsUsedByVm(vm, bestHostId));
+                    if (batchPlacement) {
+                        batchPlacements.put(vm.getId(), bestHostId);
+                    }
                 }
             }
 
@@ -488,22 +542,35 @@ public class SchedulingManager implements BackendService {
             List<VM> vmGroup,
             List<Guid> destHostIdList,
             SchedulingContext context,
-            String correlationId) {
-        List<VDS> hostList = runFilters(hosts,
-                        vmGroup,
-                        context,
-                        true,
-                        correlationId);
+            String correlationId,
+            SchedulingResult result) {
+        context.getMessages().clear();
+        refreshCachedPendingValues(hosts);
+        try {
+            List<VDS> hostList = runFilters(hosts,
+                            vmGroup,
+                            context,
+                            true,
+                            correlationId,
+                            result);
+            result.setPassedHosts(hostList);
 
-        if (hostList.isEmpty()) {
-            return Optional.empty();
-        }
+            if (hostList.isEmpty()) {
+                return Optional.empty();
+            }
 
-        if (context.isCanDelay() && context.isShouldDelay()) {
-            return Optional.empty();
-        }
+            if (context.isCanDelay() && context.isShouldDelay()) {
+                return Optional.empty();
+            }
 
-        return selectBestHost(vmGroup, destHostIdList, hostList, policy, context);
+            return selectBestHost(vmGroup, destHostIdList, hostList, policy, context, result);
+        } finally {
+            if (log.isDebugEnabled()) {
+                log.debug("Policy units run times (correlation id: {}): {}",
+                        correlationId,
+                        result.getUnitTimesMessage());
+            }
+        }
     }
 
     private List<VDS> fetchHosts(Guid clusterId, List<Guid> blackList, List<Guid> whiteList) {
@@ -519,7 +586,7 @@ public class SchedulingManager implements BackendService {
         }
 
         for (VDS host : hosts) {
-            host.setNumaNodeList(vdsNumaNodeDao.getAllVdsNumaNodeByVdsId(host.getId()));
+            host.setNumaNodeList(snapshotCache.getHostNumaNodes(host.getId()));
 
             // Subtracting pending memory, so the scheduling units don't have to consider it
             Map<Integer, NumaNodeMemoryConsumption> pendingNumaMemory = PendingNumaMemory.collectForHost(pendingResourceManager, host.getId());
@@ -723,8 +790,7 @@ public class SchedulingManager implements BackendService {
                     .collect(Collectors.toList());
         }
 
-        // TODO - maybe optimize DB call to fetch only needed affinity groups?
-        List<AffinityGroup> allPositiveGroups = affinityGroupDao.getAllAffinityGroupsWithFlatLabelsByClusterId(context.getCluster().getId()).stream()
+        List<AffinityGroup> allPositiveGroups = snapshotCache.getAffinityGroupsWithFlatLabels(context.getCluster().getId()).stream()
                 .filter(ag -> ag.isVmPositive() && ag.isVmEnforcing())
                 .collect(Collectors.toList());
 
@@ -759,6 +825,51 @@ public class SchedulingManager implements BackendService {
         return vmGroups;
     }
 
+    /**
+     * Orders the VM groups for batch placement, larger groups first, so the small ones fill the gaps left on the hosts.
+     * The VMs with exclusively pinned CPUs are still placed first, as {@link #groupVms(List, SchedulingContext)}
+     * orders them.
+     */
+    private List<List<VM>> sortForBatchPlacement(List<List<VM>> vmGroups) {
+        Comparator<List<VM>> byCpuPinning =
+                Comparator.comparing(group -> group.get(0), new VmsCpuPinningPolicyComparator().reversed());
+        Comparator<List<VM>> byMemory =
+                Comparator.comparingLong(group -> group.stream().mapToLong(VM::getMemSizeMb).sum());
+
+        List<List<VM>> sortedGroups = new ArrayList<>(vmGroups);
+        sortedGroups.sort(byCpuPinning.thenComparing(byMemory.reversed()));
+        return sortedGroups;
+    }
+
+    /**
+     * Returns the key of the VMs equivalent to the given group for scheduling, or null if the group has no
+     * equivalents. Equivalent VMs are single VMs of the same pool, with the same requirements and not members of
+     * any affinity group, so the filters treat them the same.
+     */
+    private List<Object> batchPlacementKey(List<VM> vmGroup, Set<Guid> vmsInAffinityGroups) {
+        if (vmGroup.size() != 1) {
+            return null;
+        }
+
+        VM vm = vmGroup.get(0);
+        if (vm.getVmPoolId() == null
+                || vmsInAffinityGroups.contains(vm.getId())
+                || !vm.getvNumaNodeList().isEmpty()
+                || vm.getCpuPinningPolicy().isExclusive()) {
+            return null;
+        }
+
+        return Arrays.asList(vm.getVmPoolId(),
+                vm.getVmtGuid(),
+                vm.getRunOnVds(),
+                vm.getMemSizeMb(),
+                vm.getMinAllocatedMem(),
+                vm.getNumOfCpus(),
+                vm.getCpuPinning(),
+                vm.getDedicatedVmForVdsList(),
+                vm.getCustomProperties());
+    }
+
     /**
      * @param destHostIdList - used for RunAt preselection, overrides the ordering in vdsList
      * @param availableVdsList - presorted list of hosts (better hosts first) that are available
@@ -767,7 +878,8 @@ public class SchedulingManager implements BackendService {
             List<Guid> destHostIdList,
             List<VDS> availableVdsList,
             ClusterPolicy policy,
-            SchedulingContext context) {
+            SchedulingContext context,
+            SchedulingResult result) {
         // in case a default destination host was specified and
         // it passed filters, return the first found
         List<VDS> runnableHosts = new LinkedList<>();
@@ -804,7 +916,8 @@ public class SchedulingManager implements BackendService {
             selectorInstance.init(functions, runnableGuids);
 
             if (!functions.isEmpty() && context.isShouldWeighClusterHosts()) {
-                Optional<Guid> bestHostByFunctions = runFunctions(selectorInstance, runnableHosts, vmGroup, context);
+                Optional<Guid> bestHostByFunctions =
+                        runFunctions(selectorInstance, runnableHosts, vmGroup, context, result);
                 if (bestHostByFunctions.isPresent()) {
                     return bestHostByFunctions;
                 }
@@ -886,7 +999,8 @@ public class SchedulingManager implements BackendService {
                     vmGroup,
                     context,
                     false,
-                    null);
+                    null,
+                    new SchedulingResult());
 
             vmGroup.forEach(vm -> res.put(vm.getId(), filteredHosts));
         }
@@ -946,9 +1060,8 @@ public class SchedulingManager implements BackendService {
             List<VM> vmGroup,
             SchedulingContext context,
             boolean shouldRunExternalFilters,
-            String correlationId) {
-        SchedulingResult result = new SchedulingResult();
-
+            String correlationId,
+            SchedulingResult result) {
         /* Short circuit filters if there are no hosts at all */
         if (hostList.isEmpty()) {
             context.getMessages().add(EngineMessage.SCHEDULING_NO_HOSTS.name());
@@ -956,7 +1069,9 @@ public class SchedulingManager implements BackendService {
             return hostList;
         }
 
-        hostList = runInternalFilters(hostList, vmGroup, context, correlationId, result);
+        hostList = policyUnitsExecutor.isParallel()
+                ? runInternalFiltersInParallel(hostList, vmGroup, context, correlationId, result)
+                : runInternalFilters(hostList, vmGroup, context, correlationId, result);
 
         if (shouldRunExternalFilters
                 && Config.<Boolean>getValue(ConfigValues.ExternalSchedulerEnabled)
@@ -1014,7 +1129,9 @@ public class SchedulingManager implements BackendService {
                 break;
             }
             List<VDS> currentHostList = new ArrayList<>(hostList);
+            long start = System.nanoTime();
             hostList = filterPolicyUnit.filter(context, hostList, vmGroup, result.getDetails());
+            result.addUnitTime(filterPolicyUnit.getPolicyUnit().getName(), System.nanoTime() - start);
             logFilterActions(currentHostList,
                     toIdSet(hostList),
                     EngineMessage.VAR__FILTERTYPE__INTERNAL,
@@ -1025,6 +1142,98 @@ public class SchedulingManager implements BackendService {
         return hostList;
     }
 
+    /**
+     * Runs the consecutive independent filters concurrently on the same hosts and merges their results in the order
+     * of the filters, as if each of them was given only the hosts passing the previous ones. The filters which are
+     * not independent are run alone on the hosts passing the previous filters.
+     */
+    private List<VDS> runInternalFiltersInParallel(List<VDS> hostList,
+            List<VM> vmGroup,
+            SchedulingContext context,
+            String correlationId,
+            SchedulingResult result) {
+        List<PolicyUnitImpl> filters = context.getInternalFilters();
+        int stageStart = 0;
+        while (stageStart < filters.size() && !hostList.isEmpty()) {
+            int stageEnd = stageStart + 1;
+            if (filters.get(stageStart).isFilterIndependent()) {
+                while (stageEnd < filters.size() && filters.get(stageEnd).isFilterIndependent()) {
+                    stageEnd++;
+                }
+            }
+
+            final List<VDS> stageHosts = hostList;
+            List<Callable<FilterUnitResult>> tasks = filters.subList(stageStart, stageEnd).stream()
+                    .map(filterPolicyUnit -> (Callable<FilterUnitResult>) () -> {
+                        PerHostMessages messages = new PerHostMessages();
+                        long start = System.nanoTime();
+                        List<VDS> passedHosts = filterPolicyUnit.filter(context, stageHosts, vmGroup, messages);
+                        return new FilterUnitResult(filterPolicyUnit, passedHosts, messages, System.nanoTime() - start);
+                    })
+                    .collect(Collectors.toList());
+
+            for (FilterUnitResult unitResult : policyUnitsExecutor.invokeAll(tasks)) {
+                if (hostList.isEmpty()) {
+                    break;
+                }
+                String unitName = unitResult.getPolicyUnit().getPolicyUnit().getName();
+                Set<Guid> passedHostIds = toIdSet(unitResult.getPassedHosts());
+                // Only the hosts which this filter would have got when run sequentially are reported
+                for (VDS host : hostList) {
+                    List<String> messages = unitResult.getMessages().getMessages(host.getId());
+                    if (!messages.isEmpty()) {
+                        result.getDetails().addMessages(host.getId(), messages);
+                    }
+                }
+                result.addUnitTime(unitName, unitResult.getNanos());
+                logFilterActions(hostList,
+                        passedHostIds,
+                        EngineMessage.VAR__FILTERTYPE__INTERNAL,
+                        unitName,
+                        result,
+                        correlationId);
+                hostList = hostList.stream()
+                        .filter(host -> passedHostIds.contains(host.getId()))
+                        .collect(Collectors.toList());
+            }
+            stageStart = stageEnd;
+        }
+        return hostList;
+    }
+
+    private static class FilterUnitResult {
+        private final PolicyUnitImpl policyUnit;
+        private final List<VDS> passedHosts;
+        private final PerHostMessages messages;
+        private final long nanos;
+
+        public FilterUnitResult(PolicyUnitImpl policyUnit,
+                List<VDS> passedHosts,
+                PerHostMessages messages,
+                long nanos) {
+            this.policyUnit = policyUnit;
+            this.passedHosts = passedHosts;
+            this.messages = messages;
+            this.nanos = nanos;
+        }
+
+        public PolicyUnitImpl getPolicyUnit() {
+            return policyUnit;
+        }
+
+        public List<VDS> getPassedHosts() {
+            return passedHosts;
+        }
+
+        public PerHostMessages getMessages() {
+            return messages;
+        }
+
+        public long getNanos() {
+            return nanos;
+        }
+    }
+
     private Set<Guid> toIdSet(List<VDS> hostList) {
         return hostList.stream().map(VDS::getId).collect(Collectors.toSet());
     }
@@ -1088,8 +1297,9 @@ public class SchedulingManager implements BackendService {
     private Optional<Guid> runFunctions(SelectorInstance selector,
             List<VDS> hostList,
             List<VM> vmGroup,
-            SchedulingContext context) {
-        runInternalFunctions(selector, hostList, vmGroup, context);
+            SchedulingContext context,
+            SchedulingResult result) {
+        runInternalFunctions(selector, hostList, vmGroup, context, result);
 
         if (Config.<Boolean>getValue(ConfigValues.ExternalSchedulerEnabled) &&
                 !context.getExternalScoreFunctions().isEmpty()) {
@@ -1102,12 +1312,26 @@ public class SchedulingManager implements BackendService {
     private void runInternalFunctions(SelectorInstance selector,
             List<VDS> hostList,
             List<VM> vmGroup,
-            SchedulingContext context) {
+            SchedulingContext context,
+            SchedulingResult result) {
+        List<PolicyUnitImpl> functions = context.getInternalScoreFunctions().stream()
+                .map(Pair::getFirst)
+                .collect(Collectors.toList());
+        // The functions are independent, so they are computed concurrently and recorded in their order
+        List<Callable<Pair<List<Pair<Guid, Integer>>, Long>>> tasks = functions.stream()
+                .map(function -> (Callable<Pair<List<Pair<Guid, Integer>>, Long>>) () -> {
+                    long start = System.nanoTime();
+                    List<Pair<Guid, Integer>> scoreResult = function.score(context, hostList, vmGroup);
+                    return new Pair<>(scoreResult, System.nanoTime() - start);
+                })
+                .collect(Collectors.toList());
+        List<Pair<List<Pair<Guid, Integer>>, Long>> scoreResults = policyUnitsExecutor.invokeAll(tasks);
 
-        for (Pair<PolicyUnitImpl, Integer> pair : context.getInternalScoreFunctions()) {
-            List<Pair<Guid, Integer>> scoreResult = pair.getFirst().score(context, hostList, vmGroup);
-            for (Pair<Guid, Integer> result : scoreResult) {
-                selector.record(pair.getFirst().getGuid(), result.getFirst(), result.getSecond());
+        for (int i = 0; i < functions.size(); ++i) {
+            PolicyUnitImpl function = functions.get(i);
+            result.addUnitTime(function.getPolicyUnit().getName(), scoreResults.get(i).getSecond());
+            for (Pair<Guid, Integer> score : scoreResults.get(i).getFirst()) {
+                selector.record(function.getGuid(), score.getFirst(), score.getSecond());
             }
         }
     }
@@ -1164,8 +1388,7 @@ public class SchedulingManager implements BackendService {
             return new HashSet<>(vms);
         }
 
-        // TODO - maybe optimize DB call to fetch only needed affinity groups?
-        List<AffinityGroup> allPositiveGroups = affinityGroupDao.getAllAffinityGroupsWithFlatLabelsByClusterId(cluster.getId()).stream()
+        List<AffinityGroup> allPositiveGroups = snapshotCache.getAffinityGroupsWithFlatLabels(cluster.getId()).stream()
                 .filter(ag -> ag.isVmPositive() && ag.isVmEnforcing())
                 .collect(Collectors.toList());
 
@@ -1480,7 +1703,25 @@ public class SchedulingManager implements BackendService {
      * number of possible hosts that can run the VM.
      */
     public void clearPendingVm(VmStatic vm) {
+        batchPlacements.remove(vm.getId());
+        getPendingResourceManager().clearVm(vm);
+    }
+
+    /**
+     * Releases the host the VM was placed on by a batch placement, together with the resources pending for the VM
+     * there. The VM has to be scheduled again, the host can be passed as the only one allowed to check it still
+     * fits there without counting the resources of the VM twice.
+     *
+     * @return the host the VM was placed on, or empty if the VM was not placed by a batch placement
+     */
+    public Optional<Guid> releaseBatchPlacement(VmStatic vm) {
+        Guid hostId = batchPlacements.remove(vm.getId());
+        if (hostId == null) {
+            return Optional.empty();
+        }
+
         getPendingResourceManager().clearVm(vm);
+        return Optional.of(hostId);
     }
 
     public class CallBuilder {
@@ -1490,6 +1731,7 @@ public class SchedulingManager implements BackendService {
         private List<Guid> destHostIdList = Collections.emptyList();
         private boolean ignoreHardVmToVmAffinity = false;
         private boolean doNotGroupVms = false;
+        private boolean batchPlacement = false;
         private List<String> outMessages = new ArrayList<>();
         private boolean delay = false;
         private String correlationId;
@@ -1507,6 +1749,7 @@ public class SchedulingManager implements BackendService {
                     ignoreHardVmToVmAffinity,
                     doNotGroupVms,
                     stateless,
+                    batchPlacement,
                     outMessages,
                     delay,
                     correlationId);
@@ -1538,6 +1781,16 @@ public class SchedulingManager implements BackendService {
             return this;
         }
 
+        /**
+         * Places all the VMs in one pass. The VMs are placed from the largest, and the filters of the equivalent
+         * VMs are run only on the hosts which passed them for the previously placed one. The hosts the VMs are
+         * placed on are kept until they are released by {@link #releaseBatchPlacement(VmStatic)}.
+         */
+        public CallBuilder batchPlacement(boolean value) {
+            batchPlacement = value;
+            return this;
+        }
+
         public CallBuilder outputMessages(List<String> messages) {
             outMessages = messages;
             return this;
@@ -0,0 +1,172 @@
+package org.ovirt.engine.core.bll.scheduling;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.ovirt.engine.core.common.businessentities.HugePage;
+import org.ovirt.engine.core.common.businessentities.NumaNodeStatistics;
+import org.ovirt.engine.core.common.businessentities.VdsNumaNode;
+import org.ovirt.engine.core.common.scheduling.AffinityGroup;
+import org.ovirt.engine.core.compat.Guid;
+import org.ovirt.engine.core.dao.VdsNumaNodeDao;
+import org.ovirt.engine.core.dao.scheduling.AffinityGroupDao;
+import org.ovirt.engine.core.utils.transaction.TransactionSuccessListener;
+import org.ovirt.engine.core.utils.transaction.TransactionSupport;
+import org.ovirt.engine.core.vdsbroker.ResourceManager;
+import org.ovirt.engine.core.vdsbroker.VdsManager;
+
+/**
+ * Keeps the cluster state read by every scheduling run, so it is not loaded from the database again when many VMs are
+ * scheduled in a short time.
+ * <p>
+ * Every cached entry is stamped with the version of its source it was loaded at, and is loaded again once the version
+ * changes:
+ * <ul>
+ * <li>The NUMA nodes of a host, versioned by its {@link VdsManager}. The host monitoring changes the version whenever
+ * it writes the NUMA topology or statistics of the host.</li>
+ * <li>The affinity groups of a cluster, with the members of their labels. Their version is changed by the commands
+ * modifying affinity groups and labels, by calling {@link #invalidateAffinityGroups()}.</li>
+ * </ul>
+ */
+@Singleton
+public class SchedulingSnapshotCache {
+
+    @Inject
+    private ResourceManager resourceManager;
+    @Inject
+    private VdsNumaNodeDao vdsNumaNodeDao;
+    @Inject
+    private AffinityGroupDao affinityGroupDao;
+
+    private final Map<Guid, Versioned<List<VdsNumaNode>>> hostNumaNodes = new ConcurrentHashMap<>();
+    private final Map<Guid, Versioned<List<AffinityGroup>>> clusterAffinityGroups = new ConcurrentHashMap<>();
+    private final AtomicLong affinityGroupsVersion = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * Returns the NUMA nodes of the given host. The nodes are copies, which the caller may modify.
+     */
+    public List<VdsNumaNode> getHostNumaNodes(Guid hostId) {
+        VdsManager vdsManager = resourceManager.getVdsManager(hostId);
+        if (vdsManager == null) {
+            hostNumaNodes.remove(hostId);
+            return vdsNumaNodeDao.getAllVdsNumaNodeByVdsId(hostId);
+        }
+
+        // The version is read before loading, so a change done meanwhile makes the loaded nodes stale
+        long version = vdsManager.getNumaNodesVersion();
+        Versioned<List<VdsNumaNode>> cached = hostNumaNodes.get(hostId);
+        if (cached != null && cached.getVersion() == version) {
+            hits.increment();
+        } else {
+            misses.increment();
+            cached = new Versioned<>(version, vdsNumaNodeDao.getAllVdsNumaNodeByVdsId(hostId));
+            hostNumaNodes.put(hostId, cached);
+        }
+        return cached.getData().stream().map(SchedulingSnapshotCache::copy).collect(Collectors.toList());
+    }
+
+    /**
+     * Returns the affinity groups of the given cluster, with the members of their labels.
+     * The groups are shared, so the caller must not modify them.
+     */
+    public List<AffinityGroup> getAffinityGroupsWithFlatLabels(Guid clusterId) {
+        long version = affinityGroupsVersion.get();
+        Versioned<List<AffinityGroup>> cached = clusterAffinityGroups.get(clusterId);
+        if (cached != null && cached.getVersion() == version) {
+            hits.increment();
+        } else {
+            misses.increment();
+            cached = new Versioned<>(version, Collections.unmodifiableList(
+                    affinityGroupDao.getAllAffinityGroupsWithFlatLabelsByClusterId(clusterId)));
+            clusterAffinityGroups.put(clusterId, cached);
+        }
+        return cached.getData();
+    }
+
+    /**
+     * Makes the cached affinity groups of all the clusters stale. To be called after changing affinity groups, their
+     * members or labels. The groups may be loaded again before the transaction of the change is committed, so they
+     * are made stale once more when the transaction completes.
+     */
+    public void invalidateAffinityGroups() {
+        affinityGroupsVersion.incrementAndGet();
+        if (TransactionSupport.current() != null) {
+            TransactionSupport.registerRollbackHandler(
+                    (TransactionSuccessListener) affinityGroupsVersion::incrementAndGet);
+        }
+    }
+
+    /**
+     * Returns a version of the affinity groups and labels of all the clusters, which changes whenever they are changed
+     */
+    public long getAffinityGroupsVersion() {
+        return affinityGroupsVersion.get();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    private static VdsNumaNode copy(VdsNumaNode node) {
+        VdsNumaNode copy = new VdsNumaNode();
+        copy.setId(node.getId());
+        copy.setIndex(node.getIndex());
+        copy.setCpuIds(new ArrayList<>(node.getCpuIds()));
+        copy.setMemTotal(node.getMemTotal());
+        copy.setNumaNodeDistances(new HashMap<>(node.getNumaNodeDistances()));
+        NumaNodeStatistics statistics = node.getNumaNodeStatistics();
+        if (statistics != null) {
+            NumaNodeStatistics statisticsCopy = new NumaNodeStatistics();
+            statisticsCopy.setMemFree(statistics.getMemFree());
+            statisticsCopy.setMemUsagePercent(statistics.getMemUsagePercent());
+            statisticsCopy.setCpuSys(statistics.getCpuSys());
+            statisticsCopy.setCpuUser(statistics.getCpuUser());
+            statisticsCopy.setCpuIdle(statistics.getCpuIdle());
+            statisticsCopy.setCpuUsagePercent(statistics.getCpuUsagePercent());
+            if (statistics.getHugePages() != null) {
+                statisticsCopy.setHugePages(statistics.getHugePages().stream()
+                        .map(page -> new HugePage(page.getSizeKB(), page.getFree(), page.getTotal()))
+                        .collect(Collectors.toList()));
+            } else {
+                statisticsCopy.setHugePages(null);
+            }
+            copy.setNumaNodeStatistics(statisticsCopy);
+        }
+        return copy;
+    }
+
+    private static class Versioned<T> {
+        private final long version;
+        private final T data;
+
+        public Versioned(long version, T data) {
+            this.version = version;
+            this.data = data;
+        }
+
+        public long getVersion() {
+            return version;
+        }
+
+        public T getData() {
+            return data;
+        }
+    }
+}
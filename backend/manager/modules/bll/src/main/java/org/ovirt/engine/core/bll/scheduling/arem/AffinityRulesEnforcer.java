@@ -3,12 +3,15 @@ package org.ovirt.engine.core.bll.scheduling.arem;
 import static java.util.Collections.min;
 
 import java.io.Serializable;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -21,6 +24,7 @@ import javax.inject.Inject;
 
 import org.apache.commons.collections.IteratorUtils;
 import org.ovirt.engine.core.bll.scheduling.SchedulingManager;
+import org.ovirt.engine.core.bll.scheduling.SchedulingSnapshotCache;
 import org.ovirt.engine.core.bll.scheduling.arem.AffinityRulesUtils.AffinityGroupConflicts;
 import org.ovirt.engine.core.common.FeatureSupported;
 import org.ovirt.engine.core.common.businessentities.Cluster;
@@ -54,6 +58,10 @@ public class AffinityRulesEnforcer {
     private VmDao vmDao;
     @Inject
     private SchedulingManager schedulingManager;
+    @Inject
+    private SchedulingSnapshotCache schedulingSnapshotCache;
+    @Inject
+    private AffinityViolationIndex violationIndex;
 
     /**
      * Choose a valid VM for migration by applying affinity rules in the following order:
@@ -62,11 +70,23 @@ public class AffinityRulesEnforcer {
      * 2. Hard VM to VM affinity
      * 3. Soft VM to Hosts Affinity
      * 4. Soft VM to VM affinity
+     * <p>
+     * Only the affinity groups of the VMs reported by the {@link AffinityViolationIndex} are checked,
+     * unless all the groups of the cluster have to be checked.
      *
      * @param cluster current cluster
      * @return Iterator returning valid VMs for migration
      */
     public Iterator<VM> chooseVmsToMigrate(Cluster cluster) {
+        // The version is read before loading, so a change done meanwhile causes a full check next time
+        long groupsVersion = schedulingSnapshotCache.getAffinityGroupsVersion();
+        boolean fullCheck = violationIndex.isFullCheckNeeded(cluster.getId(), groupsVersion);
+        Set<Guid> vmsToCheck = fullCheck ? null : violationIndex.getVmsToCheck(cluster.getId());
+        if (!fullCheck && vmsToCheck.isEmpty()) {
+            log.debug("No affinity relevant changes in cluster '{}' since the last check", cluster.getName());
+            return IteratorUtils.emptyIterator();
+        }
+
         List<AffinityGroup> allAffinityGroups = affinityGroupDao.getAllAffinityGroupsWithFlatLabelsByClusterId(cluster.getId());
 
         if (FeatureSupported.isImplicitAffinityGroupSupported(cluster.getCompatibilityVersion())) {
@@ -74,15 +94,35 @@ public class AffinityRulesEnforcer {
             allAffinityGroups.addAll(AffinityRulesUtils.affinityGroupsFromLabels(allAffinityLabels, cluster.getId()));
         }
 
-        Cache cache = new Cache(cluster, allAffinityGroups);
+        Set<Guid> memberVms = allAffinityGroups.stream()
+                .flatMap(ag -> ag.getVmIds().stream())
+                .collect(Collectors.toSet());
+        // The moved marks of the VMs to check were already taken, only those VMs are checked otherwise
+        if (fullCheck) {
+            violationIndex.clearMovedVms(memberVms);
+        }
+
+        List<AffinityGroup> groupsToCheck = fullCheck ?
+                allAffinityGroups :
+                getGroupsConnectedToVms(allAffinityGroups, vmsToCheck);
+
+        Cache cache = new Cache(cluster, groupsToCheck);
 
-        Pair<Iterable<Guid>, Iterable<Guid>> vmToHostConflicts = getCandidateVmsFromVmsToHostAffinity(cache);
+        Pair<List<Guid>, List<Guid>> vmToHostConflicts = getCandidateVmsFromVmsToHostAffinity(cache);
+        List<AffinityGroup> hardVmToVmViolations = getViolatedVmToVmAffinityGroups(true, cache);
+        List<AffinityGroup> softVmToVmViolations = getViolatedVmToVmAffinityGroups(false, cache);
+
+        Set<Guid> violatingVms = new HashSet<>(vmToHostConflicts.getFirst());
+        violatingVms.addAll(vmToHostConflicts.getSecond());
+        Stream.concat(hardVmToVmViolations.stream(), softVmToVmViolations.stream())
+                .forEach(ag -> violatingVms.addAll(ag.getVmIds()));
+        violationIndex.checked(cluster.getId(), groupsVersion, memberVms, violatingVms, fullCheck);
 
         Iterator<Guid> hardConflicts = Pipeline
                 // Check hard VM to host affinity
                 .create(() -> vmToHostConflicts.getFirst().iterator())
                 // Check hard VM to VM affinity
-                .append(() -> getCandidateVmsFromVmToVmAffinity(true, cache))
+                .append(() -> getCandidateVmsFromVmToVmAffinity(hardVmToVmViolations, cache))
                 .iterator();
 
         Set<Guid> softConflictIds = new HashSet<>();
@@ -90,7 +130,7 @@ public class AffinityRulesEnforcer {
                 // Check soft VM to host affinity
                 .create(() -> vmToHostConflicts.getSecond().iterator())
                 // Check soft VM to VM affinity
-                .append(() -> getCandidateVmsFromVmToVmAffinity(false, cache))
+                .append(() -> getCandidateVmsFromVmToVmAffinity(softVmToVmViolations, cache))
                 .execute(softConflictIds::add)
                 .iterator();
 
@@ -106,6 +146,37 @@ public class AffinityRulesEnforcer {
                 .iterator();
     }
 
+    /**
+     * Returns the affinity groups which contain any of the given VMs, and transitively all the affinity groups
+     * sharing a VM with them. Violations of these groups and their resolution do not depend on the other groups.
+     */
+    private static List<AffinityGroup> getGroupsConnectedToVms(List<AffinityGroup> groups, Set<Guid> vmIds) {
+        Map<Guid, List<AffinityGroup>> groupsForVm = new HashMap<>();
+        for (AffinityGroup ag : groups) {
+            for (Guid vmId : ag.getVmIds()) {
+                groupsForVm.computeIfAbsent(vmId, k -> new ArrayList<>()).add(ag);
+            }
+        }
+
+        Set<AffinityGroup> connectedGroups = Collections.newSetFromMap(new IdentityHashMap<>());
+        Set<Guid> visitedVms = new HashSet<>(vmIds);
+        Deque<Guid> vmsToVisit = new ArrayDeque<>(vmIds);
+        while (!vmsToVisit.isEmpty()) {
+            for (AffinityGroup ag : groupsForVm.getOrDefault(vmsToVisit.poll(), Collections.emptyList())) {
+                if (connectedGroups.add(ag)) {
+                    ag.getVmIds().stream()
+                            .filter(visitedVms::add)
+                            .forEach(vmsToVisit::add);
+                }
+            }
+        }
+
+        // Keep the order of the groups
+        return groups.stream()
+                .filter(connectedGroups::contains)
+                .collect(Collectors.toList());
+    }
+
     /**
      * Choose a VM to migrate by applying VM to host affinity rules.
      * Candidate VMs will selected in the following order:
@@ -113,17 +184,17 @@ public class AffinityRulesEnforcer {
      * 1.Candidate VMs violating enforcing affinity to hosts.
      * 2.Candidate VMs violating non enforcing affinity to hosts.
      *
-     * @return Pair of streams. The first contains VMs breaking hard vm to host affinity,
+     * @return Pair of lists. The first contains VMs breaking hard vm to host affinity,
      *   the second contains VMs breaking soft vm to host affinity.
      */
-    private Pair<Iterable<Guid>, Iterable<Guid>> getCandidateVmsFromVmsToHostAffinity(Cache cache) {
+    private Pair<List<Guid>, List<Guid>> getCandidateVmsFromVmsToHostAffinity(Cache cache) {
         List<AffinityGroup> allVmToHostsAffinityGroups = cache.getAllGroups().stream()
                 .filter(AffinityGroup::isVdsAffinityEnabled)
                 .filter(g -> !g.getVdsIds().isEmpty() && !g.getVmIds().isEmpty())
                 .collect(Collectors.toList());
 
         if (allVmToHostsAffinityGroups.isEmpty()) {
-            return new Pair<>(IteratorUtils::emptyIterator,  IteratorUtils::emptyIterator);
+            return new Pair<>(Collections.emptyList(), Collections.emptyList());
         }
 
         List<Guid> vmIds = allVmToHostsAffinityGroups.stream()
@@ -134,23 +205,19 @@ public class AffinityRulesEnforcer {
 
         cache.fetchVms(vmIds);
 
-        Iterable<Guid> vmsBreakingHardAffinity = () -> {
-            List<Guid> candidateVMs = getVmToHostsAffinityGroupCandidates(allVmToHostsAffinityGroups, cache, true);
-            if (candidateVMs.isEmpty()) {
-                log.debug("No vm to hosts hard-affinity group violation detected");
-            } else {
-                logVmToHostConflicts(allVmToHostsAffinityGroups);
-            }
-            return candidateVMs.iterator();
-        };
+        List<Guid> vmsBreakingHardAffinity =
+                getVmToHostsAffinityGroupCandidates(allVmToHostsAffinityGroups, cache, true);
+        if (vmsBreakingHardAffinity.isEmpty()) {
+            log.debug("No vm to hosts hard-affinity group violation detected");
+        } else {
+            logVmToHostConflicts(allVmToHostsAffinityGroups);
+        }
 
-        Iterable<Guid> vmsBreakingSoftAffinity = () -> {
-            List<Guid> candidateVMs = getVmToHostsAffinityGroupCandidates(allVmToHostsAffinityGroups, cache, false);
-            if (candidateVMs.isEmpty()) {
-                log.debug("No vm to hosts soft-affinity group violation detected");
-            }
-            return candidateVMs.iterator();
-        };
+        List<Guid> vmsBreakingSoftAffinity =
+                getVmToHostsAffinityGroupCandidates(allVmToHostsAffinityGroups, cache, false);
+        if (vmsBreakingSoftAffinity.isEmpty()) {
+            log.debug("No vm to hosts soft-affinity group violation detected");
+        }
 
         return new Pair<>(vmsBreakingHardAffinity, vmsBreakingSoftAffinity);
     }
@@ -229,7 +296,7 @@ public class AffinityRulesEnforcer {
         }
     }
 
-    private Iterator<Guid> getCandidateVmsFromVmToVmAffinity(boolean enforcing, Cache cache) {
+    private List<AffinityGroup> getViolatedVmToVmAffinityGroups(boolean enforcing, Cache cache) {
         cache.computeUnifiedPositiveGroups();
         List<AffinityGroup> unifiedAffinityGroups = cache.getAllGroups().stream()
                 .filter(AffinityGroup::isVmAffinityEnabled)
@@ -254,6 +321,13 @@ public class AffinityRulesEnforcer {
             log.debug(enforcing ?
                     "No enforcing VM affinity group collision detected." :
                     "No VM affinity group collision detected.");
+        }
+        return violatedAffinityGroups;
+    }
+
+    private Iterator<Guid> getCandidateVmsFromVmToVmAffinity(List<AffinityGroup> violatedAffinityGroups,
+            Cache cache) {
+        if (violatedAffinityGroups.isEmpty()) {
             return IteratorUtils.emptyIterator();
         }
 
@@ -0,0 +1,164 @@
+package org.ovirt.engine.core.bll.scheduling.arem;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.inject.Singleton;
+
+import org.ovirt.engine.core.compat.Guid;
+import org.ovirt.engine.core.utils.EngineLocalConfig;
+
+/**
+ * Keeps track of the VMs whose affinity groups have to be checked by {@link AffinityRulesEnforcer}, so that the
+ * enforcement does not evaluate all the affinity groups of a cluster when nothing changed.
+ * <p>
+ * All the affinity groups of a cluster are checked when the cluster was not checked yet, when its affinity groups or
+ * labels changed, and once per configured interval to catch changes which were not reported. Otherwise only the
+ * affinity groups of the VMs which changed their host since the last check, and of the VMs which violated affinity in
+ * the last check, are checked.
+ */
+@Singleton
+public class AffinityViolationIndex {
+
+    private static final long DEFAULT_FULL_CHECK_INTERVAL_IN_MINUTES = 10;
+
+    private final Set<Guid> movedVms = ConcurrentHashMap.newKeySet();
+    private final Map<Guid, ClusterState> clusterStates = new ConcurrentHashMap<>();
+    private long fullCheckInterval;
+
+    public AffinityViolationIndex() {
+        this(DEFAULT_FULL_CHECK_INTERVAL_IN_MINUTES);
+    }
+
+    AffinityViolationIndex(long fullCheckIntervalInMinutes) {
+        fullCheckInterval = TimeUnit.MINUTES.toMillis(fullCheckIntervalInMinutes);
+    }
+
+    @PostConstruct
+    public void init() {
+        fullCheckInterval = TimeUnit.MINUTES.toMillis(EngineLocalConfig.getInstance()
+                .getLong("AFFINITY_RULES_ENFORCEMENT_FULL_CHECK_INTERVAL_IN_MINUTES",
+                        DEFAULT_FULL_CHECK_INTERVAL_IN_MINUTES));
+    }
+
+    /**
+     * Marks the given VMs as changed their host. To be called once the change is written to the database.
+     */
+    public void vmsMoved(Collection<Guid> vmIds) {
+        for (Guid vmId : vmIds) {
+            // VMs which are not in any affinity group when the cluster was checked cannot break affinity,
+            // adding them to a group changes the affinity groups version and the cluster is checked completely
+            if (clusterStates.values().stream().anyMatch(state -> state.getMemberVms().contains(vmId))) {
+                movedVms.add(vmId);
+            }
+        }
+    }
+
+    /**
+     * Returns whether all the affinity groups of the given cluster have to be checked
+     *
+     * @param clusterId - the cluster to check
+     * @param groupsVersion - the current version of the affinity groups, read before they are loaded
+     */
+    public boolean isFullCheckNeeded(Guid clusterId, long groupsVersion) {
+        ClusterState state = clusterStates.get(clusterId);
+        return state == null
+                || state.getGroupsVersion() != groupsVersion
+                || System.currentTimeMillis() - state.getLastFullCheck() >= fullCheckInterval;
+    }
+
+    /**
+     * Returns the VMs of the given cluster, whose affinity groups have to be checked. These are the VMs which
+     * changed their host since the last check, and the VMs which violated affinity in the last check.
+     * <p>
+     * The moved marks of the returned VMs are removed, so a change reported after this call marks the VM again. To be
+     * called before the VMs are loaded from the database.
+     */
+    public Set<Guid> getVmsToCheck(Guid clusterId) {
+        ClusterState state = clusterStates.get(clusterId);
+        if (state == null) {
+            return Collections.emptySet();
+        }
+
+        Set<Guid> vms = new HashSet<>(state.getViolatingVms());
+        for (Guid vmId : movedVms) {
+            if (state.getMemberVms().contains(vmId) && movedVms.remove(vmId)) {
+                vms.add(vmId);
+            }
+        }
+        return vms;
+    }
+
+    /**
+     * Removes the moved marks of the given VMs, when all their affinity groups are checked. To be called before the
+     * VMs are loaded from the database, so a change reported meanwhile marks the VM again.
+     */
+    public void clearMovedVms(Collection<Guid> vmIds) {
+        movedVms.removeAll(vmIds);
+    }
+
+    /**
+     * Records the result of a check of the given cluster
+     *
+     * @param clusterId - the checked cluster
+     * @param groupsVersion - the version of the affinity groups used by the check
+     * @param memberVms - all the VMs in the affinity groups of the cluster
+     * @param violatingVms - the VMs which violate affinity
+     * @param fullCheck - whether all the affinity groups of the cluster were checked
+     */
+    public void checked(Guid clusterId,
+            long groupsVersion,
+            Set<Guid> memberVms,
+            Set<Guid> violatingVms,
+            boolean fullCheck) {
+        ClusterState previous = clusterStates.get(clusterId);
+        long lastFullCheck = fullCheck || previous == null ? System.currentTimeMillis() : previous.getLastFullCheck();
+        clusterStates.put(clusterId, new ClusterState(groupsVersion, lastFullCheck, memberVms, violatingVms));
+    }
+
+    /**
+     * Forgets the given cluster and the moved marks of its VMs. To be called once the cluster is removed.
+     */
+    public void clusterRemoved(Guid clusterId) {
+        ClusterState state = clusterStates.remove(clusterId);
+        if (state != null) {
+            movedVms.removeAll(state.getMemberVms());
+        }
+    }
+
+    private static class ClusterState {
+        private final long groupsVersion;
+        private final long lastFullCheck;
+        private final Set<Guid> memberVms;
+        private final Set<Guid> violatingVms;
+
+        public ClusterState(long groupsVersion, long lastFullCheck, Set<Guid> memberVms, Set<Guid> violatingVms) {
+            this.groupsVersion = groupsVersion;
+            this.lastFullCheck = lastFullCheck;
+            this.memberVms = memberVms;
+            this.violatingVms = violatingVms;
+        }
+
+        public long getGroupsVersion() {
+            return groupsVersion;
+        }
+
+        public long getLastFullCheck() {
+            return lastFullCheck;
+        }
+
+        public Set<Guid> getMemberVms() {
+            return memberVms;
+        }
+
+        public Set<Guid> getViolatingVms() {
+            return violatingVms;
+        }
+    }
+}
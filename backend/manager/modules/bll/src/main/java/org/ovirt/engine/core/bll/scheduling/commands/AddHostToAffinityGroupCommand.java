@@ -38,6 +38,7 @@ public class AddHostToAffinityGroupCommand <T extends AffinityGroupMemberChangeP
     @Override
     protected void executeCommand() {
         affinityGroupDao.insertAffinityHost(getParameters().getAffinityGroupId(), getParameters().getEntityId());
+        invalidateCachedAffinityGroups();
         setSucceeded(true);
     }
 }
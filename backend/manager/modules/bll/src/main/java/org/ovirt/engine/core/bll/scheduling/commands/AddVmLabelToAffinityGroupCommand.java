@@ -38,6 +38,7 @@ public class AddVmLabelToAffinityGroupCommand <T extends AffinityGroupMemberChan
     @Override
     protected void executeCommand() {
         affinityGroupDao.insertAffinityVmLabel(getParameters().getAffinityGroupId(), getParameters().getEntityId());
+        invalidateCachedAffinityGroups();
         setSucceeded(true);
     }
 }
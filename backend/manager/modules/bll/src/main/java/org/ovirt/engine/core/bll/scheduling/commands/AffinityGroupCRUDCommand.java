@@ -13,6 +13,7 @@ import javax.inject.Inject;
 
 import org.ovirt.engine.core.bll.CommandBase;
 import org.ovirt.engine.core.bll.context.CommandContext;
+import org.ovirt.engine.core.bll.scheduling.SchedulingSnapshotCache;
 import org.ovirt.engine.core.bll.utils.PermissionSubject;
 import org.ovirt.engine.core.bll.validator.AffinityValidator;
 import org.ovirt.engine.core.common.VdcObjectType;
@@ -49,6 +50,8 @@ public abstract class AffinityGroupCRUDCommand <T extends AffinityGroupCRUDParam
     private LabelDao labelDao;
     @Inject
     private AffinityValidator affinityValidator;
+    @Inject
+    private SchedulingSnapshotCache schedulingSnapshotCache;
 
     AffinityGroup affinityGroup = null;
 
@@ -188,6 +191,13 @@ public abstract class AffinityGroupCRUDCommand <T extends AffinityGroupCRUDParam
         return validate(result.getValidationResult());
     }
 
+    /**
+     * Makes the affinity groups cached for the scheduling stale, to be called after changing them
+     */
+    protected void invalidateCachedAffinityGroups() {
+        schedulingSnapshotCache.invalidateAffinityGroups();
+    }
+
     protected AffinityGroup getAffinityGroup() {
         if (affinityGroup == null) {
             affinityGroup = affinityGroupDao.get(getParameters().getAffinityGroupId());
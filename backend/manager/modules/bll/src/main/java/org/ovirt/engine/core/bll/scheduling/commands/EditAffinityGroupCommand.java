@@ -47,6 +47,7 @@ public class EditAffinityGroupCommand <T extends AffinityGroupCRUDParameters> ex
                         .getVmIds());
         vmStaticDao.incrementDbGenerationForVms(new ArrayList<>(changedVms));
         affinityGroupDao.update(getParameters().getAffinityGroup());
+        invalidateCachedAffinityGroups();
         setSucceeded(true);
     }
 
@@ -33,6 +33,7 @@ public class RemoveAffinityGroupCommand extends AffinityGroupCRUDCommand<Affinit
     protected void executeCommand() {
         vmStaticDao.incrementDbGenerationForVms(getAffinityGroup().getVmIds());
         affinityGroupDao.remove(getParameters().getAffinityGroupId());
+        invalidateCachedAffinityGroups();
         setSucceeded(true);
     }
 
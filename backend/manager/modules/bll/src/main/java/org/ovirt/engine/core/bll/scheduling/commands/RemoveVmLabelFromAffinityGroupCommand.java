@@ -38,6 +38,7 @@ public class RemoveVmLabelFromAffinityGroupCommand <T extends AffinityGroupMembe
     @Override
     protected void executeCommand() {
         affinityGroupDao.deleteAffinityVmLabel(getParameters().getAffinityGroupId(), getParameters().getEntityId());
+        invalidateCachedAffinityGroups();
         setSucceeded(true);
     }
 }
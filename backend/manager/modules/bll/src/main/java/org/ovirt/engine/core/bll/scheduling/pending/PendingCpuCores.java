@@ -66,22 +66,10 @@ public class PendingCpuCores extends PendingResource {
     }
 
     public static int collectForHost(PendingResourceManager manager, Guid host) {
-        int sum = 0;
-        for (PendingCpuCores resource: manager.pendingHostResources(host, PendingCpuCores.class)) {
-            sum += resource.getCpuCount();
-        }
-
-        return sum;
+        return manager.pendingHostCpuCount(host);
     }
 
     public static int collectSharedForHost(PendingResourceManager manager, Guid host) {
-        int sum = 0;
-        for (PendingCpuCores resource: manager.pendingHostResources(host, PendingCpuCores.class)) {
-            if (!resource.getCpuPinningPolicy().isExclusive()) {
-                sum += resource.getCpuCount();
-            }
-        }
-
-        return sum;
+        return manager.pendingHostSharedCpuCount(host);
     }
 }
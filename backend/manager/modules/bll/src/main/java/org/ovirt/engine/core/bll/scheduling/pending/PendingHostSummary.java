@@ -0,0 +1,186 @@
+package org.ovirt.engine.core.bll.scheduling.pending;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.ovirt.engine.core.bll.scheduling.NumaNodeMemoryConsumption;
+
+/**
+ * Immutable running totals of the pending resources of a single host.
+ *
+ * A new summary is computed whenever a resource is added to or removed from the host,
+ * so the totals can be read without iterating over the pending resources and without locking.
+ */
+final class PendingHostSummary {
+
+    static final PendingHostSummary EMPTY = new PendingHostSummary(0, 0, 0, 0,
+            Collections.emptyMap(),
+            Collections.emptyMap());
+
+    private final int cpuCount;
+    private final int sharedCpuCount;
+    private final long memoryMb;
+    private final long overcommitMemoryMb;
+    /** Maps hugepage size -> count **/
+    private final Map<Integer, Integer> hugePages;
+    /** Maps NUMA node index -> memory consumption **/
+    private final Map<Integer, NumaNodeMemoryConsumption> numaMemory;
+
+    private PendingHostSummary(int cpuCount,
+            int sharedCpuCount,
+            long memoryMb,
+            long overcommitMemoryMb,
+            Map<Integer, Integer> hugePages,
+            Map<Integer, NumaNodeMemoryConsumption> numaMemory) {
+        this.cpuCount = cpuCount;
+        this.sharedCpuCount = sharedCpuCount;
+        this.memoryMb = memoryMb;
+        this.overcommitMemoryMb = overcommitMemoryMb;
+        this.hugePages = hugePages;
+        this.numaMemory = numaMemory;
+    }
+
+    public int getCpuCount() {
+        return cpuCount;
+    }
+
+    public int getSharedCpuCount() {
+        return sharedCpuCount;
+    }
+
+    public long getMemoryMb() {
+        return memoryMb;
+    }
+
+    public long getOvercommitMemoryMb() {
+        return overcommitMemoryMb;
+    }
+
+    public Map<Integer, Integer> getHugePages() {
+        return hugePages;
+    }
+
+    public Map<Integer, NumaNodeMemoryConsumption> getNumaMemory() {
+        return numaMemory;
+    }
+
+    /**
+     * Returns whether the given resource is accounted for in the summary
+     */
+    static boolean isSummarized(PendingResource resource) {
+        Class<?> type = resource.getClass();
+        return type == PendingCpuCores.class
+                || type == PendingMemory.class
+                || type == PendingOvercommitMemory.class
+                || type == PendingHugePages.class
+                || type == PendingNumaMemory.class;
+    }
+
+    /**
+     * Returns the summary after adding the given resource
+     */
+    PendingHostSummary add(PendingResource resource) {
+        return update(resource, 1);
+    }
+
+    /**
+     * Returns the summary after removing the given resource
+     */
+    PendingHostSummary remove(PendingResource resource) {
+        return update(resource, -1);
+    }
+
+    private PendingHostSummary update(PendingResource resource, int sign) {
+        Class<?> type = resource.getClass();
+        if (type == PendingCpuCores.class) {
+            PendingCpuCores cores = (PendingCpuCores) resource;
+            int cpus = sign * (int) cores.getCpuCount();
+            return new PendingHostSummary(cpuCount + cpus,
+                    cores.getCpuPinningPolicy().isExclusive() ? sharedCpuCount : sharedCpuCount + cpus,
+                    memoryMb,
+                    overcommitMemoryMb,
+                    hugePages,
+                    numaMemory);
+        }
+
+        if (type == PendingMemory.class) {
+            return new PendingHostSummary(cpuCount,
+                    sharedCpuCount,
+                    memoryMb + sign * ((PendingMemory) resource).getSizeInMb(),
+                    overcommitMemoryMb,
+                    hugePages,
+                    numaMemory);
+        }
+
+        if (type == PendingOvercommitMemory.class) {
+            return new PendingHostSummary(cpuCount,
+                    sharedCpuCount,
+                    memoryMb,
+                    overcommitMemoryMb + sign * ((PendingOvercommitMemory) resource).getSizeInMb(),
+                    hugePages,
+                    numaMemory);
+        }
+
+        if (type == PendingHugePages.class) {
+            PendingHugePages pages = (PendingHugePages) resource;
+            Map<Integer, Integer> newHugePages = new HashMap<>(hugePages);
+            addCount(newHugePages, pages.getPageSize(), sign * pages.getCount());
+            return new PendingHostSummary(cpuCount,
+                    sharedCpuCount,
+                    memoryMb,
+                    overcommitMemoryMb,
+                    Collections.unmodifiableMap(newHugePages),
+                    numaMemory);
+        }
+
+        if (type == PendingNumaMemory.class) {
+            PendingNumaMemory numa = (PendingNumaMemory) resource;
+            Map<Integer, NumaNodeMemoryConsumption> newNumaMemory = new HashMap<>(numaMemory);
+            NumaNodeMemoryConsumption node = updateNode(newNumaMemory.get(numa.getNodeIndex()),
+                    numa.getMemoryConsumption(),
+                    sign);
+            if (node == null) {
+                newNumaMemory.remove(numa.getNodeIndex());
+            } else {
+                newNumaMemory.put(numa.getNodeIndex(), node);
+            }
+            return new PendingHostSummary(cpuCount,
+                    sharedCpuCount,
+                    memoryMb,
+                    overcommitMemoryMb,
+                    hugePages,
+                    Collections.unmodifiableMap(newNumaMemory));
+        }
+
+        return this;
+    }
+
+    /**
+     * Returns a new consumption of a NUMA node after adding or removing the given consumption,
+     * or null if nothing is consumed from the node anymore
+     */
+    private static NumaNodeMemoryConsumption updateNode(NumaNodeMemoryConsumption current,
+            NumaNodeMemoryConsumption change,
+            int sign) {
+        NumaNodeMemoryConsumption result = new NumaNodeMemoryConsumption();
+        if (current != null) {
+            result.setMemoryMB(current.getMemoryMB());
+            result.getHugePages().putAll(current.getHugePages());
+        }
+        if (change != null) {
+            result.setMemoryMB(result.getMemoryMB() + sign * change.getMemoryMB());
+            change.getHugePages().forEach((size, count) -> addCount(result.getHugePages(), size, sign * count));
+        }
+        return result.getMemoryMB() == 0 && result.getHugePages().isEmpty() ? null : result;
+    }
+
+    private static void addCount(Map<Integer, Integer> counts, int key, int delta) {
+        int count = counts.getOrDefault(key, 0) + delta;
+        if (count == 0) {
+            counts.remove(key);
+        } else {
+            counts.put(key, count);
+        }
+    }
+}
@@ -1,7 +1,5 @@
 package org.ovirt.engine.core.bll.scheduling.pending;
 
-import java.util.Collections;
-import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
 
@@ -62,13 +60,6 @@ public class PendingHugePages extends PendingResource {
      *   maps hugepage size -> count
      */
     public static Map<Integer, Integer> collectForHost(PendingResourceManager manager, Guid host) {
-        Map<Integer, Integer> pageCount = new HashMap<>();
-
-        for (PendingHugePages resource: manager.pendingHostResources(host, PendingHugePages.class)) {
-            pageCount.compute(resource.getPageSize(),
-                    (hpsize, count) -> (count == null ? 0 : count) + resource.getCount());
-        }
-
-        return Collections.unmodifiableMap(pageCount);
+        return manager.pendingHostHugePages(host);
     }
 }
@@ -42,11 +42,6 @@ public class PendingMemory extends PendingResource {
     }
 
     public static int collectForHost(PendingResourceManager manager, Guid host) {
-        int sumMb = 0;
-        for (PendingMemory resource: manager.pendingHostResources(host, PendingMemory.class)) {
-            sumMb += resource.getSizeInMb();
-        }
-
-        return sumMb;
+        return manager.pendingHostMemory(host);
     }
 }
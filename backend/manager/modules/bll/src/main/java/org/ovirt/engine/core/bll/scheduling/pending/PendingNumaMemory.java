@@ -2,7 +2,6 @@ package org.ovirt.engine.core.bll.scheduling.pending;
 
 import java.util.Map;
 import java.util.Objects;
-import java.util.stream.Collectors;
 
 import org.ovirt.engine.core.bll.scheduling.NumaNodeMemoryConsumption;
 import org.ovirt.engine.core.common.businessentities.VM;
@@ -58,11 +57,6 @@ public class PendingNumaMemory extends PendingResource {
     }
 
     public static Map<Integer, NumaNodeMemoryConsumption> collectForHost(PendingResourceManager manager, Guid hostId) {
-        return manager.pendingHostResources(hostId, PendingNumaMemory.class).stream()
-                .collect(Collectors.toMap(
-                        PendingNumaMemory::getNodeIndex,
-                        PendingNumaMemory::getMemoryConsumption,
-                        NumaNodeMemoryConsumption::merge
-                ));
+        return manager.pendingHostNumaMemory(hostId);
     }
 }
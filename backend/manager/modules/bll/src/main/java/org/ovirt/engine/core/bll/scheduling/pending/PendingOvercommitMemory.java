@@ -22,11 +22,6 @@ public class PendingOvercommitMemory extends PendingMemory {
     }
 
     public static int collectForHost(PendingResourceManager manager, Guid host) {
-        int sumMb = 0;
-        for (PendingOvercommitMemory resource: manager.pendingHostResources(host, PendingOvercommitMemory.class)) {
-            sumMb += resource.getSizeInMb();
-        }
-
-        return sumMb;
+        return manager.pendingHostOvercommitMemory(host);
     }
 }
@@ -6,9 +6,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.function.Predicate;
-import java.util.stream.Collectors;
 
+import org.ovirt.engine.core.bll.scheduling.NumaNodeMemoryConsumption;
 import org.ovirt.engine.core.common.businessentities.VDS;
 import org.ovirt.engine.core.common.businessentities.VM;
 import org.ovirt.engine.core.common.businessentities.VdsCpuUnit;
@@ -21,15 +20,20 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * Tracking service for all pending resources. All writes are synchronized and ensure that the internal
- * structures are consistent. Reads are best effort operations and require external locking if absolute consistency
- * is needed.
+ * Tracking service for all pending resources. Writes are serialized per VM, so the pending resources of different VMs
+ * can be added and cleared concurrently. Reads are lock-free, best effort operations and require external locking if
+ * absolute consistency is needed.
+ *
+ * The resources of each host are indexed by their type, and running totals of the pending memory, CPUs, hugepages
+ * and NUMA memory of each host are kept up to date as resources are added and removed, so reading them does not
+ * depend on the number of pending resources.
  */
 public class PendingResourceManager {
     private static final Logger log = LoggerFactory.getLogger(PendingResourceManager.class);
 
     // All internal structures have to be thread-safe for concurrent access
-    private final Map<Guid, Set<PendingResource>> resourcesByHost = new ConcurrentHashMap<>();
+    private final Map<Guid, PendingHostResources> resourcesByHost = new ConcurrentHashMap<>();
+    /** All changes of the resources of a VM are done while computing the VM entry of this map **/
     private final Map<Guid, Set<PendingResource>> resourcesByVm = new ConcurrentHashMap<>();
     private final Map<PendingResource, PendingResource> pendingResources = new ConcurrentHashMap<>();
 
@@ -48,31 +52,27 @@ public class PendingResourceManager {
      * @param vm VmStatic with valid getId()
      */
     public void clearVm(VmStatic vm) {
-        Set<Guid> modifiedHosts;
-
-        synchronized (this) {
-            if (!resourcesByVm.containsKey(vm.getId())) {
-                return;
-            }
-
-            log.debug("Clearing pending resources for VM {}", vm.getId());
-            modifiedHosts = new HashSet<>();
-
-            /* Remove all resources associated with the VM from the global set
-             * and from the byHost index
-             */
-            resourcesByVm.compute(vm.getId(), (vmId, resources) -> {
-                resources.stream()
-                        .peek(pendingResources::remove)
-                        .filter(r -> removeFromSetMap(resourcesByHost, r.getHost(), r))
-                        .map(PendingResource::getHost)
-                        .forEach(modifiedHosts::add);
-
-                resources.clear();
-                return resources;
-            });
+        if (!resourcesByVm.containsKey(vm.getId())) {
+            return;
         }
 
+        log.debug("Clearing pending resources for VM {}", vm.getId());
+        Set<Guid> modifiedHosts = new HashSet<>();
+
+        /* Remove all resources associated with the VM from the global set
+         * and from the byHost index
+         */
+        resourcesByVm.computeIfPresent(vm.getId(), (vmId, resources) -> {
+            resources.stream()
+                    .peek(pendingResources::remove)
+                    .filter(this::removeFromHost)
+                    .map(PendingResource::getHost)
+                    .forEach(modifiedHosts::add);
+
+            resources.clear();
+            return resources;
+        });
+
         for (Guid hostId: modifiedHosts) {
             notifyHostManagers(hostId);
         }
@@ -90,22 +90,24 @@ public class PendingResourceManager {
      * @param host VDS with valid getId()
      */
     public void clearHost(VDS host) {
-        synchronized (this) {
-            if (!resourcesByHost.containsKey(host.getId())) {
-                return;
-            }
-
-            log.debug("Clearing pending resources for host {}", host.getId());
-
-            /* Remove all resources associated with the host from the global set
-             *  and from the byVm index
-             */
-            resourcesByHost.compute(host.getId(), (hostId, resources) -> {
-                resources.stream()
-                        .peek(pendingResources::remove)
-                        .forEach(r -> removeFromSetMap(resourcesByVm, r.getVm(), r));
+        PendingHostResources hostResources = resourcesByHost.get(host.getId());
+        if (hostResources == null) {
+            return;
+        }
 
-                resources.clear();
+        log.debug("Clearing pending resources for host {}", host.getId());
+
+        /* Remove all resources associated with the host from the global set
+         *  and from the byVm index, each under the VM it belongs to
+         */
+        for (PendingResource resource : hostResources.getAll()) {
+            resourcesByVm.computeIfPresent(resource.getVm(), (vmId, resources) -> {
+                // the resource may have been replaced or cleared meanwhile
+                if (pendingResources.get(resource) == resource) {
+                    pendingResources.remove(resource);
+                    resources.remove(resource);
+                    removeFromHost(resource);
+                }
                 return resources;
             });
         }
@@ -123,27 +125,33 @@ public class PendingResourceManager {
      *                 fields.
      */
     public void addPending(PendingResource resource) {
-        synchronized (this) {
+        resourcesByVm.compute(resource.getVm(), (vmId, resources) -> {
+            if (resources == null) {
+                resources = new HashSet<>();
+            }
+
             /* Clear VM and Host indexes when the resource is added again.
              *  This should not happen in theory, but lets anticipate future bugs :)
              */
-            if (pendingResources.containsKey(resource)) {
-                PendingResource old = pendingResources.get(resource);
+            PendingResource old = pendingResources.get(resource);
+            if (old != null) {
                 log.warn("Clearing stale pending resource {} (host: {}, vm: {})",
                         old, old.getHost(), old.getVm());
 
-                removeFromSetMap(resourcesByVm, old.getVm(), old);
-                removeFromSetMap(resourcesByHost, old.getHost(), old);
+                resources.remove(old);
+                removeFromHost(old);
             }
 
             log.debug("Adding pending resource {} (host: {}, vm: {})",
                     resource, resource.getHost(), resource.getVm());
 
             /* Update indexes */
-            addToSetMap(resourcesByVm, resource.getVm(), resource);
-            addToSetMap(resourcesByHost, resource.getHost(), resource);
+            resources.add(resource);
+            resourcesByHost.computeIfAbsent(resource.getHost(), hostId -> new PendingHostResources())
+                    .add(resource);
             pendingResources.put(resource, resource);
-        }
+            return resources;
+        });
     }
 
     /**
@@ -153,9 +161,8 @@ public class PendingResourceManager {
      * @return Iterable object with the requested resources
      */
     public <T extends PendingResource> List<T> pendingHostResources(Guid host, Class<T> type) {
-        return collectResources(resourcesByHost, host, res -> res.getClass().equals(type)).stream()
-                .map(r -> (T)r)
-                .collect(Collectors.toList());
+        PendingHostResources hostResources = resourcesByHost.get(host);
+        return hostResources == null ? new ArrayList<>() : hostResources.get(type);
     }
 
     /**
@@ -165,26 +172,64 @@ public class PendingResourceManager {
      * @return Iterable object with the requested resources
      */
     public <T extends PendingResource> List<T> pendingVmResources(Guid vm, Class<T> type) {
-        return collectResources(resourcesByVm, vm, res -> res.getClass().equals(type)).stream()
-                .map(r -> (T)r)
-                .collect(Collectors.toList());
-    }
-
-    private static List<PendingResource> collectResources(Map<Guid, Set<PendingResource>> map,
-            Guid id,
-            Predicate<PendingResource> predicate) {
-
-        List<PendingResource> list = new ArrayList<>();
-        map.computeIfPresent(id, (k, resourceSet) -> {
+        List<T> list = new ArrayList<>();
+        resourcesByVm.computeIfPresent(vm, (k, resourceSet) -> {
             resourceSet.stream()
-                    .filter(predicate)
-                    .forEach(list::add);
+                    .filter(res -> res.getClass().equals(type))
+                    .forEach(res -> list.add((T) res));
 
             return resourceSet;
         });
         return list;
     }
 
+    /**
+     * Return the number of pending CPUs on the host.
+     */
+    public int pendingHostCpuCount(Guid host) {
+        return getSummary(host).getCpuCount();
+    }
+
+    /**
+     * Return the number of pending CPUs on the host, of VMs which don't have exclusively pinned CPUs.
+     */
+    public int pendingHostSharedCpuCount(Guid host) {
+        return getSummary(host).getSharedCpuCount();
+    }
+
+    /**
+     * Return the pending physical memory of the host, in MB.
+     */
+    public int pendingHostMemory(Guid host) {
+        return (int) getSummary(host).getMemoryMb();
+    }
+
+    /**
+     * Return the pending logical (overcommit) memory of the host, in MB.
+     */
+    public int pendingHostOvercommitMemory(Guid host) {
+        return (int) getSummary(host).getOvercommitMemoryMb();
+    }
+
+    /**
+     * Return the pending hugepages of the host, mapping hugepage size -> count.
+     */
+    public Map<Integer, Integer> pendingHostHugePages(Guid host) {
+        return getSummary(host).getHugePages();
+    }
+
+    /**
+     * Return the pending memory of the host NUMA nodes, mapping node index -> memory consumption.
+     */
+    public Map<Integer, NumaNodeMemoryConsumption> pendingHostNumaMemory(Guid host) {
+        return getSummary(host).getNumaMemory();
+    }
+
+    private PendingHostSummary getSummary(Guid host) {
+        PendingHostResources hostResources = resourcesByHost.get(host);
+        return hostResources == null ? PendingHostSummary.EMPTY : hostResources.getSummary();
+    }
+
     /**
      * Find pending resource that matches the provided template and return it.
      * @param template resource template filled with identification-specific fields
@@ -223,12 +268,12 @@ public class PendingResourceManager {
 
         VdsManager vdsManager = resourceManager.getVdsManager(hostId);
 
-        int pendingCpus = PendingCpuCores.collectForHost(this, hostId);
-        int pendingMemory = PendingOvercommitMemory.collectForHost(this, hostId);
+        int pendingCpus = pendingHostCpuCount(hostId);
+        int pendingMemory = pendingHostOvercommitMemory(hostId);
 
         // Adding pending hugepages to pending memory for the host,
         // which will decrease the memory available for scheduling.
-        int pendingHugePageMemMb = HugePageUtils.totalHugePageMemMb(PendingHugePages.collectForHost(this, hostId));
+        int pendingHugePageMemMb = HugePageUtils.totalHugePageMemMb(pendingHostHugePages(hostId));
 
         Map<Guid, List<VdsCpuUnit>> vmToPendingPinnings = PendingCpuPinning.collectForHost(this, hostId);
 
@@ -236,42 +281,58 @@ public class PendingResourceManager {
     }
 
     /**
-     * Atomically removes an element from a set that is a value in a map.
-     *
-     * @param map Map that contains sets of elements
-     * @param id Key to the map
-     * @param resource Element to be removed from the set
+     * Removes the resource from the index of its host.
      *
-     * @return True if an element was removed
+     * @return True if the resource was removed
      */
-    private static boolean removeFromSetMap(Map<Guid, Set<PendingResource>> map, Guid id, PendingResource resource) {
-        boolean[] res = {false};
-
-        map.computeIfPresent(id, (k, resourceSet) -> {
-            res[0] = resourceSet.remove(resource);
-            return resourceSet;
-        });
-
-        return res[0];
+    private boolean removeFromHost(PendingResource resource) {
+        PendingHostResources hostResources = resourcesByHost.get(resource.getHost());
+        return hostResources != null && hostResources.remove(resource);
     }
 
     /**
-     * Atomically adds an element to a set that is a value in a map.
-     *
-     * If there is no value for the key, a new set is created.
-     *
-     * @param map Map that contains sets of elements
-     * @param id Key to the map
-     * @param resource Element to be added to the set
+     * The pending resources of a host, indexed by their type, and their summary.
      */
-    private static void addToSetMap(Map<Guid, Set<PendingResource>> map, Guid id, PendingResource resource) {
-        map.compute(id, (k, resourceSet) -> {
-            if (resourceSet == null) {
-                resourceSet = new HashSet<>();
+    private static class PendingHostResources {
+        private final Map<Class<?>, Set<PendingResource>> resourcesByType = new ConcurrentHashMap<>();
+        private volatile PendingHostSummary summary = PendingHostSummary.EMPTY;
+
+        public synchronized void add(PendingResource resource) {
+            boolean added = resourcesByType.computeIfAbsent(resource.getClass(), type -> ConcurrentHashMap.newKeySet())
+                    .add(resource);
+            if (added && PendingHostSummary.isSummarized(resource)) {
+                summary = summary.add(resource);
             }
+        }
 
-            resourceSet.add(resource);
-            return resourceSet;
-        });
+        public synchronized boolean remove(PendingResource resource) {
+            Set<PendingResource> resources = resourcesByType.get(resource.getClass());
+            if (resources == null || !resources.remove(resource)) {
+                return false;
+            }
+            if (PendingHostSummary.isSummarized(resource)) {
+                summary = summary.remove(resource);
+            }
+            return true;
+        }
+
+        public <T extends PendingResource> List<T> get(Class<T> type) {
+            Set<PendingResource> resources = resourcesByType.get(type);
+            List<T> list = new ArrayList<>();
+            if (resources != null) {
+                resources.forEach(res -> list.add((T) res));
+            }
+            return list;
+        }
+
+        public List<PendingResource> getAll() {
+            List<PendingResource> list = new ArrayList<>();
+            resourcesByType.values().forEach(list::addAll);
+            return list;
+        }
+
+        public PendingHostSummary getSummary() {
+            return summary;
+        }
     }
 }
@@ -26,6 +26,11 @@ public class ClusterInMaintenanceFilterPolicyUnit extends PolicyUnitImpl {
         super(policyUnit, pendingResourceManager);
     }
 
+    @Override
+    public boolean isFilterIndependent() {
+        return true;
+    }
+
     @Override
     public List<VDS> filter(SchedulingContext context,
             List<VDS> hosts,
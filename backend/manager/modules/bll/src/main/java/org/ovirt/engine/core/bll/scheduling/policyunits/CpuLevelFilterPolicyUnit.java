@@ -44,6 +44,11 @@ public class CpuLevelFilterPolicyUnit extends PolicyUnitImpl {
         super(policyUnit, pendingResourceManager);
     }
 
+    @Override
+    public boolean isFilterIndependent() {
+        return true;
+    }
+
     @Override
     public List<VDS> filter(SchedulingContext context, List<VDS> hosts, VM vm, PerHostMessages messages) {
         List<VDS> hostsToRunOn = new ArrayList<>();
@@ -32,6 +32,11 @@ public class EmulatedMachineFilterPolicyUnit extends PolicyUnitImpl {
         super(policyUnit, pendingResourceManager);
     }
 
+    @Override
+    public boolean isFilterIndependent() {
+        return true;
+    }
+
     @Override
     public List<VDS> filter(SchedulingContext context, List<VDS> hosts, VM vm, PerHostMessages messages) {
         String requiredEmulatedMachine;
@@ -77,6 +77,11 @@ public class MigrationPolicyUnit extends PolicyUnitImpl {
         return true;
     }
 
+    @Override
+    public boolean isFilterIndependent() {
+        return true;
+    }
+
     @Override
     public List<VDS> filter(SchedulingContext context, List<VDS> hosts, VM vm, PerHostMessages messages) {
 
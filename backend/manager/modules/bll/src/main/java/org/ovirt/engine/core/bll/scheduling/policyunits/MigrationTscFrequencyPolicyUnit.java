@@ -38,6 +38,11 @@ public class MigrationTscFrequencyPolicyUnit extends PolicyUnitImpl {
         super(policyUnit, pendingResourceManager);
     }
 
+    @Override
+    public boolean isFilterIndependent() {
+        return true;
+    }
+
     @Override
     public List<VDS> filter(SchedulingContext context, List<VDS> hosts, VM vm, PerHostMessages messages) {
         // High-performance VMs can be only migrated to hosts with the same TSC frequency
@@ -29,6 +29,11 @@ public class PinToHostPolicyUnit extends PolicyUnitImpl {
         super(policyUnit, pendingResourceManager);
     }
 
+    @Override
+    public boolean isFilterIndependent() {
+        return true;
+    }
+
     @Override
     public List<VDS> filter(SchedulingContext context, List<VDS> hosts, VM vm, PerHostMessages messages) {
         if (vm.getMigrationSupport() == MigrationSupport.PINNED_TO_HOST) {
@@ -0,0 +1,39 @@
+package org.ovirt.engine.core.bll.storage.disk;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.inject.Inject;
+
+import org.ovirt.engine.core.bll.QueriesCommandBase;
+import org.ovirt.engine.core.bll.context.EngineContext;
+import org.ovirt.engine.core.common.businessentities.storage.DiskVmElement;
+import org.ovirt.engine.core.common.queries.IdsQueryParameters;
+import org.ovirt.engine.core.compat.Guid;
+import org.ovirt.engine.core.dao.DiskVmElementDao;
+
+/**
+ * Returns the disk VM elements of several VMs at once, mapped by the id of their VM. VMs without disks are not mapped.
+ */
+public class GetDiskVmElementsByVmIdsQuery<P extends IdsQueryParameters> extends QueriesCommandBase<P> {
+
+    @Inject
+    private DiskVmElementDao diskVmElementDao;
+
+    public GetDiskVmElementsByVmIdsQuery(P parameters, EngineContext engineContext) {
+        super(parameters, engineContext);
+    }
+
+    @Override
+    protected void executeQueryCommand() {
+        Map<Guid, List<DiskVmElement>> result = new HashMap<>();
+        for (DiskVmElement dve : diskVmElementDao.getAllForVms(getParameters().getIds(),
+                getUserID(),
+                getParameters().isFiltered())) {
+            result.computeIfAbsent(dve.getVmId(), vmId -> new ArrayList<>()).add(dve);
+        }
+        getQueryReturnValue().setReturnValue(result);
+    }
+}
@@ -0,0 +1,60 @@
+package org.ovirt.engine.core.bll.storage.disk;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import javax.inject.Inject;
+
+import org.ovirt.engine.core.bll.QueriesCommandBase;
+import org.ovirt.engine.core.bll.context.EngineContext;
+import org.ovirt.engine.core.bll.storage.disk.image.ImagesHandler;
+import org.ovirt.engine.core.common.businessentities.storage.Disk;
+import org.ovirt.engine.core.common.businessentities.storage.DiskImage;
+import org.ovirt.engine.core.common.businessentities.storage.DiskStorageType;
+import org.ovirt.engine.core.common.businessentities.storage.LunDisk;
+import org.ovirt.engine.core.common.queries.IdsQueryParameters;
+import org.ovirt.engine.core.dao.DiskDao;
+import org.ovirt.engine.core.dao.StorageServerConnectionDao;
+
+/**
+ * Returns several disks at once, each as returned by {@link GetDiskAndSnapshotsByDiskIdQuery}. Disks which are not
+ * found are not returned.
+ */
+public class GetDisksAndSnapshotsByDiskIdsQuery<P extends IdsQueryParameters> extends QueriesCommandBase<P> {
+    @Inject
+    private DiskDao diskDao;
+
+    @Inject
+    private ImagesHandler imagesHandler;
+
+    @Inject
+    private StorageServerConnectionDao storageServerConnectionDao;
+
+    public GetDisksAndSnapshotsByDiskIdsQuery(P parameters, EngineContext context) {
+        super(parameters, context);
+    }
+
+    @Override
+    protected void executeQueryCommand() {
+        List<Disk> allDisks = diskDao.getAllFromDisksIncludingSnapshotsByDiskIds(getParameters().getIds(),
+                getUserID(),
+                getParameters().isFiltered());
+
+        List<Disk> disks = new ArrayList<>();
+        allDisks.stream()
+                .filter(disk -> disk.getDiskStorageType() == DiskStorageType.LUN)
+                .map(LunDisk.class::cast)
+                .forEach(disk -> {
+                    disk.getLun().setLunConnections(
+                            storageServerConnectionDao.getAllForLun(disk.getLun().getLUNId()));
+                    disks.add(disk);
+                });
+        disks.addAll(imagesHandler.aggregateDiskImagesSnapshots(allDisks.stream()
+                .filter(disk -> disk.getDiskStorageType() != DiskStorageType.LUN)
+                .map(DiskImage.class::cast)
+                .collect(Collectors.toList())));
+
+        getQueryReturnValue().setReturnValue(disks);
+    }
+}
@@ -0,0 +1,189 @@
+package org.ovirt.engine.core.bll.storage.ovfstore;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.codec.binary.Hex;
+import org.ovirt.engine.core.common.businessentities.OvfDataSize;
+import org.ovirt.engine.core.common.constants.StorageConstants;
+import org.ovirt.engine.core.common.utils.Pair;
+import org.ovirt.engine.core.compat.Guid;
+import org.ovirt.engine.core.dao.VmAndTemplatesGenerationsDao;
+import org.ovirt.engine.core.utils.archivers.tar.InMemoryTar;
+import org.ovirt.engine.core.utils.ovf.OvfInfoFileConstants;
+import org.ovirt.engine.core.utils.threadpool.ThreadPoolUtil;
+
+/**
+ * The tar uploaded to the OVF stores of a storage domain: the info file, the OVFs of the VMs and templates on the
+ * domain, the metadata file and the OVFs of the unregistered entities of the domain.
+ * <p>
+ * The size and the fingerprint of the tar are known before it is written, from the generations and the sizes of the
+ * stored OVFs. The OVFs themselves are loaded in batches while the tar is streamed, so the tar is never held in memory
+ * as a whole.
+ */
+class OvfStoreContent {
+
+    private static final int PIPE_SIZE = 64 * 1024;
+    private static final String FINGERPRINT_ALGORITHM = "SHA-256";
+
+    private final VmAndTemplatesGenerationsDao vmAndTemplatesGenerationsDao;
+    private final byte[] infoFile;
+    private final List<OvfDataSize> ovfDataSizes;
+    private final byte[] metaDataFile;
+    private final List<Pair<Guid, byte[]>> unregisteredOvfs;
+    private final long size;
+
+    OvfStoreContent(VmAndTemplatesGenerationsDao vmAndTemplatesGenerationsDao,
+            byte[] infoFile,
+            List<OvfDataSize> ovfDataSizes,
+            byte[] metaDataFile,
+            List<Pair<Guid, byte[]>> unregisteredOvfs) {
+        this.vmAndTemplatesGenerationsDao = vmAndTemplatesGenerationsDao;
+        this.infoFile = infoFile;
+        this.ovfDataSizes = ovfDataSizes;
+        this.metaDataFile = metaDataFile;
+        this.unregisteredOvfs = unregisteredOvfs;
+
+        long entriesSize = InMemoryTar.getEntrySize(infoFile.length) + InMemoryTar.getEntrySize(metaDataFile.length);
+        for (OvfDataSize ovfDataSize : ovfDataSizes) {
+            entriesSize += InMemoryTar.getEntrySize(ovfDataSize.getSize());
+        }
+        for (Pair<Guid, byte[]> unregisteredOvf : unregisteredOvfs) {
+            entriesSize += InMemoryTar.getEntrySize(unregisteredOvf.getSecond().length);
+        }
+        size = InMemoryTar.getTarSize(entriesSize);
+    }
+
+    /**
+     * Returns the number of bytes of the tar
+     */
+    long getSize() {
+        return size;
+    }
+
+    /**
+     * Returns a digest of everything in the tar but the info file, whose only content is the time it was written at
+     */
+    String getFingerprint() {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance(FINGERPRINT_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        for (OvfDataSize ovfDataSize : ovfDataSizes) {
+            digest.update(String.format("%s:%d:%d;",
+                    ovfDataSize.getEntityId(),
+                    ovfDataSize.getOvfGeneration(),
+                    ovfDataSize.getSize()).getBytes(StandardCharsets.UTF_8));
+        }
+        digest.update(metaDataFile);
+        for (Pair<Guid, byte[]> unregisteredOvf : unregisteredOvfs) {
+            digest.update(unregisteredOvf.getFirst().toString().getBytes(StandardCharsets.UTF_8));
+            digest.update(unregisteredOvf.getSecond());
+        }
+        return Hex.encodeHexString(digest.digest());
+    }
+
+    /**
+     * Writes the tar to the given stream, which is closed once the tar is complete
+     */
+    void writeTo(OutputStream outputStream) throws Exception {
+        InMemoryTar tar = new InMemoryTar(outputStream);
+        tar.addTarEntry(infoFile, OvfInfoFileConstants.InfoFileName);
+        int i = 0;
+        while (i < ovfDataSizes.size()) {
+            int batchSize = Math.min(StorageConstants.OVF_MAX_ITEMS_PER_SQL_STATEMENT, ovfDataSizes.size() - i);
+            List<OvfDataSize> batch = ovfDataSizes.subList(i, i + batchSize);
+            i += batchSize;
+            writeOvfs(batch, tar);
+        }
+        tar.addTarEntry(metaDataFile, OvfInfoFileConstants.MetaDataFileName);
+        for (Pair<Guid, byte[]> unregisteredOvf : unregisteredOvfs) {
+            tar.addTarEntry(unregisteredOvf.getSecond(), unregisteredOvf.getFirst() + ".ovf");
+        }
+        tar.close();
+    }
+
+    private void writeOvfs(List<OvfDataSize> batch, InMemoryTar tar) throws Exception {
+        List<Guid> ids = new ArrayList<>(batch.size());
+        for (OvfDataSize ovfDataSize : batch) {
+            ids.add(ovfDataSize.getEntityId());
+        }
+        Map<Guid, String> ovfs = new HashMap<>();
+        for (Pair<Guid, String> ovf : vmAndTemplatesGenerationsDao.loadOvfDataForIds(ids)) {
+            ovfs.put(ovf.getFirst(), ovf.getSecond());
+        }
+
+        for (OvfDataSize ovfDataSize : batch) {
+            String ovf = ovfs.get(ovfDataSize.getEntityId());
+            byte[] data = ovf != null ? ovf.getBytes(StandardCharsets.UTF_8) : null;
+            // the size of the tar was already promised, so an OVF which changed its size since cannot be written
+            if (data == null || data.length != ovfDataSize.getSize()) {
+                throw new IllegalStateException(String.format(
+                        "The OVF of entity %s changed while the OVF store was written", ovfDataSize.getEntityId()));
+            }
+            tar.addTarEntry(data, ovfDataSize.getEntityId() + ".ovf");
+        }
+    }
+
+    /**
+     * Returns a stream of the tar, which is written by a pooled thread while the stream is read. The stream fails
+     * once exhausted if the tar could not be written, and has to be closed by the caller so the writing thread does
+     * not wait for a reader which is gone.
+     */
+    InputStream openStream() throws IOException {
+        TarInputStream inputStream = new TarInputStream();
+        PipedOutputStream outputStream = new PipedOutputStream(inputStream);
+        ThreadPoolUtil.execute(() -> {
+            try {
+                writeTo(outputStream);
+            } catch (Exception e) {
+                inputStream.failure = e;
+            } finally {
+                try {
+                    outputStream.close();
+                } catch (IOException e) {
+                    // the reader is gone, nothing else to release
+                }
+            }
+        });
+        return inputStream;
+    }
+
+    private static class TarInputStream extends PipedInputStream {
+
+        private volatile Exception failure;
+
+        private TarInputStream() {
+            super(PIPE_SIZE);
+        }
+
+        @Override
+        public synchronized int read() throws IOException {
+            return checkFailure(super.read());
+        }
+
+        @Override
+        public synchronized int read(byte[] b, int off, int len) throws IOException {
+            return checkFailure(super.read(b, off, len));
+        }
+
+        private int checkFailure(int result) throws IOException {
+            if (result == -1 && failure != null) {
+                throw new IOException("Failed to write the OVF store", failure);
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package org.ovirt.engine.core.bll.storage.ovfstore;
+
+import java.util.Date;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.inject.Singleton;
+
+import org.ovirt.engine.core.common.utils.Pair;
+import org.ovirt.engine.core.compat.Guid;
+
+/**
+ * Remembers the fingerprint of the content last uploaded to each OVF store disk by this engine, along with the update
+ * time recorded for the disk, so that an OVF store whose content did not change since is not uploaded again. An OVF
+ * store whose recorded update time differs was written or registered elsewhere and is always uploaded. The
+ * fingerprints are not persisted, so every OVF store is uploaded once after the engine starts.
+ */
+@Singleton
+public class OvfStoreFingerprints {
+
+    // the update time is kept in milliseconds, as the one loaded from the database may be a Timestamp
+    private final Map<Guid, Pair<Long, String>> fingerprints = new ConcurrentHashMap<>();
+
+    public boolean isUpToDate(Guid ovfDiskId, Date lastUpdated, String fingerprint) {
+        return lastUpdated != null && Objects.equals(fingerprints.get(ovfDiskId), new Pair<>(lastUpdated.getTime(), fingerprint));
+    }
+
+    public void uploaded(Guid ovfDiskId, Date lastUpdated, String fingerprint) {
+        fingerprints.put(ovfDiskId, new Pair<>(lastUpdated.getTime(), fingerprint));
+    }
+
+    public void invalidate(Guid ovfDiskId) {
+        fingerprints.remove(ovfDiskId);
+    }
+}
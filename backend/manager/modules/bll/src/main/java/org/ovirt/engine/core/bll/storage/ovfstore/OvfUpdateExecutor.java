@@ -0,0 +1,132 @@
+package org.ovirt.engine.core.bll.storage.ovfstore;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+
+import javax.annotation.PostConstruct;
+import javax.inject.Singleton;
+
+import org.ovirt.engine.core.utils.EngineLocalConfig;
+import org.ovirt.engine.core.utils.threadpool.ThreadPoolUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Renders the OVFs of the VMs and templates of a single OVF update chunk concurrently on the engine thread pool.
+ * <p>
+ * If the configured parallelism is greater than 1, the tasks of a call are split into up to that many consecutive
+ * slices: the calling thread runs the first slice and the others are submitted to the engine thread pool. The calling
+ * thread then runs the submitted slices which no pool thread has started yet, so a busy pool only makes the call
+ * sequential. Otherwise the OVF update loads, renders and persists every VM and template one after another, as it
+ * always did. The tasks are expected not to query the database, all the data they need is loaded beforehand.
+ */
+@Singleton
+public class OvfUpdateExecutor {
+
+    private static final Logger log = LoggerFactory.getLogger(OvfUpdateExecutor.class);
+
+    private static final int DEFAULT_PARALLELISM = 0;
+
+    private int parallelism;
+
+    public OvfUpdateExecutor() {
+        this(DEFAULT_PARALLELISM);
+    }
+
+    OvfUpdateExecutor(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    @PostConstruct
+    public void init() {
+        parallelism = EngineLocalConfig.getInstance().getInteger("OVF_UPDATE_PARALLELISM", DEFAULT_PARALLELISM);
+        if (isParallel()) {
+            log.info("OVFs are rendered by up to {} threads", parallelism);
+        }
+    }
+
+    /**
+     * Returns whether the OVFs of a chunk are loaded in bulk and rendered concurrently
+     */
+    public boolean isParallel() {
+        return parallelism > 1;
+    }
+
+    /**
+     * Runs the given tasks and waits for all of them to finish
+     *
+     * @return the results of the tasks, in the order of the tasks
+     * @throws RuntimeException the exception thrown by the first failed task, in the order of the tasks
+     */
+    public <T> List<T> invokeAll(List<Callable<T>> tasks) {
+        int slicesCount = isParallel() ? Math.min(parallelism, tasks.size()) : 1;
+        List<FutureTask<List<T>>> slices = new ArrayList<>(slicesCount);
+        for (int i = 0; i < slicesCount; i++) {
+            List<Callable<T>> slice = tasks.subList(i * tasks.size() / slicesCount,
+                    (i + 1) * tasks.size() / slicesCount);
+            slices.add(new FutureTask<>(() -> callAll(slice)));
+        }
+
+        for (FutureTask<List<T>> slice : slices.subList(Math.min(1, slicesCount), slicesCount)) {
+            try {
+                ThreadPoolUtil.execute(slice);
+            } catch (RejectedExecutionException e) {
+                // The slice is run by the calling thread
+            }
+        }
+        // A slice which was already started by a pool thread is not run again
+        slices.forEach(FutureTask::run);
+
+        // Wait for all the slices first, so no OVF of this chunk is still rendered when one fails
+        RuntimeException failure = null;
+        List<T> results = new ArrayList<>(tasks.size());
+        for (FutureTask<List<T>> slice : slices) {
+            try {
+                results.addAll(getResult(slice));
+            } catch (RuntimeException e) {
+                if (failure == null) {
+                    failure = e;
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        return results;
+    }
+
+    private static <T> List<T> callAll(List<Callable<T>> tasks) throws Exception {
+        List<T> results = new ArrayList<>(tasks.size());
+        for (Callable<T> task : tasks) {
+            results.add(task.call());
+        }
+        return results;
+    }
+
+    private static <T> T getResult(FutureTask<T> futureTask) {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return futureTask.get();
+                } catch (InterruptedException e) {
+                    // The slice has to finish before the OVF update goes on
+                    interrupted = true;
+                }
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new RuntimeException(e.getCause());
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
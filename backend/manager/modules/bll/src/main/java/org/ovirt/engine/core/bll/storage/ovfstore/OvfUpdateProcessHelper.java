@@ -18,7 +18,9 @@ import org.ovirt.engine.core.bll.VmTemplateHandler;
 import org.ovirt.engine.core.bll.storage.disk.image.DisksFilter;
 import org.ovirt.engine.core.bll.utils.ClusterUtils;
 import org.ovirt.engine.core.bll.utils.VmDeviceUtils;
+import org.ovirt.engine.core.common.businessentities.Cluster;
 import org.ovirt.engine.core.common.businessentities.VM;
+import org.ovirt.engine.core.common.businessentities.VmBase;
 import org.ovirt.engine.core.common.businessentities.VmDeviceId;
 import org.ovirt.engine.core.common.businessentities.VmTemplate;
 import org.ovirt.engine.core.common.businessentities.aaa.DbUser;
@@ -31,6 +33,7 @@ import org.ovirt.engine.core.common.vdscommands.UpdateVMVDSCommandParameters;
 import org.ovirt.engine.core.common.vdscommands.VDSCommandType;
 import org.ovirt.engine.core.compat.Guid;
 import org.ovirt.engine.core.compat.KeyValuePairCompat;
+import org.ovirt.engine.core.compat.Version;
 import org.ovirt.engine.core.dao.DbUserDao;
 import org.ovirt.engine.core.dao.DiskImageDao;
 import org.ovirt.engine.core.dao.DiskVmElementDao;
@@ -85,27 +88,42 @@ public class OvfUpdateProcessHelper {
     }
 
     protected String generateVmTemplateMetadata(FullEntityOvfData fullEntityOvfData) {
-        return ovfManager.exportTemplate(fullEntityOvfData,
+        return generateVmTemplateMetadata(fullEntityOvfData,
                 clusterUtils.getCompatibilityVersion(fullEntityOvfData.getVmBase()));
     }
 
+    /**
+     * Renders the ovf of a template whose data was already loaded, see {@link #updateBootOrderOnDevices}
+     */
+    public String generateVmTemplateMetadata(FullEntityOvfData fullEntityOvfData, Version version) {
+        return ovfManager.renderTemplate(fullEntityOvfData, version);
+    }
+
     /**
      * Adds the given template metadata to the given map
      */
     public String buildMetadataDictionaryForTemplate(VmTemplate template,
                                                         Map<Guid, KeyValuePairCompat<String, List<Guid>>> metaDictionary) {
         List<DiskImage> allTemplateImages = template.getDiskList();
-        Set<DbUser> dbUsers = new HashSet<>(dbUserDao.getAllForTemplate(template.getId()));
-        FullEntityOvfData fullEntityOvfData = new FullEntityOvfData(template);
-        fullEntityOvfData.setDbUsers(dbUsers);
-        fullEntityOvfData.setDiskImages(allTemplateImages);
-        ovfHelper.populateUserToRoles(fullEntityOvfData, template.getId());
+        FullEntityOvfData fullEntityOvfData = loadTemplateOvfData(template);
         String templateMeta = generateVmTemplateMetadata(fullEntityOvfData);
         metaDictionary.put(template.getId(), new KeyValuePairCompat<>(
                 templateMeta, allTemplateImages.stream().map(BaseDisk::getId).collect(Collectors.toList())));
         return templateMeta;
     }
 
+    /**
+     * Loads the users, roles and disks of the given template for its ovf
+     */
+    public FullEntityOvfData loadTemplateOvfData(VmTemplate template) {
+        Set<DbUser> dbUsers = new HashSet<>(dbUserDao.getAllForTemplate(template.getId()));
+        FullEntityOvfData fullEntityOvfData = new FullEntityOvfData(template);
+        fullEntityOvfData.setDbUsers(dbUsers);
+        fullEntityOvfData.setDiskImages(template.getDiskList());
+        ovfHelper.populateUserToRoles(fullEntityOvfData, template.getId());
+        return fullEntityOvfData;
+    }
+
     /**
      * Loads additional need vm data for it's ovf
      */
@@ -151,7 +169,42 @@ public class OvfUpdateProcessHelper {
     }
 
     protected String generateVmMetadata(VM vm, FullEntityOvfData fullEntityOvfData) {
-        return ovfManager.exportVm(vm, fullEntityOvfData, clusterUtils.getCompatibilityVersion(vm));
+        return generateVmMetadata(vm, fullEntityOvfData, clusterUtils.getCompatibilityVersion(vm));
+    }
+
+    /**
+     * Renders the ovf of a vm which is not the hosted engine and whose data was already loaded, see
+     * {@link #updateBootOrderOnDevices} and {@link #loadMemoryDisks}
+     */
+    public String generateVmMetadata(VM vm,
+            FullEntityOvfData fullEntityOvfData,
+            Version version,
+            Map<Guid, DiskImage> memoryDisks) {
+        return ovfManager.renderVm(vm, fullEntityOvfData, version, memoryDisks);
+    }
+
+    /**
+     * Renders the ovf of the hosted engine vm, see {@link #updateBootOrderOnDevices}
+     */
+    public String generateHostedEngineVmMetadata(VM vm,
+            FullEntityOvfData fullEntityOvfData,
+            Version version,
+            Cluster cluster) {
+        return ovfManager.exportHostedEngineVm(vm, fullEntityOvfData, version, cluster);
+    }
+
+    /**
+     * Updates the boot order on the devices of the given vm or template for its ovf
+     */
+    public void updateBootOrderOnDevices(VmBase vmBase, boolean template) {
+        ovfManager.updateBootOrderOnDevices(vmBase, template);
+    }
+
+    /**
+     * Loads the memory and metadata disks of the snapshots of the given vm for its ovf
+     */
+    public Map<Guid, DiskImage> loadMemoryDisks(VM vm) {
+        return ovfManager.getMemoryDisksForSnapshots(vm);
     }
 
     /**
@@ -1,8 +1,8 @@
 package org.ovirt.engine.core.bll.storage.ovfstore;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
@@ -38,6 +38,7 @@ import org.ovirt.engine.core.common.action.LockProperties;
 import org.ovirt.engine.core.common.action.LockProperties.Scope;
 import org.ovirt.engine.core.common.action.ProcessOvfUpdateParameters;
 import org.ovirt.engine.core.common.action.ProcessOvfUpdateParameters.OvfUpdateStep;
+import org.ovirt.engine.core.common.businessentities.OvfDataSize;
 import org.ovirt.engine.core.common.businessentities.OvfEntityData;
 import org.ovirt.engine.core.common.businessentities.StorageDomainOvfInfo;
 import org.ovirt.engine.core.common.businessentities.StorageDomainOvfInfoStatus;
@@ -68,7 +69,6 @@ import org.ovirt.engine.core.dao.VmAndTemplatesGenerationsDao;
 import org.ovirt.engine.core.dao.VmDynamicDao;
 import org.ovirt.engine.core.dao.VmStaticDao;
 import org.ovirt.engine.core.utils.JsonHelper;
-import org.ovirt.engine.core.utils.archivers.tar.InMemoryTar;
 import org.ovirt.engine.core.utils.ovf.OvfInfoFileConstants;
 
 @NonTransactiveCommandAttribute
@@ -98,6 +98,8 @@ public class ProcessOvfUpdateForStorageDomainCommand<T extends ProcessOvfUpdateP
     @Inject
     private DiskImageDynamicDao diskImageDynamicDao;
     @Inject
+    private OvfStoreFingerprints ovfStoreFingerprints;
+    @Inject
     @Typed(SerialChildCommandsExecutionCallback.class)
     private Instance<SerialChildCommandsExecutionCallback> callbackProvider;
 
@@ -227,36 +229,34 @@ public class ProcessOvfUpdateForStorageDomainCommand<T extends ProcessOvfUpdateP
         }
     }
 
-    private byte[] buildOvfInfoFileByteArray(List<Guid> vmAndTemplatesIds) {
-        ByteArrayOutputStream bufferedOutputStream = new ByteArrayOutputStream();
+    private OvfStoreContent buildOvfStoreContent(List<Guid> vmAndTemplatesIds) {
+        Map<String, Object> metaDataForEntities = generateMetaDataFile(vmAndTemplatesIds);
+        List<OvfDataSize> ovfDataSizes = new ArrayList<>();
         Set<Guid> processedIds = new HashSet<>();
-
-        try (InMemoryTar inMemoryTar = new InMemoryTar(bufferedOutputStream)) {
-            inMemoryTar.addTarEntry(generateInfoFileData().getBytes(),
-                    OvfInfoFileConstants.InfoFileName);
-            Map<String, Object> metaDataForEntities = generateMetaDataFile(vmAndTemplatesIds);
-            int i = 0;
-            while (i < vmAndTemplatesIds.size()) {
-                int size =
-                        Math.min(StorageConstants.OVF_MAX_ITEMS_PER_SQL_STATEMENT, vmAndTemplatesIds.size() - i);
-                List<Guid> idsToProcess = vmAndTemplatesIds.subList(i, i + size);
-                i += size;
-
-                List<Pair<Guid, String>> ovfs = vmAndTemplatesGenerationsDao.loadOvfDataForIds(idsToProcess);
-                if (!ovfs.isEmpty()) {
-                    processedIds.addAll(buildFilesForOvfs(ovfs, inMemoryTar));
-                }
+        int i = 0;
+        while (i < vmAndTemplatesIds.size()) {
+            int size = Math.min(StorageConstants.OVF_MAX_ITEMS_PER_SQL_STATEMENT, vmAndTemplatesIds.size() - i);
+            List<Guid> idsToProcess = vmAndTemplatesIds.subList(i, i + size);
+            i += size;
+
+            for (OvfDataSize ovfDataSize : vmAndTemplatesGenerationsDao.loadOvfDataSizesForIds(idsToProcess)) {
+                ovfDataSizes.add(ovfDataSize);
+                processedIds.add(ovfDataSize.getEntityId());
             }
+        }
 
-            List<Pair<Guid, String>> unprocessedOvfData = retrieveUnprocessedUnregisteredOvfData(processedIds, metaDataForEntities);
-            inMemoryTar.addTarEntry(buildJson(metaDataForEntities, true).getBytes(), OvfInfoFileConstants.MetaDataFileName);
-            buildFilesForOvfs(unprocessedOvfData, inMemoryTar);
-        } catch (Exception e) {
-            throw new RuntimeException(String.format("Exception while building in memory tar of the OVFs of domain %s",
-                    getParameters().getStorageDomainId()), e);
+        List<Pair<Guid, byte[]>> unregisteredOvfs = new ArrayList<>();
+        for (Pair<Guid, String> ovf : retrieveUnprocessedUnregisteredOvfData(processedIds, metaDataForEntities)) {
+            if (ovf.getSecond() != null) {
+                unregisteredOvfs.add(new Pair<>(ovf.getFirst(), ovf.getSecond().getBytes(StandardCharsets.UTF_8)));
+            }
         }
 
-        return bufferedOutputStream.toByteArray();
+        return new OvfStoreContent(vmAndTemplatesGenerationsDao,
+                generateInfoFileData().getBytes(StandardCharsets.UTF_8),
+                ovfDataSizes,
+                buildJson(metaDataForEntities, true).getBytes(StandardCharsets.UTF_8),
+                unregisteredOvfs);
     }
 
     private List<Pair<Guid, String>> retrieveUnprocessedUnregisteredOvfData(Set<Guid> processedIds,
@@ -291,7 +291,8 @@ public class ProcessOvfUpdateForStorageDomainCommand<T extends ProcessOvfUpdateP
 
         vmAndTemplatesIds.addAll(vmStaticDao.getVmAndTemplatesIdsWithoutAttachedImageDisks(getParameters().getStoragePoolId(), false));
 
-        byte[] bytes = buildOvfInfoFileByteArray(vmAndTemplatesIds);
+        OvfStoreContent content = buildOvfStoreContent(vmAndTemplatesIds);
+        String fingerprint = content.getFingerprint();
 
         Pair<StorageDomainOvfInfo, DiskImage> lastOvfStoreForUpdate = domainOvfStoresInfoForUpdate.getLast();
 
@@ -311,7 +312,8 @@ public class ProcessOvfUpdateForStorageDomainCommand<T extends ProcessOvfUpdateP
 
         for (Pair<StorageDomainOvfInfo, DiskImage> pair : domainOvfStoresInfoForUpdate) {
             shouldUpdateLastOvfStore |=
-                    performOvfUpdateForDomain(bytes,
+                    performOvfUpdateForDomain(content,
+                            fingerprint,
                             pair.getFirst(),
                             pair.getSecond(),
                             vmAndTemplatesIds);
@@ -320,7 +322,8 @@ public class ProcessOvfUpdateForStorageDomainCommand<T extends ProcessOvfUpdateP
         // if we successfully updated any ovf store, we can attempt to also update the one we kept for best effort
         // backup (if we did)
         if (shouldUpdateLastOvfStore && lastOvfStoreForUpdate != null) {
-            performOvfUpdateForDomain(bytes,
+            performOvfUpdateForDomain(content,
+                    fingerprint,
                     lastOvfStoreForUpdate.getFirst(),
                     lastOvfStoreForUpdate.getSecond(),
                     vmAndTemplatesIds);
@@ -354,7 +357,8 @@ public class ProcessOvfUpdateForStorageDomainCommand<T extends ProcessOvfUpdateP
         runVdsCommand(VDSCommandType.SetVolumeDescription, vdsCommandParameters);
     }
 
-    private boolean performOvfUpdateForDomain(byte[] ovfData,
+    private boolean performOvfUpdateForDomain(OvfStoreContent content,
+            String fingerprint,
             StorageDomainOvfInfo storageDomainOvfInfo,
             DiskImage ovfDisk,
             List<Guid> vmAndTemplatesIds) {
@@ -363,6 +367,18 @@ public class ProcessOvfUpdateForStorageDomainCommand<T extends ProcessOvfUpdateP
         Guid diskId = ovfDisk.getId();
         Guid volumeId = ovfDisk.getImageId();
 
+        // the OVF store already holds this content, only the time of its last update is refreshed
+        if (ovfStoreFingerprints.isUpToDate(diskId, storageDomainOvfInfo.getLastUpdated(), fingerprint)) {
+            log.debug("OVF store disk '{}' of domain '{}' is up to date, skipping its upload", diskId, storageDomainId);
+            storageDomainOvfInfo.setStatus(StorageDomainOvfInfoStatus.UPDATED);
+            storageDomainOvfInfo.setStoredOvfIds(vmAndTemplatesIds);
+            storageDomainOvfInfo.setLastUpdated(updateDate);
+            storageDomainOvfInfoDao.update(storageDomainOvfInfo);
+            ovfStoreFingerprints.uploaded(diskId, updateDate, fingerprint);
+            return true;
+        }
+
+        ovfStoreFingerprints.invalidate(diskId);
         storageDomainOvfInfo.setStoredOvfIds(null);
 
         try {
@@ -374,20 +390,19 @@ public class ProcessOvfUpdateForStorageDomainCommand<T extends ProcessOvfUpdateP
 
             storageDomainOvfInfoDao.update(storageDomainOvfInfo);
 
-            ByteArrayInputStream byteArrayInputStream =
-                    new ByteArrayInputStream(ovfData);
-
-            Long size = Long.valueOf(ovfData.length);
-            UploadStreamParameters uploadStreamParameters =
-                    new UploadStreamParameters(storagePoolId, storageDomainId,
-                            diskId, volumeId, byteArrayInputStream,
-                            size);
-
-            uploadStreamParameters.setParentCommand(getActionType());
-            uploadStreamParameters.setParentParameters(getParameters());
-            uploadStreamParameters.setEndProcedure(EndProcedure.COMMAND_MANAGED);
-            ActionReturnValue actionReturnValue =
-                    runInternalActionWithTasksContext(ActionType.UploadStream, uploadStreamParameters);
+            Long size = content.getSize();
+            ActionReturnValue actionReturnValue;
+            try (InputStream inputStream = content.openStream()) {
+                UploadStreamParameters uploadStreamParameters =
+                        new UploadStreamParameters(storagePoolId, storageDomainId,
+                                diskId, volumeId, inputStream,
+                                size);
+
+                uploadStreamParameters.setParentCommand(getActionType());
+                uploadStreamParameters.setParentParameters(getParameters());
+                uploadStreamParameters.setEndProcedure(EndProcedure.COMMAND_MANAGED);
+                actionReturnValue = runInternalActionWithTasksContext(ActionType.UploadStream, uploadStreamParameters);
+            }
             if (actionReturnValue.getSucceeded()) {
                 storageDomainOvfInfo.setStatus(StorageDomainOvfInfoStatus.UPDATED);
                 storageDomainOvfInfo.setStoredOvfIds(vmAndTemplatesIds);
@@ -406,9 +421,10 @@ public class ProcessOvfUpdateForStorageDomainCommand<T extends ProcessOvfUpdateP
                     }
                 }
                 imageDao.update(ovfDisk.getImage());
+                ovfStoreFingerprints.uploaded(diskId, updateDate, fingerprint);
                 return true;
             }
-        } catch (EngineException e) {
+        } catch (EngineException | IOException e) {
             log.warn("failed to update domain '{}' ovf store disk '{}'", storageDomainId, diskId);
         }
 
@@ -481,17 +497,6 @@ public class ProcessOvfUpdateForStorageDomainCommand<T extends ProcessOvfUpdateP
         }
     }
 
-    protected Set<Guid> buildFilesForOvfs(List<Pair<Guid, String>> ovfs, InMemoryTar inMemoryTar) throws Exception {
-        Set<Guid> addedOvfIds = new HashSet<>();
-        for (Pair<Guid, String> pair : ovfs) {
-            if (pair.getSecond() != null) {
-                inMemoryTar.addTarEntry(pair.getSecond().getBytes(), pair.getFirst() + ".ovf");
-                addedOvfIds.add(pair.getFirst());
-            }
-        }
-        return addedOvfIds;
-    }
-
     @Override
     protected Map<String, Pair<String, String>> getExclusiveLocks() {
         return getParameters().isSkipDomainChecks() ? Collections.emptyMap() :
@@ -9,6 +9,10 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import javax.inject.Inject;
 
@@ -23,6 +27,7 @@ import org.ovirt.engine.core.bll.storage.disk.image.DisksFilter;
 import org.ovirt.engine.core.common.AuditLogType;
 import org.ovirt.engine.core.common.action.LockProperties;
 import org.ovirt.engine.core.common.action.ProcessOvfUpdateParameters;
+import org.ovirt.engine.core.common.businessentities.Cluster;
 import org.ovirt.engine.core.common.businessentities.Label;
 import org.ovirt.engine.core.common.businessentities.Snapshot;
 import org.ovirt.engine.core.common.businessentities.StorageDomain;
@@ -32,9 +37,12 @@ import org.ovirt.engine.core.common.businessentities.StorageDomainStatus;
 import org.ovirt.engine.core.common.businessentities.StoragePool;
 import org.ovirt.engine.core.common.businessentities.VM;
 import org.ovirt.engine.core.common.businessentities.VMStatus;
+import org.ovirt.engine.core.common.businessentities.VmBase;
 import org.ovirt.engine.core.common.businessentities.VmTemplate;
 import org.ovirt.engine.core.common.businessentities.VmTemplateStatus;
 import org.ovirt.engine.core.common.businessentities.aaa.DbUser;
+import org.ovirt.engine.core.common.businessentities.storage.BaseDisk;
+import org.ovirt.engine.core.common.businessentities.storage.Disk;
 import org.ovirt.engine.core.common.businessentities.storage.DiskImage;
 import org.ovirt.engine.core.common.businessentities.storage.FullEntityOvfData;
 import org.ovirt.engine.core.common.businessentities.storage.ImageStatus;
@@ -48,7 +56,10 @@ import org.ovirt.engine.core.common.scheduling.AffinityGroup;
 import org.ovirt.engine.core.common.utils.Pair;
 import org.ovirt.engine.core.compat.Guid;
 import org.ovirt.engine.core.compat.KeyValuePairCompat;
+import org.ovirt.engine.core.compat.Version;
+import org.ovirt.engine.core.dao.ClusterDao;
 import org.ovirt.engine.core.dao.DbUserDao;
+import org.ovirt.engine.core.dao.DiskDao;
 import org.ovirt.engine.core.dao.LabelDao;
 import org.ovirt.engine.core.dao.SnapshotDao;
 import org.ovirt.engine.core.dao.StorageDomainDao;
@@ -94,6 +105,12 @@ public class ProcessOvfUpdateForStoragePoolCommand <T extends ProcessOvfUpdatePa
     private DbUserDao dbUserDao;
     @Inject
     private OvfHelper ovfHelper;
+    @Inject
+    private OvfUpdateExecutor ovfUpdateExecutor;
+    @Inject
+    private DiskDao diskDao;
+    @Inject
+    private ClusterDao clusterDao;
 
     private int itemsCountPerUpdate;
     private List<Guid> proccessedIdsInfo;
@@ -101,6 +118,10 @@ public class ProcessOvfUpdateForStoragePoolCommand <T extends ProcessOvfUpdatePa
     private List<String> proccessedOvfConfigurationsInfo;
     private Set<Guid> proccessedDomains;
     private List<Guid> activeDataDomainsIds;
+    private int updatedOvfsCount;
+    private long loadTime;
+    private long renderTime;
+    private long persistTime;
 
     public ProcessOvfUpdateForStoragePoolCommand(T parameters, CommandContext commandContext) {
         super(parameters, commandContext);
@@ -131,6 +152,13 @@ public class ProcessOvfUpdateForStoragePoolCommand <T extends ProcessOvfUpdatePa
         removeOvfForTemplatesAndVmsOfStoragePool(pool);
 
         log.info("Successfully removed unneeded template/vm OVFs in Data Center '{}'", pool.getName());
+        log.info("Updated {} VM and template OVFs in Data Center '{}': loading took {} ms, rendering {} ms, "
+                        + "persisting {} ms",
+                updatedOvfsCount,
+                pool.getName(),
+                TimeUnit.NANOSECONDS.toMillis(loadTime),
+                TimeUnit.NANOSECONDS.toMillis(renderTime),
+                TimeUnit.NANOSECONDS.toMillis(persistTime));
 
         getReturnValue().setActionReturnValue(proccessedDomains);
         setSucceeded(true);
@@ -215,7 +243,7 @@ public class ProcessOvfUpdateForStoragePoolCommand <T extends ProcessOvfUpdatePa
      *
      */
     protected void performOvfUpdate(Map<Guid, KeyValuePairCompat<String, List<Guid>>> vmsAndTemplateMetadata) {
-
+        long start = System.nanoTime();
         markDomainsWithOvfsForOvfUpdate(vmsAndTemplateMetadata.keySet());
 
         int i = 0;
@@ -227,13 +255,21 @@ public class ProcessOvfUpdateForStoragePoolCommand <T extends ProcessOvfUpdatePa
             vmAndTemplatesGenerationsDao.updateOvfGenerations(guidsForUpdate, ovfGenerationsForUpdate, ovfConfigurationsInfo);
             i += sizeToUpdate;
         }
+        updatedOvfsCount += proccessedIdsInfo.size();
         initProcessedInfoLists();
+        persistTime += System.nanoTime() - start;
     }
 
     /**
      * Creates and returns a map containing valid templates metadata
      */
     protected Map<Guid, KeyValuePairCompat<String, List<Guid>>> populateTemplatesMetadataForOvfUpdate(List<Guid> idsToProcess) {
+        if (ovfUpdateExecutor.isParallel()) {
+            return populateTemplatesMetadataInParallel(idsToProcess);
+        }
+
+        long start = System.nanoTime();
+        long renderTimeBefore = renderTime;
         Map<Guid, KeyValuePairCompat<String, List<Guid>>> vmsAndTemplateMetadata = new HashMap<>();
         List<VmTemplate> templates = vmTemplateDao.getVmTemplatesByIds(idsToProcess);
 
@@ -246,7 +282,9 @@ public class ProcessOvfUpdateForStoragePoolCommand <T extends ProcessOvfUpdatePa
                     Long currentDbGeneration = vmStaticDao.getDbGeneration(template.getId());
                     // currentDbGeneration can be null in case that the template was deleted during the run of OvfDataUpdater.
                     if (currentDbGeneration != null && template.getDbGeneration() == currentDbGeneration) {
+                        long templateRenderStart = System.nanoTime();
                         proccessedOvfConfigurationsInfo.add(ovfUpdateProcessHelper.buildMetadataDictionaryForTemplate(template, vmsAndTemplateMetadata));
+                        renderTime += System.nanoTime() - templateRenderStart;
                         proccessedIdsInfo.add(template.getId());
                         proccessedOvfGenerationsInfo.add(template.getDbGeneration());
                         proccessDisksDomains(template.getDiskList());
@@ -255,9 +293,81 @@ public class ProcessOvfUpdateForStoragePoolCommand <T extends ProcessOvfUpdatePa
             }
         }
 
+        loadTime += System.nanoTime() - start - (renderTime - renderTimeBefore);
+        return vmsAndTemplateMetadata;
+    }
+
+    /**
+     * Loads the data of the given templates with as few queries as possible, then renders their ovfs concurrently
+     */
+    private Map<Guid, KeyValuePairCompat<String, List<Guid>>> populateTemplatesMetadataInParallel(
+            List<Guid> idsToProcess) {
+        long start = System.nanoTime();
+        List<VmTemplate> templates = new ArrayList<>();
+        for (VmTemplate template : vmTemplateDao.getVmTemplatesByIds(idsToProcess)) {
+            if (VmTemplateStatus.Locked != template.getStatus()) {
+                updateTemplateDisksFromDb(template);
+                if (verifyImagesStatus(template.getDiskList())) {
+                    ovfUpdateProcessHelper.loadTemplateData(template);
+                    templates.add(template);
+                }
+            }
+        }
+
+        Map<Guid, Long> currentDbGenerations =
+                vmStaticDao.getDbGenerations(templates.stream().map(VmTemplate::getId).collect(Collectors.toList()));
+        Map<Guid, Cluster> clusters = getClustersOfStoragePool();
+        List<VmTemplate> loadedTemplates = new ArrayList<>();
+        List<Callable<String>> renderTasks = new ArrayList<>();
+        for (VmTemplate template : templates) {
+            Long currentDbGeneration = currentDbGenerations.get(template.getId());
+            // currentDbGeneration can be null in case that the template was deleted during the run of OvfDataUpdater.
+            if (currentDbGeneration != null && template.getDbGeneration() == currentDbGeneration) {
+                FullEntityOvfData fullEntityOvfData = ovfUpdateProcessHelper.loadTemplateOvfData(template);
+                ovfUpdateProcessHelper.updateBootOrderOnDevices(template, true);
+                Version version = getCompatibilityVersion(template, clusters);
+                loadedTemplates.add(template);
+                renderTasks.add(() -> ovfUpdateProcessHelper.generateVmTemplateMetadata(fullEntityOvfData, version));
+            }
+        }
+        long renderStart = System.nanoTime();
+        loadTime += renderStart - start;
+
+        List<String> ovfs = ovfUpdateExecutor.invokeAll(renderTasks);
+        renderTime += System.nanoTime() - renderStart;
+
+        Map<Guid, KeyValuePairCompat<String, List<Guid>>> vmsAndTemplateMetadata = new HashMap<>();
+        for (int i = 0; i < loadedTemplates.size(); i++) {
+            VmTemplate template = loadedTemplates.get(i);
+            vmsAndTemplateMetadata.put(template.getId(), new KeyValuePairCompat<>(ovfs.get(i),
+                    template.getDiskList().stream().map(BaseDisk::getId).collect(Collectors.toList())));
+            proccessedOvfConfigurationsInfo.add(ovfs.get(i));
+            proccessedIdsInfo.add(template.getId());
+            proccessedOvfGenerationsInfo.add(template.getDbGeneration());
+            proccessDisksDomains(template.getDiskList());
+        }
         return vmsAndTemplateMetadata;
     }
 
+    /**
+     * Loads the clusters of the storage pool at once, for the ovfs of a chunk
+     */
+    private Map<Guid, Cluster> getClustersOfStoragePool() {
+        return clusterDao.getAllForStoragePool(getStoragePool().getId()).stream()
+                .collect(Collectors.toMap(Cluster::getId, Function.identity()));
+    }
+
+    private Cluster findCluster(VmBase vmBase, Map<Guid, Cluster> clusters) {
+        // The cluster is loaded on its own only if it was added to the storage pool after the chunk started
+        return clusters.computeIfAbsent(vmBase.getClusterId(), clusterDao::get);
+    }
+
+    private Version getCompatibilityVersion(VmBase vmBase, Map<Guid, Cluster> clusters) {
+        return vmBase.getClusterId() != null
+                ? findCluster(vmBase, clusters).getCompatibilityVersion()
+                : Version.ALL.get(0);
+    }
+
     protected void updateTemplateDisksFromDb(VmTemplate template) {
         vmTemplateHandler.updateDisksFromDb(template);
     }
@@ -266,6 +376,12 @@ public class ProcessOvfUpdateForStoragePoolCommand <T extends ProcessOvfUpdatePa
         vmHandler.updateDisksFromDb(vm);
     }
 
+    protected void updateVmDisks(VM vm, List<Disk> disks) {
+        vm.clearDisks();
+        vmHandler.updateDisksForVm(vm, disks);
+        vmHandler.updateDisksVmDataForVm(vm);
+    }
+
     @Override
     public AuditLogType getAuditLogTypeValue() {
         return getSucceeded() ? super.getAuditLogTypeValue() : AuditLogType.UPDATE_OVF_FOR_STORAGE_POOL_FAILED;
@@ -320,6 +436,12 @@ public class ProcessOvfUpdateForStoragePoolCommand <T extends ProcessOvfUpdatePa
      * Create and returns map contains valid vms metadata
      */
     protected Map<Guid, KeyValuePairCompat<String, List<Guid>>> populateVmsMetadataForOvfUpdate(List<Guid> idsToProcess) {
+        if (ovfUpdateExecutor.isParallel()) {
+            return populateVmsMetadataInParallel(idsToProcess);
+        }
+
+        long start = System.nanoTime();
+        long renderTimeBefore = renderTime;
         Map<Guid, KeyValuePairCompat<String, List<Guid>>> vmsAndTemplateMetadata = new HashMap<>();
         List<VM> vms = vmDao.getVmsByIds(idsToProcess);
         for (VM vm : vms) {
@@ -346,33 +468,123 @@ public class ProcessOvfUpdateForStoragePoolCommand <T extends ProcessOvfUpdatePa
                     continue;
                 }
                 if (vm.getStaticData().getDbGeneration() == currentDbGeneration) {
-                    List<LunDisk> lunDisks = DisksFilter.filterLunDisks(vm.getDiskMap().values());
-                    for (LunDisk lun : lunDisks) {
-                        lun.getLun().setLunConnections(storageServerConnectionDao.getAllForLun(lun.getLun().getId()));
-                    }
-
-                    List<AffinityGroup> affinityGroups = affinityGroupDao.getAllAffinityGroupsByVmId(vm.getId());
-                    List<Label> affinityLabels = labelDao.getAllByEntityIds(Collections.singletonList(vm.getId()));
-                    Set<DbUser> dbUsers = new HashSet<>(dbUserDao.getAllForVm(vm.getId()));
-                    FullEntityOvfData fullEntityOvfData = new FullEntityOvfData(vm);
-                    fullEntityOvfData.setDiskImages(vmImages);
-                    fullEntityOvfData.setLunDisks(lunDisks);
-                    fullEntityOvfData.setAffinityGroups(affinityGroups);
-                    fullEntityOvfData.setAffinityLabels(affinityLabels);
-                    fullEntityOvfData.setDbUsers(dbUsers);
-                    ovfHelper.populateUserToRoles(fullEntityOvfData, vm.getId());
+                    FullEntityOvfData fullEntityOvfData = loadVmOvfData(vm, vmImages);
+                    long vmRenderStart = System.nanoTime();
                     proccessedOvfConfigurationsInfo.add(ovfUpdateProcessHelper.buildMetadataDictionaryForVm(vm,
                             vmsAndTemplateMetadata,
                             fullEntityOvfData));
+                    renderTime += System.nanoTime() - vmRenderStart;
                     proccessedIdsInfo.add(vm.getId());
                     proccessedOvfGenerationsInfo.add(vm.getStaticData().getDbGeneration());
                     proccessDisksDomains(vm.getDiskList());
                 }
             }
         }
+        loadTime += System.nanoTime() - start - (renderTime - renderTimeBefore);
         return vmsAndTemplateMetadata;
     }
 
+    /**
+     * Loads the data of the given vms with as few queries as possible, then renders their ovfs concurrently
+     */
+    private Map<Guid, KeyValuePairCompat<String, List<Guid>>> populateVmsMetadataInParallel(List<Guid> idsToProcess) {
+        long start = System.nanoTime();
+        Map<Guid, List<Disk>> disks = diskDao.getAllForVms(idsToProcess);
+        Map<Guid, List<Snapshot>> snapshots = snapshotDao.getAllWithConfigurationForVms(idsToProcess);
+        List<Pair<VM, ArrayList<DiskImage>>> vms = new ArrayList<>();
+        for (VM vm : vmDao.getVmsByIds(idsToProcess)) {
+            if (VMStatus.ImageLocked == vm.getStatus()) {
+                continue;
+            }
+            updateVmDisks(vm, disks.getOrDefault(vm.getId(), Collections.emptyList()));
+            if (!verifyImagesStatus(vm.getDiskList())) {
+                continue;
+            }
+            ArrayList<DiskImage> vmImages = ovfUpdateProcessHelper.getVmImagesFromDb(vm);
+            if (!verifyImagesStatus(vmImages)) {
+                continue;
+            }
+            vm.setSnapshots(snapshots.getOrDefault(vm.getId(), new ArrayList<>()));
+            if (!verifySnapshotsStatus(vm.getSnapshots())) {
+                continue;
+            }
+            ovfUpdateProcessHelper.loadVmData(vm);
+            vms.add(new Pair<>(vm, vmImages));
+        }
+
+        Map<Guid, Long> currentDbGenerations = vmStaticDao.getDbGenerations(
+                vms.stream().map(pair -> pair.getFirst().getId()).collect(Collectors.toList()));
+        Map<Guid, Cluster> clusters = getClustersOfStoragePool();
+        List<VM> loadedVms = new ArrayList<>();
+        List<Callable<String>> renderTasks = new ArrayList<>();
+        for (Pair<VM, ArrayList<DiskImage>> pair : vms) {
+            VM vm = pair.getFirst();
+            Long currentDbGeneration = currentDbGenerations.get(vm.getId());
+            if (currentDbGeneration == null) {
+                log.warn("currentDbGeneration of VM (name: '{}', id: '{}') is null, probably because the VM was deleted during the run of OvfDataUpdater.",
+                        vm.getName(),
+                        vm.getId());
+                continue;
+            }
+            if (vm.getStaticData().getDbGeneration() == currentDbGeneration) {
+                FullEntityOvfData fullEntityOvfData = loadVmOvfData(vm, pair.getSecond());
+                ovfUpdateProcessHelper.updateBootOrderOnDevices(vm.getStaticData(), false);
+                Version version = getCompatibilityVersion(vm.getStaticData(), clusters);
+                loadedVms.add(vm);
+                if (vm.isHostedEngine()) {
+                    // The engine xml of the hosted engine vm is built from the database, so it is rendered right away
+                    String ovf = ovfUpdateProcessHelper.generateHostedEngineVmMetadata(vm,
+                            fullEntityOvfData,
+                            version,
+                            findCluster(vm.getStaticData(), clusters));
+                    renderTasks.add(() -> ovf);
+                } else {
+                    Map<Guid, DiskImage> memoryDisks = ovfUpdateProcessHelper.loadMemoryDisks(vm);
+                    renderTasks.add(() -> ovfUpdateProcessHelper.generateVmMetadata(vm,
+                            fullEntityOvfData,
+                            version,
+                            memoryDisks));
+                }
+            }
+        }
+        long renderStart = System.nanoTime();
+        loadTime += renderStart - start;
+
+        List<String> ovfs = ovfUpdateExecutor.invokeAll(renderTasks);
+        renderTime += System.nanoTime() - renderStart;
+
+        Map<Guid, KeyValuePairCompat<String, List<Guid>>> vmsAndTemplateMetadata = new HashMap<>();
+        for (int i = 0; i < loadedVms.size(); i++) {
+            VM vm = loadedVms.get(i);
+            vmsAndTemplateMetadata.put(vm.getId(), new KeyValuePairCompat<>(ovfs.get(i),
+                    vm.getDiskMap().values().stream().map(BaseDisk::getId).collect(Collectors.toList())));
+            proccessedOvfConfigurationsInfo.add(ovfs.get(i));
+            proccessedIdsInfo.add(vm.getId());
+            proccessedOvfGenerationsInfo.add(vm.getStaticData().getDbGeneration());
+            proccessDisksDomains(vm.getDiskList());
+        }
+        return vmsAndTemplateMetadata;
+    }
+
+    private FullEntityOvfData loadVmOvfData(VM vm, ArrayList<DiskImage> vmImages) {
+        List<LunDisk> lunDisks = DisksFilter.filterLunDisks(vm.getDiskMap().values());
+        for (LunDisk lun : lunDisks) {
+            lun.getLun().setLunConnections(storageServerConnectionDao.getAllForLun(lun.getLun().getId()));
+        }
+
+        List<AffinityGroup> affinityGroups = affinityGroupDao.getAllAffinityGroupsByVmId(vm.getId());
+        List<Label> affinityLabels = labelDao.getAllByEntityIds(Collections.singletonList(vm.getId()));
+        Set<DbUser> dbUsers = new HashSet<>(dbUserDao.getAllForVm(vm.getId()));
+        FullEntityOvfData fullEntityOvfData = new FullEntityOvfData(vm);
+        fullEntityOvfData.setDiskImages(vmImages);
+        fullEntityOvfData.setLunDisks(lunDisks);
+        fullEntityOvfData.setAffinityGroups(affinityGroups);
+        fullEntityOvfData.setAffinityLabels(affinityLabels);
+        fullEntityOvfData.setDbUsers(dbUsers);
+        ovfHelper.populateUserToRoles(fullEntityOvfData, vm.getId());
+        return fullEntityOvfData;
+    }
+
     protected void proccessDisksDomains(List<DiskImage> disks) {
         if (disks.isEmpty()) {
             proccessedDomains.addAll(activeDataDomainsIds);
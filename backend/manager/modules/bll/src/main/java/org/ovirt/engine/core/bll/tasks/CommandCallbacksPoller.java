@@ -1,17 +1,29 @@
 package org.ovirt.engine.core.bll.tasks;
 
+import java.lang.management.ManagementFactory;
 import java.util.ArrayList;
-import java.util.Iterator;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Map.Entry;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.enterprise.concurrent.ManagedScheduledExecutorService;
 import javax.inject.Inject;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 
 import org.apache.commons.lang.exception.ExceptionUtils;
 import org.ovirt.engine.core.bll.tasks.interfaces.CommandCallback;
@@ -23,11 +35,20 @@ import org.ovirt.engine.core.common.config.ConfigValues;
 import org.ovirt.engine.core.compat.CommandStatus;
 import org.ovirt.engine.core.compat.Guid;
 import org.ovirt.engine.core.utils.CorrelationIdTracker;
+import org.ovirt.engine.core.utils.EngineLocalConfig;
+import org.ovirt.engine.core.utils.metrics.LatencyHistogram;
+import org.ovirt.engine.core.utils.threadpool.ThreadPoolUtil;
 import org.ovirt.engine.core.utils.threadpool.ThreadPools;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-public class CommandCallbacksPoller implements BackendService {
+/**
+ * Invokes the callbacks of the commands which are due on each poll. The callbacks are kept ordered by their next
+ * polling time, so a poll touches only the due ones. With a parallelism greater than 1 the due callbacks are invoked
+ * on several threads of the engine thread pool; the callbacks of all the commands of a hierarchy, from the top level
+ * command down, are still invoked one after another.
+ */
+public class CommandCallbacksPoller implements BackendService, CommandCallbacksPollerMXBean {
 
     @Inject
     @ThreadPools(ThreadPools.ThreadPoolType.EngineScheduledThreadPool)
@@ -43,11 +64,23 @@ public class CommandCallbacksPoller implements BackendService {
 
     private int repeatEndMethodsOnFailMaxRetries;
 
+    private int parallelism;
+
+    private final LatencyHistogram pollLatency = new LatencyHistogram("poll");
+    private final LatencyHistogram callbackLatency = new LatencyHistogram("callback");
+    private final LongAdder dueCallbacks = new LongAdder();
+    private volatile int lastPollDueCallbacks;
+
+    private MBeanServer platformMBeanServer;
+    private ObjectName objectName;
+
     @PostConstruct
     private void init() {
         log.info("Start initializing {}", getClass().getSimpleName());
         pollingRate = Config.<Long>getValue(ConfigValues.AsyncCommandPollingLoopInSeconds);
         repeatEndMethodsOnFailMaxRetries = Config.<Integer>getValue(ConfigValues.RepeatEndMethodsOnFailMaxRetries);
+        parallelism = EngineLocalConfig.getInstance().getInteger("COMMAND_CALLBACKS_POLLING_PARALLELISM", 1);
+        registerMBean();
         initCommandExecutor();
         executor.scheduleWithFixedDelay(this::invokeCallbackMethods,
                 pollingRate,
@@ -56,6 +89,58 @@ public class CommandCallbacksPoller implements BackendService {
         log.info("Finished initializing {}", getClass().getSimpleName());
     }
 
+    private void registerMBean() {
+        try {
+            objectName = new ObjectName("CommandCallbacksPoller:type=" + getClass().getName());
+            platformMBeanServer = ManagementFactory.getPlatformMBeanServer();
+            platformMBeanServer.registerMBean(this, objectName);
+        } catch (Exception e) {
+            log.warn("Problem during registration of command callbacks poller into JMX: {}", e.getMessage());
+            log.debug("Exception", e);
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        try {
+            if (objectName != null) {
+                platformMBeanServer.unregisterMBean(objectName);
+            }
+        } catch (Exception e) {
+            log.warn("Problem during unregistration of command callbacks poller from JMX: {}", e.getMessage());
+            log.debug("Exception", e);
+        }
+    }
+
+    @Override
+    public List<String> getLatencies() {
+        return getLatencyHistograms().map(LatencyHistogram::toString).collect(Collectors.toList());
+    }
+
+    @Override
+    public long getDueCallbacks() {
+        return dueCallbacks.sum();
+    }
+
+    @Override
+    public int getLastPollDueCallbacks() {
+        return lastPollDueCallbacks;
+    }
+
+    @Override
+    public int getScheduledCallbacks() {
+        return commandsRepository.getScheduledCallbacksCount();
+    }
+
+    @Override
+    public void resetLatencies() {
+        getLatencyHistograms().forEach(LatencyHistogram::reset);
+    }
+
+    private Stream<LatencyHistogram> getLatencyHistograms() {
+        return Stream.of(pollLatency, callbackLatency);
+    }
+
     private boolean endCallback(Guid cmdId, CommandCallback callback, CommandStatus status) {
         try {
             boolean shouldRepeatEndMethodsOnFail = callback.shouldRepeatEndMethodsOnFail(cmdId);
@@ -130,105 +215,200 @@ public class CommandCallbacksPoller implements BackendService {
     }
 
     private void invokeCallbackMethodsImpl() {
-        Iterator<Entry<Guid, CallbackTiming>> iterator = commandsRepository.getCallbacksTiming().entrySet().iterator();
-        while (iterator.hasNext()) {
-            Entry<Guid, CallbackTiming> entry = iterator.next();
-
-            Guid cmdId = entry.getKey();
-            CallbackTiming callbackTiming = entry.getValue();
-            CommandEntity commandEntity = commandsRepository.getCommandEntity(cmdId);
-            CorrelationIdTracker.setCorrelationId(commandEntity != null
-                    ? commandEntity.getCommandParameters().getCorrelationId() : null);
-            if (commandEntity != null && updateCommandWaitingForEvent(commandEntity, callbackTiming)) {
-                continue;
+        long start = System.nanoTime();
+        List<Guid> dueCommandIds = commandsRepository.pollDueCallbacks(pollingRate);
+        lastPollDueCallbacks = dueCommandIds.size();
+        dueCallbacks.add(dueCommandIds.size());
+        try {
+            if (parallelism > 1 && dueCommandIds.size() > 1) {
+                invokeCallbackMethodsInParallel(groupByRootCommand(dueCommandIds));
+            } else {
+                dueCommandIds.forEach(this::invokeCallback);
             }
+        } finally {
+            CorrelationIdTracker.setCorrelationId(null);
+        }
+        commandsRepository.markExpiredCommandsAsFailure();
+        pollLatency.recordSince(start);
+        log.debug("Polled {} due callbacks out of {} in {}ms",
+                dueCommandIds.size(),
+                commandsRepository.getScheduledCallbacksCount(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
 
-            // Decrement counter; execute if it reaches 0
-            callbackTiming.setRemainingDelay(callbackTiming.getRemainingDelay() - pollingRate);
-            ActionType cmdActionType = commandEntity == null ? ActionType.Unknown : commandEntity.getCommandType();
-            if (callbackTiming.getRemainingDelay() > 0) {
-                log.debug("The command {} ({}) has remaining delay {}, polling will be skipped.",
-                        cmdActionType,
-                        cmdId,
-                        callbackTiming.getRemainingDelay());
-                continue;
+    /**
+     * Groups the given commands by their top level command, so the callbacks of a command and of its ancestor and
+     * descendant commands are never invoked concurrently
+     */
+    Collection<List<Guid>> groupByRootCommand(List<Guid> cmdIds) {
+        Map<Guid, Guid> topLevelCmdIds = new HashMap<>();
+        Map<Guid, List<Guid>> groups = new LinkedHashMap<>();
+        for (Guid cmdId : cmdIds) {
+            groups.computeIfAbsent(getTopLevelCommandId(cmdId, topLevelCmdIds), id -> new ArrayList<>()).add(cmdId);
+        }
+        return groups.values();
+    }
+
+    /**
+     * Follows the root command ids, which are the ids of the parent commands, up to the command which has no parent
+     * or whose parent is no longer known
+     *
+     * @param topLevelCmdIds
+     *            the top level command ids already found, by command id, which is updated with the ids found
+     */
+    private Guid getTopLevelCommandId(Guid cmdId, Map<Guid, Guid> topLevelCmdIds) {
+        List<Guid> path = new ArrayList<>();
+        Guid currentCmdId = cmdId;
+        Guid topLevelCmdId = null;
+        while (topLevelCmdId == null) {
+            if (topLevelCmdIds.containsKey(currentCmdId)) {
+                topLevelCmdId = topLevelCmdIds.get(currentCmdId);
+            } else if (path.contains(currentCmdId)) {
+                // a command can't be its own ancestor, guard against looping forever anyway
+                topLevelCmdId = currentCmdId;
+            } else {
+                path.add(currentCmdId);
+                CommandEntity commandEntity = commandsRepository.getCommandEntity(currentCmdId);
+                if (commandEntity == null || Guid.isNullOrEmpty(commandEntity.getRootCommandId())) {
+                    topLevelCmdId = currentCmdId;
+                } else {
+                    currentCmdId = commandEntity.getRootCommandId();
+                }
             }
+        }
+        for (Guid id : path) {
+            topLevelCmdIds.put(id, topLevelCmdId);
+        }
+        return topLevelCmdId;
+    }
 
-            CommandCallback callback = callbackTiming.getCallback();
-            CommandStatus status = commandsRepository.getCommandStatus(cmdId);
-            log.debug("Command {} ({}) in status {}", cmdActionType, cmdId, status);
-            boolean runCallbackAgain = false;
-            boolean errorInCallback = false;
-            try {
-                switch (status) {
-                    case FAILED:
-                    case SUCCEEDED:
-                        runCallbackAgain = endCallback(cmdId, callback, status);
-                        break;
-                    case ACTIVE:
-                        if (commandEntity == null) {
-                            log.info("Not invoking command's {} doPolling method command entity is null, callback is {}.",
-                                    cmdId,
-                                    callbackTiming.getCallback() == null ? "NULL" : callbackTiming.getCallback().getClass().getCanonicalName());
-                        } else if (commandEntity.isExecuted()) {
-                            log.debug("Invoking command's {} ({}) doPolling method.", cmdActionType, cmdId);
-                            callback.doPolling(cmdId, getChildCommandIds(cmdId));
-                        }
-                        break;
-                    case EXECUTION_FAILED:
-                        if (callback.pollOnExecutionFailed()) {
-                            log.debug("Invoking command's {} ({}) doPolling method.", cmdActionType, cmdId);
-                            callback.doPolling(cmdId, getChildCommandIds(cmdId));
-                        } else {
-                            log.info("Not invoking command's {} ({}) doPolling method callback's pollOnExecutionFailed is false.",
-                                    cmdActionType, cmdId);
-                        }
-                        break;
-                    default:
-                        break;
+    /**
+     * Invokes the callbacks of the given groups of commands on at most {@code parallelism} threads of the engine thread
+     * pool, one group after another on each thread, and waits until all of them were invoked
+     */
+    private void invokeCallbackMethodsInParallel(Collection<List<Guid>> groups) {
+        Queue<List<Guid>> pendingGroups = new ConcurrentLinkedQueue<>(groups);
+        List<Callable<Void>> workers = new ArrayList<>();
+        for (int i = 0; i < Math.min(parallelism, groups.size()); i++) {
+            workers.add(() -> {
+                try {
+                    List<Guid> group;
+                    while ((group = pendingGroups.poll()) != null) {
+                        group.forEach(this::invokeCallback);
+                    }
+                } finally {
+                    CorrelationIdTracker.setCorrelationId(null);
                 }
-            } catch (Throwable ex) {
-                errorInCallback = true;
-                log.info("Exception in invoking callback of command {} ({}): {}",
-                        cmdActionType,
-                        cmdId,
-                        ExceptionUtils.getRootCauseMessage(ex));
-                log.debug("Exception", ex);
-                handleError(ex, status, cmdId);
-            } finally {
-                if ((CommandStatus.FAILED == status || CommandStatus.SUCCEEDED == status && !errorInCallback)
-                        && !runCallbackAgain) {
-                    log.debug("Callback of command {} ({}) has been notified, removing command from command repository.",
-                            cmdActionType, cmdId);
-                    commandsRepository.updateCallbackNotified(cmdId);
-                    iterator.remove();
-                    CommandEntity cmdEntity = commandsRepository.getCommandEntity(entry.getKey());
-                    if (cmdEntity != null) {
-                        // When a child finishes, its parent's callback should execute shortly thereafter
-                        CallbackTiming rootCmdContainer =
-                                commandsRepository.getCallbackTiming(cmdEntity.getRootCommandId());
-                        if (rootCmdContainer != null) {
-                            rootCmdContainer.setInitialDelay(pollingRate);
-                            rootCmdContainer.setRemainingDelay(pollingRate);
-                        }
+                return null;
+            });
+        }
+        ThreadPoolUtil.invokeAll(workers);
+    }
+
+    /**
+     * Invokes the callback of the given due command. Any error is logged and the callback is polled again on the next
+     * poll, so a callback is never left out of the schedule.
+     */
+    private void invokeCallback(Guid cmdId) {
+        CallbackTiming callbackTiming = commandsRepository.getCallbackTiming(cmdId);
+        if (callbackTiming == null) {
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            invokeCallback(cmdId, callbackTiming);
+        } catch (Throwable t) {
+            logInvocationCallbackError(t);
+            if (commandsRepository.getCallbackTiming(cmdId) == callbackTiming) {
+                commandsRepository.scheduleCallback(cmdId, callbackTiming, pollingRate);
+            }
+        } finally {
+            callbackLatency.recordSince(start);
+        }
+    }
+
+    private void invokeCallback(Guid cmdId, CallbackTiming callbackTiming) {
+        CommandEntity commandEntity = commandsRepository.getCommandEntity(cmdId);
+        CorrelationIdTracker.setCorrelationId(commandEntity != null
+                ? commandEntity.getCommandParameters().getCorrelationId() : null);
+        if (commandEntity != null && updateCommandWaitingForEvent(commandEntity, callbackTiming)) {
+            commandsRepository.scheduleCallback(cmdId, callbackTiming, pollingRate);
+            return;
+        }
+
+        ActionType cmdActionType = commandEntity == null ? ActionType.Unknown : commandEntity.getCommandType();
+        CommandCallback callback = callbackTiming.getCallback();
+        CommandStatus status = commandsRepository.getCommandStatus(cmdId);
+        log.debug("Command {} ({}) in status {}", cmdActionType, cmdId, status);
+        boolean runCallbackAgain = false;
+        boolean errorInCallback = false;
+        try {
+            switch (status) {
+                case FAILED:
+                case SUCCEEDED:
+                    runCallbackAgain = endCallback(cmdId, callback, status);
+                    break;
+                case ACTIVE:
+                    if (commandEntity == null) {
+                        log.info("Not invoking command's {} doPolling method command entity is null, callback is {}.",
+                                cmdId,
+                                callbackTiming.getCallback() == null ? "NULL" : callbackTiming.getCallback().getClass().getCanonicalName());
+                    } else if (commandEntity.isExecuted()) {
+                        log.debug("Invoking command's {} ({}) doPolling method.", cmdActionType, cmdId);
+                        callback.doPolling(cmdId, getChildCommandIds(cmdId));
+                    }
+                    break;
+                case EXECUTION_FAILED:
+                    if (callback.pollOnExecutionFailed()) {
+                        log.debug("Invoking command's {} ({}) doPolling method.", cmdActionType, cmdId);
+                        callback.doPolling(cmdId, getChildCommandIds(cmdId));
+                    } else {
+                        log.info("Not invoking command's {} ({}) doPolling method callback's pollOnExecutionFailed is false.",
+                                cmdActionType, cmdId);
+                    }
+                    break;
+                default:
+                    break;
+            }
+        } catch (Throwable ex) {
+            errorInCallback = true;
+            log.info("Exception in invoking callback of command {} ({}): {}",
+                    cmdActionType,
+                    cmdId,
+                    ExceptionUtils.getRootCauseMessage(ex));
+            log.debug("Exception", ex);
+            handleError(ex, status, cmdId);
+        } finally {
+            if ((CommandStatus.FAILED == status || CommandStatus.SUCCEEDED == status && !errorInCallback)
+                    && !runCallbackAgain) {
+                log.debug("Callback of command {} ({}) has been notified, removing command from command repository.",
+                        cmdActionType, cmdId);
+                commandsRepository.updateCallbackNotified(cmdId);
+                commandsRepository.getCallbacksTiming().remove(cmdId);
+                CommandEntity cmdEntity = commandsRepository.getCommandEntity(cmdId);
+                if (cmdEntity != null) {
+                    // When a child finishes, its parent's callback should execute shortly thereafter
+                    CallbackTiming rootCmdContainer =
+                            commandsRepository.getCallbackTiming(cmdEntity.getRootCommandId());
+                    if (rootCmdContainer != null) {
+                        rootCmdContainer.setInitialDelay(pollingRate);
+                        commandsRepository.scheduleCallback(cmdEntity.getRootCommandId(), rootCmdContainer, pollingRate);
                     }
-                } else if (status != commandsRepository.getCommandStatus(cmdId)) {
-                    log.debug("Command {} ({}) status {} has been updated to {}, command will be polled again.",
-                            cmdActionType, cmdId,
-                            commandsRepository.getCommandStatus(cmdId),
-                            status);
-                    callbackTiming.setInitialDelay(pollingRate);
-                    callbackTiming.setRemainingDelay(pollingRate);
-                } else {
-                    log.debug("Command {} ({}) will be polled again, updating initial and remaining delay.", cmdActionType, cmdId);
-                    long maxDelay = Config.<Long>getValue(ConfigValues.AsyncCommandPollingRateInSeconds);
-                    callbackTiming.setInitialDelay(Math.min(maxDelay, callbackTiming.getInitialDelay() * 2));
-                    callbackTiming.setRemainingDelay(callbackTiming.getInitialDelay());
                 }
+            } else if (status != commandsRepository.getCommandStatus(cmdId)) {
+                log.debug("Command {} ({}) status {} has been updated to {}, command will be polled again.",
+                        cmdActionType, cmdId,
+                        commandsRepository.getCommandStatus(cmdId),
+                        status);
+                callbackTiming.setInitialDelay(pollingRate);
+                commandsRepository.scheduleCallback(cmdId, callbackTiming, pollingRate);
+            } else {
+                log.debug("Command {} ({}) will be polled again, updating initial and remaining delay.", cmdActionType, cmdId);
+                long maxDelay = Config.<Long>getValue(ConfigValues.AsyncCommandPollingRateInSeconds);
+                callbackTiming.setInitialDelay(Math.min(maxDelay, callbackTiming.getInitialDelay() * 2));
+                commandsRepository.scheduleCallback(cmdId, callbackTiming, callbackTiming.getInitialDelay());
             }
         }
-        CorrelationIdTracker.setCorrelationId(null);
-        commandsRepository.markExpiredCommandsAsFailure();
     }
 
     private void handleError(Throwable ex, CommandStatus status, Guid cmdId) {
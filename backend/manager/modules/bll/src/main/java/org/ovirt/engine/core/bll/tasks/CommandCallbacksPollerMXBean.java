@@ -0,0 +1,35 @@
+package org.ovirt.engine.core.bll.tasks;
+
+import java.util.List;
+
+/**
+ * The following interface is used as interface for JMX bean of the command callbacks poller
+ */
+public interface CommandCallbacksPollerMXBean {
+
+    /**
+     * The following method will return the latency histograms of the whole polls and of the single callback
+     * invocations
+     */
+    List<String> getLatencies();
+
+    /**
+     * The following method will return the number of callbacks which were due since the engine started
+     */
+    long getDueCallbacks();
+
+    /**
+     * The following method will return the number of callbacks which were due on the last poll
+     */
+    int getLastPollDueCallbacks();
+
+    /**
+     * The following method will return the number of callbacks which are currently polled
+     */
+    int getScheduledCallbacks();
+
+    /**
+     * The following method will allow to reset the latency histograms via JMX console
+     */
+    void resetLatencies();
+}
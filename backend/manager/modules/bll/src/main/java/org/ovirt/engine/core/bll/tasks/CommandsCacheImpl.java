@@ -1,38 +1,98 @@
 package org.ovirt.engine.core.bll.tasks;
 
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.concurrent.ManagedScheduledExecutorService;
 import javax.inject.Inject;
 import javax.inject.Singleton;
+import javax.transaction.Transaction;
 
 import org.apache.commons.collections.CollectionUtils;
+import org.apache.commons.lang.exception.ExceptionUtils;
 import org.ovirt.engine.core.common.businessentities.CommandAssociatedEntity;
 import org.ovirt.engine.core.common.businessentities.CommandEntity;
 import org.ovirt.engine.core.compat.CommandStatus;
 import org.ovirt.engine.core.compat.DateTime;
 import org.ovirt.engine.core.compat.Guid;
 import org.ovirt.engine.core.dao.CommandEntityDao;
+import org.ovirt.engine.core.utils.EngineLocalConfig;
+import org.ovirt.engine.core.utils.threadpool.ThreadPools;
 import org.ovirt.engine.core.utils.transaction.TransactionSupport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+/**
+ * Caches the command entities and writes them to the database.
+ * <p>
+ * By default every change is written right away. With a positive {@code COMMANDS_CACHE_WRITE_BEHIND_WINDOW_IN_MILLIS}
+ * the changes of command entities which already exist in the database are kept for up to that window, the successive
+ * changes of a command are coalesced and all the pending commands are written by a single batch. Changes which matter
+ * for recovering the commands after a restart are still written right away: the creation of a command, the executed
+ * and callback notified flags and the statuses in which a command failed or succeeded. Pending changes made within a
+ * transaction are written before that transaction commits, and all the pending changes are written before the
+ * database is read for commands.
+ */
 @Singleton
 public class CommandsCacheImpl implements CommandsCache {
 
+    private static final Logger log = LoggerFactory.getLogger(CommandsCacheImpl.class);
+
+    private static final Set<CommandStatus> RECOVERY_STATUSES = EnumSet.of(CommandStatus.EXECUTION_FAILED,
+            CommandStatus.FAILED,
+            CommandStatus.SUCCEEDED,
+            CommandStatus.ENDED_SUCCESSFULLY,
+            CommandStatus.ENDED_WITH_FAILURE);
+
     private Map<Guid, CommandEntity> commandMap;
     private volatile boolean cacheInitialized;
     private Object LOCK = new Object();
 
+    // the commands whose changes are not written yet, the lock serializes the writes of the same command
+    private final ConcurrentMap<Guid, CommandEntity> pendingWrites = new ConcurrentHashMap<>();
+    private final Object writeLock = new Object();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    // the transactions which write the pending changes before they commit
+    private final Set<Transaction> flushingTransactions = ConcurrentHashMap.newKeySet();
+    private long writeBehindWindow;
+
     @Inject
     private CommandEntityDao commandEntityDao;
 
+    @Inject
+    @ThreadPools(ThreadPools.ThreadPoolType.EngineScheduledThreadPool)
+    private ManagedScheduledExecutorService executor;
+
     public CommandsCacheImpl() {
         commandMap = new HashMap<>();
     }
 
+    @PostConstruct
+    public void init() {
+        writeBehindWindow =
+                EngineLocalConfig.getInstance().getLong("COMMANDS_CACHE_WRITE_BEHIND_WINDOW_IN_MILLIS", 0L);
+        if (writeBehindWindow > 0) {
+            log.info("Changes of commands are written behind, within {}ms", writeBehindWindow);
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        flush();
+    }
+
     private void initializeCache() {
         if (!cacheInitialized) {
             synchronized(LOCK) {
@@ -62,17 +122,25 @@ public class CommandsCacheImpl implements CommandsCache {
     @Override
     public void remove(final Guid commandId) {
         commandMap.remove(commandId);
-        commandEntityDao.remove(commandId);
+        synchronized (writeLock) {
+            pendingWrites.remove(commandId);
+            commandEntityDao.remove(commandId);
+        }
     }
 
     @Override
     public void put(final CommandEntity cmdEntity) {
-        commandMap.put(cmdEntity.getId(), cmdEntity);
-        saveOrUpdateWithoutTransaction(cmdEntity);
+        boolean created = commandMap.put(cmdEntity.getId(), cmdEntity) == null;
+        if (created || RECOVERY_STATUSES.contains(cmdEntity.getCommandStatus())) {
+            saveOrUpdateWithoutTransaction(cmdEntity);
+        } else {
+            writeBehind(cmdEntity);
+        }
     }
 
     @Override
     public void removeAllCommandsBeforeDate(DateTime cutoff) {
+        flush();
         commandEntityDao.removeAllBeforeDate(cutoff);
         cacheInitialized = false;
         initializeCache();
@@ -83,7 +151,11 @@ public class CommandsCacheImpl implements CommandsCache {
         final CommandEntity cmdEntity = get(commandId);
         if (cmdEntity != null) {
             cmdEntity.setCommandStatus(status);
-            saveOrUpdateWithoutTransaction(cmdEntity);
+            if (RECOVERY_STATUSES.contains(status)) {
+                saveOrUpdateWithoutTransaction(cmdEntity);
+            } else {
+                writeBehind(cmdEntity);
+            }
         }
     }
 
@@ -92,7 +164,7 @@ public class CommandsCacheImpl implements CommandsCache {
         final CommandEntity cmdEntity = get(commandId);
         if (cmdEntity != null) {
             cmdEntity.setData(data);
-            saveOrUpdateWithoutTransaction(cmdEntity);
+            writeBehind(cmdEntity);
         }
     }
 
@@ -101,15 +173,106 @@ public class CommandsCacheImpl implements CommandsCache {
         CommandEntity cmdEntity = get(commandId);
         if (cmdEntity != null) {
             cmdEntity.setExecuted(true);
-            commandEntityDao.updateExecuted(commandId);
+            // the pending changes of the command already include the flag
+            if (!writePending(commandId)) {
+                commandEntityDao.updateExecuted(commandId);
+            }
         }
     }
 
     public void saveOrUpdateWithoutTransaction(CommandEntity cmdEntity) {
-        TransactionSupport.executeInSuppressed(() -> {
-            commandEntityDao.saveOrUpdate(cmdEntity);
-            return null;
-        });
+        synchronized (writeLock) {
+            pendingWrites.remove(cmdEntity.getId());
+            TransactionSupport.executeInSuppressed(() -> {
+                commandEntityDao.saveOrUpdate(cmdEntity);
+                return null;
+            });
+        }
+    }
+
+    private void writeBehind(CommandEntity cmdEntity) {
+        if (writeBehindWindow <= 0) {
+            saveOrUpdateWithoutTransaction(cmdEntity);
+            return;
+        }
+
+        pendingWrites.put(cmdEntity.getId(), cmdEntity);
+        flushBeforeCommit();
+        if (flushScheduled.compareAndSet(false, true)) {
+            executor.schedule(this::scheduledFlush, writeBehindWindow, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Makes the current transaction, if there is one, write the pending changes before it commits. The handler is
+     * registered once per transaction.
+     */
+    private void flushBeforeCommit() {
+        Transaction transaction = TransactionSupport.current();
+        if (transaction == null || !flushingTransactions.add(transaction)) {
+            return;
+        }
+
+        if (!TransactionSupport.registerBeforeCommitHandler(this::flush)
+                || !TransactionSupport.registerAfterCompletionHandler(() -> flushingTransactions.remove(transaction))) {
+            flushingTransactions.remove(transaction);
+        }
+    }
+
+    /**
+     * Writes the pending changes of the given command, if there are any
+     *
+     * @return {@code true} if the command had pending changes
+     */
+    private boolean writePending(Guid commandId) {
+        CommandEntity cmdEntity = pendingWrites.get(commandId);
+        if (cmdEntity == null) {
+            return false;
+        }
+        saveOrUpdateWithoutTransaction(cmdEntity);
+        return true;
+    }
+
+    private void scheduledFlush() {
+        flushScheduled.set(false);
+        try {
+            flush();
+        } catch (Throwable t) {
+            log.error("Failed to write the pending changes of commands: {}", ExceptionUtils.getRootCauseMessage(t));
+            log.debug("Exception", t);
+            if (flushScheduled.compareAndSet(false, true)) {
+                executor.schedule(this::scheduledFlush, writeBehindWindow, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    /**
+     * Writes the pending changes of all the commands with a single batch. The commands are pending again if the
+     * batch fails.
+     */
+    public void flush() {
+        if (pendingWrites.isEmpty()) {
+            return;
+        }
+        synchronized (writeLock) {
+            List<CommandEntity> cmdEntities = new ArrayList<>(pendingWrites.size());
+            for (Guid commandId : new ArrayList<>(pendingWrites.keySet())) {
+                CommandEntity cmdEntity = pendingWrites.remove(commandId);
+                if (cmdEntity != null) {
+                    cmdEntities.add(cmdEntity);
+                }
+            }
+            try {
+                TransactionSupport.executeInSuppressed(() -> {
+                    commandEntityDao.saveOrUpdateAll(cmdEntities);
+                    return null;
+                });
+            } catch (RuntimeException e) {
+                cmdEntities.forEach(cmdEntity -> pendingWrites.putIfAbsent(cmdEntity.getId(), cmdEntity));
+                throw e;
+            }
+            log.debug("Wrote the pending changes of {} commands", cmdEntities.size());
+        }
     }
 
     @Override
@@ -117,7 +280,9 @@ public class CommandsCacheImpl implements CommandsCache {
         CommandEntity cmdEntity = get(commandId);
         if (cmdEntity != null) {
             cmdEntity.setCallbackNotified(true);
-            commandEntityDao.updateNotified(commandId);
+            if (!writePending(commandId)) {
+                commandEntityDao.updateNotified(commandId);
+            }
         }
     }
 
@@ -127,6 +292,7 @@ public class CommandsCacheImpl implements CommandsCache {
             return;
         }
 
+        flush();
         TransactionSupport.executeInSuppressed(() -> {
             commandEntityDao.insertCommandAssociatedEntities(cmdAssociatedEntities);
             return null;
@@ -140,11 +306,13 @@ public class CommandsCacheImpl implements CommandsCache {
 
     @Override
     public List<Guid> getCommandIdsByEntityId(Guid entityId) {
+        flush();
         return commandEntityDao.getCommandIdsByEntity(entityId);
     }
 
     @Override
     public List<CommandEntity> getChildCmdsByParentCmdId(Guid cmdId) {
+        flush();
         return commandEntityDao.getCmdEntitiesByParentCmdId(cmdId);
     }
 }
@@ -5,13 +5,17 @@ import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.PriorityBlockingQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
 import javax.inject.Inject;
@@ -41,6 +45,11 @@ public class CommandsRepository {
 
     private static final Logger log = LoggerFactory.getLogger(CommandsRepository.class);
     private final ConcurrentMap<Guid, CallbackTiming> callbacksTiming;
+    // The callbacks ordered by their next polling time. A callback which is rescheduled is added again, its former
+    // entries are discarded once they are due.
+    private final PriorityBlockingQueue<ScheduledCallback> callbacksSchedule;
+    // The time, in seconds, the callbacks were polled for so far. It is advanced by the polling rate on each poll.
+    private final AtomicLong callbacksPollingTime;
     private final CommandsCache commandsCache;
     private final CommandContextsCache contextsCache;
     private final ConcurrentHashMap<Guid, List<Guid>> childHierarchy;
@@ -56,6 +65,8 @@ public class CommandsRepository {
         this.contextsCache = contextsCache;
 
         callbacksTiming = new ConcurrentHashMap<>();
+        callbacksSchedule = new PriorityBlockingQueue<>(11, Comparator.comparingLong(ScheduledCallback::getPollingTime));
+        callbacksPollingTime = new AtomicLong();
         childHierarchy = new ConcurrentHashMap<>();
         subscriptions = new ConcurrentHashMap<>();
         LOCK = new Object();
@@ -110,6 +121,52 @@ public class CommandsRepository {
 
     public void addToCallbackMap(Guid commandId, CallbackTiming callbackTiming) {
         callbacksTiming.put(commandId, callbackTiming);
+        scheduleCallback(commandId, callbackTiming, callbackTiming.getInitialDelay());
+    }
+
+    /**
+     * Schedules the next execution of the callback of the given command, after the given delay in seconds. A delay
+     * which is not greater than the polling rate executes the callback on the next poll.
+     */
+    public void scheduleCallback(Guid commandId, CallbackTiming callbackTiming, long delay) {
+        long pollingTime = callbacksPollingTime.get() + delay;
+        callbackTiming.setNextPollingTime(pollingTime);
+        callbacksSchedule.add(new ScheduledCallback(commandId, pollingTime));
+    }
+
+    /**
+     * Advances the callbacks polling time by the given polling rate and takes the commands whose callbacks are due by
+     * then out of the schedule. The callback of each returned command has to be scheduled again or removed from the
+     * callback map.
+     *
+     * @param pollingRate
+     *            the time, in seconds, since the previous poll
+     * @return the ids of the commands whose callbacks are due, ordered by the time they were due
+     */
+    public List<Guid> pollDueCallbacks(long pollingRate) {
+        long pollingTime = callbacksPollingTime.addAndGet(pollingRate);
+        List<Guid> dueCommandIds = new ArrayList<>();
+        Set<Guid> polled = new HashSet<>();
+        ScheduledCallback scheduledCallback;
+        while ((scheduledCallback = callbacksSchedule.poll()) != null) {
+            if (scheduledCallback.getPollingTime() > pollingTime) {
+                callbacksSchedule.add(scheduledCallback);
+                break;
+            }
+            Guid commandId = scheduledCallback.getCommandId();
+            CallbackTiming callbackTiming = callbacksTiming.get(commandId);
+            // skip the entries of removed callbacks and the former entries of rescheduled ones
+            if (callbackTiming != null
+                    && callbackTiming.getNextPollingTime() == scheduledCallback.getPollingTime()
+                    && polled.add(commandId)) {
+                dueCommandIds.add(commandId);
+            }
+        }
+        return dueCommandIds;
+    }
+
+    public int getScheduledCallbacksCount() {
+        return callbacksTiming.size();
     }
 
     public void persistCommand(CommandEntity cmdEntity, CommandContext cmdContext) {
@@ -370,4 +427,22 @@ public class CommandsRepository {
             subscriber.cancel();
         }
     }
+
+    private static class ScheduledCallback {
+        private final Guid commandId;
+        private final long pollingTime;
+
+        private ScheduledCallback(Guid commandId, long pollingTime) {
+            this.commandId = commandId;
+            this.pollingTime = pollingTime;
+        }
+
+        public Guid getCommandId() {
+            return commandId;
+        }
+
+        public long getPollingTime() {
+            return pollingTime;
+        }
+    }
 }
@@ -30,7 +30,7 @@ import org.ovirt.engine.core.dao.ClusterDao;
 import org.ovirt.engine.core.dao.DiskDao;
 import org.ovirt.engine.core.dao.DiskVmElementDao;
 import org.ovirt.engine.core.dao.network.VmNetworkInterfaceDao;
-import org.ovirt.engine.core.utils.ovf.xml.XmlDocument;
+import org.ovirt.engine.core.utils.ovf.xml.StreamedXmlDocument;
 import org.ovirt.engine.core.vdsbroker.builder.vminfo.LibvirtVmXmlBuilder;
 import org.ovirt.engine.core.vdsbroker.builder.vminfo.VmInfoBuildUtils;
 import org.slf4j.Logger;
@@ -58,32 +58,56 @@ public class OvfManager {
 
     public String exportVm(VM vm, FullEntityOvfData fullEntityOvfData, Version version) {
         updateBootOrderOnDevices(vm.getStaticData(), false);
-        final OvfVmWriter vmWriter;
         if (vm.isHostedEngine()) {
-            Cluster cluster = clusterDao.get(vm.getClusterId());
-            String cpuVerb = cluster.getCpuVerb();
-            String emulatedMachine = ClusterEmulatedMachines.forChipset(
-                    cluster.getEmulatedMachine(), vm.getBiosType().getChipsetType());
-            vmWriter = new HostedEngineOvfWriter(vm,
-                    fullEntityOvfData,
-                    version,
-                    emulatedMachine,
-                    cpuVerb,
-                    getOsRepository(),
-                    generateEngineXml(vm, cpuVerb, emulatedMachine));
-        } else {
-            vmWriter = new OvfVmWriter(vm, fullEntityOvfData, version, getOsRepository(), getMemoryDiskForSnapshots(vm));
+            return exportHostedEngineVm(vm, fullEntityOvfData, version, clusterDao.get(vm.getClusterId()));
         }
-        return vmWriter.build().getStringRepresentation();
+        return renderVm(vm, fullEntityOvfData, version, getMemoryDisksForSnapshots(vm));
     }
 
-    private Map<Guid, DiskImage> getMemoryDiskForSnapshots(VM vm) {
+    /**
+     * Renders the ovf of the hosted engine vm, whose boot order was already updated on its devices
+     */
+    public String exportHostedEngineVm(VM vm, FullEntityOvfData fullEntityOvfData, Version version, Cluster cluster) {
+        String cpuVerb = cluster.getCpuVerb();
+        String emulatedMachine = ClusterEmulatedMachines.forChipset(
+                cluster.getEmulatedMachine(), vm.getBiosType().getChipsetType());
+        return new HostedEngineOvfWriter(vm,
+                fullEntityOvfData,
+                version,
+                emulatedMachine,
+                cpuVerb,
+                getOsRepository(),
+                generateEngineXml(vm, cpuVerb, emulatedMachine)).build().getStringRepresentation();
+    }
+
+    /**
+     * Renders the ovf of a vm which is not the hosted engine without querying the database. The boot order has to be
+     * updated on the devices of the vm beforehand, see {@link #updateBootOrderOnDevices(VmBase, boolean)}.
+     *
+     * @param memoryDisks the memory and metadata disks of the snapshots of the vm, see
+     *            {@link #getMemoryDisksForSnapshots(VM)}
+     */
+    public String renderVm(VM vm, FullEntityOvfData fullEntityOvfData, Version version,
+            Map<Guid, DiskImage> memoryDisks) {
+        return new OvfVmWriter(vm, fullEntityOvfData, version, getOsRepository(), memoryDisks).build()
+                .getStringRepresentation();
+    }
+
+    public Map<Guid, DiskImage> getMemoryDisksForSnapshots(VM vm) {
         return MemoryUtils.getMemoryDiskIdsFromSnapshots(vm.getSnapshots()).stream()
                 .collect(Collectors.toMap(Function.identity(), d -> (DiskImage) diskDao.get(d)));
     }
 
     public String exportTemplate(FullEntityOvfData fullEntityOvfData, Version version) {
         updateBootOrderOnDevices(fullEntityOvfData.getVmBase(), true);
+        return renderTemplate(fullEntityOvfData, version);
+    }
+
+    /**
+     * Renders the ovf of a template without querying the database. The boot order has to be updated on the devices
+     * of the template beforehand, see {@link #updateBootOrderOnDevices(VmBase, boolean)}.
+     */
+    public String renderTemplate(FullEntityOvfData fullEntityOvfData, Version version) {
         return new OvfTemplateWriter(fullEntityOvfData, version, getOsRepository()).build().getStringRepresentation();
     }
 
@@ -101,7 +125,7 @@ public class OvfManager {
             throws OvfReaderException {
         OvfReader ovf = null;
         try {
-            ovf = new OvfVmReader(new XmlDocument(ovfstring), vm, fullEntityOvfData, getOsRepository());
+            ovf = new OvfVmReader(new StreamedXmlDocument(ovfstring), vm, fullEntityOvfData, getOsRepository());
             ovf.build();
             initIcons(vm.getStaticData());
         } catch (Exception ex) {
@@ -119,7 +143,7 @@ public class OvfManager {
             throws OvfReaderException {
         OvfReader ovf = null;
         try {
-            ovf = new OvfOvaVmReader(new XmlDocument(ovfstring), fullEntityOvfData, vm, getOsRepository());
+            ovf = new OvfOvaVmReader(new StreamedXmlDocument(ovfstring), fullEntityOvfData, vm, getOsRepository());
             ovf.build();
             initIcons(vm.getStaticData());
         } catch (Exception ex) {
@@ -135,7 +159,7 @@ public class OvfManager {
             throws OvfReaderException {
         OvfReader ovf = null;
         try {
-            ovf = new OvfTemplateReader(new XmlDocument(ovfstring), fullEntityOvfData, getOsRepository());
+            ovf = new OvfTemplateReader(new StreamedXmlDocument(ovfstring), fullEntityOvfData, getOsRepository());
             ovf.build();
             initIcons(fullEntityOvfData.getVmBase());
         } catch (Exception ex) {
@@ -149,7 +173,7 @@ public class OvfManager {
             throws OvfReaderException {
         OvfReader ovf = null;
         try {
-            ovf = new OvfOvaTemplateReader(new XmlDocument(ovfstring), fullEntityOvfData, getOsRepository());
+            ovf = new OvfOvaTemplateReader(new StreamedXmlDocument(ovfstring), fullEntityOvfData, getOsRepository());
             ovf.build();
             initIcons(fullEntityOvfData.getVmBase());
         } catch (Exception ex) {
@@ -0,0 +1,62 @@
+package org.ovirt.engine.core.bll;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.ovirt.engine.core.aaa.QueryData;
+
+public class SearchQueryCacheTest {
+
+    private static final String SEARCH_KEY = "Vms: name=web*,100,false,0";
+
+    private final QueryData queryData = new QueryData("SELECT * FROM vms", System.currentTimeMillis(), null, null);
+
+    @Test
+    public void testHitAndMiss() {
+        SearchQueryCache cache = new SearchQueryCache();
+        assertNull(cache.get(SEARCH_KEY));
+        cache.put(SEARCH_KEY, queryData);
+        assertSame(queryData, cache.get(SEARCH_KEY));
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    public void testErroneousSearchIsContainedButNotReturned() {
+        SearchQueryCache cache = new SearchQueryCache();
+        assertFalse(cache.contains(SEARCH_KEY));
+        cache.put(SEARCH_KEY, null);
+        assertTrue(cache.contains(SEARCH_KEY));
+        assertNull(cache.get(SEARCH_KEY));
+    }
+
+    @Test
+    public void testExpiredEntryIsEvicted() {
+        SearchQueryCache cache = new SearchQueryCache(10, 0L);
+        cache.put(SEARCH_KEY, queryData);
+        assertNull(cache.get(SEARCH_KEY));
+        assertEquals(0, cache.getSize());
+        assertEquals(1, cache.getEvictions());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedIsEvicted() throws InterruptedException {
+        SearchQueryCache cache = new SearchQueryCache(10, TimeUnit.DAYS.toMillis(1));
+        for (int i = 0; i < 10; i++) {
+            cache.put(SEARCH_KEY + i, queryData);
+        }
+        Thread.sleep(10L);
+        cache.get(SEARCH_KEY + 0);
+        cache.put(SEARCH_KEY, queryData);
+        assertEquals(9, cache.getSize());
+        assertEquals(2, cache.getEvictions());
+        assertTrue(cache.contains(SEARCH_KEY + 0));
+        assertTrue(cache.contains(SEARCH_KEY));
+    }
+}
@@ -15,6 +15,7 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoSettings;
 import org.mockito.quality.Strictness;
 import org.ovirt.engine.core.bll.quota.QuotaManager;
@@ -96,6 +97,8 @@ public class SearchQueryTest extends AbstractQueryTest<SearchParameters, SearchQ
     private VmHandler vmHandler;
     @Mock
     private VmNetworkInterfaceDao vmNetworkInterfaceDao;
+    @Spy
+    private SearchQueryCache queriesCache = new SearchQueryCache();
 
     List<Disk> diskImageResultList = new ArrayList<>();
     List<Quota> quotaResultList = new ArrayList<>();
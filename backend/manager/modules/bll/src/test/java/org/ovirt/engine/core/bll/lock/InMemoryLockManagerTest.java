@@ -175,6 +175,22 @@ public class InMemoryLockManagerTest {
         assertEquals(0, lockManager.showAllLocks().size());
     }
 
+    @Test
+    public void testAcquireLockWaitNotBlockedByOtherKeys() throws InterruptedException {
+        assertTrue(lockManager.acquireLock(lockLock1).isAcquired());
+        Thread waiter = new Thread(() -> lockManager.acquireLockWait(failLockLock));
+        waiter.start();
+        assertTrue(lockManager.acquireLockWait(lockLock2, 1000L).isAcquired());
+        lockManager.releaseLock(lockLock2);
+        assertTrue(waiter.isAlive());
+        lockManager.releaseLock(lockLock1);
+        waiter.join(5000L);
+        assertFalse(waiter.isAlive());
+        assertEquals(1, lockManager.showAllLocks().size());
+        lockManager.releaseLock(failLockLock);
+        assertEquals(0, lockManager.showAllLocks().size());
+    }
+
     @Test
     public void testAcquireLockNegativeTimeout() {
         assertThrows(IllegalArgumentException.class, () -> lockManager.acquireLockWait(lockLock1, -1000L));
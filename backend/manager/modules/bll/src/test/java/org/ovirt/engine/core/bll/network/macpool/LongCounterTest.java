@@ -0,0 +1,147 @@
+package org.ovirt.engine.core.bll.network.macpool;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+public class LongCounterTest {
+
+    @Test
+    public void testIncreaseNoDuplicates() {
+        final LongCounter longCounter = new LongCounter(false);
+
+
+        assertThat(longCounter.increase(1), is(true));
+        assertThat(longCounter.containsDuplicates(), is(false));
+        assertThat(longCounter.containsCounts(), is(true));
+        assertThat(longCounter.increase(1), is(false));
+        assertThat(longCounter.containsDuplicates(), is(false));
+        assertThat(longCounter.containsCounts(), is(true));
+        assertThat(longCounter.increase(2), is(true));
+        assertThat(longCounter.containsDuplicates(), is(false));
+        assertThat(longCounter.containsCounts(), is(true));
+        assertThat(longCounter.increase(-3), is(true));
+
+        assertThat(longCounter.contains(0), is(false));
+        assertThat(longCounter.contains(1), is(true));
+        assertThat(longCounter.contains(2), is(true));
+        assertThat(longCounter.contains(-3), is(true));
+        assertThat(longCounter.containsDuplicates(), is(false));
+        assertThat(longCounter.containsCounts(), is(true));
+    }
+
+    @Test
+    public void testIncreaseWithDuplicates() {
+        final LongCounter longCounter = new LongCounter(true);
+
+
+        assertThat(longCounter.increase(1), is(true));
+        assertThat(longCounter.containsDuplicates(), is(false));
+        assertThat(longCounter.containsCounts(), is(true));
+        assertThat(longCounter.increase(1), is(true));
+        assertThat(longCounter.containsDuplicates(), is(true));
+        assertThat(longCounter.containsCounts(), is(true));
+        assertThat(longCounter.increase(2), is(true));
+        assertThat(longCounter.containsDuplicates(), is(true));
+        assertThat(longCounter.containsCounts(), is(true));
+        assertThat(longCounter.increase(-3), is(true));
+
+        assertThat(longCounter.contains(0), is(false));
+        assertThat(longCounter.contains(1), is(true));
+        assertThat(longCounter.contains(2), is(true));
+        assertThat(longCounter.contains(-3), is(true));
+        assertThat(longCounter.containsDuplicates(), is(true));
+        assertThat(longCounter.containsCounts(), is(true));
+    }
+
+    @Test
+    public void testDecreaseNoDuplicates() {
+        final LongCounter longCounter = new LongCounter(false);
+
+        longCounter.increase(1);
+        longCounter.increase(2);
+        assertThat(longCounter.contains(0), is(false));
+        assertThat(longCounter.containsDuplicates(), is(false));
+        assertThat(longCounter.containsCounts(), is(true));
+
+        longCounter.decrease(0);
+        assertThat(longCounter.contains(0), is(false));
+        assertThat(longCounter.containsDuplicates(), is(false));
+        assertThat(longCounter.containsCounts(), is(true));
+        assertThat(longCounter.contains(1), is(true));
+
+        longCounter.decrease(1);
+        assertThat(longCounter.contains(1), is(false));
+        assertThat(longCounter.containsDuplicates(), is(false));
+        assertThat(longCounter.containsCounts(), is(true));
+    }
+
+    @Test
+    public void testDecreaseWithDuplicates() {
+        final LongCounter longCounter = new LongCounter(true);
+
+        assertThat(longCounter.containsDuplicates(), is(false));
+        assertThat(longCounter.containsCounts(), is(false));
+        longCounter.increase(1);
+        assertThat(longCounter.containsDuplicates(), is(false));
+        assertThat(longCounter.containsCounts(), is(true));
+        longCounter.increase(1);
+        assertThat(longCounter.containsDuplicates(), is(true));
+        assertThat(longCounter.containsCounts(), is(true));
+        longCounter.increase(2);
+        assertThat(longCounter.containsDuplicates(), is(true));
+        assertThat(longCounter.containsCounts(), is(true));
+
+        assertThat(longCounter.contains(0), is(false));
+        longCounter.decrease(0);
+        assertThat(longCounter.contains(0), is(false));
+        assertThat(longCounter.containsDuplicates(), is(true));
+        assertThat(longCounter.containsCounts(), is(true));
+
+        assertThat(longCounter.contains(1), is(true));
+        longCounter.decrease(1);
+        assertThat(longCounter.containsDuplicates(), is(false));
+        assertThat(longCounter.containsCounts(), is(true));
+        assertThat(longCounter.contains(1), is(true));
+        longCounter.decrease(1);
+        assertThat(longCounter.contains(1), is(false));
+        assertThat(longCounter.containsDuplicates(), is(false));
+        assertThat(longCounter.containsCounts(), is(true));
+
+        assertThat(longCounter.contains(2), is(true));
+        longCounter.decrease(2);
+        assertThat(longCounter.contains(2), is(false));
+        assertThat(longCounter.containsDuplicates(), is(false));
+        assertThat(longCounter.containsCounts(), is(false));
+
+    }
+
+    @Test
+    public void testCountsMatchAfterGrowingAndShrinking() {
+        final LongCounter longCounter = new LongCounter(true);
+        final Map<Long, Integer> expectedCounts = new HashMap<>();
+        final Random random = new Random(0);
+        final long firstMac = 0x001a4a000000L;
+
+        for (int i = 0; i < 100_000; i++) {
+            long key = firstMac + random.nextInt(20_000);
+            if (random.nextInt(3) == 0) {
+                longCounter.decrease(key);
+                expectedCounts.computeIfPresent(key, (k, count) -> count == 1 ? null : count - 1);
+            } else {
+                longCounter.increase(key);
+                expectedCounts.merge(key, 1, Integer::sum);
+            }
+        }
+
+        assertThat(longCounter.size(), is(expectedCounts.size()));
+        for (long key = firstMac; key < firstMac + 20_000; key++) {
+            assertThat(longCounter.count(key), is(expectedCounts.getOrDefault(key, 0)));
+        }
+    }
+}
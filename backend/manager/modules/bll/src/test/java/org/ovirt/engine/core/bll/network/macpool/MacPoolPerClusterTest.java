@@ -149,7 +149,7 @@ public class MacPoolPerClusterTest extends BaseCommandTest {
         mockCluster(cluster);
         mockGettingAllMacPools(macPool);
         macPoolPerCluster.initialize();
-        macPoolPerCluster.getMacPoolById(macPool.getId()).getMacsStorage().setSkipAllocationPredicate(any -> false);
+        macPoolPerCluster.getMacPoolById(macPool.getId()).getMacsStorage().setMacsInUseTester(MacsInUseTester.NONE);
 
         assertThat(getMacPool(cluster.getId()).addMac(MAC_FROM), is(true));
         assertThat(getMacPool(cluster.getId()).addMac(MAC_FROM), is(false));
@@ -248,7 +248,7 @@ public class MacPoolPerClusterTest extends BaseCommandTest {
     }
 
     protected void mockUsedMacsInSystem(Guid macPoolId, String... macAddress) {
-        when(macsUsedAcrossWholeSystem.getMacsForMacPool(macPoolId)).thenReturn(Arrays.asList(macAddress));
+        when(macsUsedAcrossWholeSystem.getMacsForMacPool(macPoolId)).thenAnswer(invocation -> Stream.of(macAddress));
     }
 
     protected void mockGettingAllMacPools(MacPool... macPool) {
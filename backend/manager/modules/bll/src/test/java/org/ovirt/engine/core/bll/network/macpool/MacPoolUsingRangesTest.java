@@ -6,7 +6,6 @@ import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.verify;
 
-import java.util.Arrays;
 import java.util.Collections;
 import java.util.stream.Stream;
 
@@ -38,7 +37,7 @@ public class MacPoolUsingRangesTest {
     @Test
     public void testReactionToDuplicatesWhenDuplicatesDuringStartup() {
         MacPoolUsingRanges macPoolUsingRanges = createMacPoolDisallowingDuplicates();
-        macPoolUsingRanges.initialize(true, Arrays.asList(MAC_ADDRESS, MAC_ADDRESS));
+        macPoolUsingRanges.initialize(true, Stream.of(MAC_ADDRESS, MAC_ADDRESS));
         verify(auditLogDirector).log(any(AuditLogableImpl.class), eq(AuditLogType.MAC_ADDRESS_VIOLATES_NO_DUPLICATES_SETTING), anyString());
     }
 
@@ -46,7 +45,7 @@ public class MacPoolUsingRangesTest {
     public void testReactionToDuplicatesWhenDuplicatesNotDuringStartup() {
         MacPoolUsingRanges macPoolUsingRanges = createMacPoolDisallowingDuplicates();
         assertThrows(EngineException.class,
-                () -> macPoolUsingRanges.initialize(false, Arrays.asList(MAC_ADDRESS, MAC_ADDRESS)));
+                () -> macPoolUsingRanges.initialize(false, Stream.of(MAC_ADDRESS, MAC_ADDRESS)));
     }
 
     private MacPoolUsingRanges createMacPoolDisallowingDuplicates() {
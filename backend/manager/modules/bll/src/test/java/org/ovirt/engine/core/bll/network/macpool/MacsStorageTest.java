@@ -16,6 +16,7 @@ import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
@@ -56,7 +57,7 @@ public class MacsStorageTest {
         List<Range> ranges = createMockedRanges(numberOfRanges);
         mockAvailableMacsInRange(ranges, rangesWithoutAvailableMacs);
 
-        MacsStorage macsStorage = new MacsStorage(false, skip -> false);
+        MacsStorage macsStorage = new MacsStorage(false, MacsInUseTester.NONE);
         addRangesToStorage(ranges, macsStorage);
 
         assertReturnedRange(ranges, macsStorage, expectedRangeIndices);
@@ -64,7 +65,7 @@ public class MacsStorageTest {
 
     @Test
     public void testNoDuplicateCustomMacs() {
-        MacsStorage macsStorage = new MacsStorage(false, skip -> false);
+        MacsStorage macsStorage = new MacsStorage(false, MacsInUseTester.NONE);
         assertThat(macsStorage.containsDuplicates(), is(false));
         macsStorage.useMac(1L);
         assertThat(macsStorage.containsDuplicates(), is(false));
@@ -74,7 +75,7 @@ public class MacsStorageTest {
 
     @Test
     public void testDuplicateCustomMacs() {
-        MacsStorage macsStorage = new MacsStorage(true, skip -> false);
+        MacsStorage macsStorage = new MacsStorage(true, MacsInUseTester.NONE);
         assertThat(macsStorage.containsDuplicates(), is(false));
         macsStorage.useMac(1L);
         assertThat(macsStorage.containsDuplicates(), is(false));
@@ -118,7 +119,7 @@ public class MacsStorageTest {
     @ParameterizedTest
     @MethodSource
     void testNoMacsLeftToAllocate(boolean allowDuplicates) {
-        MacsStorage macsStorage = new MacsStorage(allowDuplicates, skip -> false);
+        MacsStorage macsStorage = new MacsStorage(allowDuplicates, MacsInUseTester.NONE);
         Range range = new Range(new LongRange(RANGE_FROM, RANGE_TO));
         macsStorage.addRange(range);
         EngineException e = assertThrows(EngineException.class, () -> macsStorage.allocateAvailableMacs(NUMBER_OF_MACS));
@@ -137,7 +138,8 @@ public class MacsStorageTest {
     void testAllocateMacs(int macsToAllocate, boolean allowDuplicates, int macsInUse, int expectedAllocated) {
         List<Range> ranges = createRanges();
         final Map<String, Boolean> predicateMap = roundRobinDistributeMacsInUseToRanges(macsInUse, ranges, allowDuplicates);
-        MacsStorage macsStorage = Mockito.spy(new MacsStorage(allowDuplicates, predicateMap::get));
+        MacsStorage macsStorage = Mockito.spy(new MacsStorage(allowDuplicates,
+                macs -> macs.stream().filter(predicateMap::get).collect(Collectors.toSet())));
         doNothing().when(macsStorage).auditAllocatingMacsInUse(anyInt());
         ranges.forEach(macsStorage::addRange);
         List<Long> macs = macsStorage.allocateAvailableMacs(macsToAllocate);
@@ -7,6 +7,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 import org.hamcrest.Matchers;
 import org.junit.jupiter.api.Test;
@@ -239,7 +240,7 @@ public class MacsUsedAcrossWholeSystemTest {
         mockVmSnapshots(vmHavingSnapshotWithDuplicates, Optional.of(snapshot7));
 
         //verifying
-        List<String> macsForMacPool = underTest.getMacsForMacPool(macPool.getId());
+        List<String> macsForMacPool = underTest.getMacsForMacPool(macPool.getId()).collect(Collectors.toList());
         assertThat(macsForMacPool, Matchers.containsInAnyOrder(
                 mac1,
                 mac2,
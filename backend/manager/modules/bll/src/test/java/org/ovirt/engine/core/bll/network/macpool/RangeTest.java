@@ -6,8 +6,10 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.ovirt.engine.core.utils.MacAddressRangeUtils.macToLong;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import org.apache.commons.lang.math.LongRange;
@@ -83,7 +85,7 @@ public class RangeTest {
 
     @Test
     public void testFreeMac() {
-        final List<Long> allocatedMacs = rangeOf10Macs.allocateMacs(NUMBER_OF_MACS, skip -> false);
+        final List<Long> allocatedMacs = rangeOf10Macs.allocateMacs(NUMBER_OF_MACS, MacsInUseTester.NONE);
         assertThat(allocatedMacs.size(), is(NUMBER_OF_MACS));
         assertThat(rangeOf10Macs.getAvailableCount(), is(0));
         assertThat(rangeOf10Macs.containsDuplicates(), is(false));
@@ -116,16 +118,16 @@ public class RangeTest {
 
     @Test
     public void testAllocateMac() {
-        assertThat(rangeOf10Macs.allocateMacs(5, skip -> false).size(), is(5));
+        assertThat(rangeOf10Macs.allocateMacs(5, MacsInUseTester.NONE).size(), is(5));
         assertThat(rangeOf10Macs.getAvailableCount(), is(5));
-        assertThat(rangeOf10Macs.allocateMacs(5, skip -> false).size(), is(5));
+        assertThat(rangeOf10Macs.allocateMacs(5, MacsInUseTester.NONE).size(), is(5));
         assertThat(rangeOf10Macs.getAvailableCount(), is(0));
         assertThat(rangeOf10Macs.containsDuplicates(), is(false));
     }
 
     @Test
     public void testAllocateMacNoEnoughMacs() {
-        assertThrows(IllegalStateException.class, () -> rangeOf10Macs.allocateMacs(NUMBER_OF_MACS + 1, skip -> false));
+        assertThrows(IllegalStateException.class, () -> rangeOf10Macs.allocateMacs(NUMBER_OF_MACS + 1, MacsInUseTester.NONE));
     }
 
     @Test
@@ -179,12 +181,28 @@ public class RangeTest {
     void testAllocateMacsSomeInUse(int macsToAllocate, int macsInUse, int expectedAllocated) {
         Range range = new Range(new LongRange(RANGE_FROM, RANGE_TO));
         List<Long> allocated = range.allocateMacs(macsToAllocate,
-            allocatedMac -> macToLong(allocatedMac) < RANGE_FROM + macsInUse
+            macs -> macs.stream()
+                    .filter(allocatedMac -> macToLong(allocatedMac) < RANGE_FROM + macsInUse)
+                    .collect(Collectors.toSet())
         );
         assertEquals(expectedAllocated, allocated.size());
         assertEquals(NUMBER_OF_MACS - expectedAllocated, range.getAvailableCount());
     }
 
+    @Test
+    public void testMacsAreTestedForUsageInBlocks() {
+        List<Integer> testedBlockSizes = new ArrayList<>();
+        List<Long> allocated = rangeOf10Macs.allocateMacs(5, macs -> {
+            testedBlockSizes.add(macs.size());
+            return macs.stream()
+                    .filter(mac -> macToLong(mac) < RANGE_FROM + 2)
+                    .collect(Collectors.toSet());
+        });
+
+        assertThat(testedBlockSizes, is(Arrays.asList(5, 2)));
+        assertThat(allocated, is(Arrays.asList(12L, 13L, 14L, 15L, 16L)));
+    }
+
     static Stream<Object[]> testAllocateMacsSomeInUse() {
         return Stream.of(
             // macsToAllocate, macsInUse, expectedAllocated
@@ -223,7 +241,7 @@ public class RangeTest {
      * @param expectedMac mac, which we expect to be returned from {@code range.allocateMacs(1)}
      */
     private void allocateAndFreeMacAndExpectGivenMac(Range range, long expectedMac) {
-        Long mac = range.allocateMacs(1, skip -> false).get(0);
+        Long mac = range.allocateMacs(1, MacsInUseTester.NONE).get(0);
         assertThat(mac, is(expectedMac));
         range.freeMac(mac);
     }
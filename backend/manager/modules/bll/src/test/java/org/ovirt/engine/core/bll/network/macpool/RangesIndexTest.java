@@ -0,0 +1,57 @@
+package org.ovirt.engine.core.bll.network.macpool;
+
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.apache.commons.lang.math.LongRange;
+import org.junit.jupiter.api.Test;
+
+public class RangesIndexTest {
+
+    private final Range range10To19 = new Range(new LongRange(10, 19));
+    private final Range range15To24 = new Range(new LongRange(15, 24));
+    private final Range range30To30 = new Range(new LongRange(30, 30));
+    private final Range range0To40 = new Range(new LongRange(0, 40));
+
+    @Test
+    public void testNoRanges() {
+        RangesIndex rangesIndex = new RangesIndex(Collections.emptyList());
+        assertThat(rangesIndex.findIncludingRange(10), nullValue());
+    }
+
+    @Test
+    public void testMacsOutsideOfRanges() {
+        RangesIndex rangesIndex = new RangesIndex(Arrays.asList(range10To19, range30To30));
+        assertThat(rangesIndex.findIncludingRange(9), nullValue());
+        assertThat(rangesIndex.findIncludingRange(20), nullValue());
+        assertThat(rangesIndex.findIncludingRange(29), nullValue());
+        assertThat(rangesIndex.findIncludingRange(31), nullValue());
+        assertThat(rangesIndex.findIncludingRange(Long.MIN_VALUE), nullValue());
+    }
+
+    @Test
+    public void testMacsOnBoundariesOfRanges() {
+        RangesIndex rangesIndex = new RangesIndex(Arrays.asList(range10To19, range30To30));
+        assertThat(rangesIndex.findIncludingRange(10), sameInstance(range10To19));
+        assertThat(rangesIndex.findIncludingRange(15), sameInstance(range10To19));
+        assertThat(rangesIndex.findIncludingRange(19), sameInstance(range10To19));
+        assertThat(rangesIndex.findIncludingRange(30), sameInstance(range30To30));
+    }
+
+    @Test
+    public void testFirstOfOverlappingRangesIsFound() {
+        RangesIndex rangesIndex = new RangesIndex(Arrays.asList(range10To19, range15To24, range0To40));
+        assertThat(rangesIndex.findIncludingRange(5), sameInstance(range0To40));
+        assertThat(rangesIndex.findIncludingRange(14), sameInstance(range10To19));
+        assertThat(rangesIndex.findIncludingRange(15), sameInstance(range10To19));
+        assertThat(rangesIndex.findIncludingRange(19), sameInstance(range10To19));
+        assertThat(rangesIndex.findIncludingRange(20), sameInstance(range15To24));
+        assertThat(rangesIndex.findIncludingRange(25), sameInstance(range0To40));
+        assertThat(rangesIndex.findIncludingRange(40), sameInstance(range0To40));
+        assertThat(rangesIndex.findIncludingRange(41), nullValue());
+    }
+}
@@ -0,0 +1,44 @@
+package org.ovirt.engine.core.bll.network.vm;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.ovirt.engine.core.bll.AbstractUserQueryTest;
+import org.ovirt.engine.core.common.businessentities.network.VmNetworkInterface;
+import org.ovirt.engine.core.common.queries.IdsQueryParameters;
+import org.ovirt.engine.core.compat.Guid;
+import org.ovirt.engine.core.dao.network.VmNetworkInterfaceDao;
+
+/** A test case for {@link GetVmInterfacesByVmIdsQuery} */
+public class GetVmInterfacesByVmIdsQueryTest
+        extends AbstractUserQueryTest<IdsQueryParameters, GetVmInterfacesByVmIdsQuery<IdsQueryParameters>> {
+    @Mock
+    private VmNetworkInterfaceDao daoMock;
+
+    /** A test that checks that the interfaces returned by the Dao are mapped by their VM */
+    @Test
+    public void testExecuteQuery() {
+        Guid vmId = Guid.newGuid();
+        Guid otherVmId = Guid.newGuid();
+        List<Guid> vmIds = Arrays.asList(vmId, otherVmId);
+        VmNetworkInterface iface = new VmNetworkInterface();
+        iface.setVmId(vmId);
+
+        when(getQueryParameters().getIds()).thenReturn(vmIds);
+        when(daoMock.getAllForVms(vmIds, getUser().getId(), getQueryParameters().isFiltered()))
+                .thenReturn(Collections.singletonList(iface));
+
+        GetVmInterfacesByVmIdsQuery<?> query = getQuery();
+        query.executeQueryCommand();
+
+        Map<Guid, List<VmNetworkInterface>> result = query.getQueryReturnValue().getReturnValue();
+        assertEquals(Collections.singletonMap(vmId, Collections.singletonList(iface)), result);
+    }
+}
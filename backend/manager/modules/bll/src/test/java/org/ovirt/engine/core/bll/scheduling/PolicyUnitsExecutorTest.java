@@ -0,0 +1,101 @@
+package org.ovirt.engine.core.bll.scheduling;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.ovirt.engine.core.utils.threadpool.ThreadPoolUtil;
+
+public class PolicyUnitsExecutorTest {
+
+    private ExecutorService engineThreadPool;
+    private ExecutorService originalThreadPool;
+    private PolicyUnitsExecutor executor;
+
+    @BeforeEach
+    public void setUp() {
+        originalThreadPool = ThreadPoolUtil.getExecutorService();
+        engineThreadPool = Executors.newCachedThreadPool();
+        ThreadPoolUtil.setExecutorService(engineThreadPool);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        ThreadPoolUtil.setExecutorService(originalThreadPool);
+        engineThreadPool.shutdownNow();
+    }
+
+    @Test
+    public void testSequentialByDefault() {
+        executor = new PolicyUnitsExecutor(0);
+        Thread caller = Thread.currentThread();
+
+        List<Boolean> results = executor.invokeAll(Arrays.asList(
+                () -> Thread.currentThread() == caller,
+                () -> Thread.currentThread() == caller));
+
+        assertFalse(executor.isParallel());
+        assertEquals(Arrays.asList(true, true), results);
+    }
+
+    @Test
+    public void testResultsAreInTaskOrder() {
+        executor = new PolicyUnitsExecutor(2);
+        // The first task finishes only after the second one started, so the tasks run concurrently
+        CountDownLatch secondStarted = new CountDownLatch(1);
+        Callable<String> first = () -> secondStarted.await(10, TimeUnit.SECONDS) ? "first" : "timeout";
+        Callable<String> second = () -> {
+            secondStarted.countDown();
+            return "second";
+        };
+
+        List<String> results = executor.invokeAll(Arrays.asList(first, second));
+
+        assertTrue(executor.isParallel());
+        assertEquals(Arrays.asList("first", "second"), results);
+    }
+
+    @Test
+    public void testTasksAreRunByCallerWhenPoolIsBusy() {
+        executor = new PolicyUnitsExecutor(4);
+        // The only thread of the pool is busy until the tasks are done
+        engineThreadPool.shutdownNow();
+        engineThreadPool = Executors.newSingleThreadExecutor();
+        ThreadPoolUtil.setExecutorService(engineThreadPool);
+        CountDownLatch tasksDone = new CountDownLatch(1);
+        engineThreadPool.submit(() -> tasksDone.await(10, TimeUnit.SECONDS));
+        Thread caller = Thread.currentThread();
+
+        List<Boolean> results = executor.invokeAll(Arrays.asList(
+                () -> Thread.currentThread() == caller,
+                () -> Thread.currentThread() == caller,
+                () -> Thread.currentThread() == caller));
+        tasksDone.countDown();
+
+        assertEquals(Arrays.asList(true, true, true), results);
+    }
+
+    @Test
+    public void testFailureIsThrown() {
+        executor = new PolicyUnitsExecutor(2);
+        List<Callable<String>> tasks = Arrays.asList(
+                () -> "ok",
+                () -> {
+                    throw new IllegalStateException();
+                });
+
+        assertThrows(IllegalStateException.class, () -> executor.invokeAll(tasks));
+    }
+}
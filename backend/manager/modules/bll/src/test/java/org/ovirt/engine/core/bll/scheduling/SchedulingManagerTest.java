@@ -0,0 +1,447 @@
+package org.ovirt.engine.core.bll.scheduling;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.ovirt.engine.core.bll.VmHandler;
+import org.ovirt.engine.core.bll.network.host.VfScheduler;
+import org.ovirt.engine.core.bll.scheduling.policyunits.RankSelectorPolicyUnit;
+import org.ovirt.engine.core.bll.scheduling.utils.VdsCpuUnitPinningHelper;
+import org.ovirt.engine.core.common.businessentities.Cluster;
+import org.ovirt.engine.core.common.businessentities.VDS;
+import org.ovirt.engine.core.common.businessentities.VDSStatus;
+import org.ovirt.engine.core.common.businessentities.VM;
+import org.ovirt.engine.core.common.config.ConfigValues;
+import org.ovirt.engine.core.common.errors.EngineMessage;
+import org.ovirt.engine.core.common.scheduling.AffinityGroup;
+import org.ovirt.engine.core.common.scheduling.ClusterPolicy;
+import org.ovirt.engine.core.common.scheduling.PolicyUnit;
+import org.ovirt.engine.core.common.scheduling.PolicyUnitType;
+import org.ovirt.engine.core.common.scheduling.VmOverheadCalculator;
+import org.ovirt.engine.core.common.utils.Pair;
+import org.ovirt.engine.core.compat.Guid;
+import org.ovirt.engine.core.dao.VdsDao;
+import org.ovirt.engine.core.dao.VmNumaNodeDao;
+import org.ovirt.engine.core.dao.scheduling.ClusterPolicyDao;
+import org.ovirt.engine.core.utils.MockConfigDescriptor;
+import org.ovirt.engine.core.utils.MockConfigExtension;
+import org.ovirt.engine.core.utils.threadpool.ThreadPoolUtil;
+import org.ovirt.engine.core.vdsbroker.ResourceManager;
+import org.ovirt.engine.core.vdsbroker.VdsManager;
+
+@ExtendWith({MockConfigExtension.class, MockitoExtension.class})
+@MockitoSettings(strictness = Strictness.LENIENT)
+public class SchedulingManagerTest {
+
+    private static final Guid CLUSTER_ID = new Guid("3f6a4a1e-5b0c-4c8e-9d2f-0a1b2c3d4e5f");
+    private static final Guid POLICY_ID = new Guid("4a7b5b2f-6c1d-4d9f-8e3a-1b2c3d4e5f60");
+    private static final Guid FILTERS_POLICY_ID = new Guid("9fc0a07e-b16c-4ce3-9d8f-60718293a4b5");
+    private static final Guid POOL_ID = new Guid("5b8c6c3a-7d2e-4eaf-9f4b-2c3d4e5f6071");
+    private static final Guid HOST1 = new Guid("6c9d7d4b-8e3f-4fb0-8a5c-3d4e5f607182");
+    private static final Guid HOST2 = new Guid("7dae8e5c-9f4a-4ac1-9b6d-4e5f60718293");
+    private static final Guid HOST3 = new Guid("8ebf9f6d-a05b-4bd2-8c7e-5f60718293a4");
+
+    @Mock
+    private ResourceManager resourceManager;
+    @Mock
+    private VdsManager vdsManager;
+    @Mock
+    private VdsDao vdsDao;
+    @Mock
+    private VmHandler vmHandler;
+    @Mock
+    private VmNumaNodeDao vmNumaNodeDao;
+    @Mock
+    private ClusterPolicyDao clusterPolicyDao;
+    @Mock
+    private VmOverheadCalculator vmOverheadCalculator;
+    @Mock
+    private VfScheduler vfScheduler;
+    @Mock
+    private VdsCpuUnitPinningHelper vdsCpuUnitPinningHelper;
+    @Mock
+    private RunVmDelayer runVmDelayer;
+    @Mock
+    private SchedulingSnapshotCache snapshotCache;
+    // The policy units are run sequentially unless a test says otherwise
+    @Spy
+    private PolicyUnitsExecutor policyUnitsExecutor = new PolicyUnitsExecutor(4);
+
+    @InjectMocks
+    private SchedulingManager schedulingManager;
+
+    private Cluster cluster;
+    private RecordingFilter filter;
+    private RecordingFunction function;
+    private ExecutorService engineThreadPool;
+    private ExecutorService originalThreadPool;
+
+    public static Stream<MockConfigDescriptor<?>> mockConfiguration() {
+        return Stream.of(
+                MockConfigDescriptor.of(ConfigValues.VcpuConsumptionPercentage, 10),
+                MockConfigDescriptor.of(ConfigValues.SchedulerAllowOverBooking, false),
+                MockConfigDescriptor.of(ConfigValues.SpeedOptimizationSchedulingThreshold, 10),
+                MockConfigDescriptor.of(ConfigValues.ExternalSchedulerEnabled, false)
+        );
+    }
+
+    @BeforeEach
+    public void setUp() {
+        originalThreadPool = ThreadPoolUtil.getExecutorService();
+        engineThreadPool = Executors.newCachedThreadPool();
+        ThreadPoolUtil.setExecutorService(engineThreadPool);
+        doReturn(false).when(policyUnitsExecutor).isParallel();
+
+        when(resourceManager.getVdsManager(any())).thenReturn(vdsManager);
+        when(vdsDao.getAllForClusterWithStatus(CLUSTER_ID, VDSStatus.Up))
+                .thenAnswer(invocation -> Stream.of(HOST1, HOST2, HOST3)
+                        .map(this::createHost)
+                        .collect(Collectors.toList()));
+        schedulingManager.initializePendingResourceManager();
+
+        // The filter rejects the third host for every VM
+        filter = new RecordingFilter(Collections.singleton(HOST3));
+        function = new RecordingFunction();
+        RankSelectorPolicyUnit selector = new RankSelectorPolicyUnit(null, null);
+        schedulingManager.getPolicyUnitsMap().put(filter.getGuid(), filter);
+        schedulingManager.getPolicyUnitsMap().put(function.getGuid(), function);
+        schedulingManager.getPolicyUnitsMap().put(selector.getGuid(), selector);
+
+        ClusterPolicy policy = new ClusterPolicy();
+        policy.setId(POLICY_ID);
+        policy.setFilters(Collections.singletonList(filter.getGuid()));
+        policy.setFilterPositionMap(new HashMap<>());
+        policy.setFunctions(Collections.singletonList(new Pair<>(function.getGuid(), 1)));
+        schedulingManager.addClusterPolicy(policy);
+
+        cluster = new Cluster();
+        cluster.setId(CLUSTER_ID);
+        cluster.setClusterPolicyId(POLICY_ID);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        ThreadPoolUtil.setExecutorService(originalThreadPool);
+        engineThreadPool.shutdownNow();
+    }
+
+    @Test
+    public void testEquivalentPoolVmsAreFilteredOnce() {
+        List<VM> vms = Arrays.asList(createPoolVm(), createPoolVm(), createPoolVm());
+
+        Map<Guid, Guid> vmToHost = schedulingManager.prepareCall(cluster)
+                .batchPlacement(true)
+                .schedule(new ArrayList<>(vms));
+
+        assertEquals(3, vmToHost.size());
+        assertFalse(vmToHost.containsValue(HOST3));
+        // Only the first VM is filtered on all the hosts, the others only on the hosts which passed for it
+        assertEquals(1, Collections.frequency(filter.getFilteredHosts(), HOST3));
+        assertEquals(3 + 2 + 2, filter.getFilteredHosts().size());
+        assertFalse(function.getScoredHosts().contains(HOST3));
+        assertEquals(3 * 2, function.getScoredHosts().size());
+    }
+
+    @Test
+    public void testVmsAreFilteredOneByOneWithoutBatchPlacement() {
+        List<VM> vms = Arrays.asList(createPoolVm(), createPoolVm(), createPoolVm());
+
+        Map<Guid, Guid> vmToHost = schedulingManager.prepareCall(cluster)
+                .schedule(new ArrayList<>(vms));
+
+        assertEquals(3, vmToHost.size());
+        assertEquals(3, Collections.frequency(filter.getFilteredHosts(), HOST3));
+    }
+
+    @Test
+    public void testBatchPlacementIsReleasedOnce() {
+        VM placedVm = createPoolVm();
+        VM scheduledVm = createPoolVm();
+
+        Map<Guid, Guid> vmToHost = schedulingManager.prepareCall(cluster)
+                .batchPlacement(true)
+                .schedule(new ArrayList<>(Arrays.asList(placedVm, createPoolVm())));
+        schedulingManager.prepareCall(cluster).schedule(scheduledVm);
+
+        assertEquals(Optional.of(vmToHost.get(placedVm.getId())),
+                schedulingManager.releaseBatchPlacement(placedVm.getStaticData()));
+        assertEquals(Optional.empty(), schedulingManager.releaseBatchPlacement(placedVm.getStaticData()));
+        assertEquals(Optional.empty(), schedulingManager.releaseBatchPlacement(scheduledVm.getStaticData()));
+    }
+
+    @Test
+    public void testHostsFilteredOutBeforeTheDelayAreCandidatesAgain() {
+        DelayingFilter delayingFilter = new DelayingFilter();
+        useFilters(delayingFilter);
+
+        Map<Guid, Guid> vmToHost = schedulingManager.prepareCall(cluster)
+                .batchPlacement(true)
+                .delay(true)
+                .schedule(new ArrayList<>(Arrays.asList(createPoolVm(), createPoolVm())));
+
+        assertEquals(2, vmToHost.size());
+        // The second VM is delayed while filtered on the hosts which passed for the first one
+        assertEquals(Arrays.asList(HOST1, HOST2), delayingFilter.getFilteredHosts().get(1));
+        assertEquals(Arrays.asList(HOST1, HOST2, HOST3), delayingFilter.getFilteredHosts().get(2));
+    }
+
+    @Test
+    public void testVmsInAffinityGroupsAreNotBatched() {
+        VM vmInAffinityGroup = createPoolVm();
+        AffinityGroup affinityGroup = new AffinityGroup();
+        affinityGroup.setVmIds(Collections.singletonList(vmInAffinityGroup.getId()));
+        when(snapshotCache.getAffinityGroupsWithFlatLabels(CLUSTER_ID))
+                .thenReturn(Collections.singletonList(affinityGroup));
+        List<VM> vms = Arrays.asList(createPoolVm(), vmInAffinityGroup, createPoolVm());
+
+        Map<Guid, Guid> vmToHost = schedulingManager.prepareCall(cluster)
+                .batchPlacement(true)
+                .schedule(new ArrayList<>(vms));
+
+        assertEquals(3, vmToHost.size());
+        // The VM in the affinity group is filtered on all the hosts, as well as the first of the others
+        assertEquals(2, Collections.frequency(filter.getFilteredHosts(), HOST3));
+        assertEquals(3 + 3 + 2, filter.getFilteredHosts().size());
+    }
+
+    @Test
+    public void testParallelFiltersGiveTheSequentialHosts() {
+        // The independent filters run together, the last one alone on the hosts passing them
+        useFilters(new RejectingFilter("First", true, HOST3),
+                new RejectingFilter("Second", true, HOST3),
+                new RejectingFilter("Third", false));
+
+        List<String> sequentialMessages = new ArrayList<>();
+        List<VDS> sequentialHosts = schedulingManager.prepareCall(cluster)
+                .outputMessages(sequentialMessages)
+                .canSchedule(createPoolVm());
+        doReturn(true).when(policyUnitsExecutor).isParallel();
+        List<String> parallelMessages = new ArrayList<>();
+        List<VDS> parallelHosts = schedulingManager.prepareCall(cluster)
+                .outputMessages(parallelMessages)
+                .canSchedule(createPoolVm());
+
+        assertEquals(Arrays.asList(HOST1, HOST2), toIds(sequentialHosts));
+        assertEquals(toIds(sequentialHosts), toIds(parallelHosts));
+        assertEquals(sequentialMessages, parallelMessages);
+    }
+
+    @Test
+    public void testParallelFiltersGiveTheSequentialMessages() {
+        // The second filter also rejects the host already rejected by the first one, but it is reported only once
+        useFilters(new RejectingFilter("First", true, HOST3),
+                new RejectingFilter("Second", true, HOST2, HOST3),
+                new RejectingFilter("Third", false, HOST1),
+                new RejectingFilter("Fourth", true, HOST1, HOST2, HOST3));
+
+        List<String> sequentialMessages = new ArrayList<>();
+        List<VDS> sequentialHosts = schedulingManager.prepareCall(cluster)
+                .outputMessages(sequentialMessages)
+                .canSchedule(createPoolVm());
+        doReturn(true).when(policyUnitsExecutor).isParallel();
+        List<String> parallelMessages = new ArrayList<>();
+        List<VDS> parallelHosts = schedulingManager.prepareCall(cluster)
+                .outputMessages(parallelMessages)
+                .canSchedule(createPoolVm());
+
+        assertTrue(sequentialHosts.isEmpty());
+        assertTrue(parallelHosts.isEmpty());
+        assertEquals(1, Collections.frequency(sequentialMessages, "$rejectedBy Second"));
+        assertFalse(sequentialMessages.contains("$rejectedBy Fourth"));
+        assertEquals(sequentialMessages, parallelMessages);
+    }
+
+    private void useFilters(PolicyUnitImpl... filters) {
+        ClusterPolicy policy = new ClusterPolicy();
+        policy.setId(FILTERS_POLICY_ID);
+        policy.setFilters(new ArrayList<>());
+        for (PolicyUnitImpl filter : filters) {
+            schedulingManager.getPolicyUnitsMap().put(filter.getGuid(), filter);
+            policy.getFilters().add(filter.getGuid());
+        }
+        policy.setFilterPositionMap(new HashMap<>());
+        policy.setFunctions(Collections.singletonList(new Pair<>(function.getGuid(), 1)));
+        schedulingManager.addClusterPolicy(policy);
+        cluster.setClusterPolicyId(FILTERS_POLICY_ID);
+    }
+
+    private static List<Guid> toIds(List<VDS> hosts) {
+        return hosts.stream().map(VDS::getId).collect(Collectors.toList());
+    }
+
+    private VDS createHost(Guid id) {
+        VDS host = new VDS();
+        host.setId(id);
+        host.setVdsName(id.toString());
+        host.setClusterId(CLUSTER_ID);
+        return host;
+    }
+
+    private VM createPoolVm() {
+        VM vm = new VM();
+        vm.setId(Guid.newGuid());
+        vm.setClusterId(CLUSTER_ID);
+        vm.setVmPoolId(POOL_ID);
+        vm.setVmtGuid(Guid.Empty);
+        vm.getStaticData().setMemSizeMb(1024);
+        vm.getStaticData().setNumOfSockets(1);
+        return vm;
+    }
+
+    private static PolicyUnit createPolicyUnit(String name, PolicyUnitType type) {
+        PolicyUnit policyUnit = new PolicyUnit();
+        policyUnit.setId(Guid.newGuid());
+        policyUnit.setName(name);
+        policyUnit.setInternal(true);
+        policyUnit.setEnabled(true);
+        policyUnit.setPolicyUnitType(type);
+        return policyUnit;
+    }
+
+    private static class RecordingFilter extends PolicyUnitImpl {
+        private final Set<Guid> rejectedHosts;
+        private final List<Guid> filteredHosts = new ArrayList<>();
+
+        public RecordingFilter(Set<Guid> rejectedHosts) {
+            super(createPolicyUnit("RecordingFilter", PolicyUnitType.FILTER), null);
+            this.rejectedHosts = rejectedHosts;
+        }
+
+        @Override
+        public List<VDS> filter(SchedulingContext context, List<VDS> hosts, VM vm, PerHostMessages messages) {
+            hosts.forEach(host -> filteredHosts.add(host.getId()));
+            return hosts.stream()
+                    .filter(host -> !rejectedHosts.contains(host.getId()))
+                    .collect(Collectors.toList());
+        }
+
+        @Override
+        protected Guid getGuid() {
+            return getPolicyUnit().getId();
+        }
+
+        public List<Guid> getFilteredHosts() {
+            return filteredHosts;
+        }
+    }
+
+    private static class RejectingFilter extends PolicyUnitImpl {
+        private final boolean independent;
+        private final Set<Guid> rejectedHosts;
+
+        public RejectingFilter(String name, boolean independent, Guid... rejectedHosts) {
+            super(createPolicyUnit(name, PolicyUnitType.FILTER), null);
+            this.independent = independent;
+            this.rejectedHosts = new HashSet<>(Arrays.asList(rejectedHosts));
+        }
+
+        @Override
+        public boolean isFilterIndependent() {
+            return independent;
+        }
+
+        @Override
+        public List<VDS> filter(SchedulingContext context, List<VDS> hosts, VM vm, PerHostMessages messages) {
+            List<VDS> passedHosts = new ArrayList<>();
+            for (VDS host : hosts) {
+                if (rejectedHosts.contains(host.getId())) {
+                    messages.addMessage(host.getId(), "$rejectedBy " + getPolicyUnit().getName());
+                    messages.addMessage(host.getId(), EngineMessage.VAR__DETAIL__NOT_PINNED_TO_HOST.name());
+                } else {
+                    passedHosts.add(host);
+                }
+            }
+            return passedHosts;
+        }
+
+        @Override
+        protected Guid getGuid() {
+            return getPolicyUnit().getId();
+        }
+    }
+
+    /**
+     * Rejects the third host for the first VM, then asks to delay the scheduling of the second one.
+     */
+    private static class DelayingFilter extends PolicyUnitImpl {
+        private final List<List<Guid>> filteredHosts = new ArrayList<>();
+
+        public DelayingFilter() {
+            super(createPolicyUnit("DelayingFilter", PolicyUnitType.FILTER), null);
+        }
+
+        @Override
+        public List<VDS> filter(SchedulingContext context, List<VDS> hosts, VM vm, PerHostMessages messages) {
+            filteredHosts.add(toIds(hosts));
+            if (filteredHosts.size() == 1) {
+                return hosts.stream()
+                        .filter(host -> !HOST3.equals(host.getId()))
+                        .collect(Collectors.toList());
+            }
+            if (filteredHosts.size() == 2) {
+                context.setShouldDelay(true);
+            }
+            return hosts;
+        }
+
+        @Override
+        protected Guid getGuid() {
+            return getPolicyUnit().getId();
+        }
+
+        public List<List<Guid>> getFilteredHosts() {
+            return filteredHosts;
+        }
+    }
+
+    private static class RecordingFunction extends PolicyUnitImpl {
+        private final List<Guid> scoredHosts = new ArrayList<>();
+
+        public RecordingFunction() {
+            super(createPolicyUnit("RecordingFunction", PolicyUnitType.WEIGHT), null);
+        }
+
+        @Override
+        public List<Pair<Guid, Integer>> score(SchedulingContext context, List<VDS> hosts, VM vm) {
+            hosts.forEach(host -> scoredHosts.add(host.getId()));
+            return hosts.stream().map(host -> new Pair<>(host.getId(), 1)).collect(Collectors.toList());
+        }
+
+        @Override
+        protected Guid getGuid() {
+            return getPolicyUnit().getId();
+        }
+
+        public List<Guid> getScoredHosts() {
+            return scoredHosts;
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package org.ovirt.engine.core.bll.scheduling;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Collections;
+import java.util.List;
+
+import javax.transaction.TransactionManager;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.ovirt.engine.core.common.businessentities.NumaNodeStatistics;
+import org.ovirt.engine.core.common.businessentities.VdsNumaNode;
+import org.ovirt.engine.core.common.scheduling.AffinityGroup;
+import org.ovirt.engine.core.compat.Guid;
+import org.ovirt.engine.core.dao.VdsNumaNodeDao;
+import org.ovirt.engine.core.dao.scheduling.AffinityGroupDao;
+import org.ovirt.engine.core.utils.InjectedMock;
+import org.ovirt.engine.core.utils.InjectorExtension;
+import org.ovirt.engine.core.vdsbroker.ResourceManager;
+import org.ovirt.engine.core.vdsbroker.VdsManager;
+
+@ExtendWith({MockitoExtension.class, InjectorExtension.class})
+@MockitoSettings(strictness = Strictness.LENIENT)
+public class SchedulingSnapshotCacheTest {
+
+    private static final Guid HOST_ID = new Guid("c1f1a2e4-7b5c-4f3e-9a0d-1d7e1f2a3b4c");
+    private static final Guid CLUSTER_ID = new Guid("d2a2b3f5-8c6d-4a4f-8b1e-2e8f2a3b4c5d");
+
+    @Mock
+    private ResourceManager resourceManager;
+    @Mock
+    private VdsManager vdsManager;
+    @Mock
+    private VdsNumaNodeDao vdsNumaNodeDao;
+    @Mock
+    private AffinityGroupDao affinityGroupDao;
+    @Mock
+    @InjectedMock
+    public TransactionManager transactionManager;
+
+    @InjectMocks
+    private SchedulingSnapshotCache cache;
+
+    @BeforeEach
+    public void setUp() {
+        when(resourceManager.getVdsManager(HOST_ID)).thenReturn(vdsManager);
+        when(vdsNumaNodeDao.getAllVdsNumaNodeByVdsId(HOST_ID)).thenReturn(Collections.singletonList(createNode()));
+        when(affinityGroupDao.getAllAffinityGroupsWithFlatLabelsByClusterId(CLUSTER_ID))
+                .thenReturn(Collections.singletonList(new AffinityGroup()));
+    }
+
+    @Test
+    public void testNumaNodesAreLoadedOncePerVersion() {
+        when(vdsManager.getNumaNodesVersion()).thenReturn(1L);
+        cache.getHostNumaNodes(HOST_ID);
+        cache.getHostNumaNodes(HOST_ID);
+        verify(vdsNumaNodeDao, times(1)).getAllVdsNumaNodeByVdsId(HOST_ID);
+
+        when(vdsManager.getNumaNodesVersion()).thenReturn(2L);
+        cache.getHostNumaNodes(HOST_ID);
+        verify(vdsNumaNodeDao, times(2)).getAllVdsNumaNodeByVdsId(HOST_ID);
+        assertEquals(1, cache.getHits());
+        assertEquals(2, cache.getMisses());
+    }
+
+    @Test
+    public void testNumaNodesAreCopied() {
+        List<VdsNumaNode> first = cache.getHostNumaNodes(HOST_ID);
+        first.get(0).getNumaNodeStatistics().setMemFree(0);
+
+        List<VdsNumaNode> second = cache.getHostNumaNodes(HOST_ID);
+        assertNotSame(first.get(0), second.get(0));
+        assertEquals(1024, second.get(0).getNumaNodeStatistics().getMemFree());
+    }
+
+    @Test
+    public void testAffinityGroupsAreLoadedAgainAfterInvalidation() {
+        cache.getAffinityGroupsWithFlatLabels(CLUSTER_ID);
+        cache.getAffinityGroupsWithFlatLabels(CLUSTER_ID);
+        verify(affinityGroupDao, times(1)).getAllAffinityGroupsWithFlatLabelsByClusterId(CLUSTER_ID);
+
+        cache.invalidateAffinityGroups();
+        cache.getAffinityGroupsWithFlatLabels(CLUSTER_ID);
+        verify(affinityGroupDao, times(2)).getAllAffinityGroupsWithFlatLabelsByClusterId(CLUSTER_ID);
+    }
+
+    private static VdsNumaNode createNode() {
+        NumaNodeStatistics statistics = new NumaNodeStatistics();
+        statistics.setMemFree(1024);
+        VdsNumaNode node = new VdsNumaNode();
+        node.setIndex(0);
+        node.setMemTotal(2048);
+        node.setNumaNodeStatistics(statistics);
+        return node;
+    }
+}
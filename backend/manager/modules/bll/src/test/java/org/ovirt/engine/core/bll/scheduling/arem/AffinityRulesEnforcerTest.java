@@ -5,6 +5,8 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyBoolean;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.ovirt.engine.core.common.businessentities.VMStatus.Up;
 
@@ -24,10 +26,12 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.mockito.junit.jupiter.MockitoSettings;
 import org.mockito.quality.Strictness;
 import org.ovirt.engine.core.bll.scheduling.SchedulingManager;
+import org.ovirt.engine.core.bll.scheduling.SchedulingSnapshotCache;
 import org.ovirt.engine.core.common.businessentities.Cluster;
 import org.ovirt.engine.core.common.businessentities.Label;
 import org.ovirt.engine.core.common.businessentities.LabelBuilder;
@@ -56,6 +60,10 @@ public class AffinityRulesEnforcerTest {
     private SchedulingManager schedulingManager;
     @Mock
     private VmDao vmDao;
+    @Mock
+    private SchedulingSnapshotCache schedulingSnapshotCache;
+    @Spy
+    private AffinityViolationIndex violationIndex = new AffinityViolationIndex();
 
     private Cluster cluster;
 
@@ -83,6 +91,8 @@ public class AffinityRulesEnforcerTest {
 
     private Map<Guid, List<VDS>> possibleHosts;
 
+    private long affinityGroupsVersion;
+
     @InjectMocks
     private AffinityRulesEnforcer enforcer;
 
@@ -111,6 +121,7 @@ public class AffinityRulesEnforcerTest {
                 .collect(Collectors.toMap(VM::getId, vm -> Arrays.asList(host1, host2, host3)));
 
         when(affinityGroupDao.getAllAffinityGroupsWithFlatLabelsByClusterId(any())).thenAnswer(invocation -> copyGroups());
+        when(schedulingSnapshotCache.getAffinityGroupsVersion()).thenAnswer(invocation -> affinityGroupsVersion);
         when(labelDao.getAllByClusterId(any())).thenReturn(labels);
 
         when(schedulingManager.canSchedule(eq(cluster), any(), any(), any(), anyBoolean(), anyBoolean(), any())).thenReturn(possibleHosts);
@@ -581,6 +592,64 @@ public class AffinityRulesEnforcerTest {
         ));
     }
 
+    @Test
+    public void shouldNotCheckAgainWhenNothingChanged() {
+        affinityGroups.add(createAffinityGroup(cluster, EntityAffinityRule.POSITIVE, vm1, vm2));
+        affinityGroups.add(createAffinityGroup(cluster, EntityAffinityRule.NEGATIVE, vm1, vm4));
+        assertThat(getVmsToMigrate()).isEmpty();
+        assertThat(getVmsToMigrateWithoutGroupChanges()).isEmpty();
+        verify(affinityGroupDao, times(1)).getAllAffinityGroupsWithFlatLabelsByClusterId(cluster.getId());
+    }
+
+    @Test
+    public void shouldCheckGroupsOfMovedVm() {
+        affinityGroups.add(createAffinityGroup(cluster, EntityAffinityRule.NEGATIVE, vm1, vm4));
+        affinityGroups.add(createAffinityGroup(cluster, EntityAffinityRule.NEGATIVE, vm3, vm5));
+        assertThat(getVmsToMigrate()).isEmpty();
+
+        vm4.setRunOnVds(host1.getId());
+        violationIndex.vmsMoved(Collections.singletonList(vm4.getId()));
+        assertThat(getVmsToMigrateWithoutGroupChanges()).containsOnly(vm1, vm4);
+    }
+
+    @Test
+    public void shouldKeepVmMovedDuringCheck() {
+        affinityGroups.add(createAffinityGroup(cluster, EntityAffinityRule.NEGATIVE, vm1, vm4));
+        affinityGroups.add(createAffinityGroup(cluster, EntityAffinityRule.NEGATIVE, vm3, vm5));
+        assertThat(getVmsToMigrate()).isEmpty();
+
+        violationIndex.vmsMoved(Collections.singletonList(vm4.getId()));
+        // The VM moves after the VMs to check are taken, while its group is not checked
+        when(affinityGroupDao.getAllAffinityGroupsWithFlatLabelsByClusterId(any())).thenAnswer(invocation -> {
+            violationIndex.vmsMoved(Collections.singletonList(vm5.getId()));
+            return copyGroups();
+        });
+        assertThat(getVmsToMigrateWithoutGroupChanges()).isEmpty();
+
+        assertThat(violationIndex.getVmsToCheck(cluster.getId())).containsOnly(vm5.getId());
+    }
+
+    @Test
+    public void shouldCheckViolatedGroupsAgain() {
+        affinityGroups.add(createAffinityGroup(cluster, EntityAffinityRule.POSITIVE, vm1, vm4));
+        affinityGroups.add(createAffinityGroup(cluster, EntityAffinityRule.NEGATIVE, vm5, vm2));
+        assertThat(getVmsToMigrate()).containsOnly(vm1, vm4);
+
+        possibleHosts.put(vm4.getId(), Collections.emptyList());
+        assertThat(getVmsToMigrateWithoutGroupChanges()).containsOnly(vm1);
+    }
+
+    @Test
+    public void shouldForgetRemovedCluster() {
+        affinityGroups.add(createAffinityGroup(cluster, EntityAffinityRule.POSITIVE, vm1, vm4));
+        assertThat(getVmsToMigrate()).containsOnly(vm1, vm4);
+        assertThat(violationIndex.getVmsToCheck(cluster.getId())).containsOnly(vm1.getId(), vm4.getId());
+
+        violationIndex.clusterRemoved(cluster.getId());
+        assertThat(violationIndex.isFullCheckNeeded(cluster.getId(), affinityGroupsVersion)).isTrue();
+        assertThat(violationIndex.getVmsToCheck(cluster.getId())).isEmpty();
+    }
+
     private Cluster createCluster() {
         Guid id = Guid.newGuid();
         Cluster cluster = new Cluster();
@@ -652,7 +721,15 @@ public class AffinityRulesEnforcerTest {
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Returns the VMs to migrate, as if the affinity groups changed since the last check
+     */
     private List<VM> getVmsToMigrate() {
+        affinityGroupsVersion++;
+        return getVmsToMigrateWithoutGroupChanges();
+    }
+
+    private List<VM> getVmsToMigrateWithoutGroupChanges() {
         List<VM> res = new ArrayList<>();
         enforcer.chooseVmsToMigrate(cluster).forEachRemaining(res::add);
         return res;
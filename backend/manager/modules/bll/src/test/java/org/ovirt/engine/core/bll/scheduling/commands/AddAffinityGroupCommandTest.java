@@ -3,6 +3,7 @@ package org.ovirt.engine.core.bll.scheduling.commands;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.verify;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -17,6 +18,7 @@ import org.mockito.junit.jupiter.MockitoSettings;
 import org.mockito.quality.Strictness;
 import org.ovirt.engine.core.bll.BaseCommandTest;
 import org.ovirt.engine.core.bll.ValidateTestUtils;
+import org.ovirt.engine.core.bll.scheduling.SchedulingSnapshotCache;
 import org.ovirt.engine.core.bll.validator.AffinityValidator;
 import org.ovirt.engine.core.common.AuditLogType;
 import org.ovirt.engine.core.common.businessentities.Cluster;
@@ -53,6 +55,9 @@ public class AddAffinityGroupCommandTest extends BaseCommandTest {
     @Mock
     AffinityValidator affinityValidator;
 
+    @Mock
+    private SchedulingSnapshotCache schedulingSnapshotCache;
+
     AffinityGroupCRUDParameters parameters = new AffinityGroupCRUDParameters(null, createAffinityGroup());
 
     @Spy
@@ -81,6 +86,7 @@ public class AddAffinityGroupCommandTest extends BaseCommandTest {
     public void excuteCommandTest() {
         command.executeCommand();
         assertEquals(AuditLogType.USER_ADDED_AFFINITY_GROUP, command.getAuditLogTypeValue());
+        verify(schedulingSnapshotCache).invalidateAffinityGroups();
     }
 
     @Test
@@ -18,6 +18,7 @@ import org.mockito.junit.jupiter.MockitoSettings;
 import org.mockito.quality.Strictness;
 import org.ovirt.engine.core.bll.BaseCommandTest;
 import org.ovirt.engine.core.bll.ValidateTestUtils;
+import org.ovirt.engine.core.bll.scheduling.SchedulingSnapshotCache;
 import org.ovirt.engine.core.bll.validator.AffinityValidator;
 import org.ovirt.engine.core.common.AuditLogType;
 import org.ovirt.engine.core.common.businessentities.Cluster;
@@ -49,6 +50,9 @@ public class EditAffinityGroupCommandTest extends BaseCommandTest {
     @Mock
     AffinityValidator affinityValidator;
 
+    @Mock
+    private SchedulingSnapshotCache schedulingSnapshotCache;
+
     AffinityGroupCRUDParameters parameters = new AffinityGroupCRUDParameters(null, createAffinityGroup());
 
     @Spy
@@ -103,6 +107,7 @@ public class EditAffinityGroupCommandTest extends BaseCommandTest {
     public void excuteCommandTest() {
         command.executeCommand();
         assertEquals(AuditLogType.USER_UPDATED_AFFINITY_GROUP, command.getAuditLogTypeValue());
+        verify(schedulingSnapshotCache).invalidateAffinityGroups();
     }
 
     private AffinityGroup createAffinityGroup() {
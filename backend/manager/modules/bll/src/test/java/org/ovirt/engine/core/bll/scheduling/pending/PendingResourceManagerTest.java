@@ -3,10 +3,13 @@ package org.ovirt.engine.core.bll.scheduling.pending;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
+import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
 import java.util.Set;
 
 import org.junit.jupiter.api.Test;
+import org.ovirt.engine.core.bll.scheduling.NumaNodeMemoryConsumption;
 import org.ovirt.engine.core.common.businessentities.VDS;
 import org.ovirt.engine.core.common.businessentities.VM;
 import org.ovirt.engine.core.compat.Guid;
@@ -197,4 +200,50 @@ public class PendingResourceManagerTest {
                 .extracting(PendingMemory::getSizeInMb)
                 .containsOnly(768L);
     }
+
+    @Test
+    public void testHostSummaryIsUpdatedIncrementally() {
+        PendingResourceManager manager = new PendingResourceManager();
+
+        VDS host1 = new VDS();
+        host1.setId(Guid.newGuid());
+
+        VDS host2 = new VDS();
+        host2.setId(Guid.newGuid());
+
+        VM vm1 = new VM();
+        vm1.setId(Guid.newGuid());
+
+        VM vm2 = new VM();
+        vm2.setId(Guid.newGuid());
+
+        manager.addPending(new PendingOvercommitMemory(host1, vm1, 768));
+        manager.addPending(new PendingHugePages(host1, vm1, 2048, 10));
+        manager.addPending(new PendingNumaMemory(host1.getId(), vm1, 0,
+                new NumaNodeMemoryConsumption(512, Optional.empty())));
+
+        manager.addPending(new PendingOvercommitMemory(host1, vm2, 1024));
+        manager.addPending(new PendingHugePages(host1, vm2, 2048, 5));
+        manager.addPending(new PendingNumaMemory(host1.getId(), vm2, 0,
+                new NumaNodeMemoryConsumption(256, Optional.empty())));
+
+        assertEquals(1024 + 768, PendingOvercommitMemory.collectForHost(manager, host1.getId()));
+        assertEquals(Collections.singletonMap(2048, 15), PendingHugePages.collectForHost(manager, host1.getId()));
+        assertEquals(768, PendingNumaMemory.collectForHost(manager, host1.getId()).get(0).getMemoryMB());
+
+        // Moving the pending memory of a VM to another host replaces the stale resource
+        manager.addPending(new PendingOvercommitMemory(host2, vm2, 2048));
+        assertEquals(768, PendingOvercommitMemory.collectForHost(manager, host1.getId()));
+        assertEquals(2048, PendingOvercommitMemory.collectForHost(manager, host2.getId()));
+
+        manager.clearVm(vm1);
+        assertEquals(0, PendingOvercommitMemory.collectForHost(manager, host1.getId()));
+        assertEquals(Collections.singletonMap(2048, 5), PendingHugePages.collectForHost(manager, host1.getId()));
+        assertEquals(256, PendingNumaMemory.collectForHost(manager, host1.getId()).get(0).getMemoryMB());
+
+        manager.clearHost(host1);
+        assertThat(PendingHugePages.collectForHost(manager, host1.getId())).isEmpty();
+        assertThat(PendingNumaMemory.collectForHost(manager, host1.getId())).isEmpty();
+        assertEquals(2048, PendingOvercommitMemory.collectForHost(manager, host2.getId()));
+    }
 }
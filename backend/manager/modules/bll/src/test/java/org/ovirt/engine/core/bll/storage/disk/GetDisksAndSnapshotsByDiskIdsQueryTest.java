@@ -0,0 +1,69 @@
+package org.ovirt.engine.core.bll.storage.disk;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.ovirt.engine.core.common.businessentities.StorageServerConnections;
+import org.ovirt.engine.core.common.businessentities.storage.Disk;
+import org.ovirt.engine.core.common.businessentities.storage.DiskImage;
+import org.ovirt.engine.core.common.businessentities.storage.LunDisk;
+import org.ovirt.engine.core.common.queries.IdsQueryParameters;
+import org.ovirt.engine.core.compat.Guid;
+import org.ovirt.engine.core.dao.DiskDao;
+import org.ovirt.engine.core.dao.StorageServerConnectionDao;
+
+/**
+ * A test case for {@link GetDisksAndSnapshotsByDiskIdsQuery}.
+ */
+public class GetDisksAndSnapshotsByDiskIdsQueryTest extends
+        AbstractGetDisksAndSnapshotsQueryTest<IdsQueryParameters, GetDisksAndSnapshotsByDiskIdsQuery<IdsQueryParameters>> {
+
+    @Mock
+    private DiskDao diskDao;
+
+    @Mock
+    private StorageServerConnectionDao storageServerConnectionDao;
+
+    @Test
+    public void testQueryReturnsAllDisksAggregated() {
+        List<Guid> diskIds = Arrays.asList(diskWithSnapshots.getId(),
+                diskWithoutSnapshots.getId(),
+                ovfImage.getId(),
+                cinderDisk.getId(),
+                lunDisk.getId());
+        List<Disk> allDisks = new ArrayList<>(snapshotsList);
+        Collections.addAll(allDisks, diskWithSnapshots, diskWithoutSnapshots, ovfImage, cinderDisk, lunDisk);
+        List<StorageServerConnections> connections = Collections.singletonList(new StorageServerConnections());
+        when(params.getIds()).thenReturn(diskIds);
+        when(diskDao.getAllFromDisksIncludingSnapshotsByDiskIds(diskIds,
+                getUser().getId(),
+                getQueryParameters().isFiltered())).thenReturn(allDisks);
+        when(storageServerConnectionDao.getAllForLun(lunDisk.getLun().getLUNId())).thenReturn(connections);
+
+        getQuery().executeQueryCommand();
+
+        List<Disk> disks = getQuery().getQueryReturnValue().getReturnValue();
+        Map<Guid, Disk> disksById = disks.stream().collect(Collectors.toMap(Disk::getId, Function.identity()));
+        assertEquals(diskIds.size(), disks.size(), "wrong number of disks");
+        assertEquals(3, ((DiskImage) disksById.get(diskWithSnapshots.getId())).getSnapshots().size(),
+                "wrong number of snapshots");
+        assertEquals(0, ((DiskImage) disksById.get(diskWithoutSnapshots.getId())).getSnapshots().size(),
+                "disk should not have any snapshots");
+        assertSame(connections, ((LunDisk) disksById.get(lunDisk.getId())).getLun().getLunConnections());
+        verify(diskDao).getAllFromDisksIncludingSnapshotsByDiskIds(diskIds,
+                getUser().getId(),
+                getQueryParameters().isFiltered());
+    }
+}
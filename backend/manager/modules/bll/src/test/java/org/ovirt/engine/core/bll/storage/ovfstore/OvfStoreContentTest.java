@@ -0,0 +1,105 @@
+package org.ovirt.engine.core.bll.storage.ovfstore;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.ovirt.engine.core.common.businessentities.OvfDataSize;
+import org.ovirt.engine.core.common.utils.Pair;
+import org.ovirt.engine.core.compat.Guid;
+import org.ovirt.engine.core.dao.VmAndTemplatesGenerationsDao;
+import org.ovirt.engine.core.utils.archivers.tar.TarInMemoryExport;
+import org.ovirt.engine.core.utils.ovf.OvfInfoFileConstants;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+public class OvfStoreContentTest {
+
+    private static final byte[] INFO_FILE = "{\"Last Updated\" : \"now\"}".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] META_DATA_FILE = "{\"VM Status\" : {}}".getBytes(StandardCharsets.UTF_8);
+
+    @Mock
+    private VmAndTemplatesGenerationsDao vmAndTemplatesGenerationsDao;
+
+    private final Guid vmId = Guid.newGuid();
+    private final Guid templateId = Guid.newGuid();
+    private final Guid unregisteredId = Guid.newGuid();
+    private final String vmOvf = "<ovf>vm é</ovf>";
+    private final String templateOvf = "<ovf>template</ovf>";
+
+    @BeforeEach
+    public void setUp() {
+        when(vmAndTemplatesGenerationsDao.loadOvfDataForIds(any())).thenReturn(
+                Arrays.asList(new Pair<>(templateId, templateOvf), new Pair<>(vmId, vmOvf)));
+    }
+
+    private OvfStoreContent createContent(long vmGeneration, String storedVmOvf) {
+        List<OvfDataSize> ovfDataSizes = Arrays.asList(
+                new OvfDataSize(vmId, vmGeneration, storedVmOvf.getBytes(StandardCharsets.UTF_8).length),
+                new OvfDataSize(templateId, 1, templateOvf.getBytes(StandardCharsets.UTF_8).length));
+        List<Pair<Guid, byte[]>> unregisteredOvfs = new ArrayList<>(Collections.singletonList(
+                new Pair<>(unregisteredId, "<ovf>unregistered</ovf>".getBytes(StandardCharsets.UTF_8))));
+        return new OvfStoreContent(vmAndTemplatesGenerationsDao,
+                INFO_FILE,
+                ovfDataSizes,
+                META_DATA_FILE,
+                unregisteredOvfs);
+    }
+
+    @Test
+    public void testWrittenTarMatchesSize() throws Exception {
+        OvfStoreContent content = createContent(1, vmOvf);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        content.writeTo(outputStream);
+
+        assertEquals(content.getSize(), outputStream.size());
+        try (TarInMemoryExport tar = new TarInMemoryExport(new ByteArrayInputStream(outputStream.toByteArray()))) {
+            Map<String, ByteBuffer> entries = tar.unTar();
+            assertEquals(5, entries.size());
+            assertEquals(vmOvf, toString(entries.get(vmId + ".ovf")));
+            assertEquals(templateOvf, toString(entries.get(templateId + ".ovf")));
+            assertEquals("<ovf>unregistered</ovf>", toString(entries.get(unregisteredId + ".ovf")));
+            assertEquals(new String(INFO_FILE, StandardCharsets.UTF_8),
+                    toString(entries.get(OvfInfoFileConstants.InfoFileName)));
+            assertEquals(new String(META_DATA_FILE, StandardCharsets.UTF_8),
+                    toString(entries.get(OvfInfoFileConstants.MetaDataFileName)));
+        }
+    }
+
+    @Test
+    public void testOvfResizedWhileWrittenFails() {
+        OvfStoreContent content = createContent(1, "<ovf>vm</ovf>");
+        assertThrows(IllegalStateException.class, () -> content.writeTo(new ByteArrayOutputStream()));
+    }
+
+    @Test
+    public void testFingerprint() {
+        assertEquals(createContent(1, vmOvf).getFingerprint(), createContent(1, vmOvf).getFingerprint());
+        assertNotEquals(createContent(1, vmOvf).getFingerprint(), createContent(2, vmOvf).getFingerprint());
+    }
+
+    private static String toString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.limit()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,121 @@
+package org.ovirt.engine.core.bll.storage.ovfstore;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.ovirt.engine.core.utils.threadpool.ThreadPoolUtil;
+
+public class OvfUpdateExecutorTest {
+
+    private ExecutorService engineThreadPool;
+    private ExecutorService originalThreadPool;
+    private OvfUpdateExecutor executor;
+
+    @BeforeEach
+    public void setUp() {
+        originalThreadPool = ThreadPoolUtil.getExecutorService();
+        engineThreadPool = Executors.newCachedThreadPool();
+        ThreadPoolUtil.setExecutorService(engineThreadPool);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        ThreadPoolUtil.setExecutorService(originalThreadPool);
+        engineThreadPool.shutdownNow();
+    }
+
+    @Test
+    public void testSequentialByDefault() {
+        executor = new OvfUpdateExecutor(0);
+        Thread caller = Thread.currentThread();
+
+        List<Boolean> results = executor.invokeAll(Arrays.asList(
+                () -> Thread.currentThread() == caller,
+                () -> Thread.currentThread() == caller));
+
+        assertFalse(executor.isParallel());
+        assertEquals(Arrays.asList(true, true), results);
+    }
+
+    @Test
+    public void testResultsAreInTaskOrder() {
+        executor = new OvfUpdateExecutor(3);
+        List<Callable<Integer>> tasks = IntStream.range(0, 10)
+                .mapToObj(i -> (Callable<Integer>) () -> i)
+                .collect(Collectors.toList());
+
+        List<Integer> results = executor.invokeAll(tasks);
+
+        assertTrue(executor.isParallel());
+        assertEquals(IntStream.range(0, 10).boxed().collect(Collectors.toList()), results);
+    }
+
+    @Test
+    public void testSlicesRunConcurrently() {
+        executor = new OvfUpdateExecutor(2);
+        // The first slice finishes only after the second one started
+        CountDownLatch secondStarted = new CountDownLatch(1);
+        Callable<String> first = () -> secondStarted.await(10, TimeUnit.SECONDS) ? "first" : "timeout";
+        Callable<String> second = () -> {
+            secondStarted.countDown();
+            return "second";
+        };
+
+        List<String> results = executor.invokeAll(Arrays.asList(first, second));
+
+        assertEquals(Arrays.asList("first", "second"), results);
+    }
+
+    @Test
+    public void testTasksAreRunByCallerWhenPoolIsBusy() {
+        executor = new OvfUpdateExecutor(4);
+        // The only thread of the pool is busy until the tasks are done
+        engineThreadPool.shutdownNow();
+        engineThreadPool = Executors.newSingleThreadExecutor();
+        ThreadPoolUtil.setExecutorService(engineThreadPool);
+        CountDownLatch tasksDone = new CountDownLatch(1);
+        engineThreadPool.submit(() -> tasksDone.await(10, TimeUnit.SECONDS));
+        Thread caller = Thread.currentThread();
+
+        List<Boolean> results = executor.invokeAll(Collections.nCopies(6, () -> Thread.currentThread() == caller));
+        tasksDone.countDown();
+
+        assertEquals(Collections.nCopies(6, true), results);
+    }
+
+    @Test
+    public void testNoTasks() {
+        executor = new OvfUpdateExecutor(4);
+
+        assertEquals(Collections.emptyList(), executor.invokeAll(Collections.<Callable<String>> emptyList()));
+    }
+
+    @Test
+    public void testFailureIsThrown() {
+        executor = new OvfUpdateExecutor(2);
+        List<Callable<String>> tasks = Arrays.asList(
+                () -> "ok",
+                () -> "ok",
+                () -> {
+                    throw new IllegalStateException();
+                });
+
+        assertThrows(IllegalStateException.class, () -> executor.invokeAll(tasks));
+    }
+}
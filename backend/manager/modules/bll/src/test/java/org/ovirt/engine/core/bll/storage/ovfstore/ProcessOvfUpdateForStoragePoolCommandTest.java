@@ -4,6 +4,8 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doReturn;
@@ -19,6 +21,8 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
@@ -55,7 +59,9 @@ import org.ovirt.engine.core.common.constants.StorageConstants;
 import org.ovirt.engine.core.common.utils.Pair;
 import org.ovirt.engine.core.compat.Guid;
 import org.ovirt.engine.core.compat.KeyValuePairCompat;
+import org.ovirt.engine.core.dao.ClusterDao;
 import org.ovirt.engine.core.dao.DbUserDao;
+import org.ovirt.engine.core.dao.DiskDao;
 import org.ovirt.engine.core.dao.LabelDao;
 import org.ovirt.engine.core.dao.SnapshotDao;
 import org.ovirt.engine.core.dao.StorageDomainDao;
@@ -68,6 +74,7 @@ import org.ovirt.engine.core.dao.VmTemplateDao;
 import org.ovirt.engine.core.dao.scheduling.AffinityGroupDao;
 import org.ovirt.engine.core.utils.MockConfigDescriptor;
 import org.ovirt.engine.core.utils.MockConfigExtension;
+import org.ovirt.engine.core.utils.threadpool.ThreadPoolUtil;
 
 @ExtendWith(MockConfigExtension.class)
 @MockitoSettings(strictness = Strictness.LENIENT)
@@ -115,6 +122,15 @@ public class ProcessOvfUpdateForStoragePoolCommandTest extends BaseCommandTest {
     @Mock
     private OvfHelper ovfHelper;
 
+    @Mock
+    private ClusterDao clusterDao;
+
+    @Mock
+    private DiskDao diskDao;
+
+    @Spy
+    private OvfUpdateExecutor ovfUpdateExecutor = new OvfUpdateExecutor();
+
     @Spy
     @InjectMocks
     private OvfUpdateProcessHelper ovfUpdateProcessHelper;
@@ -123,6 +139,7 @@ public class ProcessOvfUpdateForStoragePoolCommandTest extends BaseCommandTest {
     private Map<Guid, VM> vms;
     private Map<Guid, VmTemplate> templates;
     private Map<Guid, Long> executedUpdatedOvfGenerationIdsInDb;
+    private Map<Guid, String> executedUpdatedOvfConfigurationsInDb;
     private Set<Guid> executedOvfUpdatedDomains;
     private Map<Guid, Pair<List<StorageDomainOvfInfo>, StorageDomain>> poolDomainsOvfInfo;
 
@@ -153,6 +170,7 @@ public class ProcessOvfUpdateForStoragePoolCommandTest extends BaseCommandTest {
 
     private void initMembers() {
         executedUpdatedOvfGenerationIdsInDb = new HashMap<>();
+        executedUpdatedOvfConfigurationsInDb = new HashMap<>();
         poolDomainsOvfInfo = new HashMap<>();
         vms = new HashMap<>();
         templates = new HashMap<>();
@@ -215,11 +233,13 @@ public class ProcessOvfUpdateForStoragePoolCommandTest extends BaseCommandTest {
             assertEquals(values.size(), ids.size(),
                     "the size of the list of ids for update is not the same as the size of the " +
                             "list with the new ovf values");
+            List<String> configurations = (List<String>) invocation.getArguments()[2];
             Guid[] ids_array = ids.toArray(new Guid[ids.size()]);
             Long[] values_array = values.toArray(new Long[values.size()]);
             for (int i = 0; i < ids_array.length; i++) {
                 executedUpdatedOvfGenerationIdsInDb.put(ids_array[i],
                         values_array[i]);
+                executedUpdatedOvfConfigurationsInDb.put(ids_array[i], configurations.get(i));
             }
             return null;
         }).when(vmAndTemplatesGenerationsDao).updateOvfGenerations(any(), any(), any());
@@ -549,6 +569,59 @@ public class ProcessOvfUpdateForStoragePoolCommandTest extends BaseCommandTest {
         verifyOvfUpdatedForSupportedPools(Collections.emptyList(), Collections.emptyMap());
     }
 
+    @Test
+    public void testOvfDataUpdaterRunInParallel() {
+        ExecutorService originalThreadPool = ThreadPoolUtil.getExecutorService();
+        ExecutorService engineThreadPool = Executors.newCachedThreadPool();
+        ThreadPoolUtil.setExecutorService(engineThreadPool);
+        OvfUpdateExecutor parallelExecutor = new OvfUpdateExecutor(4);
+        doReturn(true).when(ovfUpdateExecutor).isParallel();
+        doAnswer(invocation -> parallelExecutor.invokeAll(invocation.getArgument(0)))
+                .when(ovfUpdateExecutor).invokeAll(any());
+        doNothing().when(command).updateVmDisks(any(), any());
+        doAnswer(invocation -> ((Collection<Guid>) invocation.getArgument(0)).stream()
+                .collect(Collectors.toMap(id -> id, id -> 1L))).when(vmStaticDao).getDbGenerations(any());
+        doNothing().when(ovfUpdateProcessHelper).updateBootOrderOnDevices(any(), anyBoolean());
+        Map<Guid, DiskImage> memoryDisks = Collections.singletonMap(Guid.newGuid(), new DiskImage());
+        doReturn(memoryDisks).when(ovfUpdateProcessHelper).loadMemoryDisks(any());
+        // The ovfs are rendered only from the data loaded beforehand
+        doAnswer(invocation -> invocation.getArgument(3) == memoryDisks
+                ? ((VM) invocation.getArgument(0)).getId().toString()
+                : null).when(ovfUpdateProcessHelper).generateVmMetadata(any(), any(), any(), any());
+        doAnswer(invocation -> ((FullEntityOvfData) invocation.getArgument(0)).getVmBase().getId().toString())
+                .when(ovfUpdateProcessHelper).generateVmTemplateMetadata(any(), any());
+
+        int size = 2 * ITEMS_COUNT_PER_UPDATE + 10;
+        List<Guid> vmGuids = generateGuidList(size);
+        List<Guid> templatesGuids = generateGuidList(size);
+        addVms(vmGuids, 2, VMStatus.Down, ImageStatus.OK);
+        addTemplates(templatesGuids, 2, VmTemplateStatus.OK, ImageStatus.OK);
+        List<Guid> lockedVmGuids = generateGuidList(size);
+        addVms(lockedVmGuids, 2, VMStatus.Down, ImageStatus.LOCKED);
+
+        List<Guid> allVmGuids = new ArrayList<>(vmGuids);
+        allVmGuids.addAll(lockedVmGuids);
+        initTestForPool(pool1, allVmGuids, templatesGuids, Collections.emptyList());
+
+        try {
+            executeCommand();
+        } finally {
+            ThreadPoolUtil.setExecutorService(originalThreadPool);
+            engineThreadPool.shutdownNow();
+        }
+
+        verify(command, never()).updateVmDisksFromDb(any());
+        verify(vmStaticDao, never()).getDbGeneration(any());
+        verify(ovfUpdateProcessHelper, times(vmGuids.size())).loadMemoryDisks(any());
+        verify(ovfUpdateProcessHelper, times(vmGuids.size())).updateBootOrderOnDevices(any(), eq(false));
+        verify(ovfUpdateProcessHelper, times(templatesGuids.size())).updateBootOrderOnDevices(any(), eq(true));
+        List<Guid> neededToBeUpdated = new LinkedList<>(vmGuids);
+        neededToBeUpdated.addAll(templatesGuids);
+        verifyCorrectOvfDataUpdaterRun(neededToBeUpdated);
+        executedUpdatedOvfConfigurationsInDb.forEach((id, configuration) ->
+                assertEquals(id.toString(), configuration, "ovf persisted for the wrong vm/template"));
+    }
+
     @Test
     public void testUpdateCalledForUnupdatedDomain() {
         Guid poolId = pool1.getId();
@@ -0,0 +1,61 @@
+package org.ovirt.engine.core.bll.tasks;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.ovirt.engine.core.common.businessentities.CommandEntity;
+import org.ovirt.engine.core.compat.Guid;
+
+@ExtendWith(MockitoExtension.class)
+public class CommandCallbacksPollerTest {
+
+    @Mock
+    private CommandsRepository commandsRepository;
+
+    @InjectMocks
+    private CommandCallbacksPoller poller;
+
+    private Guid addCommand(Guid parentCmdId) {
+        Guid cmdId = Guid.newGuid();
+        CommandEntity commandEntity = new CommandEntity();
+        commandEntity.setId(cmdId);
+        commandEntity.setRootCommandId(parentCmdId);
+        when(commandsRepository.getCommandEntity(cmdId)).thenReturn(commandEntity);
+        return cmdId;
+    }
+
+    @Test
+    public void testCommandsOfAHierarchyAreGroupedTogether() {
+        Guid rootCmdId = addCommand(Guid.Empty);
+        Guid childCmdId = addCommand(rootCmdId);
+        Guid grandchildCmdId = addCommand(childCmdId);
+        Guid otherCmdId = addCommand(null);
+
+        List<List<Guid>> groups = new ArrayList<>(
+                poller.groupByRootCommand(Arrays.asList(grandchildCmdId, otherCmdId, childCmdId, rootCmdId)));
+
+        assertEquals(Arrays.asList(Arrays.asList(grandchildCmdId, childCmdId, rootCmdId),
+                Arrays.asList(otherCmdId)), groups);
+    }
+
+    @Test
+    public void testCommandsOfAnUnknownParentAreGroupedTogether() {
+        Guid removedCmdId = Guid.newGuid();
+        Guid childCmdId = addCommand(removedCmdId);
+        Guid grandchildCmdId = addCommand(childCmdId);
+
+        List<List<Guid>> groups = new ArrayList<>(
+                poller.groupByRootCommand(Arrays.asList(childCmdId, grandchildCmdId)));
+
+        assertEquals(Arrays.asList(Arrays.asList(childCmdId, grandchildCmdId)), groups);
+    }
+}
@@ -0,0 +1,148 @@
+package org.ovirt.engine.core.bll.tasks;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import javax.enterprise.concurrent.ManagedScheduledExecutorService;
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import javax.transaction.Transaction;
+import javax.transaction.TransactionManager;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.ovirt.engine.core.common.businessentities.CommandEntity;
+import org.ovirt.engine.core.common.utils.Pair;
+import org.ovirt.engine.core.compat.CommandStatus;
+import org.ovirt.engine.core.compat.Guid;
+import org.ovirt.engine.core.dao.CommandEntityDao;
+import org.ovirt.engine.core.utils.InjectedMock;
+import org.ovirt.engine.core.utils.InjectorExtension;
+import org.ovirt.engine.core.utils.MockEngineLocalConfigExtension;
+
+@ExtendWith({MockitoExtension.class, InjectorExtension.class, MockEngineLocalConfigExtension.class})
+@MockitoSettings(strictness = Strictness.LENIENT)
+public class CommandsCacheImplTest {
+
+    @Mock
+    private CommandEntityDao commandEntityDao;
+    @Mock
+    private ManagedScheduledExecutorService executor;
+    @Mock
+    private Transaction transaction;
+    @Mock
+    @InjectedMock
+    public TransactionManager transactionManager;
+
+    @InjectMocks
+    private CommandsCacheImpl cache;
+
+    private CommandEntity cmdEntity;
+
+    @SuppressWarnings("unused") // used via reflection by MockEngineLocalConfigExtension
+    public static Stream<Pair<String, String>> mockEngineLocalConfiguration() {
+        return Stream.of(new Pair<>("COMMANDS_CACHE_WRITE_BEHIND_WINDOW_IN_MILLIS", "1000"));
+    }
+
+    @BeforeEach
+    public void setUp() {
+        cache.init();
+        when(commandEntityDao.getAll()).thenReturn(Collections.emptyList());
+
+        cmdEntity = new CommandEntity();
+        cmdEntity.setId(Guid.newGuid());
+        cmdEntity.setCommandStatus(CommandStatus.NOT_STARTED);
+        cache.put(cmdEntity);
+    }
+
+    @Test
+    public void testUpdatesAreCoalesced() {
+        cache.updateCommandStatus(cmdEntity.getId(), CommandStatus.ACTIVE);
+        cache.updateCommandData(cmdEntity.getId(), Collections.emptyMap());
+        cache.put(cmdEntity);
+
+        // Only the creation is written right away
+        verify(commandEntityDao).saveOrUpdate(cmdEntity);
+        verify(executor).schedule(any(Runnable.class), eq(1000L), eq(TimeUnit.MILLISECONDS));
+
+        cache.flush();
+        verify(commandEntityDao).saveOrUpdateAll(Collections.singletonList(cmdEntity));
+        cache.flush();
+        verify(commandEntityDao).saveOrUpdateAll(anyCollection());
+    }
+
+    @Test
+    public void testRecoveryStatusIsWrittenRightAway() {
+        cache.updateCommandStatus(cmdEntity.getId(), CommandStatus.ACTIVE);
+        cache.updateCommandStatus(cmdEntity.getId(), CommandStatus.SUCCEEDED);
+
+        verify(commandEntityDao, times(2)).saveOrUpdate(cmdEntity);
+        // The pending change was written along with the status
+        cache.flush();
+        verify(commandEntityDao, never()).saveOrUpdateAll(anyCollection());
+    }
+
+    @Test
+    public void testFailedBatchIsPendingAgain() {
+        cache.updateCommandStatus(cmdEntity.getId(), CommandStatus.ACTIVE);
+        doThrow(new RuntimeException()).doNothing().when(commandEntityDao).saveOrUpdateAll(anyCollection());
+
+        assertThrows(RuntimeException.class, () -> cache.flush());
+        cache.flush();
+
+        verify(commandEntityDao, times(2)).saveOrUpdateAll(Collections.singletonList(cmdEntity));
+    }
+
+    @Test
+    public void testPendingChangesAreWrittenBeforeCommit() throws Exception {
+        when(transactionManager.getTransaction()).thenReturn(transaction);
+        when(transaction.getStatus()).thenReturn(Status.STATUS_ACTIVE);
+
+        cache.updateCommandStatus(cmdEntity.getId(), CommandStatus.ACTIVE);
+        cache.updateCommandData(cmdEntity.getId(), Collections.emptyMap());
+
+        // The before commit and the after completion handlers, once for both updates
+        ArgumentCaptor<Synchronization> synchronizations = ArgumentCaptor.forClass(Synchronization.class);
+        verify(transaction, times(2)).registerSynchronization(synchronizations.capture());
+        verify(commandEntityDao, never()).saveOrUpdateAll(anyCollection());
+
+        List<Synchronization> handlers = synchronizations.getAllValues();
+        handlers.forEach(Synchronization::beforeCompletion);
+        verify(commandEntityDao).saveOrUpdateAll(Collections.singletonList(cmdEntity));
+
+        // A later transaction registers its own handlers
+        handlers.forEach(handler -> handler.afterCompletion(Status.STATUS_COMMITTED));
+        cache.updateCommandStatus(cmdEntity.getId(), CommandStatus.ACTIVE);
+        verify(transaction, times(4)).registerSynchronization(any());
+    }
+
+    @Test
+    public void testPendingChangesAreWrittenOnShutdown() {
+        cache.updateCommandStatus(cmdEntity.getId(), CommandStatus.ACTIVE);
+        verify(executor).schedule(any(Runnable.class), anyLong(), any());
+
+        cache.destroy();
+
+        verify(commandEntityDao).saveOrUpdateAll(Collections.singletonList(cmdEntity));
+    }
+}
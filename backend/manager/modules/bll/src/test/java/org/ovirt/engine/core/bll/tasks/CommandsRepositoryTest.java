@@ -0,0 +1,83 @@
+package org.ovirt.engine.core.bll.tasks;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.ovirt.engine.core.bll.tasks.interfaces.CommandCallback;
+import org.ovirt.engine.core.bll.tasks.interfaces.CommandContextsCache;
+import org.ovirt.engine.core.compat.Guid;
+
+@ExtendWith(MockitoExtension.class)
+public class CommandsRepositoryTest {
+
+    private static final long POLLING_RATE = 10;
+
+    @Mock
+    private CommandsCache commandsCache;
+
+    @Mock
+    private CommandContextsCache contextsCache;
+
+    @Mock
+    private CommandCallback callback;
+
+    private CommandsRepository commandsRepository;
+
+    @BeforeEach
+    public void setUp() {
+        commandsRepository = new CommandsRepository(commandsCache, contextsCache);
+    }
+
+    private CallbackTiming addCallback(Guid cmdId, long delay) {
+        CallbackTiming callbackTiming = new CallbackTiming(callback, delay);
+        commandsRepository.addToCallbackMap(cmdId, callbackTiming);
+        return callbackTiming;
+    }
+
+    @Test
+    public void testOnlyDueCallbacksArePolled() {
+        Guid fastCmdId = Guid.newGuid();
+        Guid slowCmdId = Guid.newGuid();
+        addCallback(slowCmdId, 3 * POLLING_RATE);
+        addCallback(fastCmdId, POLLING_RATE);
+
+        assertEquals(Collections.singletonList(fastCmdId), commandsRepository.pollDueCallbacks(POLLING_RATE));
+        assertTrue(commandsRepository.pollDueCallbacks(POLLING_RATE).isEmpty());
+        assertEquals(Collections.singletonList(slowCmdId), commandsRepository.pollDueCallbacks(POLLING_RATE));
+        assertTrue(commandsRepository.pollDueCallbacks(POLLING_RATE).isEmpty());
+    }
+
+    @Test
+    public void testRescheduledCallbackIsPolledOnceByItsLatestTime() {
+        Guid cmdId = Guid.newGuid();
+        Guid otherCmdId = Guid.newGuid();
+        CallbackTiming callbackTiming = addCallback(cmdId, 2 * POLLING_RATE);
+        addCallback(otherCmdId, 2 * POLLING_RATE);
+        commandsRepository.scheduleCallback(cmdId, callbackTiming, POLLING_RATE);
+
+        assertEquals(Collections.singletonList(cmdId), commandsRepository.pollDueCallbacks(POLLING_RATE));
+        commandsRepository.scheduleCallback(cmdId, callbackTiming, POLLING_RATE);
+        List<Guid> dueCmdIds = commandsRepository.pollDueCallbacks(POLLING_RATE);
+        assertEquals(2, dueCmdIds.size());
+        assertEquals(new HashSet<>(Arrays.asList(cmdId, otherCmdId)), new HashSet<>(dueCmdIds));
+    }
+
+    @Test
+    public void testRemovedCallbackIsNotPolled() {
+        Guid cmdId = Guid.newGuid();
+        addCallback(cmdId, POLLING_RATE);
+        commandsRepository.getCallbacksTiming().remove(cmdId);
+
+        assertTrue(commandsRepository.pollDueCallbacks(POLLING_RATE).isEmpty());
+    }
+}
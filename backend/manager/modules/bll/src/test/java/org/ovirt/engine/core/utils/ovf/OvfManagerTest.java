@@ -10,9 +10,13 @@ import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.when;
 
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -37,6 +41,7 @@ import org.ovirt.engine.core.common.businessentities.DisplayType;
 import org.ovirt.engine.core.common.businessentities.GraphicsType;
 import org.ovirt.engine.core.common.businessentities.OriginType;
 import org.ovirt.engine.core.common.businessentities.Snapshot;
+import org.ovirt.engine.core.common.businessentities.Snapshot.SnapshotType;
 import org.ovirt.engine.core.common.businessentities.VM;
 import org.ovirt.engine.core.common.businessentities.VmDevice;
 import org.ovirt.engine.core.common.businessentities.VmDeviceGeneralType;
@@ -63,6 +68,8 @@ import org.ovirt.engine.core.utils.MockConfigDescriptor;
 import org.ovirt.engine.core.utils.MockConfigExtension;
 import org.ovirt.engine.core.utils.RandomUtils;
 import org.ovirt.engine.core.utils.RandomUtilsSeedingExtension;
+import org.ovirt.engine.core.utils.ovf.xml.StreamedXmlDocument;
+import org.ovirt.engine.core.utils.ovf.xml.XmlDocument;
 
 @ExtendWith({MockitoExtension.class, MockConfigExtension.class, RandomUtilsSeedingExtension.class})
 @MockitoSettings(strictness = Strictness.LENIENT)
@@ -77,6 +84,8 @@ public class OvfManagerTest {
     private static final int EXISTING_OS_ID = 1;
     private static final int NONEXISTING_OS_ID = 2;
 
+    private static final String VM_OVF_XML_DATA = "src/test/resources/vmOvfData.xml";
+
     private static final int MIN_ENTITY_NAME_LENGTH = 3;
     private static final int MAX_ENTITY_NAME_LENGTH = 30;
 
@@ -279,6 +288,60 @@ public class OvfManagerTest {
                         equals(diskPair.getSecond().getDiskVmElementForVm(vm.getId())));
     }
 
+    @Test
+    public void testStreamedAndDomDocumentsReadTheSameVm() throws Exception {
+        VM vm = createVM();
+        ArrayList<DiskImage> disks = createDisksAndDiskVmElements(vm);
+        vm.setSnapshots(createSnapshots(vm));
+        FullEntityOvfData fullEntityOvfDataForExport = new FullEntityOvfData(vm);
+        fullEntityOvfDataForExport.setDiskImages(disks);
+        String xml = manager.exportVm(vm, fullEntityOvfDataForExport, Version.v4_3);
+
+        assertSameVmRead(xml);
+    }
+
+    @Test
+    public void testStreamedAndDomDocumentsReadTheSameVmOvfData() throws Exception {
+        assertSameVmRead(new String(Files.readAllBytes(Paths.get(VM_OVF_XML_DATA)), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testStreamedAndDomDocumentsReadTheSameTemplate() throws Exception {
+        VmTemplate template = createVmTemplate();
+        String xml = manager.exportTemplate(new FullEntityOvfData(template), Version.v4_3);
+
+        VmTemplate domTemplate = new VmTemplate();
+        FullEntityOvfData domData = new FullEntityOvfData(domTemplate);
+        new OvfTemplateReader(new XmlDocument(xml), domData, osRepository).build();
+        VmTemplate streamedTemplate = new VmTemplate();
+        FullEntityOvfData streamedData = new FullEntityOvfData(streamedTemplate);
+        new OvfTemplateReader(new StreamedXmlDocument(xml), streamedData, osRepository).build();
+
+        assertEquals(domTemplate, streamedTemplate);
+        assertEquals(domTemplate.getManagedDeviceMap(), streamedTemplate.getManagedDeviceMap());
+        assertEquals(domTemplate.getUnmanagedDeviceList(), streamedTemplate.getUnmanagedDeviceList());
+        assertEquals(domData.getDiskImages(), streamedData.getDiskImages());
+        assertEquals(domData.getInterfaces(), streamedData.getInterfaces());
+    }
+
+    private void assertSameVmRead(String xml) throws Exception {
+        VM domVm = new VM();
+        FullEntityOvfData domData = new FullEntityOvfData(domVm);
+        new OvfVmReader(new XmlDocument(xml), domVm, domData, osRepository).build();
+        VM streamedVm = new VM();
+        FullEntityOvfData streamedData = new FullEntityOvfData(streamedVm);
+        new OvfVmReader(new StreamedXmlDocument(xml), streamedVm, streamedData, osRepository).build();
+
+        assertEquals(domVm, streamedVm);
+        assertEquals(domVm.getStaticData(), streamedVm.getStaticData());
+        assertEquals(domVm.getManagedVmDeviceMap(), streamedVm.getManagedVmDeviceMap());
+        assertEquals(domVm.getUnmanagedDeviceList(), streamedVm.getUnmanagedDeviceList());
+        assertEquals(domVm.getSnapshots(), streamedVm.getSnapshots());
+        assertEquals(domData.getDiskImages(), streamedData.getDiskImages());
+        assertEquals(domData.getInterfaces(), streamedData.getInterfaces());
+        assertEquals(domData.getUserToRoles(), streamedData.getUserToRoles());
+    }
+
     private <T extends BusinessEntity<?>> void assertCollection(List<T> colA, List<T> colB) {
         assertCollection(colA, colB, null);
     }
@@ -400,6 +463,23 @@ public class OvfManagerTest {
         return disk;
     }
 
+    private static List<Snapshot> createSnapshots(VM vm) {
+        List<Snapshot> snapshots = new ArrayList<>();
+        RandomUtils rnd = RandomUtils.instance();
+        for (int i = 0; i < rnd.nextInt(2, 10); i++) {
+            Snapshot snapshot = new Snapshot(true);
+            snapshot.setId(Guid.newGuid());
+            snapshot.setVmId(vm.getId());
+            snapshot.setType(snapshots.isEmpty() ? SnapshotType.ACTIVE : SnapshotType.REGULAR);
+            snapshot.setDescription(generateRandomName());
+            snapshot.setCreationDate(new Date(0));
+            snapshot.setVmConfiguration("<ovf:Envelope/>");
+            snapshot.setAppList(generateRandomName());
+            snapshots.add(snapshot);
+        }
+        return snapshots;
+    }
+
     private static String generateRandomName() {
         RandomUtils rnd = RandomUtils.instance();
         return rnd.nextPropertyString(rnd.nextInt(MIN_ENTITY_NAME_LENGTH, MAX_ENTITY_NAME_LENGTH));
@@ -80,6 +80,11 @@ public interface IVdsEventListener {
      */
     void updateSlaPolicies(List<Guid> vmIds, Guid vdsId);
 
+    /**
+     * Notifies that the given VMs started to run on the host, or finished migrating to it
+     */
+    void vmsMovedToHost(List<Guid> vmIds, Guid vdsId);
+
     void refreshHostIfAnyVmHasHostDevices(List<Guid> succeededToRunVms, List<Guid> movedToDownVms, Guid hostId);
 
     void refreshHostCapabilities(Guid hostId);
@@ -0,0 +1,73 @@
+package org.ovirt.engine.core.common.businessentities;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+import org.ovirt.engine.core.compat.Guid;
+
+/**
+ * The size in bytes of the stored OVF of a VM or a template, at the OVF generation it was stored for
+ */
+public class OvfDataSize implements Serializable {
+    private static final long serialVersionUID = -2710376335960410147L;
+
+    private Guid entityId;
+    private long ovfGeneration;
+    private long size;
+
+    public OvfDataSize(Guid entityId, long ovfGeneration, long size) {
+        this.entityId = entityId;
+        this.ovfGeneration = ovfGeneration;
+        this.size = size;
+    }
+
+    public OvfDataSize() {
+    }
+
+    public Guid getEntityId() {
+        return entityId;
+    }
+
+    public void setEntityId(Guid entityId) {
+        this.entityId = entityId;
+    }
+
+    public long getOvfGeneration() {
+        return ovfGeneration;
+    }
+
+    public void setOvfGeneration(long ovfGeneration) {
+        this.ovfGeneration = ovfGeneration;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public void setSize(long size) {
+        this.size = size;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(
+                entityId,
+                ovfGeneration,
+                size
+        );
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof OvfDataSize)) {
+            return false;
+        }
+        OvfDataSize other = (OvfDataSize) obj;
+        return Objects.equals(entityId, other.entityId)
+                && ovfGeneration == other.ovfGeneration
+                && size == other.size;
+    }
+}
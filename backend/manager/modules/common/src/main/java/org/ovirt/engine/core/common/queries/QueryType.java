@@ -113,6 +113,7 @@ public enum QueryType implements Serializable {
 
     // Vm Network
     GetVmInterfacesByVmId(QueryAuthType.User),
+    GetVmInterfacesByVmIds(QueryAuthType.User),
     GetVmGuestAgentInterfacesByVmId(QueryAuthType.User),
     GetVmInterfaceFilterParametersByVmInterfaceId(QueryAuthType.User),
     GetVmInterfaceFilterParameterById(QueryAuthType.User),
@@ -222,6 +223,7 @@ public enum QueryType implements Serializable {
     GetUnregisteredDisk,
     GetDiskByDiskId(QueryAuthType.User),
     GetDiskAndSnapshotsByDiskId(QueryAuthType.User),
+    GetDisksAndSnapshotsByDiskIds(QueryAuthType.User),
     GetDiskSnapshotByImageId,
     GetAncestorImagesByImagesIds(QueryAuthType.User),
     GetImageTransferById(QueryAuthType.User),
@@ -231,6 +233,7 @@ public enum QueryType implements Serializable {
     GetDiskIdBySnapshotId(QueryAuthType.User),
     GetDiskVmElementById(QueryAuthType.User),
     GetDiskVmElementsByVmId(QueryAuthType.User),
+    GetDiskVmElementsByVmIds(QueryAuthType.User),
 
     // Users queries
     GetUserVmsByUserIdAndGroups(QueryAuthType.User),
@@ -13,6 +13,7 @@ public class SearchParameters extends QueryParametersBase implements Serializabl
     private int _maxCount;
     private long searchFrom;
     private boolean caseSensitive;
+    private boolean permissionsFiltered;
 
     public SearchParameters() {
         this (null, SearchType.VM, true);
@@ -61,6 +62,18 @@ public class SearchParameters extends QueryParametersBase implements Serializabl
         caseSensitive = value;
     }
 
+    public boolean isPermissionsFiltered() {
+        return permissionsFiltered;
+    }
+
+    /**
+     * Restricts the results of a filtered search to the entities the user has permissions on, as part of the search
+     * itself. Only searches on VMs, hosts, templates and disks can be filtered this way.
+     */
+    public void setPermissionsFiltered(boolean value) {
+        permissionsFiltered = value;
+    }
+
     @Override
     protected ToStringBuilder appendAttributes(ToStringBuilder tsb) {
         return super.appendAttributes(tsb)
@@ -68,6 +81,7 @@ public class SearchParameters extends QueryParametersBase implements Serializabl
                 .append("searchPattern", getSearchPattern())
                 .append("caseSensitive", getCaseSensitive())
                 .append("from", getSearchFrom())
-                .append("max", getMaxCount());
+                .append("max", getMaxCount())
+                .append("permissionsFiltered", isPermissionsFiltered());
     }
 }
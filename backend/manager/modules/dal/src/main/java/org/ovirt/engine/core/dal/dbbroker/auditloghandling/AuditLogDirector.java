@@ -8,8 +8,6 @@ import javax.inject.Singleton;
 import org.apache.commons.lang.StringUtils;
 import org.ovirt.engine.core.common.AuditLogType;
 import org.ovirt.engine.core.common.businessentities.AuditLog;
-import org.ovirt.engine.core.dao.AuditLogDao;
-import org.ovirt.engine.core.utils.transaction.TransactionSupport;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -19,7 +17,10 @@ public class AuditLogDirector {
     private static final int USERNAME_LENGTH = 255;
 
     @Inject
-    private AuditLogDao auditLogDao;
+    private AuditLogWriter auditLogWriter;
+
+    @Inject
+    private EventFloodRegulator eventFloodRegulator;
 
     public void log(AuditLogable auditLogable, AuditLogType logType) {
         log(auditLogable, logType, "", false);
@@ -49,8 +50,7 @@ public class AuditLogDirector {
             return;
         }
 
-        EventFloodRegulator eventFloodRegulator = new EventFloodRegulator(auditLogable, logType);
-        if (eventFloodRegulator.isLegal(ignoreTimeout)) {
+        if (eventFloodRegulator.isLegal(auditLogable, logType, ignoreTimeout)) {
             AuditLog savedAuditLog = saveToDb(auditLogable, logType, message);
             if (savedAuditLog == null) {
                 log.warn("Unable to create AuditLog");
@@ -71,10 +71,7 @@ public class AuditLogDirector {
         // truncate user name
         auditLog.setUserName(StringUtils.abbreviate(auditLog.getUserName(), USERNAME_LENGTH));
 
-        TransactionSupport.executeInNewTransaction(() -> {
-            auditLogDao.save(auditLog);
-            return null;
-        });
+        auditLogWriter.write(auditLog);
         return auditLog;
     }
 
@@ -107,12 +104,12 @@ public class AuditLogDirector {
             return auditLogable.createAuditLog(logType, loggerString);
         }
 
-        final String messageByType = MessageBundler.getMessageOrNull(logType);
-        if (messageByType == null) {
+        final MessageTemplate templateByType = MessageBundler.getTemplateOrNull(logType);
+        if (templateByType == null) {
             return null;
         } else {
             // Application log message from AuditLogMessages
-            String resolvedMessage = MessageResolver.resolveMessage(messageByType, auditLogable);
+            String resolvedMessage = templateByType.resolve(auditLogable);
             return auditLogable.createAuditLog(logType, resolvedMessage);
         }
     }
@@ -0,0 +1,377 @@
+package org.ovirt.engine.core.dal.dbbroker.auditloghandling;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.transaction.Transaction;
+
+import org.ovirt.engine.core.common.AuditLogSeverity;
+import org.ovirt.engine.core.common.businessentities.AuditLog;
+import org.ovirt.engine.core.dao.AuditLogDao;
+import org.ovirt.engine.core.utils.EngineLocalConfig;
+import org.ovirt.engine.core.utils.transaction.TransactionSupport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Writes the events logged by {@link AuditLogDirector} to the database.
+ * <p>
+ * By default every event is saved in its own transaction, committed before the logging thread continues. When a queue
+ * capacity is configured, events are instead put into a bounded queue and saved in batches by a single writer thread,
+ * created by the managed thread factory of the engine. A batch is saved once it is full or once the flush interval
+ * passed since its first event, so that threads logging many events do not wait for the database. If flushing on
+ * commit is configured, the queued events are also saved once a transaction which logged some of them completes.
+ * <p>
+ * Alerts, which the database may merge with an existing alert of the same host, and external events, which are read
+ * back right after they are logged, are saved by the logging thread. So are the events logged while the queue is full,
+ * so no event is lost; such events are counted and reported. The queued events are written when the engine shuts
+ * down. The counters of the queue are exposed over JMX.
+ * <p>
+ * In both modes, the ids of the queued events are taken from the sequence when they are inserted, and every write
+ * commits before the next one takes ids, so the ids of the events grow in the order in which they are committed and a
+ * client reading the events after the last id it has seen misses none of them.
+ */
+@Singleton
+public class AuditLogWriter implements AuditLogWriterMXBean {
+
+    private static final Logger log = LoggerFactory.getLogger(AuditLogWriter.class);
+
+    private static final int DEFAULT_QUEUE_CAPACITY = 0;
+    private static final int DEFAULT_BATCH_SIZE = 100;
+    private static final long DEFAULT_FLUSH_INTERVAL_IN_MS = 1000;
+    private static final boolean DEFAULT_FLUSH_ON_COMMIT = false;
+    private static final long SHUTDOWN_TIMEOUT_IN_SECONDS = 30;
+
+    // put into the queue to make the writer thread save the events taken so far without waiting for more
+    private static final AuditLog FLUSH = new AuditLog();
+
+    @Inject
+    private AuditLogDao auditLogDao;
+
+    @Resource(lookup = "java:jboss/ee/concurrency/factory/engine")
+    private ThreadFactory threadFactory;
+
+    private BlockingQueue<AuditLog> queue;
+    private int batchSize;
+    private long flushIntervalInMillis;
+    private boolean flushOnCommit;
+    private Thread writerThread;
+    private volatile boolean running;
+
+    // the writes of the queued events and of the events saved by the logging threads are done one after another
+    private final Object writeLock = new Object();
+    private final Set<Transaction> flushingTransactions = ConcurrentHashMap.newKeySet();
+
+    private final LongAdder queuedEvents = new LongAdder();
+    private final LongAdder writtenBatches = new LongAdder();
+    private final LongAdder overflowedEvents = new LongAdder();
+    private final LongAdder failedEvents = new LongAdder();
+    private long reportedOverflowedEvents;
+
+    private MBeanServer platformMBeanServer;
+    private ObjectName objectName;
+
+    public AuditLogWriter() {
+    }
+
+    AuditLogWriter(AuditLogDao auditLogDao,
+            ThreadFactory threadFactory,
+            int queueCapacity,
+            int batchSize,
+            long flushIntervalInMillis,
+            boolean flushOnCommit) {
+        this.auditLogDao = auditLogDao;
+        this.threadFactory = threadFactory;
+        configure(queueCapacity, batchSize, flushIntervalInMillis, flushOnCommit);
+    }
+
+    @PostConstruct
+    public void init() {
+        EngineLocalConfig config = EngineLocalConfig.getInstance();
+        configure(config.getInteger("AUDIT_LOG_ASYNC_QUEUE_CAPACITY", DEFAULT_QUEUE_CAPACITY),
+                config.getInteger("AUDIT_LOG_ASYNC_BATCH_SIZE", DEFAULT_BATCH_SIZE),
+                config.getLong("AUDIT_LOG_ASYNC_FLUSH_INTERVAL_IN_MS", DEFAULT_FLUSH_INTERVAL_IN_MS),
+                config.getBoolean("AUDIT_LOG_ASYNC_FLUSH_ON_COMMIT", DEFAULT_FLUSH_ON_COMMIT));
+        if (isAsync()) {
+            log.info("Audit log events are written in batches of up to {} events, at most {} events are queued",
+                    batchSize,
+                    queue.remainingCapacity());
+        }
+
+        try {
+            objectName = new ObjectName("AuditLogWriter:type=" + getClass().getName());
+            platformMBeanServer = ManagementFactory.getPlatformMBeanServer();
+            platformMBeanServer.registerMBean(this, objectName);
+        } catch (Exception e) {
+            log.warn("Problem during registration of audit log writer into JMX: {}", e.getMessage());
+            log.debug("Exception", e);
+        }
+    }
+
+    private void configure(int queueCapacity, int batchSize, long flushIntervalInMillis, boolean flushOnCommit) {
+        shutdown();
+        this.batchSize = Math.max(1, batchSize);
+        this.flushIntervalInMillis = flushIntervalInMillis;
+        this.flushOnCommit = flushOnCommit;
+        if (queueCapacity > 0) {
+            queue = new ArrayBlockingQueue<>(queueCapacity);
+            running = true;
+            writerThread = threadFactory.newThread(this::writeQueuedEvents);
+            writerThread.setName("audit-log-writer");
+            writerThread.start();
+        }
+    }
+
+    /**
+     * Stops accepting events to the queue and writes the events queued so far
+     */
+    @PreDestroy
+    public void shutdown() {
+        try {
+            if (objectName != null) {
+                platformMBeanServer.unregisterMBean(objectName);
+                objectName = null;
+            }
+        } catch (Exception e) {
+            log.warn("Problem during unregistration of audit log writer from JMX: {}", e.getMessage());
+            log.debug("Exception", e);
+        }
+
+        if (writerThread == null) {
+            return;
+        }
+
+        running = false;
+        // interrupts the writer waiting for events, it writes the events taken from the queue so far
+        writerThread.interrupt();
+        try {
+            writerThread.join(TimeUnit.SECONDS.toMillis(SHUTDOWN_TIMEOUT_IN_SECONDS));
+            if (writerThread.isAlive()) {
+                log.warn("Writing of queued audit log events did not finish in {} seconds",
+                        SHUTDOWN_TIMEOUT_IN_SECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        writerThread = null;
+
+        List<AuditLog> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        remaining.removeIf(auditLog -> auditLog == FLUSH);
+        writeBatch(remaining);
+    }
+
+    /**
+     * Returns whether the events are queued and written in batches
+     */
+    public boolean isAsync() {
+        return writerThread != null;
+    }
+
+    /**
+     * Saves the given event, or queues it to be saved. A saved event has its id assigned, a queued event gets its id
+     * once it is written.
+     */
+    public void write(AuditLog auditLog) {
+        if (queue == null) {
+            runInNewTransaction(() -> auditLogDao.save(auditLog));
+            return;
+        }
+
+        if (!running
+                || auditLog.getSeverity() == AuditLogSeverity.ALERT
+                || !AuditLog.OVIRT_ORIGIN.equals(auditLog.getOrigin())) {
+            writeInOrder(Collections.singletonList(auditLog));
+            return;
+        }
+
+        if (queue.offer(auditLog)) {
+            queuedEvents.increment();
+            // the queue may have been drained by a concurrent shutdown already
+            if (!running && queue.remove(auditLog)) {
+                writeInOrder(Collections.singletonList(auditLog));
+            } else if (flushOnCommit) {
+                flushAfterCompletion();
+            }
+        } else {
+            overflowedEvents.increment();
+            writeInOrder(Collections.singletonList(auditLog));
+        }
+    }
+
+    /**
+     * Makes the current transaction, if there is one, request the writer thread to save the queued events once it
+     * completes. The handler is registered once per transaction.
+     */
+    private void flushAfterCompletion() {
+        Transaction transaction = currentTransaction();
+        if (transaction == null || !flushingTransactions.add(transaction)) {
+            return;
+        }
+
+        if (!registerAfterCompletion(() -> {
+            flushingTransactions.remove(transaction);
+            // a full queue is written without waiting anyway
+            queue.offer(FLUSH);
+        })) {
+            flushingTransactions.remove(transaction);
+        }
+    }
+
+    private void writeQueuedEvents() {
+        List<AuditLog> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                AuditLog first = queue.poll(flushIntervalInMillis, TimeUnit.MILLISECONDS);
+                if (first == null || first == FLUSH) {
+                    continue;
+                }
+                batch.add(first);
+                // the first event is written at latest once the interval passes, even if the batch is not full
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalInMillis);
+                while (batch.size() < batchSize) {
+                    AuditLog next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (next == null || next == FLUSH) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                // the events left in the queue are written by shutdown
+                Thread.currentThread().interrupt();
+                running = false;
+                writeBatch(batch);
+                return;
+            }
+
+            writeBatch(batch);
+            batch.clear();
+            reportOverflowedEvents();
+        }
+    }
+
+    private void writeBatch(List<AuditLog> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        try {
+            writeInOrder(batch);
+            writtenBatches.increment();
+        } catch (RuntimeException e) {
+            log.error("Failed to write a batch of {} audit log events, writing them one by one: {}",
+                    batch.size(),
+                    e.getMessage());
+            log.debug("Exception", e);
+            for (AuditLog auditLog : batch) {
+                try {
+                    writeInOrder(Collections.singletonList(auditLog));
+                } catch (RuntimeException ex) {
+                    failedEvents.increment();
+                    log.error("Failed to write audit log event of type {}: {}",
+                            auditLog.getLogType(),
+                            ex.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Saves the given events in a single transaction. The ids of the events are taken from the sequence within that
+     * transaction, and no other write of this writer starts before it commits, so the ids are committed in order.
+     */
+    private void writeInOrder(List<AuditLog> events) {
+        synchronized (writeLock) {
+            runInNewTransaction(() -> {
+                List<AuditLog> regularEvents = new ArrayList<>(events.size());
+                for (AuditLog auditLog : events) {
+                    if (auditLog.getSeverity() == AuditLogSeverity.ALERT) {
+                        saveWithNewIds(regularEvents);
+                        regularEvents.clear();
+                        auditLogDao.save(auditLog);
+                    } else {
+                        regularEvents.add(auditLog);
+                    }
+                }
+                saveWithNewIds(regularEvents);
+            });
+        }
+    }
+
+    private void saveWithNewIds(List<AuditLog> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+
+        List<Long> ids = auditLogDao.getNextAuditLogIds(events.size());
+        for (int i = 0; i < events.size(); i++) {
+            events.get(i).setAuditLogId(ids.get(i));
+        }
+        auditLogDao.saveAllWithIds(events);
+    }
+
+    private void reportOverflowedEvents() {
+        long overflowed = overflowedEvents.sum();
+        if (overflowed > reportedOverflowedEvents) {
+            log.warn("The audit log queue was full, {} events were written by the logging threads",
+                    overflowed - reportedOverflowedEvents);
+            reportedOverflowedEvents = overflowed;
+        }
+    }
+
+    Transaction currentTransaction() {
+        return TransactionSupport.current();
+    }
+
+    boolean registerAfterCompletion(Runnable handler) {
+        return TransactionSupport.registerAfterCompletionHandler(handler);
+    }
+
+    void runInNewTransaction(Runnable code) {
+        TransactionSupport.executeInNewTransaction(() -> {
+            code.run();
+            return null;
+        });
+    }
+
+    @Override
+    public int getQueueSize() {
+        return queue == null ? 0 : queue.size();
+    }
+
+    @Override
+    public long getQueuedEvents() {
+        return queuedEvents.sum();
+    }
+
+    @Override
+    public long getWrittenBatches() {
+        return writtenBatches.sum();
+    }
+
+    @Override
+    public long getOverflowedEvents() {
+        return overflowedEvents.sum();
+    }
+
+    @Override
+    public long getFailedEvents() {
+        return failedEvents.sum();
+    }
+}
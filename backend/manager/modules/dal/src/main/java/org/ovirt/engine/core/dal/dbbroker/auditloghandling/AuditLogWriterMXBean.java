@@ -0,0 +1,33 @@
+package org.ovirt.engine.core.dal.dbbroker.auditloghandling;
+
+/**
+ * The following interface is used as interface for JMX bean of the audit log writer
+ */
+public interface AuditLogWriterMXBean {
+
+    /**
+     * The following method will return the number of events waiting in the queue
+     */
+    int getQueueSize();
+
+    /**
+     * The following method will return the number of events put into the queue
+     */
+    long getQueuedEvents();
+
+    /**
+     * The following method will return the number of batches written by the writer thread
+     */
+    long getWrittenBatches();
+
+    /**
+     * The following method will return the number of events written by the logging threads, because the queue was
+     * full
+     */
+    long getOverflowedEvents();
+
+    /**
+     * The following method will return the number of queued events which failed to be written
+     */
+    long getFailedEvents();
+}
@@ -1,68 +1,222 @@
 package org.ovirt.engine.core.dal.dbbroker.auditloghandling;
 
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.stream.Collectors;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.inject.Singleton;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 
 import org.ovirt.engine.core.common.AuditLogType;
-import org.ovirt.engine.core.dal.utils.CacheManager;
+import org.ovirt.engine.core.compat.Guid;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Suppresses events logged again within the flood rate of their type. An event is identified by its type and the ids
+ * of the entities it refers to; once logged, the same event is suppressed until the flood rate elapses.
+ * <p>
+ * The logged events are kept in memory of the engine, each with the time its flood rate elapses, and are purged once
+ * a minute. The number of suppressed events of each type is counted and exposed over JMX.
+ */
+@Singleton
+public class EventFloodRegulator implements EventFloodRegulatorMXBean {
+
+    private static final Logger log = LoggerFactory.getLogger(EventFloodRegulator.class);
+
+    /**
+     * Minimal default duration for External Events.
+     */
+    private static final int EXTERNAL_EVENT_FLOOD_RATE_IN_SEC = 30;
+    private static final long PURGE_INTERVAL = TimeUnit.MINUTES.toNanos(1);
+
+    private final Map<EventKey, Long> expirations = new ConcurrentHashMap<>();
+    private final Map<AuditLogType, LongAdder> suppressedEvents = new ConcurrentHashMap<>();
+    private final AtomicLong lastPurge;
+    private final LongSupplier nanoClock;
 
-public class EventFloodRegulator {
+    private MBeanServer platformMBeanServer;
+    private ObjectName objectName;
 
-    private final AuditLogable event;
-    private final AuditLogType logType;
-    private boolean useTimeout;
-    private long endTime;
-    private String timeoutObjectId;
+    public EventFloodRegulator() {
+        this(System::nanoTime);
+    }
 
-    public EventFloodRegulator(AuditLogable event, AuditLogType logType) {
-        this.event = event;
-        this.logType = logType;
-        updateTimeoutLogableObject();
+    EventFloodRegulator(LongSupplier nanoClock) {
+        this.nanoClock = nanoClock;
+        lastPurge = new AtomicLong(nanoClock.getAsLong());
+    }
+
+    @PostConstruct
+    public void init() {
+        try {
+            objectName = new ObjectName("EventFloodRegulator:type=" + getClass().getName());
+            platformMBeanServer = ManagementFactory.getPlatformMBeanServer();
+            platformMBeanServer.registerMBean(this, objectName);
+        } catch (Exception e) {
+            log.warn("Problem during registration of event flood regulator into JMX: {}", e.getMessage());
+            log.debug("Exception", e);
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        try {
+            if (objectName != null) {
+                platformMBeanServer.unregisterMBean(objectName);
+            }
+        } catch (Exception e) {
+            log.warn("Problem during unregistration of event flood regulator from JMX: {}", e.getMessage());
+            log.debug("Exception", e);
+        }
     }
 
     /**
-     * Checks if timeout is used and if it is, checks the timeout. If no timeout set, then it will set this object as
-     * timeout.
+     * Checks if the flood rate of the event type is used and if it is, whether the same event was logged within it.
+     * If the event is legal, it is recorded as logged.
      *
-     * @return should the action be logged again
+     * @return should the event be logged
      */
-    public boolean isLegal(boolean ignoreTimeout) {
-        if (useTimeout && !ignoreTimeout) {
-            String key = "".equals(timeoutObjectId) ? logType.toString() : timeoutObjectId;
-            String oldValue = CacheManager.getTimeoutBaseCache().putIfAbsent(
-                    key,
-                    key,
-                    endTime,
-                    TimeUnit.MILLISECONDS);
-            return oldValue == null;
+    public boolean isLegal(AuditLogable event, AuditLogType logType, boolean ignoreTimeout) {
+        int eventFloodRate = getEventFloodRate(event, logType);
+        if (eventFloodRate <= 0 || ignoreTimeout) {
+            return true;
+        }
+
+        long now = nanoClock.getAsLong();
+        purgeExpired(now);
+
+        EventKey key = new EventKey(event, logType);
+        Long expiration = expirations.get(key);
+        if (expiration != null && expiration - now > 0) {
+            suppressedEvents.computeIfAbsent(logType, type -> new LongAdder()).increment();
+            return false;
+        }
+
+        Long newExpiration = now + TimeUnit.SECONDS.toNanos(eventFloodRate);
+        while (true) {
+            expiration = expirations.putIfAbsent(key, newExpiration);
+            if (expiration == null) {
+                return true;
+            }
+            if (expiration - now > 0) {
+                // the same event was logged concurrently
+                suppressedEvents.computeIfAbsent(logType, type -> new LongAdder()).increment();
+                return false;
+            }
+            if (expirations.replace(key, expiration, newExpiration)) {
+                return true;
+            }
         }
-        return true;
     }
 
     /**
-     * Update the logged object timeout attribute by log type definition
+     * Forgets the event was logged, so it is logged again regardless of the flood rate.
      */
-    private void updateTimeoutLogableObject() {
-        int eventFloodRate = (event.isExternal() && event.getEventFloodInSec() == 0)
-                ? 30 // Minimal default duration for External Events is 30 seconds.
-                : logType.getEventFloodRate();
-        if (eventFloodRate > 0) {
-            setEndTime(TimeUnit.SECONDS.toMillis(eventFloodRate));
-            timeoutObjectId = composeObjectId();
-        } else {
-            timeoutObjectId = "";
-        }
+    public void evict(AuditLogable event, AuditLogType logType) {
+        expirations.remove(new EventKey(event, logType));
     }
 
-    private String composeObjectId() {
-        return EventKeyComposer.composeObjectId(event, logType);
+    @Override
+    public Map<AuditLogType, Long> getSuppressedEvents() {
+        return suppressedEvents.entrySet()
+                .stream()
+                .collect(Collectors.toMap(Map.Entry::getKey, entry -> entry.getValue().sum()));
     }
 
-    public void evict() {
-        CacheManager.getTimeoutBaseCache().computeIfPresent(composeObjectId(), (k, v) -> null);
+    @Override
+    public int getTrackedEvents() {
+        return expirations.size();
+    }
+
+    private int getEventFloodRate(AuditLogable event, AuditLogType logType) {
+        return (event.isExternal() && event.getEventFloodInSec() == 0)
+                ? EXTERNAL_EVENT_FLOOD_RATE_IN_SEC
+                : logType.getEventFloodRate();
     }
 
-    private void setEndTime(long value) {
-        useTimeout = true;
-        endTime = value;
+    private void purgeExpired(long now) {
+        long last = lastPurge.get();
+        if (now - last >= PURGE_INTERVAL && lastPurge.compareAndSet(last, now)) {
+            // removes an entry only if it was not renewed meanwhile
+            expirations.entrySet().removeIf(entry -> entry.getValue() - now <= 0);
+        }
+    }
+
+    /**
+     * Identifies an event by its type and the ids of the entities it refers to. An empty id is the same as no id.
+     */
+    private static final class EventKey {
+        private final AuditLogType logType;
+        private final Guid storageDomainId;
+        private final Guid storagePoolId;
+        private final Guid userId;
+        private final Guid clusterId;
+        private final Guid vdsId;
+        private final Guid vmId;
+        private final Guid vmTemplateId;
+        private final String customId;
+        private final int hash;
+
+        EventKey(AuditLogable event, AuditLogType logType) {
+            this.logType = logType;
+            storageDomainId = emptyToNull(event.getStorageDomainId());
+            storagePoolId = emptyToNull(event.getStoragePoolId());
+            userId = emptyToNull(event.getUserId());
+            clusterId = emptyToNull(event.getClusterId());
+            vdsId = emptyToNull(event.getVdsId());
+            vmId = emptyToNull(event.getVmId());
+            vmTemplateId = emptyToNull(event.getVmTemplateId());
+            customId = "".equals(event.getCustomId()) ? null : event.getCustomId();
+            // computed without the varargs array of Objects.hash, as a key is created for every logged event
+            int result = logType.hashCode();
+            result = 31 * result + Objects.hashCode(storageDomainId);
+            result = 31 * result + Objects.hashCode(storagePoolId);
+            result = 31 * result + Objects.hashCode(userId);
+            result = 31 * result + Objects.hashCode(clusterId);
+            result = 31 * result + Objects.hashCode(vdsId);
+            result = 31 * result + Objects.hashCode(vmId);
+            result = 31 * result + Objects.hashCode(vmTemplateId);
+            hash = 31 * result + Objects.hashCode(customId);
+        }
+
+        private static Guid emptyToNull(Guid guid) {
+            return Guid.Empty.equals(guid) ? null : guid;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof EventKey)) {
+                return false;
+            }
+            EventKey other = (EventKey) obj;
+            return hash == other.hash
+                    && logType == other.logType
+                    && Objects.equals(storageDomainId, other.storageDomainId)
+                    && Objects.equals(storagePoolId, other.storagePoolId)
+                    && Objects.equals(userId, other.userId)
+                    && Objects.equals(clusterId, other.clusterId)
+                    && Objects.equals(vdsId, other.vdsId)
+                    && Objects.equals(vmId, other.vmId)
+                    && Objects.equals(vmTemplateId, other.vmTemplateId)
+                    && Objects.equals(customId, other.customId);
+        }
     }
 }
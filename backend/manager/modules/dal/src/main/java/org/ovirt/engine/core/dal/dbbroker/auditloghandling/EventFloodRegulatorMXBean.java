@@ -0,0 +1,21 @@
+package org.ovirt.engine.core.dal.dbbroker.auditloghandling;
+
+import java.util.Map;
+
+import org.ovirt.engine.core.common.AuditLogType;
+
+/**
+ * The following interface is used as interface for JMX bean of the event flood regulator
+ */
+public interface EventFloodRegulatorMXBean {
+
+    /**
+     * The following method will return the number of events suppressed since the engine started, by their type
+     */
+    Map<AuditLogType, Long> getSuppressedEvents();
+
+    /**
+     * The following method will return the number of events whose flood rate did not elapse yet
+     */
+    int getTrackedEvents();
+}
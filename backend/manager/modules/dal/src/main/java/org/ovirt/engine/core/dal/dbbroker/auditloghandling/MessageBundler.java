@@ -2,6 +2,8 @@ package org.ovirt.engine.core.dal.dbbroker.auditloghandling;
 
 import java.util.MissingResourceException;
 import java.util.ResourceBundle;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.apache.commons.lang.StringUtils;
 import org.ovirt.engine.core.common.AuditLogType;
@@ -13,6 +15,7 @@ public class MessageBundler {
     private static final Logger log = LoggerFactory.getLogger(MessageBundler.class);
     private static final String RESOURCE_BUNDLE_NAME = "bundles/AuditLogMessages";
     private static final ResourceBundle resourceBundle = getResourceBundle();
+    private static final ConcurrentMap<AuditLogType, MessageTemplate> templates = new ConcurrentHashMap<>();
 
     public static ResourceBundle getResourceBundle() {
         try {
@@ -35,4 +38,19 @@ public class MessageBundler {
             return null;
         }
     }
+
+    /**
+     * Returns the message of the given type compiled into a template, or {@code null} if the type has no message. The
+     * message of each type is compiled once.
+     */
+    public static MessageTemplate getTemplateOrNull(AuditLogType logType) {
+        MessageTemplate template = templates.get(logType);
+        if (template != null) {
+            return template;
+        }
+        return templates.computeIfAbsent(logType, type -> {
+            String message = getMessageOrNull(type);
+            return message == null ? null : MessageTemplate.compile(message);
+        });
+    }
 }
@@ -1,25 +1,16 @@
 package org.ovirt.engine.core.dal.dbbroker.auditloghandling;
 
-import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Map;
-import java.util.Set;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-
-import org.ovirt.engine.core.compat.backendcompat.TypeCompat;
 
 /**
  * The class is responsible to resolve a message which might contain variables into a clear text, where the variables
  * are replaced with the expect value, either it was provided by an attribute of {@link AuditLogable} or by
  * {@link AuditLogable#getCustomValues()}
+ *
+ * @see MessageTemplate
  */
 public class MessageResolver {
 
-    /**
-     * A pattern to match for variables within message, i.e. ${<alphanumeric/>...}
-     */
-    private static final Pattern VARIABLE_PATTERN = Pattern.compile("\\$\\{\\w*\\}");
     static final String UNKNOWN_VARIABLE_VALUE = "<UNKNOWN>";
     private static final String UNKNOWN_REASON_VALUE =
             " No reason was returned for this operation failure. See logs for further details.";
@@ -36,70 +27,33 @@ public class MessageResolver {
      * @return a resolved message
      */
     public static String resolveMessage(String message, Map<String, String> values) {
-        Matcher matcher = VARIABLE_PATTERN.matcher(message);
-
-        StringBuffer buffer = new StringBuffer();
-        String value;
-        String token;
-        while (matcher.find()) {
-            token = matcher.group();
-
-            // remove leading ${ and trailing }
-            token = token.substring(2, token.length() - 1).toLowerCase();
-
-            // get value from value map
-            value = values.get(token);
-            if (value == null || value.isEmpty()) {
-                // replace value with UNKNOWN_VARIABLE_VALUE if value not defined
-                switch (token) {
-                case REASON_TOKEN:
-                    value = UNKNOWN_REASON_VALUE;
-                    break;
-                case OPTIONAL_REASON_TOKEN:
-                    value = "";
-                    break;
-                default:
-                    value = UNKNOWN_VARIABLE_VALUE;
-                }
-            }
-            matcher.appendReplacement(buffer, Matcher.quoteReplacement(value)); // put the value into message
-        }
-
-        // append the rest of the message
-        matcher.appendTail(buffer);
-        return buffer.toString();
+        return MessageTemplate.compile(message).resolve(values);
     }
 
     static String resolveMessage(String message, AuditLogable logable) {
         String returnValue = message;
         if (logable != null) {
-            Map<String, String> map = getAvailableValues(message, logable);
-            returnValue = resolveMessage(message, map);
+            returnValue = MessageTemplate.compile(message).resolve(logable);
         }
         return returnValue;
     }
 
-    private static Set<String> resolvePlaceHolders(String message) {
-        Set<String> result = new HashSet<>();
-        Matcher matcher = VARIABLE_PATTERN.matcher(message);
-
-        String token;
-        while (matcher.find()) {
-            token = matcher.group();
-
-            // remove leading ${ and trailing }
-            token = token.substring(2, token.length() - 1);
-            result.add(token.toLowerCase());
+    /**
+     * Returns the given value of the place holder, or the value used when it is not defined
+     */
+    static String getValueOrDefault(String token, String value) {
+        if (value != null && !value.isEmpty()) {
+            return value;
         }
-        return result;
-    }
 
-    private static Map<String, String> getAvailableValues(String message, AuditLogable logable) {
-        Map<String, String> returnValue = new HashMap<>(logable.getCustomValues());
-        Set<String> attributes = resolvePlaceHolders(message);
-        if (attributes != null && attributes.size() > 0) {
-            TypeCompat.getPropertyValues(logable, attributes, returnValue);
+        // replace value with UNKNOWN_VARIABLE_VALUE if value not defined
+        switch (token) {
+        case REASON_TOKEN:
+            return UNKNOWN_REASON_VALUE;
+        case OPTIONAL_REASON_TOKEN:
+            return "";
+        default:
+            return UNKNOWN_VARIABLE_VALUE;
         }
-        return returnValue;
     }
 }
@@ -0,0 +1,141 @@
+package org.ovirt.engine.core.dal.dbbroker.auditloghandling;
+
+import java.beans.IntrospectionException;
+import java.beans.Introspector;
+import java.beans.PropertyDescriptor;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A message compiled into the literal text between its variables and the variables themselves, so it can be resolved
+ * many times without parsing it again.
+ * <p>
+ * A variable is resolved from the custom values of the {@link AuditLogable}, or if there is no such custom value, from
+ * its property of the same name, case insensitive. The properties of each class are looked up once.
+ */
+public final class MessageTemplate {
+
+    private static final Logger log = LoggerFactory.getLogger(MessageTemplate.class);
+
+    /**
+     * A pattern to match for variables within message, i.e. ${<alphanumeric/>...}
+     */
+    private static final Pattern VARIABLE_PATTERN = Pattern.compile("\\$\\{\\w*\\}");
+
+    private static final ClassValue<Map<String, Method>> READ_METHODS = new ClassValue<>() {
+        @Override
+        protected Map<String, Method> computeValue(Class<?> type) {
+            return getReadMethods(type);
+        }
+    };
+
+    /**
+     * The literal text before each variable and after the last one, so there is one literal more than variables
+     */
+    private final String[] literals;
+
+    /**
+     * The names of the variables, in lower case
+     */
+    private final String[] variables;
+
+    private final int literalsLength;
+
+    private MessageTemplate(String[] literals, String[] variables) {
+        this.literals = literals;
+        this.variables = variables;
+        int length = 0;
+        for (String literal : literals) {
+            length += literal.length();
+        }
+        literalsLength = length;
+    }
+
+    public static MessageTemplate compile(String message) {
+        List<String> literals = new ArrayList<>();
+        List<String> variables = new ArrayList<>();
+        Matcher matcher = VARIABLE_PATTERN.matcher(message);
+        int literalStart = 0;
+        while (matcher.find()) {
+            literals.add(message.substring(literalStart, matcher.start()));
+            // remove leading ${ and trailing }
+            variables.add(message.substring(matcher.start() + 2, matcher.end() - 1).toLowerCase());
+            literalStart = matcher.end();
+        }
+        literals.add(message.substring(literalStart));
+        return new MessageTemplate(literals.toArray(new String[0]), variables.toArray(new String[0]));
+    }
+
+    /**
+     * Resolves the message by replacing its variables with the values from the map.
+     *
+     * @param values
+     *            a map of the variable names, in lower case, to their values
+     * @return a resolved message
+     */
+    public String resolve(Map<String, String> values) {
+        StringBuilder builder = new StringBuilder(literalsLength + 16 * variables.length);
+        for (int i = 0; i < variables.length; i++) {
+            builder.append(literals[i])
+                    .append(MessageResolver.getValueOrDefault(variables[i], values.get(variables[i])));
+        }
+        return builder.append(literals[variables.length]).toString();
+    }
+
+    /**
+     * Resolves the message by replacing its variables with the custom values or the properties of the given
+     * {@link AuditLogable}.
+     */
+    public String resolve(AuditLogable logable) {
+        Map<String, String> customValues = logable.getCustomValues();
+        StringBuilder builder = new StringBuilder(literalsLength + 16 * variables.length);
+        for (int i = 0; i < variables.length; i++) {
+            String variable = variables[i];
+            String value = customValues.containsKey(variable)
+                    ? customValues.get(variable)
+                    : getPropertyValue(logable, variable);
+            builder.append(literals[i]).append(MessageResolver.getValueOrDefault(variable, value));
+        }
+        return builder.append(literals[variables.length]).toString();
+    }
+
+    private static String getPropertyValue(Object obj, String propertyName) {
+        Method readMethod = READ_METHODS.get(obj.getClass()).get(propertyName);
+        if (readMethod == null) {
+            return null;
+        }
+
+        try {
+            Object value = readMethod.invoke(obj);
+            return value != null ? value.toString() : null;
+        } catch (Exception e) {
+            log.warn("Unable to get value of property: '{}' for class {}: {}",
+                    propertyName, obj.getClass().getName(), e.getMessage());
+            log.debug("Exception", e);
+            return null;
+        }
+    }
+
+    private static Map<String, Method> getReadMethods(Class<?> type) {
+        try {
+            Map<String, Method> readMethods = new HashMap<>();
+            for (PropertyDescriptor pd : Introspector.getBeanInfo(type).getPropertyDescriptors()) {
+                if (pd.getReadMethod() != null) {
+                    readMethods.putIfAbsent(pd.getName().toLowerCase(), pd.getReadMethod());
+                }
+            }
+            return Collections.unmodifiableMap(readMethods);
+        } catch (IntrospectionException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
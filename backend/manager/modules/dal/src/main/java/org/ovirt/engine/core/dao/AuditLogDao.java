@@ -114,6 +114,25 @@ public interface AuditLogDao extends Dao, SearchDao<AuditLog> {
      */
     void save(AuditLog entry);
 
+    /**
+     * Takes the given number of audit log ids from the sequence, to be assigned to events saved by
+     * {@link #saveAllWithIds(List)} in the same transaction, so that the ids are committed in the order they are taken.
+     *
+     * @param count
+     *            the number of ids to take
+     * @return the ids
+     */
+    List<Long> getNextAuditLogIds(int count);
+
+    /**
+     * Saves the provided audit logs in a single batch. The entries must have their ids assigned by
+     * {@link #getNextAuditLogIds(int)}, and must not be alerts, as alerts may be merged with an existing alert.
+     *
+     * @param entries
+     *            the entries
+     */
+    void saveAllWithIds(List<AuditLog> entries);
+
     /**
      * Updates the provided audit log entry.
      *
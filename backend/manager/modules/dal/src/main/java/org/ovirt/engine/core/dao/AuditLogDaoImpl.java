@@ -18,6 +18,7 @@ import org.ovirt.engine.core.compat.Guid;
 import org.ovirt.engine.core.dal.dbbroker.DbEngineDialect;
 import org.ovirt.engine.core.dal.dbbroker.DbFacadeUtils;
 import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.SingleColumnRowMapper;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.simple.SimpleJdbcCall;
 
@@ -168,6 +169,18 @@ public class AuditLogDaoImpl extends BaseDao implements AuditLogDao {
         event.setAuditLogId((Long) outParameters.get("audit_log_id"));
     }
 
+    @Override
+    public List<Long> getNextAuditLogIds(int count) {
+        return getCallsHandler().executeReadList("GetNextAuditLogIds",
+                SingleColumnRowMapper.newInstance(Long.class),
+                getCustomMapSqlParameterSource().addValue("count", count));
+    }
+
+    @Override
+    public void saveAllWithIds(List<AuditLog> events) {
+        getCallsHandler().executeStoredProcAsBatch("InsertAuditLogWithId", events, this::getSqlMapper);
+    }
+
     @Override
     public void update(AuditLog event) {
         throw new UnsupportedOperationException();
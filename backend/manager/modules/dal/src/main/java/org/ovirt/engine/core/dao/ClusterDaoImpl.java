@@ -6,6 +6,7 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
+import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Singleton;
 
@@ -38,6 +39,9 @@ import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 @Singleton
 public class ClusterDaoImpl extends BaseDao implements ClusterDao {
 
+    @Inject
+    private UserPermissionsIndex userPermissionsIndex;
+
     @Override
     public Cluster get(Guid id) {
         return get(id, null, false);
@@ -134,11 +138,13 @@ public class ClusterDaoImpl extends BaseDao implements ClusterDao {
             cluster.setId(id);
         }
         getCallsHandler().executeModification("InsertCluster", getClusterParamSource(cluster));
+        userPermissionsIndex.invalidateAll();
     }
 
     @Override
     public void update(Cluster cluster) {
         getCallsHandler().executeModification("UpdateCluster", getClusterParamSource(cluster));
+        userPermissionsIndex.invalidateAll();
     }
 
     @Override
@@ -147,6 +153,7 @@ public class ClusterDaoImpl extends BaseDao implements ClusterDao {
                 .addValue("cluster_id", id);
 
         getCallsHandler().executeModification("DeleteCluster", parameterSource);
+        userPermissionsIndex.invalidateAll();
     }
 
     @Override
@@ -13,6 +13,11 @@ public interface CommandEntityDao extends GenericDao<CommandEntity, Guid> {
 
     void saveOrUpdate(CommandEntity commandEntity);
 
+    /**
+     * Inserts or updates the given command entities with a single batch
+     */
+    void saveOrUpdateAll(Collection<CommandEntity> commandEntities);
+
     void updateStatus(Guid command, CommandStatus status);
 
     void updateExecuted(Guid id);
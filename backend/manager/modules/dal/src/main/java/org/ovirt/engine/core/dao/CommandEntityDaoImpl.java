@@ -6,6 +6,7 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 
+import javax.annotation.PostConstruct;
 import javax.inject.Named;
 import javax.inject.Singleton;
 
@@ -22,6 +23,7 @@ import org.ovirt.engine.core.compat.Guid;
 import org.ovirt.engine.core.dal.dbbroker.CustomMapSqlParameterSource;
 import org.ovirt.engine.core.dal.dbbroker.DbFacadeUtils;
 import org.ovirt.engine.core.dal.dbbroker.MapSqlParameterMapper;
+import org.ovirt.engine.core.utils.EngineLocalConfig;
 import org.ovirt.engine.core.utils.ReflectionUtils;
 import org.ovirt.engine.core.utils.SerializationFactory;
 import org.springframework.jdbc.core.RowMapper;
@@ -79,11 +81,22 @@ public class CommandEntityDaoImpl extends DefaultGenericDao<CommandEntity, Guid>
         return status;
     }
 
+    /**
+     * Whether the parameters and the return values of commands are stored in the compact form rather than as indented
+     * JSON. Both forms are always read, so the option can be switched back and forth.
+     */
+    private boolean compactSerialization;
+
     public CommandEntityDaoImpl() {
         super("CommandEntity");
         setProcedureNameForGetAll("GetAllFromCommandEntities");
     }
 
+    @PostConstruct
+    public void init() {
+        compactSerialization = EngineLocalConfig.getInstance().getBoolean("COMMAND_ENTITIES_COMPACT_SERIALIZATION", false);
+    }
+
     @Override
     protected MapSqlParameterSource createFullParametersMapper(CommandEntity entity) {
         return getCustomMapSqlParameterSource().addValue("engine_session_seq_id", entity.getEngineSessionSeqId())
@@ -105,11 +118,15 @@ public class CommandEntityDaoImpl extends DefaultGenericDao<CommandEntity, Guid>
     }
 
     private String serializeReturnValue(ActionReturnValue retVal) {
-        return SerializationFactory.getSerializer().serialize(retVal);
+        return compactSerialization
+                ? SerializationFactory.getSerializer().serializeCompact(retVal)
+                : SerializationFactory.getSerializer().serialize(retVal);
     }
 
     private String serializeParameters(ActionParametersBase params) {
-        return SerializationFactory.getSerializer().serialize(params);
+        return compactSerialization
+                ? SerializationFactory.getSerializer().serializeCompact(params)
+                : SerializationFactory.getSerializer().serialize(params);
     }
 
     @SuppressWarnings("unchecked")
@@ -148,6 +165,16 @@ public class CommandEntityDaoImpl extends DefaultGenericDao<CommandEntity, Guid>
         getCallsHandler().executeModification("InsertOrUpdateCommandEntity", parameterSource);
     }
 
+    @Override
+    public void saveOrUpdateAll(Collection<CommandEntity> commandEntities) {
+        if (commandEntities.isEmpty()) {
+            return;
+        }
+        getCallsHandler().executeStoredProcAsBatch("InsertOrUpdateCommandEntity",
+                commandEntities,
+                this::createFullParametersMapper);
+    }
+
     @Override
     public void updateStatus(Guid id, CommandStatus status) {
         getCallsHandler().executeModification("UpdateCommandEntityStatus", createIdParameterMapper(id).addValue("status", status.toString()));
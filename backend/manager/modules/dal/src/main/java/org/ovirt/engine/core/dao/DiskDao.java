@@ -190,4 +190,20 @@ public interface DiskDao extends ReadDao<Disk, Guid>, SearchDao<Disk> {
      * @return the list of disks
      */
     public List<Disk> getAllFromDisksIncludingSnapshotsByDiskId(Guid diskId, Guid userID, boolean isFiltered);
+
+    /**
+     * Retrieves all disks for the specified disk ids, with optional filtering.
+     *
+     * @param diskIds
+     *            the disk ids
+     * @param userID
+     *            the ID of the user requesting the information
+     * @param isFiltered
+     *            Whether the results should be filtered according to the user's permissions
+     *
+     * @return the list of disks
+     */
+    public List<Disk> getAllFromDisksIncludingSnapshotsByDiskIds(Collection<Guid> diskIds,
+            Guid userID,
+            boolean isFiltered);
 }
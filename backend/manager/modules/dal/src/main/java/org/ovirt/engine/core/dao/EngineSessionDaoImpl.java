@@ -3,6 +3,7 @@ package org.ovirt.engine.core.dao;
 import java.util.LinkedList;
 import java.util.List;
 
+import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Singleton;
 
@@ -19,6 +20,9 @@ import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 @Singleton
 public class EngineSessionDaoImpl extends BaseDao implements EngineSessionDao {
 
+    @Inject
+    private UserPermissionsIndex userPermissionsIndex;
+
     private static final RowMapper<EngineSession> engineSessionRowMapper = (rs, rowNum) -> {
         EngineSession session = new EngineSession();
         session.setId(rs.getLong("id"));
@@ -73,22 +77,32 @@ public class EngineSessionDaoImpl extends BaseDao implements EngineSessionDao {
 
     @Override
     public long save(EngineSession session) {
-        return ((Integer) getCallsHandler()
+        long id = ((Integer) getCallsHandler()
                 .executeModification("InsertEngineSession", getEngineSessionParameterSource(session))
                 .get("id")).longValue();
+        // the groups of the session grant the user permissions
+        userPermissionsIndex.invalidateUser(session.getUserId());
+        return id;
     }
 
     @Override
     public int remove(long id) {
-        return getCallsHandler().executeModificationReturnResult("DeleteEngineSession",
+        EngineSession session = userPermissionsIndex.isEnabled() ? get(id) : null;
+        int removed = getCallsHandler().executeModificationReturnResult("DeleteEngineSession",
                 getCustomMapSqlParameterSource()
                         .addValue("id", id));
+        if (session != null) {
+            userPermissionsIndex.invalidateUser(session.getUserId());
+        }
+        return removed;
     }
 
     @Override
     public int removeAll() {
-        return getCallsHandler().executeModificationReturnResult("DeleteAllFromEngineSessions",
+        int removed = getCallsHandler().executeModificationReturnResult("DeleteAllFromEngineSessions",
                 getCustomMapSqlParameterSource());
+        userPermissionsIndex.invalidateAll();
+        return removed;
     }
 
     @Override
@@ -180,6 +180,18 @@ public interface PermissionDao extends GenericDao<Permission, Guid> {
                                               VdcObjectType vdcObjectType,
                                               boolean ignoreEveryone);
 
+    /**
+     * Retrieves the ids of the objects of the given type the user has permissions on, the same objects the filtered
+     * queries of the user return.
+     *
+     * @param userId
+     *            the user
+     * @param vdcObjectType
+     *            the type of the objects, only VMs are supported
+     * @return the ids of the objects
+     */
+    List<Guid> getEntityIdsVisibleToUser(Guid userId, VdcObjectType vdcObjectType);
+
     /**
      * Removes all permissions for the given entity.
      *
@@ -3,6 +3,7 @@ package org.ovirt.engine.core.dao;
 import java.util.Collection;
 import java.util.List;
 
+import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Singleton;
 
@@ -22,6 +23,9 @@ import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 @Named
 @Singleton
 public class PermissionDaoImpl extends BaseDao implements PermissionDao {
+    @Inject
+    private UserPermissionsIndex userPermissionsIndex;
+
     @Override
     public Permission get(Guid id) {
         MapSqlParameterSource parameterSource = getCustomMapSqlParameterSource()
@@ -243,6 +247,17 @@ public class PermissionDaoImpl extends BaseDao implements PermissionDao {
                 parameterSource);
     }
 
+    @Override
+    public List<Guid> getEntityIdsVisibleToUser(Guid userId, VdcObjectType vdcObjectType) {
+        MapSqlParameterSource parameterSource = getCustomMapSqlParameterSource()
+                .addValue("user_id", userId)
+                .addValue("object_type_id", vdcObjectType.getValue());
+
+        return getCallsHandler().executeReadList("GetEntityIdsVisibleToUser",
+                createGuidMapper(),
+                parameterSource);
+    }
+
     @Override
     public void save(Permission permission) {
         MapSqlParameterSource parameterSource = getCustomMapSqlParameterSource()
@@ -254,6 +269,7 @@ public class PermissionDaoImpl extends BaseDao implements PermissionDao {
                         permission.getObjectType().getValue());
 
         getCallsHandler().executeModification("InsertPermission", parameterSource);
+        userPermissionsIndex.invalidateAll();
     }
 
     @Override
@@ -262,6 +278,7 @@ public class PermissionDaoImpl extends BaseDao implements PermissionDao {
                 .addValue("id", id);
 
         getCallsHandler().executeModification("DeletePermission", parameterSource);
+        userPermissionsIndex.invalidateAll();
     }
 
     @Override
@@ -269,6 +286,7 @@ public class PermissionDaoImpl extends BaseDao implements PermissionDao {
         MapSqlParameterSource parameterSource = getCustomMapSqlParameterSource()
                 .addValue("id", id);
         getCallsHandler().executeModification("DeletePermissionsByEntityId", parameterSource);
+        userPermissionsIndex.invalidateAll();
     }
 
     @Override
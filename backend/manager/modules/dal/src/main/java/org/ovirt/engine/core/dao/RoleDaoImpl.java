@@ -2,6 +2,7 @@ package org.ovirt.engine.core.dao;
 
 import java.util.List;
 
+import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Singleton;
 
@@ -21,6 +22,9 @@ import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 @Singleton
 public class RoleDaoImpl extends BaseDao implements RoleDao {
 
+    @Inject
+    private UserPermissionsIndex userPermissionsIndex;
+
     private static final RowMapper<Role> rolesRowMapper = (rs, rowNum) -> {
         Role entity = new Role();
         entity.setDescription(rs.getString("description"));
@@ -107,6 +111,7 @@ public class RoleDaoImpl extends BaseDao implements RoleDao {
                 .addValue("allows_viewing_children", role.allowsViewingChildren());
 
         getCallsHandler().executeModification("UpdateRole", parameterSource);
+        userPermissionsIndex.invalidateAll();
     }
 
     @Override
@@ -115,5 +120,6 @@ public class RoleDaoImpl extends BaseDao implements RoleDao {
                 .addValue("id", id);
 
         getCallsHandler().executeModification("DeleteRole", parameterSource);
+        userPermissionsIndex.invalidateAll();
     }
 }
@@ -1,6 +1,8 @@
 package org.ovirt.engine.core.dao;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 import org.ovirt.engine.core.common.businessentities.Snapshot;
 import org.ovirt.engine.core.common.businessentities.Snapshot.SnapshotStatus;
@@ -131,6 +133,17 @@ public interface SnapshotDao extends GenericDao<Snapshot, Guid>, StatusAwareDao<
      */
     List<Snapshot> getAllWithConfiguration(Guid vmId);
 
+    /**
+     * Get all the snapshots of the given VMs. The {@link Snapshot#getVmConfiguration()} field will contain the
+     * configuration (if it is available).
+     *
+     * @param vmIds
+     *            The VM ids.
+     * @return A map from the id of each VM which has snapshots to its snapshots, ordered by creation date (earliest to
+     *         latest).
+     */
+    Map<Guid, List<Snapshot>> getAllWithConfigurationForVms(Collection<Guid> vmIds);
+
     /**
      * Get all the snapshots of the given VM. The {@link Snapshot#getVmConfiguration()} field will always be null, and
      * instead the {@link Snapshot#isVmConfigurationAvailable()} field will specify if configuration is available or
@@ -3,9 +3,13 @@ package org.ovirt.engine.core.dao;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Date;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 import javax.inject.Named;
 import javax.inject.Singleton;
@@ -114,6 +118,18 @@ public class SnapshotDaoImpl extends DefaultGenericDao<Snapshot, Guid> implement
         return getAll(vmId, null, false, true);
     }
 
+    @Override
+    public Map<Guid, List<Snapshot>> getAllWithConfigurationForVms(Collection<Guid> vmIds) {
+        MapSqlParameterSource parameterSource = getCustomMapSqlParameterSource()
+                .addValue("vm_ids", createArrayOfUUIDs(vmIds));
+
+        return getCallsHandler().executeReadList("GetAllFromSnapshotsByVmIdsWithConfiguration",
+                NO_CONFIG_ROW_MAPPER,
+                parameterSource)
+                .stream()
+                .collect(Collectors.groupingBy(Snapshot::getVmId, LinkedHashMap::new, Collectors.toList()));
+    }
+
     @Override
     public List<Snapshot> getAll(Guid vmId) {
         return getAll(vmId, null, false);
@@ -0,0 +1,157 @@
+package org.ovirt.engine.core.dao;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import javax.annotation.PostConstruct;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.ovirt.engine.core.common.VdcObjectType;
+import org.ovirt.engine.core.common.utils.Pair;
+import org.ovirt.engine.core.compat.Guid;
+import org.ovirt.engine.core.utils.EngineLocalConfig;
+import org.ovirt.engine.core.utils.transaction.TransactionSupport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps, per user and object type, the ids of the objects the user has permissions on, as computed by the
+ * {@code user_*_permissions_view} views, so that filtered queries do not flatten the groups and the inherited
+ * permissions of the user on every call.
+ * <p>
+ * The ids of all the users are invalidated whenever permissions, roles or the tree of the objects change, and the ids
+ * of a single user whenever the sessions of the user, which hold the groups of the user, change. Changes made within a
+ * transaction are invalidated again once the transaction completes, so ids loaded before the changes were committed
+ * are not kept. As changes done outside the engine are not noticed, the ids are also dropped once they are older than
+ * the configured maximum age. The index is disabled if the maximum age is not positive.
+ */
+@Named
+@Singleton
+public class UserPermissionsIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(UserPermissionsIndex.class);
+
+    private static final long DEFAULT_MAX_AGE_IN_SECONDS = 0;
+
+    private final ConcurrentMap<Pair<Guid, VdcObjectType>, Entry> entries = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Guid, Long> userGenerations = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong();
+    private long maxAgeInNanos;
+
+    public UserPermissionsIndex() {
+    }
+
+    UserPermissionsIndex(long maxAgeInSeconds) {
+        setMaxAge(maxAgeInSeconds);
+    }
+
+    @PostConstruct
+    public void init() {
+        setMaxAge(EngineLocalConfig.getInstance().getLong("USER_PERMISSIONS_INDEX_MAX_AGE_IN_SECONDS",
+                DEFAULT_MAX_AGE_IN_SECONDS));
+        if (isEnabled()) {
+            log.info("The objects users have permissions on are indexed for up to {} seconds",
+                    TimeUnit.NANOSECONDS.toSeconds(maxAgeInNanos));
+        }
+    }
+
+    void setMaxAge(long maxAgeInSeconds) {
+        maxAgeInNanos = TimeUnit.SECONDS.toNanos(Math.max(0, maxAgeInSeconds));
+    }
+
+    public boolean isEnabled() {
+        return maxAgeInNanos > 0;
+    }
+
+    /**
+     * Returns the ids of the objects of the given type the given user has permissions on
+     *
+     * @param loader
+     *            loads the ids from the database, if they are not indexed or no longer valid
+     */
+    public Set<Guid> getEntityIds(Guid userId, VdcObjectType objectType, Supplier<Collection<Guid>> loader) {
+        Pair<Guid, VdcObjectType> key = new Pair<>(userId, objectType);
+        long now = System.nanoTime();
+        Entry entry = entries.get(key);
+        if (entry != null && isValid(entry, userId, now)) {
+            return entry.entityIds;
+        }
+
+        // the generations are taken before loading, so changes done while loading invalidate the loaded ids
+        long currentGeneration = generation.get();
+        long currentUserGeneration = getUserGeneration(userId);
+        Set<Guid> entityIds = Collections.unmodifiableSet(new HashSet<>(loader.get()));
+        entries.put(key, new Entry(currentGeneration, currentUserGeneration, now, entityIds));
+        log.debug("Indexed {} objects of type {} for user '{}'", entityIds.size(), objectType, userId);
+        return entityIds;
+    }
+
+    private boolean isValid(Entry entry, Guid userId, long now) {
+        return entry.generation == generation.get()
+                && entry.userGeneration == getUserGeneration(userId)
+                && now - entry.loadTime < maxAgeInNanos;
+    }
+
+    private long getUserGeneration(Guid userId) {
+        return userGenerations.getOrDefault(userId, 0L);
+    }
+
+    /**
+     * Invalidates the indexed ids of all the users, to be called once permissions, roles or the objects they are
+     * inherited by change
+     */
+    public void invalidateAll() {
+        if (!isEnabled()) {
+            return;
+        }
+        bumpGeneration();
+        registerAfterCompletion(this::bumpGeneration);
+    }
+
+    private void bumpGeneration() {
+        generation.incrementAndGet();
+        entries.clear();
+    }
+
+    /**
+     * Invalidates the indexed ids of the given user, to be called once the sessions of the user change
+     */
+    public void invalidateUser(Guid userId) {
+        if (!isEnabled() || userId == null) {
+            return;
+        }
+        bumpUserGeneration(userId);
+        registerAfterCompletion(() -> bumpUserGeneration(userId));
+    }
+
+    private void bumpUserGeneration(Guid userId) {
+        userGenerations.merge(userId, 1L, Long::sum);
+        entries.keySet().removeIf(key -> userId.equals(key.getFirst()));
+    }
+
+    boolean registerAfterCompletion(Runnable handler) {
+        return TransactionSupport.registerAfterCompletionHandler(handler);
+    }
+
+    private static class Entry {
+        private final long generation;
+        private final long userGeneration;
+        private final long loadTime;
+        private final Set<Guid> entityIds;
+
+        private Entry(long generation, long userGeneration, long loadTime, Set<Guid> entityIds) {
+            this.generation = generation;
+            this.userGeneration = userGeneration;
+            this.loadTime = loadTime;
+            this.entityIds = entityIds;
+        }
+    }
+}
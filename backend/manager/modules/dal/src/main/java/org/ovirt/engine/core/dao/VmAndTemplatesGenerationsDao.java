@@ -2,6 +2,7 @@ package org.ovirt.engine.core.dao;
 
 import java.util.List;
 
+import org.ovirt.engine.core.common.businessentities.OvfDataSize;
 import org.ovirt.engine.core.common.utils.Pair;
 import org.ovirt.engine.core.compat.Guid;
 
@@ -38,6 +39,12 @@ public interface VmAndTemplatesGenerationsDao extends Dao {
      */
     public List<Pair<Guid, String>> loadOvfDataForIds(List<Guid> ids);
 
+    /**
+     * Get the ovf generation and the size in bytes of the ovf data of the given ids, without loading the ovf data.
+     * Ids with no ovf data are not returned.
+     */
+    public List<OvfDataSize> loadOvfDataSizesForIds(List<Guid> ids);
+
     /**
      * Get ids for ovf deletion from storage
      */
@@ -6,6 +6,7 @@ import javax.inject.Named;
 import javax.inject.Singleton;
 
 import org.apache.commons.lang.StringUtils;
+import org.ovirt.engine.core.common.businessentities.OvfDataSize;
 import org.ovirt.engine.core.common.utils.Pair;
 import org.ovirt.engine.core.compat.Guid;
 import org.springframework.jdbc.core.RowMapper;
@@ -67,4 +68,16 @@ public class VmAndTemplatesGenerationsImpl extends BaseDao implements VmAndTempl
                 ovfDataRowMapper,
                 getCustomMapSqlParameterSource().addValue("ids", StringUtils.join(ids, ',')));
     }
+
+    private static final RowMapper<OvfDataSize> ovfDataSizeRowMapper =
+            (resultSet, i) -> new OvfDataSize(getGuid(resultSet, "vm_guid"),
+                    resultSet.getLong("ovf_generation"),
+                    resultSet.getLong("ovf_data_size"));
+
+    @Override
+    public List<OvfDataSize> loadOvfDataSizesForIds(List<Guid> ids) {
+        return getCallsHandler().executeReadList("LoadOvfDataSizesForIds",
+                ovfDataSizeRowMapper,
+                getCustomMapSqlParameterSource().addValue("ids", StringUtils.join(ids, ',')));
+    }
 }
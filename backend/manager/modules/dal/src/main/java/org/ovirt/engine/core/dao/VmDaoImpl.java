@@ -1,14 +1,19 @@
 package org.ovirt.engine.core.dao;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Comparator;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
+import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Singleton;
 
+import org.ovirt.engine.core.common.VdcObjectType;
 import org.ovirt.engine.core.common.businessentities.ArchitectureType;
 import org.ovirt.engine.core.common.businessentities.BiosType;
 import org.ovirt.engine.core.common.businessentities.CpuPinningPolicy;
@@ -31,6 +36,12 @@ import org.springframework.jdbc.core.SingleColumnRowMapper;
 @InvocationLogger
 public class VmDaoImpl extends BaseDao implements VmDao {
 
+    @Inject
+    private UserPermissionsIndex userPermissionsIndex;
+
+    @Inject
+    private PermissionDao permissionDao;
+
     @Override
     public VM get(Guid id) {
         return get(id, null, false);
@@ -38,6 +49,9 @@ public class VmDaoImpl extends BaseDao implements VmDao {
 
     @Override
     public VM get(Guid id, Guid userID, boolean isFiltered) {
+        if (isFiltered && userPermissionsIndex.isEnabled()) {
+            return getVisibleVmIds(userID).contains(id) ? get(id) : null;
+        }
         return getCallsHandler().executeRead("GetVmByVmGuid", vmRowMapper, getCustomMapSqlParameterSource()
                 .addValue("vm_guid", id).addValue("user_id", userID).addValue("is_filtered", isFiltered));
     }
@@ -119,6 +133,19 @@ public class VmDaoImpl extends BaseDao implements VmDao {
 
     @Override
     public List<VM> getAllSortedAndFiltered(Guid userID, int offset, int limit) {
+        if (userPermissionsIndex.isEnabled()) {
+            Set<Guid> vmIds = getVisibleVmIds(userID);
+            if (vmIds.isEmpty()) {
+                return new ArrayList<>();
+            }
+            return getCallsHandler().executeReadList("GetVmsByIdsFilteredAndSorted",
+                    vmRowMapper,
+                    getCustomMapSqlParameterSource()
+                            .addValue("vms_ids", createArrayOfUUIDs(vmIds))
+                            .addValue("user_id", userID)
+                            .addValue("offset", offset)
+                            .addValue("limit", limit));
+        }
         return getCallsHandler().executeReadList("GetAllFromVmsFilteredAndSorted",
                 vmRowMapper,
                 getCustomMapSqlParameterSource()
@@ -227,11 +254,27 @@ public class VmDaoImpl extends BaseDao implements VmDao {
 
     @Override
     public List<VM> getAll(Guid userID, boolean isFiltered) {
+        if (isFiltered && userPermissionsIndex.isEnabled()) {
+            Set<Guid> vmIds = getVisibleVmIds(userID);
+            if (vmIds.isEmpty()) {
+                return new ArrayList<>();
+            }
+            List<VM> vms = getVmsByIds(vmIds);
+            // ordered as GetAllFromVms does, the textual form of a uuid sorts as the uuid does in the database
+            vms.sort(Comparator.comparing(vm -> vm.getId().toString()));
+            return vms;
+        }
         return getCallsHandler().executeReadList("GetAllFromVms",
                 vmRowMapper,
                 getCustomMapSqlParameterSource().addValue("user_id", userID).addValue("is_filtered", isFiltered));
     }
 
+    private Set<Guid> getVisibleVmIds(Guid userID) {
+        return userPermissionsIndex.getEntityIds(userID,
+                VdcObjectType.VM,
+                () -> permissionDao.getEntityIdsVisibleToUser(userID, VdcObjectType.VM));
+    }
+
     @Override
     public void saveIsInitialized(Guid vmid, boolean isInitialized) {
         getCallsHandler().executeModification("UpdateIsInitialized",
@@ -2,13 +2,18 @@ package org.ovirt.engine.core.dao;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.stream.Collectors;
 
+import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Singleton;
 
 import org.ovirt.engine.core.common.businessentities.VmStatic;
+import org.ovirt.engine.core.common.utils.Pair;
 import org.ovirt.engine.core.compat.Guid;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.core.SingleColumnRowMapper;
@@ -20,6 +25,9 @@ public class VmStaticDaoImpl extends VmBaseDao<VmStatic> implements VmStaticDao
     public static final Integer USE_LATEST_VERSION_NUMBER_INDICATOR = null;
     public static final Integer DONT_USE_LATEST_VERSION_NUMBER_INDICATOR = 1;
 
+    @Inject
+    private UserPermissionsIndex userPermissionsIndex;
+
     public VmStaticDaoImpl() {
         super("VmStatic");
         setProcedureNameForGet("GetVmStaticByVmGuid");
@@ -52,6 +60,22 @@ public class VmStaticDaoImpl extends VmBaseDao<VmStatic> implements VmStaticDao
         return VMStaticRowMapper.instance;
     }
 
+    @Override
+    public void save(VmStatic vm) {
+        super.save(vm);
+        userPermissionsIndex.invalidateAll();
+    }
+
+    @Override
+    public void update(VmStatic vm) {
+        VmStatic previous = userPermissionsIndex.isEnabled() ? get(vm.getId()) : null;
+        super.update(vm);
+        // the VM inherits the permissions on its cluster, the other fields do not grant permissions
+        if (previous == null || !Objects.equals(previous.getClusterId(), vm.getClusterId())) {
+            userPermissionsIndex.invalidateAll();
+        }
+    }
+
     @Override
     public void remove(Guid id) {
         remove(id, true);
@@ -61,6 +85,7 @@ public class VmStaticDaoImpl extends VmBaseDao<VmStatic> implements VmStaticDao
         getCallsHandler().executeModification("DeleteVmStatic",
                 createIdParameterMapper(id)
                         .addValue("remove_permissions", removePermissions));
+        userPermissionsIndex.invalidateAll();
     }
 
 
@@ -134,6 +159,14 @@ public class VmStaticDaoImpl extends VmBaseDao<VmStatic> implements VmStaticDao
                 getCustomMapSqlParameterSource().addValue("vm_guid", id));
     }
 
+    @Override
+    public Map<Guid, Long> getDbGenerations(Collection<Guid> ids) {
+        List<Pair<Guid, Long>> dbGenerations = getCallsHandler().executeReadList("GetDbGenerations",
+                (rs, rowNum) -> new Pair<>(getGuidDefaultEmpty(rs, "vm_guid"), rs.getLong("db_generation")),
+                getCustomMapSqlParameterSource().addValue("vm_guids", createArrayOfUUIDs(ids)));
+        return dbGenerations.stream().collect(Collectors.toMap(Pair::getFirst, Pair::getSecond));
+    }
+
     public List<Guid> getOrderedVmGuidsForRunMultipleActions(List<Guid> guids) {
         return getCallsHandler().executeReadList("GetOrderedVmGuidsForRunMultipleActions", createGuidMapper()
                 , getCustomMapSqlParameterSource().addValue("vm_guids",
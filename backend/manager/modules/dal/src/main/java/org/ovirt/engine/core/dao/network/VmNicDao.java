@@ -1,5 +1,6 @@
 package org.ovirt.engine.core.dao.network;
 
+import java.util.Collection;
 import java.util.List;
 
 import org.ovirt.engine.core.common.businessentities.network.VmNic;
@@ -95,4 +96,13 @@ public interface VmNicDao extends GenericDao<VmNic, Guid>, MassOperationsDao<VmN
      * @return the list of plugged VmNetworkInterfaces
      */
     List<VmNic> getPluggedForMac(String macAddress);
+
+    /**
+     * Retrieves those of the given MAC addresses, which are used by plugged VmNetworkInterfaces
+     *
+     * @param macAddresses
+     *            the MAC addresses
+     * @return the list of the MAC addresses in use
+     */
+    List<String> getPluggedMacsIn(Collection<String> macAddresses);
 }
@@ -2,6 +2,7 @@ package org.ovirt.engine.core.dao.network;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.Collection;
 import java.util.List;
 
 import javax.inject.Named;
@@ -90,6 +91,14 @@ public class VmNicDaoImpl extends MassOperationsGenericDao<VmNic, Guid> implemen
                 VnicRowMapper.INSTANCE, getCustomMapSqlParameterSource().addValue("mac_address", macAddress));
     }
 
+    @Override
+    public List<String> getPluggedMacsIn(Collection<String> macAddresses) {
+        return getCallsHandler().executeReadList("GetPluggedMacsByMacAddresses",
+                SingleColumnRowMapper.newInstance(String.class),
+                getCustomMapSqlParameterSource()
+                        .addValue("mac_addresses", createArrayOf("varchar", macAddresses.toArray())));
+    }
+
     @Override
     protected MapSqlParameterSource createFullParametersMapper(VmNic entity) {
         return createIdParameterMapper(entity.getId()).addValue("mac_addr", entity.getMacAddress())
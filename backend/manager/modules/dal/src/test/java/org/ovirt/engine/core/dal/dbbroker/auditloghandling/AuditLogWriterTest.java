@@ -0,0 +1,282 @@
+package org.ovirt.engine.core.dal.dbbroker.auditloghandling;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import javax.transaction.Transaction;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.ovirt.engine.core.common.AuditLogSeverity;
+import org.ovirt.engine.core.common.AuditLogType;
+import org.ovirt.engine.core.common.businessentities.AuditLog;
+import org.ovirt.engine.core.dao.AuditLogDao;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+public class AuditLogWriterTest {
+
+    private static final long LONG_FLUSH_INTERVAL = TimeUnit.MINUTES.toMillis(1);
+
+    @Mock
+    private AuditLogDao auditLogDao;
+
+    @Mock
+    private Transaction transaction;
+
+    private final AtomicLong nextId = new AtomicLong(1);
+    private final List<AuditLog> writtenEvents = Collections.synchronizedList(new ArrayList<>());
+    private final List<Runnable> afterCompletionHandlers = new ArrayList<>();
+    private AuditLogWriter writer;
+
+    @BeforeEach
+    public void setUp() {
+        when(auditLogDao.getNextAuditLogIds(anyInt())).thenAnswer(invocation -> LongStream
+                .range(0, invocation.<Integer>getArgument(0))
+                .mapToObj(i -> nextId.getAndIncrement())
+                .collect(Collectors.toList()));
+        doAnswer(invocation -> writtenEvents.addAll(invocation.getArgument(0)))
+                .when(auditLogDao).saveAllWithIds(anyList());
+        doAnswer(invocation -> {
+            AuditLog auditLog = invocation.getArgument(0);
+            auditLog.setAuditLogId(nextId.getAndIncrement());
+            return writtenEvents.add(auditLog);
+        }).when(auditLogDao).save(any());
+    }
+
+    @AfterEach
+    public void tearDown() {
+        writer.shutdown();
+    }
+
+    @Test
+    public void eventsAreSavedRightAwayByDefault() {
+        writer = createWriter(0, 10, LONG_FLUSH_INTERVAL, false);
+        AuditLog event = createEvent(AuditLogSeverity.NORMAL);
+
+        writer.write(event);
+
+        assertThat(writer.isAsync()).isFalse();
+        verify(auditLogDao).save(event);
+        verify(auditLogDao, never()).getNextAuditLogIds(anyInt());
+    }
+
+    @Test
+    public void queuedEventsAreWrittenInBatchesAndGetIdsWhenWritten() {
+        writer = createWriter(100, 5, LONG_FLUSH_INTERVAL, false);
+        List<AuditLog> events = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            AuditLog event = createEvent(AuditLogSeverity.NORMAL);
+            writer.write(event);
+            events.add(event);
+        }
+
+        verify(auditLogDao, timeout(5000).times(2)).saveAllWithIds(anyList());
+        writer.shutdown();
+        assertThat(writtenEvents).containsExactlyElementsOf(events);
+        assertThat(events).extracting(AuditLog::getAuditLogId).containsExactly(1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L, 9L, 10L);
+        assertThat(writer.getWrittenBatches()).isEqualTo(2);
+        verify(auditLogDao, never()).save(events.get(0));
+    }
+
+    @Test
+    public void queuedEventsAreWrittenOnceFlushIntervalPasses() {
+        writer = createWriter(100, 5, 10, false);
+        AuditLog event = createEvent(AuditLogSeverity.WARNING);
+
+        writer.write(event);
+
+        verify(auditLogDao, timeout(5000)).saveAllWithIds(anyList());
+        writer.shutdown();
+        assertThat(writtenEvents).containsExactly(event);
+    }
+
+    @Test
+    public void alertsAreSavedRightAway() {
+        writer = createWriter(100, 5, LONG_FLUSH_INTERVAL, false);
+        AuditLog alert = createEvent(AuditLogSeverity.ALERT);
+
+        writer.write(alert);
+
+        verify(auditLogDao).save(alert);
+        assertThat(writer.getQueuedEvents()).isZero();
+    }
+
+    @Test
+    public void externalEventsAreSavedRightAway() {
+        writer = createWriter(100, 5, LONG_FLUSH_INTERVAL, false);
+        AuditLog event = createEvent(AuditLogSeverity.NORMAL);
+        event.setOrigin("plugin");
+
+        writer.write(event);
+
+        assertThat(writtenEvents).containsExactly(event);
+        assertThat(event.getAuditLogId()).isEqualTo(1L);
+        assertThat(writer.getQueuedEvents()).isZero();
+    }
+
+    @Test
+    public void idsGrowInCommitOrder() {
+        writer = createWriter(100, 3, LONG_FLUSH_INTERVAL, false);
+        AuditLog first = createEvent(AuditLogSeverity.NORMAL);
+        AuditLog alert = createEvent(AuditLogSeverity.ALERT);
+        AuditLog second = createEvent(AuditLogSeverity.NORMAL);
+
+        writer.write(first);
+        writer.write(alert);
+        writer.write(second);
+        writer.shutdown();
+
+        assertThat(writtenEvents).containsExactly(alert, first, second);
+        assertThat(writtenEvents).extracting(AuditLog::getAuditLogId).containsExactly(1L, 2L, 3L);
+    }
+
+    @Test
+    public void queuedEventsAreWrittenOnceTransactionCompletes() {
+        writer = createWriter(100, 5, LONG_FLUSH_INTERVAL, true);
+        AuditLog first = createEvent(AuditLogSeverity.NORMAL);
+        AuditLog second = createEvent(AuditLogSeverity.NORMAL);
+
+        writer.write(first);
+        writer.write(second);
+
+        // the handler is registered once per transaction
+        assertThat(afterCompletionHandlers).hasSize(1);
+        verify(auditLogDao, after(100).never()).saveAllWithIds(anyList());
+
+        afterCompletionHandlers.get(0).run();
+
+        verify(auditLogDao, timeout(5000)).saveAllWithIds(anyList());
+        assertThat(writtenEvents).containsExactly(first, second);
+    }
+
+    @Test
+    public void eventsAreSavedByLoggingThreadWhenQueueIsFull() throws InterruptedException {
+        CountDownLatch writerBlocked = new CountDownLatch(1);
+        CountDownLatch releaseWriter = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            if (Thread.currentThread().getName().equals("audit-log-writer") && writerBlocked.getCount() > 0) {
+                writerBlocked.countDown();
+                releaseWriter.await();
+            }
+            return writtenEvents.addAll(invocation.getArgument(0));
+        }).when(auditLogDao).saveAllWithIds(anyList());
+        writer = createWriter(1, 1, LONG_FLUSH_INTERVAL, false);
+
+        AuditLog taken = createEvent(AuditLogSeverity.NORMAL);
+        writer.write(taken);
+        assertThat(writerBlocked.await(5, TimeUnit.SECONDS)).isTrue();
+        AuditLog queued = createEvent(AuditLogSeverity.NORMAL);
+        writer.write(queued);
+        AuditLog overflowed = createEvent(AuditLogSeverity.NORMAL);
+        // The logging thread waits for the batch being written, so that the ids are committed in order
+        Thread loggingThread = new Thread(() -> writer.write(overflowed));
+        loggingThread.start();
+
+        verify(auditLogDao, after(100).times(1)).saveAllWithIds(anyList());
+        assertThat(writer.getOverflowedEvents()).isEqualTo(1);
+        assertThat(writer.getQueueSize()).isEqualTo(1);
+
+        releaseWriter.countDown();
+        loggingThread.join(5000);
+        verify(auditLogDao, timeout(5000).times(3)).saveAllWithIds(anyList());
+        writer.shutdown();
+        assertThat(writtenEvents).containsExactlyInAnyOrder(taken, queued, overflowed);
+        assertThat(writtenEvents.get(0)).isEqualTo(taken);
+        assertThat(writtenEvents).extracting(AuditLog::getAuditLogId).containsExactly(1L, 2L, 3L);
+    }
+
+    @Test
+    public void shutdownWritesQueuedEvents() {
+        writer = createWriter(100, 100, LONG_FLUSH_INTERVAL, false);
+        AuditLog first = createEvent(AuditLogSeverity.NORMAL);
+        AuditLog second = createEvent(AuditLogSeverity.ERROR);
+        writer.write(first);
+        writer.write(second);
+
+        writer.shutdown();
+
+        assertThat(writtenEvents).containsExactly(first, second);
+        assertThat(writer.isAsync()).isFalse();
+
+        AuditLog afterShutdown = createEvent(AuditLogSeverity.NORMAL);
+        writer.write(afterShutdown);
+        assertThat(writtenEvents).containsExactly(first, second, afterShutdown);
+    }
+
+    @Test
+    public void failedBatchIsWrittenEventByEvent() {
+        doAnswer(invocation -> {
+            List<AuditLog> batch = invocation.getArgument(0);
+            if (batch.size() > 1) {
+                throw new IllegalStateException("batch failed");
+            }
+            return writtenEvents.addAll(batch);
+        }).when(auditLogDao).saveAllWithIds(anyList());
+        writer = createWriter(100, 2, LONG_FLUSH_INTERVAL, false);
+        AuditLog first = createEvent(AuditLogSeverity.NORMAL);
+        AuditLog second = createEvent(AuditLogSeverity.NORMAL);
+
+        writer.write(first);
+        writer.write(second);
+
+        verify(auditLogDao, timeout(5000).times(3)).saveAllWithIds(anyList());
+        writer.shutdown();
+        assertThat(writtenEvents).containsExactly(first, second);
+        assertThat(writer.getFailedEvents()).isZero();
+    }
+
+    private AuditLogWriter createWriter(int queueCapacity,
+            int batchSize,
+            long flushIntervalInMillis,
+            boolean flushOnCommit) {
+        return new AuditLogWriter(auditLogDao,
+                Thread::new,
+                queueCapacity,
+                batchSize,
+                flushIntervalInMillis,
+                flushOnCommit) {
+            @Override
+            void runInNewTransaction(Runnable code) {
+                code.run();
+            }
+
+            @Override
+            Transaction currentTransaction() {
+                return transaction;
+            }
+
+            @Override
+            boolean registerAfterCompletion(Runnable handler) {
+                return afterCompletionHandlers.add(handler);
+            }
+        };
+    }
+
+    private AuditLog createEvent(AuditLogSeverity severity) {
+        return new AuditLog(AuditLogType.UNASSIGNED, severity);
+    }
+}
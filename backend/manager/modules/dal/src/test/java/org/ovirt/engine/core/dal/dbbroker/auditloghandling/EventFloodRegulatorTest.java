@@ -0,0 +1,162 @@
+package org.ovirt.engine.core.dal.dbbroker.auditloghandling;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.TabularData;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.ovirt.engine.core.common.AuditLogType;
+import org.ovirt.engine.core.compat.Guid;
+
+public class EventFloodRegulatorTest {
+
+    private static final AuditLogType FLOODED_TYPE = AuditLogType.VDS_BROKER_COMMAND_FAILURE;
+    private static final int FLOOD_RATE_IN_SEC = FLOODED_TYPE.getEventFloodRate();
+
+    private long now;
+    private EventFloodRegulator regulator;
+
+    @BeforeEach
+    public void setUp() {
+        now = 1000;
+        regulator = new EventFloodRegulator(() -> now);
+    }
+
+    @Test
+    public void sameEventIsSuppressedWithinFloodRate() {
+        AuditLogable event = createEvent(Guid.newGuid());
+
+        assertThat(regulator.isLegal(event, FLOODED_TYPE, false)).isTrue();
+        passSeconds(FLOOD_RATE_IN_SEC - 1);
+        assertThat(regulator.isLegal(event, FLOODED_TYPE, false)).isFalse();
+    }
+
+    @Test
+    public void sameEventIsLegalOnceFloodRateElapses() {
+        AuditLogable event = createEvent(Guid.newGuid());
+
+        assertThat(regulator.isLegal(event, FLOODED_TYPE, false)).isTrue();
+        passSeconds(FLOOD_RATE_IN_SEC);
+        assertThat(regulator.isLegal(event, FLOODED_TYPE, false)).isTrue();
+        assertThat(regulator.isLegal(event, FLOODED_TYPE, false)).isFalse();
+    }
+
+    @Test
+    public void eventsOfDifferentEntitiesAreIndependent() {
+        assertThat(regulator.isLegal(createEvent(Guid.newGuid()), FLOODED_TYPE, false)).isTrue();
+        assertThat(regulator.isLegal(createEvent(Guid.newGuid()), FLOODED_TYPE, false)).isTrue();
+    }
+
+    @Test
+    public void eventsOfDifferentTypesAreIndependent() {
+        Guid vdsId = Guid.newGuid();
+
+        assertThat(regulator.isLegal(createEvent(vdsId), FLOODED_TYPE, false)).isTrue();
+        assertThat(regulator.isLegal(createEvent(vdsId), AuditLogType.HOST_CERTIFICATION_HAS_EXPIRED, false)).isTrue();
+    }
+
+    @Test
+    public void emptyIdIsSameAsNoId() {
+        AuditLogableImpl withEmptyIds = new AuditLogableImpl();
+        withEmptyIds.setVdsId(Guid.Empty);
+        withEmptyIds.setCustomId("");
+
+        assertThat(regulator.isLegal(withEmptyIds, FLOODED_TYPE, false)).isTrue();
+        assertThat(regulator.isLegal(new AuditLogableImpl(), FLOODED_TYPE, false)).isFalse();
+    }
+
+    @Test
+    public void ignoredTimeoutIsAlwaysLegal() {
+        AuditLogable event = createEvent(Guid.newGuid());
+
+        assertThat(regulator.isLegal(event, FLOODED_TYPE, true)).isTrue();
+        assertThat(regulator.isLegal(event, FLOODED_TYPE, true)).isTrue();
+        assertThat(regulator.getTrackedEvents()).isZero();
+    }
+
+    @Test
+    public void typeWithoutFloodRateIsAlwaysLegal() {
+        AuditLogable event = createEvent(Guid.newGuid());
+
+        assertThat(regulator.isLegal(event, AuditLogType.UNASSIGNED, false)).isTrue();
+        assertThat(regulator.isLegal(event, AuditLogType.UNASSIGNED, false)).isTrue();
+        assertThat(regulator.getTrackedEvents()).isZero();
+    }
+
+    @Test
+    public void externalEventIsSuppressedWithinDefaultFloodRate() {
+        AuditLogableImpl event = createEvent(Guid.newGuid());
+        event.setExternal(true);
+
+        assertThat(regulator.isLegal(event, AuditLogType.UNASSIGNED, false)).isTrue();
+        passSeconds(29);
+        assertThat(regulator.isLegal(event, AuditLogType.UNASSIGNED, false)).isFalse();
+        passSeconds(1);
+        assertThat(regulator.isLegal(event, AuditLogType.UNASSIGNED, false)).isTrue();
+    }
+
+    @Test
+    public void evictedEventIsLegal() {
+        AuditLogable event = createEvent(Guid.newGuid());
+
+        assertThat(regulator.isLegal(event, FLOODED_TYPE, false)).isTrue();
+        regulator.evict(event, FLOODED_TYPE);
+        assertThat(regulator.isLegal(event, FLOODED_TYPE, false)).isTrue();
+    }
+
+    @Test
+    public void suppressedEventsAreCountedByType() {
+        AuditLogable event = createEvent(Guid.newGuid());
+
+        regulator.isLegal(event, FLOODED_TYPE, false);
+        regulator.isLegal(event, FLOODED_TYPE, false);
+        regulator.isLegal(event, FLOODED_TYPE, false);
+
+        assertThat(regulator.getSuppressedEvents()).containsOnlyKeys(FLOODED_TYPE).containsEntry(FLOODED_TYPE, 2L);
+    }
+
+    @Test
+    public void suppressedEventsArePublishedOverJmx() throws Exception {
+        AuditLogable event = createEvent(Guid.newGuid());
+        regulator.isLegal(event, FLOODED_TYPE, false);
+        regulator.isLegal(event, FLOODED_TYPE, false);
+        MBeanServer mBeanServer = MBeanServerFactory.newMBeanServer();
+        ObjectName objectName = new ObjectName("EventFloodRegulator:type=" + EventFloodRegulator.class.getName());
+
+        mBeanServer.registerMBean(regulator, objectName);
+        TabularData suppressedEvents = (TabularData) mBeanServer.getAttribute(objectName, "SuppressedEvents");
+
+        CompositeData row = suppressedEvents.get(new Object[] { FLOODED_TYPE.name() });
+        assertThat(row.get("value")).isEqualTo(1L);
+        assertThat(mBeanServer.getAttribute(objectName, "TrackedEvents")).isEqualTo(1);
+    }
+
+    @Test
+    public void expiredEventsArePurged() {
+        regulator.isLegal(createEvent(Guid.newGuid()), FLOODED_TYPE, false);
+        regulator.isLegal(createEvent(Guid.newGuid()), FLOODED_TYPE, false);
+        assertThat(regulator.getTrackedEvents()).isEqualTo(2);
+
+        passSeconds(TimeUnit.MINUTES.toSeconds(1));
+        regulator.isLegal(createEvent(Guid.newGuid()), FLOODED_TYPE, false);
+
+        assertThat(regulator.getTrackedEvents()).isEqualTo(1);
+    }
+
+    private void passSeconds(long seconds) {
+        now += TimeUnit.SECONDS.toNanos(seconds);
+    }
+
+    private AuditLogableImpl createEvent(Guid vdsId) {
+        AuditLogableImpl event = new AuditLogableImpl();
+        event.setVdsId(vdsId);
+        return event;
+    }
+}
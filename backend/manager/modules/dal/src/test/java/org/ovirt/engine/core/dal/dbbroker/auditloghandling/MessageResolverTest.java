@@ -1,6 +1,7 @@
 package org.ovirt.engine.core.dal.dbbroker.auditloghandling;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.mockito.Mockito.RETURNS_DEFAULTS;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
@@ -8,8 +9,11 @@ import static org.mockito.Mockito.when;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import org.junit.jupiter.api.Test;
+import org.ovirt.engine.core.common.AuditLogType;
 
 public class MessageResolverTest {
 
@@ -65,4 +69,51 @@ public class MessageResolverTest {
         String resolvedMessage = MessageResolver.resolveMessage(message, logable);
         assertEquals(expectedResolved, resolvedMessage);
     }
+
+    @Test
+    public void testResolveCustomValueBeforeProperty() {
+        final String message = "The VM name is ${vmName}, the reason is${optionalReason} and ${Reason}";
+        final String expectedResolved = "The VM name is CustomVM, the reason is and "
+                + " No reason was returned for this operation failure. See logs for further details.";
+
+        AuditLogableImpl logable = new AuditLogableImpl();
+        logable.setVmName("TestVM");
+        logable.addCustomValue("VmName", "CustomVM");
+
+        String resolvedMessage = MessageResolver.resolveMessage(message, logable);
+        assertEquals(expectedResolved, resolvedMessage);
+    }
+
+    @Test
+    public void testTemplateIsCompiledOnce() {
+        assertSame(MessageBundler.getTemplateOrNull(AuditLogType.USER_RUN_VM),
+                MessageBundler.getTemplateOrNull(AuditLogType.USER_RUN_VM));
+    }
+
+    @Test
+    public void testTemplatesResolveAllMessagesAsRegularExpression() {
+        Pattern variablePattern = Pattern.compile("\\$\\{\\w*\\}");
+        for (AuditLogType logType : AuditLogType.values()) {
+            if (!MessageBundler.getResourceBundle().containsKey(logType.name())) {
+                continue;
+            }
+            String message = MessageBundler.getMessage(logType);
+
+            Map<String, String> values = new HashMap<>();
+            Matcher matcher = variablePattern.matcher(message);
+            StringBuffer buffer = new StringBuffer();
+            while (matcher.find()) {
+                String token = matcher.group();
+                token = token.substring(2, token.length() - 1).toLowerCase();
+                // every other variable is left undefined
+                String value = values.size() % 2 == 0 ? "$value of " + token + "\\" : "";
+                values.putIfAbsent(token, value);
+                matcher.appendReplacement(buffer,
+                        Matcher.quoteReplacement(MessageResolver.getValueOrDefault(token, values.get(token))));
+            }
+            matcher.appendTail(buffer);
+
+            assertEquals(buffer.toString(), MessageBundler.getTemplateOrNull(logType).resolve(values), logType.name());
+        }
+    }
 }
@@ -7,6 +7,7 @@ import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.text.SimpleDateFormat;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
 
@@ -271,6 +272,25 @@ public class AuditLogDaoTest extends BaseDaoTestCase<AuditLogDao> {
         assertEquals(newAuditLog, result);
     }
 
+    /**
+     * Ensures that audit logs saved in a batch get the ids taken in advance.
+     */
+    @Test
+    public void testSaveAllWithIds() {
+        List<Long> ids = dao.getNextAuditLogIds(2);
+        assertEquals(2, ids.size());
+        assertTrue(ids.get(0) < ids.get(1));
+
+        AuditLog otherAuditLog = new AuditLog(AuditLogType.USER_RUN_VM, AuditLogSeverity.NORMAL);
+        otherAuditLog.setMessage("Other message");
+        newAuditLog.setAuditLogId(ids.get(0));
+        otherAuditLog.setAuditLogId(ids.get(1));
+        dao.saveAllWithIds(Arrays.asList(newAuditLog, otherAuditLog));
+
+        assertEquals(newAuditLog, dao.get(ids.get(0)));
+        assertEquals(otherAuditLog.getMessage(), dao.get(ids.get(1)).getMessage());
+    }
+
     @Test
     public void testSaveExternalEvent() {
         AuditLog newExternalEvent = new AuditLog();
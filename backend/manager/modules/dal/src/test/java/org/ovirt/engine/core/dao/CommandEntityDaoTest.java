@@ -9,6 +9,7 @@ import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.Serializable;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -116,4 +117,16 @@ public class CommandEntityDaoTest extends BaseGenericDaoTestCase<Guid, CommandEn
         assertEquals(2, entities.size());
         assertThat(entities, hasItems(cocoCmdEntities.toArray(new CommandAssociatedEntity[cocoCmdEntities.size()])));
     }
+
+    @Test
+    public void testSaveOrUpdateAll() {
+        CommandEntity existingCmdEntity = dao.get(getExistingEntityId());
+        existingCmdEntity.setCommandStatus(CommandStatus.SUCCEEDED);
+        CommandEntity newCmdEntity = generateNewEntity();
+
+        dao.saveOrUpdateAll(Arrays.asList(existingCmdEntity, newCmdEntity));
+
+        assertEquals(CommandStatus.SUCCEEDED, dao.get(getExistingEntityId()).getCommandStatus());
+        assertEquals(newCmdEntity.getId(), dao.get(newCmdEntity.getId()).getId());
+    }
 }
@@ -307,6 +307,21 @@ public class DiskDaoTest extends BaseReadDaoTestCase<Guid, Disk, DiskDao> {
         assertEquals(0, result.size(), "wrong number of returned disks");
     }
 
+    @Test
+    public void testGetAllFromDisksIncludingSnapshotsByDiskIds() {
+        List<Disk> result = dao.getAllFromDisksIncludingSnapshotsByDiskIds(
+                Arrays.asList(FixturesTool.IMAGE_GROUP_ID, Guid.newGuid()), PRIVILEGED_USER_ID, true);
+        assertEquals(4, result.size(), "wrong number of returned disks");
+        result.forEach(disk -> assertEquals(FixturesTool.IMAGE_GROUP_ID, disk.getId()));
+    }
+
+    @Test
+    public void testGetAllFromDisksIncludingSnapshotsByDiskIdsForUnPrivilegedUserWithFilter() {
+        List<Disk> result = dao.getAllFromDisksIncludingSnapshotsByDiskIds(
+                Collections.singletonList(FixturesTool.IMAGE_GROUP_ID), UNPRIVILEGED_USER_ID, true);
+        assertEquals(0, result.size(), "wrong number of returned disks");
+    }
+
     @Test
     public void testGetImagesWithMoreThanOneActiveSnapshotForVm() {
         List<Guid> result =
@@ -586,6 +586,18 @@ public class PermissionDaoTest extends BaseDaoTestCase<PermissionDao> {
                 false));
     }
 
+    /**
+     * Ensures that the VMs a user has permissions on are the ones the filtered queries of the user return.
+     */
+    @Test
+    public void testGetEntityIdsVisibleToUser() {
+        List<Guid> result = dao.getEntityIdsVisibleToUser(PRIVILEGED_USER_ID, VdcObjectType.VM);
+
+        assertTrue(result.contains(FixturesTool.VM_RHEL5_POOL_57));
+        assertEquals(new HashSet<>(result).size(), result.size());
+        assertTrue(dao.getEntityIdsVisibleToUser(UNPRIVILEGED_USER_ID, VdcObjectType.VM).isEmpty());
+    }
+
     /**
      * Ensures that saving a permission works as expected.
      */
@@ -6,8 +6,11 @@ import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 import org.apache.commons.lang.StringUtils;
 import org.junit.jupiter.api.Test;
@@ -203,6 +206,23 @@ public class SnapshotDaoTest extends BaseGenericDaoTestCase<Guid, Snapshot, Snap
         }
     }
 
+    @Test
+    public void getAllByVmsWithConfiguration() {
+        Map<Guid, List<Snapshot>> snapshots = dao.getAllWithConfigurationForVms(
+                Arrays.asList(FixturesTool.VM_RHEL5_POOL_50, FixturesTool.VM_RHEL5_POOL_57, Guid.newGuid()));
+        assertEquals(2, snapshots.size(), "Only VMs with snapshots should be returned");
+        assertEquals(1, snapshots.get(FixturesTool.VM_RHEL5_POOL_50).size(), "VM should have a snapshot");
+        assertEquals("test!", snapshots.get(FixturesTool.VM_RHEL5_POOL_50).get(0).getVmConfiguration(),
+                "Snapshot should have configuration");
+        List<Guid> expectedIds = dao.getAll(FixturesTool.VM_RHEL5_POOL_57).stream()
+                .map(Snapshot::getId)
+                .collect(Collectors.toList());
+        List<Guid> ids = snapshots.get(FixturesTool.VM_RHEL5_POOL_57).stream()
+                .map(Snapshot::getId)
+                .collect(Collectors.toList());
+        assertEquals(expectedIds, ids, "Snapshots should be ordered by creation date");
+    }
+
     @Test
     public void getAllByVm() {
         List<Snapshot> snapshots = dao.getAll(FixturesTool.VM_RHEL5_POOL_57);
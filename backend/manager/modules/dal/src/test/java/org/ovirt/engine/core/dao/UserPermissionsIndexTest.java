@@ -0,0 +1,95 @@
+package org.ovirt.engine.core.dao;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.ovirt.engine.core.common.VdcObjectType;
+import org.ovirt.engine.core.compat.Guid;
+
+public class UserPermissionsIndexTest {
+
+    private final Guid user = Guid.newGuid();
+    private final Guid otherUser = Guid.newGuid();
+    private final Guid vm = Guid.newGuid();
+    private final Map<Guid, Integer> loads = new HashMap<>();
+    private final List<Runnable> afterCompletionHandlers = new ArrayList<>();
+    private UserPermissionsIndex index;
+
+    @BeforeEach
+    public void setUp() {
+        index = new UserPermissionsIndex(60) {
+            @Override
+            boolean registerAfterCompletion(Runnable handler) {
+                return afterCompletionHandlers.add(handler);
+            }
+        };
+    }
+
+    private Set<Guid> getVmIds(Guid userId) {
+        return index.getEntityIds(userId, VdcObjectType.VM, () -> {
+            loads.merge(userId, 1, Integer::sum);
+            return Collections.singletonList(vm);
+        });
+    }
+
+    @Test
+    public void testDisabledByDefault() {
+        assertFalse(new UserPermissionsIndex(0).isEnabled());
+        assertTrue(index.isEnabled());
+    }
+
+    @Test
+    public void testIdsAreLoadedOnce() {
+        assertEquals(Collections.singleton(vm), getVmIds(user));
+        assertEquals(Collections.singleton(vm), getVmIds(user));
+
+        assertEquals(1, loads.get(user));
+    }
+
+    @Test
+    public void testInvalidateAll() {
+        getVmIds(user);
+        getVmIds(otherUser);
+        index.invalidateAll();
+        getVmIds(user);
+        getVmIds(otherUser);
+
+        assertEquals(2, loads.get(user));
+        assertEquals(2, loads.get(otherUser));
+    }
+
+    @Test
+    public void testInvalidateUser() {
+        getVmIds(user);
+        getVmIds(otherUser);
+        index.invalidateUser(user);
+        getVmIds(user);
+        getVmIds(otherUser);
+
+        assertEquals(2, loads.get(user));
+        assertEquals(1, loads.get(otherUser));
+    }
+
+    @Test
+    public void testIdsLoadedBeforeTransactionCompletedAreInvalidated() {
+        index.invalidateAll();
+        getVmIds(user);
+        getVmIds(user);
+        assertEquals(1, loads.get(user));
+
+        afterCompletionHandlers.forEach(Runnable::run);
+        getVmIds(user);
+
+        assertEquals(2, loads.get(user));
+    }
+}
@@ -5,6 +5,7 @@ import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.LinkedList;
@@ -13,6 +14,7 @@ import java.util.List;
 import javax.inject.Inject;
 
 import org.junit.jupiter.api.Test;
+import org.ovirt.engine.core.common.businessentities.OvfDataSize;
 import org.ovirt.engine.core.compat.Guid;
 
 public class VmAndTemplatesGenerationsDaoTest extends BaseDaoTestCase<VmAndTemplatesGenerationsDao> {
@@ -48,6 +50,21 @@ public class VmAndTemplatesGenerationsDaoTest extends BaseDaoTestCase<VmAndTempl
         assertEquals(updatedOvfForVm51, dbRecievedOvfVer, "ovf generations weren't updated properly");
     }
 
+    @Test
+    public void testLoadOvfDataSizesForIds() {
+        String ovfData = "<ovf:Envelope>\u00e9</ovf:Envelope>";
+        dao.updateOvfGenerations(Collections.singletonList(FixturesTool.VM_RHEL5_POOL_50),
+                Collections.singletonList(1000L),
+                Collections.singletonList(ovfData));
+
+        List<OvfDataSize> sizes = dao.loadOvfDataSizesForIds(
+                Arrays.asList(FixturesTool.VM_RHEL5_POOL_50, FixturesTool.VM_RHEL5_POOL_51));
+        assertEquals(Collections.singletonList(new OvfDataSize(FixturesTool.VM_RHEL5_POOL_50,
+                1000L,
+                ovfData.getBytes(StandardCharsets.UTF_8).length)), sizes,
+                "only the ids with ovf data should be returned, with the size of their data in bytes");
+    }
+
     @Test
     public void testDeleteOvfGenerations() {
         List<Guid> vmsGuids = new LinkedList<>();
@@ -38,6 +38,8 @@ public class VmDaoTest extends BaseDaoTestCase<VmDao> {
     private VmDynamicDao vmDynamicDao;
     @Inject
     private VmStatisticsDao vmStatisticsDao;
+    @Inject
+    private UserPermissionsIndex userPermissionsIndex;
 
     @BeforeEach
     @Override
@@ -206,6 +208,26 @@ public class VmDaoTest extends BaseDaoTestCase<VmDao> {
         assertTrue(result.contains(existingVm));
     }
 
+    /**
+     * Ensures that the sorted VMs of a user, read with the index of the permissions of the users, are the VMs read
+     * from the permissions views, and are paged the same way.
+     */
+    @Test
+    public void testGetAllSortedAndFilteredWithUserPermissionsIndex() {
+        List<VM> allVms = dao.getAllSortedAndFiltered(PRIVILEGED_USER_ID, 0, VM_COUNT * 2);
+        List<VM> page = dao.getAllSortedAndFiltered(PRIVILEGED_USER_ID, 1, 2);
+        assertFalse(allVms.isEmpty());
+
+        userPermissionsIndex.setMaxAge(60);
+        try {
+            assertEquals(allVms, dao.getAllSortedAndFiltered(PRIVILEGED_USER_ID, 0, VM_COUNT * 2));
+            assertEquals(page, dao.getAllSortedAndFiltered(PRIVILEGED_USER_ID, 1, 2));
+            assertTrue(dao.getAllSortedAndFiltered(UNPRIVILEGED_USER_ID, 0, VM_COUNT * 2).isEmpty());
+        } finally {
+            userPermissionsIndex.setMaxAge(0);
+        }
+    }
+
     /**
      * Ensures that the VMs based on an instance type ID are returned properly by GetVmsByInstanceTypeId SP
      */
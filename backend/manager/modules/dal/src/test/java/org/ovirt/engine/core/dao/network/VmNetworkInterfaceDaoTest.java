@@ -6,6 +6,7 @@ import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.util.Arrays;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -207,6 +208,28 @@ public class VmNetworkInterfaceDaoTest extends BaseDaoTestCase<VmNetworkInterfac
         }
     }
 
+    /**
+     * Ensures that the interfaces of all the requested VMs are returned, as they are for each VM
+     */
+    @Test
+    public void testGetAllInterfacesForVms() {
+        List<VmNetworkInterface> result =
+                dao.getAllForVms(Arrays.asList(VM_ID, Guid.newGuid()), PRIVILEGED_USER_ID, true);
+
+        assertEquals(dao.getAllForVm(VM_ID), result);
+    }
+
+    /**
+     * Ensures that no interfaces are returned for the VMs an unprivileged user has no permissions on
+     */
+    @Test
+    public void testGetAllInterfacesForVmsFilteredWithoutPermissions() {
+        List<VmNetworkInterface> result = dao.getAllForVms(Arrays.asList(VM_ID), UNPRIVILEGED_USER_ID, true);
+
+        assertNotNull(result);
+        assertTrue(result.isEmpty());
+    }
+
     @Test
     public void testGetAll() {
         List<VmNetworkInterface> interfaces = dao.getAll();
@@ -6,6 +6,8 @@ import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 import org.junit.jupiter.api.BeforeEach;
@@ -110,6 +112,16 @@ public class VmNicDaoTest extends BaseGenericDaoTestCase<Guid, VmNic, VmNicDao>
         }
     }
 
+    @Test
+    public void testGetPluggedMacsIn() {
+        String unusedMac = "ff:ff:ff:ff:ff:fe";
+        List<String> result = dao.getPluggedMacsIn(Arrays.asList(FixturesTool.MAC_ADDRESS, unusedMac));
+        List<String> expected = dao.getPluggedForMac(FixturesTool.MAC_ADDRESS).isEmpty() ?
+                Collections.emptyList() :
+                Collections.singletonList(FixturesTool.MAC_ADDRESS);
+        assertEquals(expected, result);
+    }
+
     @Override
     protected VmNic generateNewEntity() {
         VmNic vmNic = new VmNic();
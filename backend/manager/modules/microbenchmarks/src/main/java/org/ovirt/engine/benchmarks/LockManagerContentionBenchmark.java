@@ -0,0 +1,97 @@
+package org.ovirt.engine.benchmarks;
+
+import java.util.Collections;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.ovirt.engine.core.bll.lock.InMemoryLockManager;
+import org.ovirt.engine.core.common.utils.Pair;
+import org.ovirt.engine.core.compat.Guid;
+import org.ovirt.engine.core.utils.lock.EngineLock;
+import org.ovirt.engine.core.utils.lock.LockingResult;
+
+/**
+ * <p> Benchmark's the contention of the engine's {@link InMemoryLockManager}.</p>
+ * <p> Several threads acquire and release locks on a pool of keys, the same way commands lock their entities and
+ * the hosts monitoring locks its hosts. A small pool of keys means most of the operations collide on the same keys,
+ * a large pool means the operations are mostly independent and should scale with the number of threads.</p>
+ *
+ * @see InMemoryLockManager
+ */
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Threads(16)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class LockManagerContentionBenchmark {
+
+    @Benchmark
+    public void acquireAndReleaseExclusive(BenchmarkState state, Blackhole blackhole) {
+        EngineLock lock = state.randomLock(state.exclusiveLocks);
+        LockingResult result = state.lockManager.acquireLock(lock);
+        if (result.isAcquired()) {
+            state.lockManager.releaseLock(lock);
+        }
+        blackhole.consume(result);
+    }
+
+    @Benchmark
+    public void acquireAndReleaseShared(BenchmarkState state, Blackhole blackhole) {
+        EngineLock lock = state.randomLock(state.sharedLocks);
+        LockingResult result = state.lockManager.acquireLock(lock);
+        if (result.isAcquired()) {
+            state.lockManager.releaseLock(lock);
+        }
+        blackhole.consume(result);
+    }
+
+    @Benchmark
+    public void acquireWaitAndRelease(BenchmarkState state) {
+        EngineLock lock = state.randomLock(state.exclusiveLocks);
+        state.lockManager.acquireLockWait(lock);
+        state.lockManager.releaseLock(lock);
+    }
+
+    @State(Scope.Benchmark)
+    public static class BenchmarkState {
+
+        @Param({ "16", "1024", "65536" })
+        private int keys;
+
+        private InMemoryLockManager lockManager;
+        private EngineLock[] exclusiveLocks;
+        private EngineLock[] sharedLocks;
+
+        @Setup
+        public void setup() {
+            lockManager = new InMemoryLockManager();
+            exclusiveLocks = new EngineLock[keys];
+            sharedLocks = new EngineLock[keys];
+            for (int i = 0; i < keys; i++) {
+                String id = Guid.newGuid().toString();
+                exclusiveLocks[i] = new EngineLock(
+                        Collections.singletonMap(id, new Pair<>("VM", "ACTION_TYPE_FAILED_OBJECT_LOCKED")),
+                        null);
+                sharedLocks[i] = new EngineLock(
+                        null,
+                        Collections.singletonMap(id, new Pair<>("VM", "ACTION_TYPE_FAILED_OBJECT_LOCKED")));
+            }
+        }
+
+        private EngineLock randomLock(EngineLock[] locks) {
+            return locks[ThreadLocalRandom.current().nextInt(locks.length)];
+        }
+    }
+}
@@ -0,0 +1,381 @@
+package org.ovirt.engine.benchmarks.scheduling;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.ovirt.engine.core.bll.scheduling.PolicyUnitImpl;
+import org.ovirt.engine.core.bll.scheduling.PolicyUnitParameter;
+import org.ovirt.engine.core.bll.scheduling.SchedulingContext;
+import org.ovirt.engine.core.bll.scheduling.SlaValidator;
+import org.ovirt.engine.core.bll.scheduling.pending.PendingResourceManager;
+import org.ovirt.engine.core.bll.scheduling.policyunits.CPUPolicyUnit;
+import org.ovirt.engine.core.bll.scheduling.policyunits.CpuPinningPolicyUnit;
+import org.ovirt.engine.core.bll.scheduling.policyunits.EvenDistributionBalancePolicyUnit;
+import org.ovirt.engine.core.bll.scheduling.policyunits.EvenDistributionCPUWeightPolicyUnit;
+import org.ovirt.engine.core.bll.scheduling.policyunits.EvenDistributionMemoryWeightPolicyUnit;
+import org.ovirt.engine.core.bll.scheduling.policyunits.MemoryPolicyUnit;
+import org.ovirt.engine.core.bll.scheduling.policyunits.NumaPolicyUnit;
+import org.ovirt.engine.core.bll.scheduling.policyunits.RankSelectorPolicyUnit;
+import org.ovirt.engine.core.bll.scheduling.policyunits.VmAffinityFilterPolicyUnit;
+import org.ovirt.engine.core.bll.scheduling.policyunits.VmAffinityWeightPolicyUnit;
+import org.ovirt.engine.core.bll.scheduling.selector.SelectorInstance;
+import org.ovirt.engine.core.bll.scheduling.utils.VdsCpuUnitPinningHelper;
+import org.ovirt.engine.core.common.businessentities.VDS;
+import org.ovirt.engine.core.common.businessentities.VM;
+import org.ovirt.engine.core.common.businessentities.VmStatistics;
+import org.ovirt.engine.core.common.config.Config;
+import org.ovirt.engine.core.common.config.ConfigValues;
+import org.ovirt.engine.core.common.config.IConfigUtilsInterface;
+import org.ovirt.engine.core.common.scheduling.AffinityGroup;
+import org.ovirt.engine.core.common.scheduling.PerHostMessages;
+import org.ovirt.engine.core.common.scheduling.VmOverheadCalculator;
+import org.ovirt.engine.core.common.utils.Pair;
+import org.ovirt.engine.core.compat.Guid;
+import org.ovirt.engine.core.dao.VdsNumaNodeDao;
+import org.ovirt.engine.core.dao.VmDao;
+import org.ovirt.engine.core.dao.scheduling.AffinityGroupDao;
+import org.ovirt.engine.core.vdsbroker.ResourceManager;
+import org.ovirt.engine.core.vdsbroker.VdsManager;
+import org.ovirt.engine.core.vdsbroker.VmManager;
+
+/**
+ * <p> Benchmark's the scheduling policy units run on every VM start, migration and balancing tick.</p>
+ * <p> Every filter and weight unit is run for a single VM against all the hosts of a {@link SyntheticCluster}, the
+ * balance unit is run against the whole cluster. The {@link #pipeline} benchmark runs the filters, the weights and the
+ * selector one after another, the same way the scheduling manager selects a host for a VM.</p>
+ * <p> The units read the engine state through the DAOs and the host managers, which are stubbed by mocks returning
+ * the generated cluster. The mocks add a small constant cost to every call, so the numbers are good for comparing
+ * runs of the same benchmark, not as absolute times of a real engine.</p>
+ *
+ * @see SyntheticCluster
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SchedulingPolicyUnitsBenchmark {
+
+    @Benchmark
+    public void numaFilter(BenchmarkState state, Blackhole blackhole) {
+        blackhole.consume(state.filter(state.numaFilter, state.numaPinnedVm));
+    }
+
+    @Benchmark
+    public void cpuPinningFilter(BenchmarkState state, Blackhole blackhole) {
+        blackhole.consume(state.filter(state.cpuPinningFilter, state.cpuPinnedVm));
+    }
+
+    @Benchmark
+    public void cpuFilter(BenchmarkState state, Blackhole blackhole) {
+        blackhole.consume(state.filter(state.cpuFilter, state.vm));
+    }
+
+    @Benchmark
+    public void memoryFilter(BenchmarkState state, Blackhole blackhole) {
+        blackhole.consume(state.filter(state.memoryFilter, state.vm));
+    }
+
+    @Benchmark
+    public void vmAffinityFilter(BenchmarkState state, Blackhole blackhole) {
+        blackhole.consume(state.filter(state.vmAffinityFilter, state.affinityVm));
+    }
+
+    @Benchmark
+    public void evenDistributionCpuWeight(BenchmarkState state, Blackhole blackhole) {
+        blackhole.consume(state.score(state.cpuWeight, state.vm));
+    }
+
+    @Benchmark
+    public void evenDistributionMemoryWeight(BenchmarkState state, Blackhole blackhole) {
+        blackhole.consume(state.score(state.memoryWeight, state.vm));
+    }
+
+    @Benchmark
+    public void vmAffinityWeight(BenchmarkState state, Blackhole blackhole) {
+        blackhole.consume(state.score(state.vmAffinityWeight, state.affinityVm));
+    }
+
+    @Benchmark
+    public void evenDistributionBalance(BenchmarkState state, Blackhole blackhole) {
+        blackhole.consume(state.evenDistributionBalance.balance(state.cluster.getCluster(),
+                state.cluster.getHosts(),
+                state.balanceParameters));
+    }
+
+    @Benchmark
+    public void pipeline(BenchmarkState state, Blackhole blackhole) {
+        blackhole.consume(state.selectHost(state.affinityVm));
+    }
+
+    @State(Scope.Benchmark)
+    public static class BenchmarkState {
+
+        @Param({ "16", "256" })
+        private int hosts;
+
+        @Param({ "20" })
+        private int vmsPerHost;
+
+        @Param({ "2" })
+        private int numaNodes;
+
+        @Param({ "0", "64" })
+        private int affinityGroups;
+
+        private SyntheticCluster cluster;
+        private VM vm;
+        private VM numaPinnedVm;
+        private VM cpuPinnedVm;
+        private VM affinityVm;
+        private Map<String, String> policyParameters;
+        private Map<String, String> balanceParameters;
+
+        private NumaPolicyUnit numaFilter;
+        private CpuPinningPolicyUnit cpuPinningFilter;
+        private CPUPolicyUnit cpuFilter;
+        private MemoryPolicyUnit memoryFilter;
+        private VmAffinityFilterPolicyUnit vmAffinityFilter;
+        private EvenDistributionCPUWeightPolicyUnit cpuWeight;
+        private EvenDistributionMemoryWeightPolicyUnit memoryWeight;
+        private VmAffinityWeightPolicyUnit vmAffinityWeight;
+        private EvenDistributionBalancePolicyUnit evenDistributionBalance;
+        private RankSelectorPolicyUnit rankSelector;
+        private List<PolicyUnitImpl> pipelineFilters;
+        private List<Pair<PolicyUnitImpl, Integer>> pipelineFunctions;
+
+        @Setup
+        public void setup() {
+            Config.setConfigUtils(new BenchmarkConfigUtils());
+
+            cluster = new SyntheticCluster(hosts, vmsPerHost, numaNodes, affinityGroups, 42);
+            vm = cluster.newVm();
+            numaPinnedVm = cluster.newNumaPinnedVm();
+            cpuPinnedVm = cluster.newCpuPinnedVm();
+            affinityVm = cluster.getAffinityVm();
+
+            policyParameters = new HashMap<>();
+            balanceParameters = new HashMap<>();
+            balanceParameters.put(PolicyUnitParameter.HIGH_MEMORY_LIMIT_FOR_UNDER_UTILIZED.getDbName(), "8192");
+            balanceParameters.put(PolicyUnitParameter.LOW_MEMORY_LIMIT_FOR_OVER_UTILIZED.getDbName(), "4096");
+
+            List<Object> dependencies = createDependencies();
+            PendingResourceManager pendingResourceManager = new PendingResourceManager();
+
+            numaFilter = inject(new NumaPolicyUnit(null, pendingResourceManager), dependencies);
+            cpuPinningFilter = inject(new CpuPinningPolicyUnit(null, pendingResourceManager), dependencies);
+            cpuFilter = inject(new CPUPolicyUnit(null, pendingResourceManager), dependencies);
+            memoryFilter = inject(new MemoryPolicyUnit(null, pendingResourceManager), dependencies);
+            vmAffinityFilter = inject(new VmAffinityFilterPolicyUnit(null, pendingResourceManager), dependencies);
+            cpuWeight = inject(new EvenDistributionCPUWeightPolicyUnit(null, pendingResourceManager), dependencies);
+            memoryWeight = inject(new EvenDistributionMemoryWeightPolicyUnit(null, pendingResourceManager),
+                    dependencies);
+            vmAffinityWeight = inject(new VmAffinityWeightPolicyUnit(null, pendingResourceManager), dependencies);
+            evenDistributionBalance = inject(new EvenDistributionBalancePolicyUnit(null, pendingResourceManager),
+                    dependencies);
+            rankSelector = new RankSelectorPolicyUnit(null, pendingResourceManager);
+
+            pipelineFilters = Arrays.asList(cpuFilter, memoryFilter, numaFilter, cpuPinningFilter, vmAffinityFilter);
+            pipelineFunctions = Arrays.asList(new Pair<>(cpuWeight, 2),
+                    new Pair<>(memoryWeight, 1),
+                    new Pair<>(vmAffinityWeight, 1));
+        }
+
+        /**
+         * Creates the mocked engine state the policy units read
+         */
+        private List<Object> createDependencies() {
+            ResourceManager resourceManager = mock(ResourceManager.class);
+            Map<Guid, VdsManager> vdsManagers = new HashMap<>();
+            for (VDS host : cluster.getHosts()) {
+                VdsManager vdsManager = mock(VdsManager.class);
+                when(vdsManager.getCpuTopology()).thenAnswer(invocation -> cluster.getCpuTopology(host.getId()));
+                when(vdsManager.getVmsSharedCpusCount()).thenReturn(vmsPerHost * 2);
+                when(vdsManager.getMaxRunningVmsSharedCoresCount()).thenReturn(0);
+                vdsManagers.put(host.getId(), vdsManager);
+            }
+            when(resourceManager.getVdsManager(any())).thenAnswer(invocation -> vdsManagers.get(invocation.getArgument(0)));
+
+            VmStatistics vmStatistics = new VmStatistics();
+            vmStatistics.setUsageCpuPercent(20);
+            VmManager vmManager = mock(VmManager.class);
+            when(vmManager.getStatistics()).thenReturn(vmStatistics);
+            when(resourceManager.getVmManager(any(), anyBoolean())).thenReturn(vmManager);
+
+            VmDao vmDao = mock(VmDao.class);
+            Map<Guid, VM> vmsById = cluster.getRunningVms().stream()
+                    .collect(Collectors.toMap(VM::getId, runningVm -> runningVm));
+            when(vmDao.get(any())).thenAnswer(invocation -> vmsById.get(invocation.getArgument(0)));
+            when(vmDao.getAllRunningByCluster(any())).thenReturn(cluster.getRunningVms());
+            when(vmDao.getAllRunningForMultipleVds(any())).thenAnswer(invocation -> {
+                Collection<Guid> hostIds = invocation.getArgument(0);
+                return cluster.getRunningVms().stream()
+                        .filter(runningVm -> hostIds.contains(runningVm.getRunOnVds()))
+                        .collect(Collectors.groupingBy(VM::getRunOnVds));
+            });
+
+            AffinityGroupDao affinityGroupDao = mock(AffinityGroupDao.class);
+            Map<Guid, List<AffinityGroup>> groupsByVm = new HashMap<>();
+            for (AffinityGroup group : cluster.getAffinityGroups()) {
+                group.getVmIds().forEach(vmId -> groupsByVm.computeIfAbsent(vmId, id -> new ArrayList<>()).add(group));
+            }
+            when(affinityGroupDao.getAllAffinityGroupsWithFlatLabelsByVmId(any())).thenAnswer(
+                    invocation -> groupsByVm.getOrDefault(invocation.getArgument(0), Collections.emptyList()));
+
+            VdsNumaNodeDao vdsNumaNodeDao = mock(VdsNumaNodeDao.class);
+            Map<Guid, VDS> hostsById = cluster.getHosts().stream().collect(Collectors.toMap(VDS::getId, host -> host));
+            when(vdsNumaNodeDao.getAllVdsNumaNodeByVdsId(any())).thenAnswer(
+                    invocation -> hostsById.get(invocation.getArgument(0)).getNumaNodeList());
+
+            VmOverheadCalculator vmOverheadCalculator = mock(VmOverheadCalculator.class);
+            when(vmOverheadCalculator.getStaticOverheadInMb(any())).thenReturn(64);
+            when(vmOverheadCalculator.getOverheadInMb(any())).thenReturn(128);
+            when(vmOverheadCalculator.getTotalRequiredMemMb(any())).thenAnswer(
+                    invocation -> invocation.<VM> getArgument(0).getMemSizeMb() + 128);
+            when(vmOverheadCalculator.getTotalRequiredMemWithoutHugePagesMb(any())).thenAnswer(
+                    invocation -> invocation.<VM> getArgument(0).getMemSizeMb() + 128);
+
+            VdsCpuUnitPinningHelper vdsCpuUnitPinningHelper = new VdsCpuUnitPinningHelper();
+            SlaValidator slaValidator = new SlaValidator();
+            slaValidator.setVmOverheadCalculator(vmOverheadCalculator);
+
+            List<Object> dependencies = Arrays.asList(resourceManager,
+                    vmDao,
+                    affinityGroupDao,
+                    vdsNumaNodeDao,
+                    vmOverheadCalculator,
+                    vdsCpuUnitPinningHelper,
+                    slaValidator);
+            inject(vdsCpuUnitPinningHelper, dependencies);
+            return dependencies;
+        }
+
+        private List<VDS> filter(PolicyUnitImpl unit, VM vmToSchedule) {
+            return unit.filter(newContext(),
+                    cluster.getHosts(),
+                    Collections.singletonList(vmToSchedule),
+                    new PerHostMessages());
+        }
+
+        private List<Pair<Guid, Integer>> score(PolicyUnitImpl unit, VM vmToSchedule) {
+            return unit.score(newContext(), cluster.getHosts(), Collections.singletonList(vmToSchedule));
+        }
+
+        private Optional<Guid> selectHost(VM vmToSchedule) {
+            SchedulingContext context = newContext();
+            List<VM> vmGroup = Collections.singletonList(vmToSchedule);
+
+            List<VDS> hostList = cluster.getHosts();
+            for (PolicyUnitImpl filter : pipelineFilters) {
+                hostList = filter.filter(context, hostList, vmGroup, new PerHostMessages());
+            }
+            if (hostList.isEmpty()) {
+                return Optional.empty();
+            }
+
+            SelectorInstance selector = rankSelector.selector(policyParameters);
+            selector.init(pipelineFunctions.stream()
+                            .map(function -> new Pair<>(function.getFirst().getGuid(), function.getSecond()))
+                            .collect(Collectors.toList()),
+                    hostList.stream().map(VDS::getId).collect(Collectors.toList()));
+            for (Pair<PolicyUnitImpl, Integer> function : pipelineFunctions) {
+                for (Pair<Guid, Integer> score : function.getFirst().score(context, hostList, vmGroup)) {
+                    selector.record(function.getFirst().getGuid(), score.getFirst(), score.getSecond());
+                }
+            }
+            return selector.best();
+        }
+
+        private SchedulingContext newContext() {
+            return new SchedulingContext(cluster.getCluster(), policyParameters);
+        }
+
+        /**
+         * Sets every field of the target, and of its super classes, which accepts one of the dependencies
+         */
+        private static <T> T inject(T target, List<Object> dependencies) {
+            for (Class<?> type = target.getClass(); type != Object.class; type = type.getSuperclass()) {
+                for (Field field : type.getDeclaredFields()) {
+                    if (Modifier.isStatic(field.getModifiers())) {
+                        continue;
+                    }
+                    for (Object dependency : dependencies) {
+                        if (field.getType().isInstance(dependency)) {
+                            field.setAccessible(true);
+                            try {
+                                field.set(target, dependency);
+                            } catch (IllegalAccessException e) {
+                                throw new IllegalStateException(e);
+                            }
+                        }
+                    }
+                }
+            }
+            return target;
+        }
+    }
+
+    /**
+     * The engine configuration values read by the benchmarked units
+     */
+    private static class BenchmarkConfigUtils implements IConfigUtilsInterface {
+
+        private final Map<ConfigValues, Object> values = new HashMap<>();
+
+        BenchmarkConfigUtils() {
+            values.put(ConfigValues.VcpuConsumptionPercentage, 20);
+            values.put(ConfigValues.SpmVCpuConsumption, 1);
+            values.put(ConfigValues.HighUtilizationForEvenlyDistribute, 80);
+            values.put(ConfigValues.LowUtilizationForEvenlyDistribute, 20);
+            values.put(ConfigValues.UtilizationThresholdInPercent, 80);
+            values.put(ConfigValues.CpuOverCommitDurationMinutes, 2);
+            values.put(ConfigValues.MaxSchedulerWeight, 1000);
+            values.put(ConfigValues.ExternalSchedulerEnabled, false);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> T getValue(ConfigValues configValue, String version) {
+            return (T) values.get(configValue);
+        }
+
+        @Override
+        public void refresh() {
+        }
+
+        @Override
+        public <T> Map<String, T> getValuesForAllVersions(ConfigValues configValue) {
+            return Collections.emptyMap();
+        }
+
+        @Override
+        public boolean valueExists(ConfigValues configValue, String version) {
+            return values.containsKey(configValue);
+        }
+    }
+}
@@ -0,0 +1,271 @@
+package org.ovirt.engine.benchmarks.scheduling;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.ovirt.engine.core.common.businessentities.Cluster;
+import org.ovirt.engine.core.common.businessentities.CpuPinningPolicy;
+import org.ovirt.engine.core.common.businessentities.MigrationSupport;
+import org.ovirt.engine.core.common.businessentities.NumaNodeStatistics;
+import org.ovirt.engine.core.common.businessentities.NumaTuneMode;
+import org.ovirt.engine.core.common.businessentities.VDS;
+import org.ovirt.engine.core.common.businessentities.VDSStatus;
+import org.ovirt.engine.core.common.businessentities.VM;
+import org.ovirt.engine.core.common.businessentities.VMStatus;
+import org.ovirt.engine.core.common.businessentities.VdsCpuUnit;
+import org.ovirt.engine.core.common.businessentities.VdsNumaNode;
+import org.ovirt.engine.core.common.businessentities.VdsSpmStatus;
+import org.ovirt.engine.core.common.businessentities.VmNumaNode;
+import org.ovirt.engine.core.common.scheduling.AffinityGroup;
+import org.ovirt.engine.core.common.scheduling.EntityAffinityRule;
+import org.ovirt.engine.core.compat.Guid;
+
+/**
+ * <p> A generated cluster of hosts, running VMs and affinity groups for the scheduling benchmarks.</p>
+ * <p> The cluster is generated from a fixed seed, so every run of a benchmark works on the same data. The CPU usage
+ * of the hosts is spread between idle and overloaded, so the balancing units have hosts to balance.</p>
+ */
+public class SyntheticCluster {
+
+    private static final int SOCKETS = 2;
+    private static final int THREADS = 64;
+    private static final int PHYSICAL_MEMORY_MB = 256 * 1024;
+    private static final int[] VM_MEMORY_MB = { 1024, 2048, 4096, 8192 };
+    private static final int[] VM_CPUS = { 1, 2, 4 };
+
+    private final Random random;
+    private final int numaNodes;
+
+    private final Cluster cluster;
+    private final List<VDS> hosts = new ArrayList<>();
+    private final Map<Guid, List<VdsCpuUnit>> cpuTopologies = new HashMap<>();
+    private final List<VM> runningVms = new ArrayList<>();
+    private final List<AffinityGroup> affinityGroups = new ArrayList<>();
+    private final VM affinityVm;
+
+    /**
+     * @param hostCount - number of hosts in the cluster
+     * @param vmsPerHost - number of VMs running on every host
+     * @param numaNodes - number of NUMA nodes of every host
+     * @param affinityGroupCount - number of affinity groups, every second one includes {@link #getAffinityVm()}
+     * @param seed - seed of the generator
+     */
+    public SyntheticCluster(int hostCount, int vmsPerHost, int numaNodes, int affinityGroupCount, long seed) {
+        this.random = new Random(seed);
+        this.numaNodes = numaNodes;
+
+        cluster = new Cluster();
+        cluster.setId(newGuid());
+        cluster.setName("benchmark-cluster");
+        cluster.setCountThreadsAsCores(false);
+
+        for (int i = 0; i < hostCount; i++) {
+            VDS host = createHost(i);
+            hosts.add(host);
+            cpuTopologies.put(host.getId(), createCpuTopology());
+
+            int memCommited = 0;
+            for (int j = 0; j < vmsPerHost; j++) {
+                VM vm = createVm("vm-" + i + "-" + j, randomOf(VM_MEMORY_MB), randomOf(VM_CPUS));
+                vm.setRunOnVds(host.getId());
+                vm.setStatus(VMStatus.Up);
+                vm.setUsageCpuPercent(random.nextInt(100));
+                runningVms.add(vm);
+                memCommited += vm.getMemSizeMb();
+            }
+            host.setMemCommited(memCommited);
+            host.setVmCount(vmsPerHost);
+            host.setVmActive(vmsPerHost);
+        }
+
+        affinityVm = createVm("affinity-vm", 4096, 4);
+        for (int i = 0; i < affinityGroupCount; i++) {
+            affinityGroups.add(createAffinityGroup(i));
+        }
+    }
+
+    private VDS createHost(int index) {
+        VDS host = new VDS();
+        host.setId(newGuid());
+        host.setVdsName("host-" + index);
+        host.setClusterId(cluster.getId());
+        host.setStatus(VDSStatus.Up);
+        host.setSpmStatus(VdsSpmStatus.None);
+        host.setCpuSockets(SOCKETS);
+        host.setCpuCores(THREADS / 2);
+        host.setCpuThreads(THREADS);
+        host.setOnlineCpus(IntStream.range(0, THREADS).mapToObj(String::valueOf).collect(Collectors.joining(",")));
+        host.setPhysicalMemMb(PHYSICAL_MEMORY_MB);
+        host.setReservedMem(321);
+        host.setMaxVdsMemoryOverCommit(150);
+        host.setMemFree((long) PHYSICAL_MEMORY_MB / 2);
+        host.setSwapFree(0L);
+        host.setPendingVmemSize(0);
+        host.setPendingVcpusCount(0);
+        host.setHugePages(Collections.emptyList());
+
+        int usage = random.nextInt(100);
+        host.setUsageCpuPercent(usage);
+        if (usage > 80) {
+            host.setCpuOverCommitTimestamp(new Date(System.currentTimeMillis() - TimeUnit.HOURS.toMillis(1)));
+        }
+
+        host.setNumaSupport(numaNodes > 1);
+        host.setNumaNodeList(createNumaNodes());
+        return host;
+    }
+
+    private List<VdsNumaNode> createNumaNodes() {
+        List<VdsNumaNode> nodes = new ArrayList<>();
+        int threadsPerNode = THREADS / numaNodes;
+        for (int i = 0; i < numaNodes; i++) {
+            NumaNodeStatistics statistics = new NumaNodeStatistics();
+            statistics.setMemFree(PHYSICAL_MEMORY_MB / numaNodes / 2);
+            statistics.setHugePages(new ArrayList<>());
+
+            VdsNumaNode node = new VdsNumaNode();
+            node.setId(newGuid());
+            node.setIndex(i);
+            node.setMemTotal(PHYSICAL_MEMORY_MB / numaNodes);
+            node.setCpuIds(IntStream.range(i * threadsPerNode, (i + 1) * threadsPerNode)
+                    .boxed()
+                    .collect(Collectors.toList()));
+            node.setNumaNodeStatistics(statistics);
+            nodes.add(node);
+        }
+        return nodes;
+    }
+
+    private List<VdsCpuUnit> createCpuTopology() {
+        List<VdsCpuUnit> topology = new ArrayList<>();
+        for (int cpu = 0; cpu < THREADS; cpu++) {
+            VdsCpuUnit unit = new VdsCpuUnit(cpu * numaNodes / THREADS, cpu * SOCKETS / THREADS, cpu / 2, cpu);
+            unit.setCpuUsagePercent(random.nextInt(100));
+            topology.add(unit);
+        }
+        return topology;
+    }
+
+    private AffinityGroup createAffinityGroup(int index) {
+        AffinityGroup group = new AffinityGroup();
+        group.setId(newGuid());
+        group.setName("affinity-group-" + index);
+        group.setClusterId(cluster.getId());
+        group.setVmEnforcing(true);
+        group.setVmAffinityRule(index % 4 < 2 ? EntityAffinityRule.POSITIVE : EntityAffinityRule.NEGATIVE);
+        group.setVdsAffinityRule(EntityAffinityRule.DISABLED);
+
+        List<Guid> vmIds = new ArrayList<>();
+        int members = 2 + random.nextInt(4);
+        for (int i = 0; i < members && !runningVms.isEmpty(); i++) {
+            vmIds.add(runningVms.get(random.nextInt(runningVms.size())).getId());
+        }
+        if (index % 2 == 0) {
+            vmIds.add(affinityVm.getId());
+        }
+        group.setVmIds(vmIds);
+        return group;
+    }
+
+    private VM createVm(String name, int memoryMb, int cpus) {
+        VM vm = new VM();
+        vm.setId(newGuid());
+        vm.setName(name);
+        vm.setClusterId(cluster.getId());
+        vm.setVmMemSizeMb(memoryMb);
+        vm.setMinAllocatedMem(memoryMb);
+        vm.setNumOfSockets(1);
+        vm.setCpuPerSocket(cpus);
+        vm.setThreadsPerCpu(1);
+        vm.setStatus(VMStatus.Down);
+        vm.setMigrationSupport(MigrationSupport.MIGRATABLE);
+        return vm;
+    }
+
+    /**
+     * Returns a VM without any special requirements
+     */
+    public VM newVm() {
+        return createVm("vm", 4096, 4);
+    }
+
+    /**
+     * Returns a VM with 2 virtual NUMA nodes strictly pinned to the host NUMA nodes
+     */
+    public VM newNumaPinnedVm() {
+        VM vm = createVm("numa-vm", 4096, 4);
+        List<VmNumaNode> vmNodes = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            VmNumaNode vmNode = new VmNumaNode();
+            vmNode.setId(newGuid());
+            vmNode.setIndex(i);
+            vmNode.setMemTotal(2048);
+            vmNode.setCpuIds(Arrays.asList(2 * i, 2 * i + 1));
+            vmNode.setVdsNumaNodeList(Collections.singletonList(i % numaNodes));
+            vmNode.setNumaTuneMode(NumaTuneMode.STRICT);
+            vmNodes.add(vmNode);
+        }
+        vm.setvNumaNodeList(vmNodes);
+        return vm;
+    }
+
+    /**
+     * Returns a VM with its virtual CPUs manually pinned to host CPUs
+     */
+    public VM newCpuPinnedVm() {
+        VM vm = createVm("pinned-vm", 4096, 4);
+        vm.setCpuPinningPolicy(CpuPinningPolicy.MANUAL);
+        vm.setCpuPinning("0#0_1#1_2#2_3#3");
+        return vm;
+    }
+
+    /**
+     * Returns the VM which is a member of every second affinity group
+     */
+    public VM getAffinityVm() {
+        return affinityVm;
+    }
+
+    public Cluster getCluster() {
+        return cluster;
+    }
+
+    public List<VDS> getHosts() {
+        return hosts;
+    }
+
+    /**
+     * Returns a copy of the CPU topology of the given host, as the host manager returns it
+     */
+    public List<VdsCpuUnit> getCpuTopology(Guid hostId) {
+        return cpuTopologies.getOrDefault(hostId, Collections.emptyList()).stream()
+                .map(VdsCpuUnit::clone)
+                .collect(Collectors.toList());
+    }
+
+    public List<VM> getRunningVms() {
+        return runningVms;
+    }
+
+    public List<AffinityGroup> getAffinityGroups() {
+        return affinityGroups;
+    }
+
+    private int randomOf(int[] values) {
+        return values[random.nextInt(values.length)];
+    }
+
+    private Guid newGuid() {
+        return new Guid(new UUID(random.nextLong(), random.nextLong()));
+    }
+}
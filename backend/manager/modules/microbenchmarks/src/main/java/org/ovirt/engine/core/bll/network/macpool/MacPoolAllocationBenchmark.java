@@ -0,0 +1,110 @@
+package org.ovirt.engine.core.bll.network.macpool;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.apache.commons.lang.math.LongRange;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.ovirt.engine.core.common.businessentities.network.VmNic;
+import org.ovirt.engine.core.dao.network.VmNicDao;
+import org.ovirt.engine.core.utils.MacAddressRangeUtils;
+
+/**
+ * <p> Benchmarks allocating 10k MACs from a MAC pool, while some MACs of the pool are used by plugged interfaces
+ * outside of it.</p>
+ * <p> The database is replaced by a stub, which burns the given amount of CPU tokens on every query to stand for its
+ * round trip. The MACs picked for allocation are either tested one by one, a query per MAC, or in blocks by the
+ * {@link MacAddressGlobalUsageTester}, a query per block.</p>
+ * <p> The benchmark lives in the package of the MAC pool, as the storage of the pool is not public.</p>
+ *
+ * @see MacsStorage
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class MacPoolAllocationBenchmark {
+
+    private static final int MACS_TO_ALLOCATE = 10_000;
+    private static final long RANGE_FROM = MacAddressRangeUtils.macToLong("00:1a:4a:00:00:00");
+    private static final int RANGE_SIZE = 100_000;
+
+    @Benchmark
+    public void allocateTestingEachMac(BenchmarkState state, Blackhole blackhole) {
+        MacsInUseTester tester = macs -> macs.stream()
+                .filter(mac -> !state.vmNicDao.getPluggedForMac(mac).isEmpty())
+                .collect(Collectors.toSet());
+        state.macsStorage.setMacsInUseTester(tester);
+        blackhole.consume(state.macsStorage.allocateAvailableMacs(MACS_TO_ALLOCATE));
+    }
+
+    @Benchmark
+    public void allocateTestingBlocks(BenchmarkState state, Blackhole blackhole) {
+        state.macsStorage.setMacsInUseTester(new MacAddressGlobalUsageTester(false, state.vmNicDao));
+        blackhole.consume(state.macsStorage.allocateAvailableMacs(MACS_TO_ALLOCATE));
+    }
+
+    @State(Scope.Thread)
+    public static class BenchmarkState {
+
+        @Param({ "0", "5" })
+        private int macsInUsePercent;
+
+        @Param({ "1000" })
+        private long roundTripTokens;
+
+        private Set<String> macsInUse;
+        private VmNicDao vmNicDao;
+        private MacsStorage macsStorage;
+
+        @Setup(Level.Trial)
+        public void setupDao() {
+            Random random = new Random(0);
+            macsInUse = new HashSet<>();
+            while (macsInUse.size() < RANGE_SIZE / 100 * macsInUsePercent) {
+                macsInUse.add(MacAddressRangeUtils.macToString(RANGE_FROM + random.nextInt(RANGE_SIZE)));
+            }
+
+            vmNicDao = mock(VmNicDao.class);
+            when(vmNicDao.getPluggedForMac(anyString())).thenAnswer(invocation -> {
+                Blackhole.consumeCPU(roundTripTokens);
+                return macsInUse.contains(invocation.<String>getArgument(0)) ?
+                        Collections.singletonList(new VmNic()) :
+                        Collections.emptyList();
+            });
+            when(vmNicDao.getPluggedMacsIn(any())).thenAnswer(invocation -> {
+                Blackhole.consumeCPU(roundTripTokens);
+                return invocation.<Collection<String>>getArgument(0).stream()
+                        .filter(macsInUse::contains)
+                        .collect(Collectors.<String>toList());
+            });
+        }
+
+        @Setup(Level.Invocation)
+        public void setupMacsStorage() {
+            macsStorage = new MacsStorage(false, MacsInUseTester.NONE);
+            macsStorage.addRange(new Range(new LongRange(RANGE_FROM, RANGE_FROM + RANGE_SIZE - 1)));
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package org.ovirt.engine.core.bll.network.macpool;
+
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang.math.LongRange;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.ovirt.engine.core.utils.MacAddressRangeUtils;
+
+/**
+ * <p> Benchmarks initializing the storage of a MAC pool, which allows duplicates, with 1M MACs used by the VMs, as done
+ * for every MAC pool when the engine starts.</p>
+ * <p> The MACs are spread over the given number of ranges of the pool; the given percentage of them is outside of the
+ * ranges, and the given percentage of them duplicates another MAC. The MACs come as strings, as they are read from the
+ * database.</p>
+ * <p> Besides the time, the heap retained by the initialized storage is reported by the {@code retainedKiB} counter.
+ * Run with {@code -prof gc} to see the garbage produced by the initialization.</p>
+ *
+ * @see MacsStorage
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class MacPoolInitializationBenchmark {
+
+    private static final int NUMBER_OF_MACS = 1_000_000;
+    private static final long RANGES_FROM = MacAddressRangeUtils.macToLong("00:1a:4a:00:00:00");
+    private static final long CUSTOM_MACS_FROM = MacAddressRangeUtils.macToLong("02:00:00:00:00:00");
+
+    @Benchmark
+    public MacsStorage initialize(BenchmarkState state, RetainedHeap retainedHeap) {
+        MacsStorage macsStorage = new MacsStorage(true, MacsInUseTester.NONE);
+        long rangeSize = NUMBER_OF_MACS / state.numberOfRanges;
+        for (int i = 0; i < state.numberOfRanges; i++) {
+            long rangeFrom = RANGES_FROM + i * rangeSize;
+            macsStorage.addRange(new Range(new LongRange(rangeFrom, rangeFrom + rangeSize - 1)));
+        }
+
+        for (String mac : state.macs) {
+            macsStorage.useMac(MacAddressRangeUtils.macToLong(mac));
+        }
+
+        retainedHeap.macsStorage = macsStorage;
+        return macsStorage;
+    }
+
+    @State(Scope.Thread)
+    public static class BenchmarkState {
+
+        @Param({ "1", "100" })
+        private int numberOfRanges;
+
+        @Param({ "0", "50" })
+        private int customMacsPercent;
+
+        @Param({ "10" })
+        private int duplicateMacsPercent;
+
+        private String[] macs;
+
+        @Setup(Level.Trial)
+        public void setupMacs() {
+            Random random = new Random(0);
+            macs = new String[NUMBER_OF_MACS];
+            for (int i = 0; i < NUMBER_OF_MACS; i++) {
+                if (i > 0 && random.nextInt(100) < duplicateMacsPercent) {
+                    macs[i] = macs[random.nextInt(i)];
+                } else if (random.nextInt(100) < customMacsPercent) {
+                    macs[i] = MacAddressRangeUtils.macToString(CUSTOM_MACS_FROM + random.nextInt(Integer.MAX_VALUE));
+                } else {
+                    macs[i] = MacAddressRangeUtils.macToString(RANGES_FROM + random.nextInt(NUMBER_OF_MACS));
+                }
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class RetainedHeap {
+
+        public long retainedKiB;
+
+        private MacsStorage macsStorage;
+        private long heapUsedBeforeInitialization;
+
+        @Setup(Level.Iteration)
+        public void measureHeapBeforeInitialization() {
+            macsStorage = null;
+            retainedKiB = 0;
+            heapUsedBeforeInitialization = getHeapUsedAfterGc();
+        }
+
+        @TearDown(Level.Iteration)
+        public void measureHeapRetainedByStorage() {
+            retainedKiB = (getHeapUsedAfterGc() - heapUsedBeforeInitialization) / 1024;
+        }
+
+        private static long getHeapUsedAfterGc() {
+            System.gc();
+            System.gc();
+            return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package org.ovirt.engine.core.dal.dbbroker.auditloghandling;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.ovirt.engine.core.common.AuditLogType;
+import org.ovirt.engine.core.compat.backendcompat.TypeCompat;
+
+/**
+ * <p> Benchmarks resolving the message of an audit log event from its custom values and properties.</p>
+ * <p> The message is either parsed by a regular expression on every event, with the values of its variables collected
+ * into a map first, or compiled once into a {@link MessageTemplate} filled straight from the event.</p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class AuditLogMessageResolutionBenchmark {
+
+    private static final Pattern VARIABLE_PATTERN = Pattern.compile("\\$\\{\\w*\\}");
+
+    @Benchmark
+    public String resolveByRegularExpression(BenchmarkState state) {
+        String message = MessageBundler.getMessageOrNull(state.logType);
+        Map<String, String> values = new HashMap<>(state.logable.getCustomValues());
+        Set<String> properties = new HashSet<>();
+        Matcher placeHolders = VARIABLE_PATTERN.matcher(message);
+        while (placeHolders.find()) {
+            String token = placeHolders.group();
+            properties.add(token.substring(2, token.length() - 1).toLowerCase());
+        }
+        TypeCompat.getPropertyValues(state.logable, properties, values);
+
+        Matcher matcher = VARIABLE_PATTERN.matcher(message);
+        StringBuffer buffer = new StringBuffer();
+        while (matcher.find()) {
+            String token = matcher.group();
+            token = token.substring(2, token.length() - 1).toLowerCase();
+            String value = MessageResolver.getValueOrDefault(token, values.get(token));
+            matcher.appendReplacement(buffer, Matcher.quoteReplacement(value));
+        }
+        matcher.appendTail(buffer);
+        return buffer.toString();
+    }
+
+    @Benchmark
+    public String resolveByTemplate(BenchmarkState state) {
+        return MessageBundler.getTemplateOrNull(state.logType).resolve(state.logable);
+    }
+
+    @State(Scope.Thread)
+    public static class BenchmarkState {
+
+        @Param({ "USER_RUN_VM", "VM_MIGRATION_DONE", "VDS_BROKER_COMMAND_FAILURE" })
+        private AuditLogType logType;
+
+        private AuditLogableImpl logable;
+
+        @Setup
+        public void setUp() {
+            logable = new AuditLogableImpl();
+            logable.setVmName("vm-0001");
+            logable.setVdsName("host-0001");
+            logable.setUserName("admin@internal-authz");
+            logable.addCustomValue("DestinationVdsName", "host-0002");
+            logable.addCustomValue("Duration", "8 seconds");
+            logable.addCustomValue("TotalDuration", "10 seconds");
+            logable.addCustomValue("ActualDowntime", "112ms");
+            logable.addCustomValue("CommandName", "GetStatsAsyncVDS");
+            logable.addCustomValue("message", "Heartbeat exceeded");
+        }
+    }
+}
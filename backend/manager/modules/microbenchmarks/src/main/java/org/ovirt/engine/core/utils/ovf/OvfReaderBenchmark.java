@@ -0,0 +1,196 @@
+package org.ovirt.engine.core.utils.ovf;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.ovirt.engine.core.common.businessentities.ArchitectureType;
+import org.ovirt.engine.core.common.businessentities.BiosType;
+import org.ovirt.engine.core.common.businessentities.OriginType;
+import org.ovirt.engine.core.common.businessentities.Snapshot;
+import org.ovirt.engine.core.common.businessentities.Snapshot.SnapshotType;
+import org.ovirt.engine.core.common.businessentities.VM;
+import org.ovirt.engine.core.common.businessentities.network.VmNetworkInterface;
+import org.ovirt.engine.core.common.businessentities.network.VmNetworkStatistics;
+import org.ovirt.engine.core.common.businessentities.storage.DiskImage;
+import org.ovirt.engine.core.common.businessentities.storage.DiskInterface;
+import org.ovirt.engine.core.common.businessentities.storage.DiskVmElement;
+import org.ovirt.engine.core.common.businessentities.storage.FullEntityOvfData;
+import org.ovirt.engine.core.common.businessentities.storage.Image;
+import org.ovirt.engine.core.common.businessentities.storage.ImageStatus;
+import org.ovirt.engine.core.common.businessentities.storage.VolumeFormat;
+import org.ovirt.engine.core.common.businessentities.storage.VolumeType;
+import org.ovirt.engine.core.common.config.Config;
+import org.ovirt.engine.core.common.config.ConfigValues;
+import org.ovirt.engine.core.common.config.IConfigUtilsInterface;
+import org.ovirt.engine.core.common.osinfo.OsRepository;
+import org.ovirt.engine.core.compat.Guid;
+import org.ovirt.engine.core.compat.Version;
+import org.ovirt.engine.core.utils.ovf.xml.StreamedXmlDocument;
+import org.ovirt.engine.core.utils.ovf.xml.XmlDocument;
+
+/**
+ * <p> Benchmarks reading the OVF of a VM with many disks and snapshots, as done when a VM is imported or its snapshot
+ * is previewed.</p>
+ * <p> The same {@link OvfVmReader} reads the OVF either from a DOM document queried by XPath, or from a
+ * {@link StreamedXmlDocument} read in a single pass by StAX. Every snapshot holds the configuration of the VM, so the
+ * size of the OVF grows with both parameters.</p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class OvfReaderBenchmark {
+
+    @Benchmark
+    public VM readDomDocument(BenchmarkState state) throws Exception {
+        VM vm = new VM();
+        new OvfVmReader(new XmlDocument(state.ovf), vm, new FullEntityOvfData(vm), state.osRepository).build();
+        return vm;
+    }
+
+    @Benchmark
+    public VM readStreamedDocument(BenchmarkState state) throws Exception {
+        VM vm = new VM();
+        new OvfVmReader(new StreamedXmlDocument(state.ovf), vm, new FullEntityOvfData(vm), state.osRepository).build();
+        return vm;
+    }
+
+    @State(Scope.Thread)
+    public static class BenchmarkState {
+
+        private static final int OS_ID = 1;
+
+        @Param({ "10", "100" })
+        private int disks;
+
+        @Param({ "10", "50" })
+        private int snapshots;
+
+        private OsRepository osRepository;
+        private String ovf;
+
+        @Setup
+        public void setUp() {
+            IConfigUtilsInterface configUtils = mock(IConfigUtilsInterface.class);
+            when(configUtils.getValue(eq(ConfigValues.VdcVersion), any())).thenReturn("4.4.0.0");
+            when(configUtils.getValue(eq(ConfigValues.OvfVirtualSystemType), any())).thenReturn("ENGINE");
+            Config.setConfigUtils(configUtils);
+
+            osRepository = mock(OsRepository.class);
+            when(osRepository.getArchitectureFromOS(anyInt())).thenReturn(ArchitectureType.x86_64);
+            when(osRepository.getUniqueOsNames()).thenReturn(Collections.singletonMap(OS_ID, "rhel_8x64"));
+            when(osRepository.getOsIdByUniqueName("rhel_8x64")).thenReturn(OS_ID);
+
+            Random random = new Random(0);
+            VM vm = createVm(random);
+            List<DiskImage> diskImages = new ArrayList<>();
+            for (int i = 0; i < disks; i++) {
+                diskImages.add(createDisk(vm, random));
+            }
+            String vmConfiguration = writeOvf(vm, diskImages);
+
+            List<Snapshot> vmSnapshots = new ArrayList<>();
+            for (int i = 0; i < snapshots; i++) {
+                Snapshot snapshot = new Snapshot(true);
+                snapshot.setId(Guid.newGuid());
+                snapshot.setVmId(vm.getId());
+                snapshot.setType(i == 0 ? SnapshotType.ACTIVE : SnapshotType.REGULAR);
+                snapshot.setDescription("snapshot-" + i);
+                snapshot.setCreationDate(new Date());
+                snapshot.setVmConfiguration(vmConfiguration);
+                vmSnapshots.add(snapshot);
+            }
+            vm.setSnapshots(vmSnapshots);
+            ovf = writeOvf(vm, diskImages);
+        }
+
+        private String writeOvf(VM vm, List<DiskImage> diskImages) {
+            FullEntityOvfData fullEntityOvfData = new FullEntityOvfData(vm);
+            fullEntityOvfData.setDiskImages(diskImages);
+            return new OvfVmWriter(vm, fullEntityOvfData, Version.getLast(), osRepository, Collections.emptyMap())
+                    .build()
+                    .getStringRepresentation();
+        }
+
+        private static VM createVm(Random random) {
+            VM vm = new VM();
+            vm.setId(Guid.newGuid());
+            vm.setName("vm-0001");
+            vm.setVmDescription("benchmark");
+            vm.setOrigin(OriginType.OVIRT);
+            vm.setDbGeneration(1L);
+            vm.setVmOs(OS_ID);
+            vm.setClusterArch(ArchitectureType.x86_64);
+            vm.setClusterBiosType(BiosType.Q35_SEA_BIOS);
+            vm.setBiosType(BiosType.Q35_SEA_BIOS);
+
+            List<VmNetworkInterface> interfaces = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                VmNetworkInterface vmInterface = new VmNetworkInterface();
+                vmInterface.setStatistics(new VmNetworkStatistics());
+                vmInterface.setId(Guid.newGuid());
+                vmInterface.setVmId(vm.getId());
+                vmInterface.setName("nic" + i);
+                vmInterface.setVnicProfileName("ovirtmgmt");
+                vmInterface.setNetworkName("ovirtmgmt");
+                vmInterface.setLinked(true);
+                vmInterface.setSpeed(1000);
+                vmInterface.setType(3);
+                vmInterface.setMacAddress(String.format("00:1a:4a:16:01:%02x", random.nextInt(256)));
+                interfaces.add(vmInterface);
+            }
+            vm.setInterfaces(interfaces);
+            return vm;
+        }
+
+        private static DiskImage createDisk(VM vm, Random random) {
+            DiskImage disk = new DiskImage();
+            disk.setId(Guid.newGuid());
+            disk.setImageId(Guid.newGuid());
+            disk.setSize(random.nextInt(1000));
+            disk.setActualSize(random.nextInt(1000));
+            disk.setVolumeFormat(VolumeFormat.COW);
+            disk.setVolumeType(VolumeType.Sparse);
+            disk.setDiskAlias("disk-" + disk.getId());
+            disk.setDescription("benchmark");
+            disk.setStorageIds(Arrays.asList(Guid.newGuid(), Guid.newGuid()));
+            disk.setStoragePoolId(Guid.newGuid());
+            disk.setPlugged(true);
+            disk.setAppList("");
+
+            Image image = new Image();
+            image.setActive(true);
+            image.setVolumeFormat(VolumeFormat.COW);
+            image.setId(disk.getImageId());
+            image.setStatus(ImageStatus.OK);
+            disk.setImage(image);
+
+            DiskVmElement diskVmElement = new DiskVmElement(disk.getId(), vm.getId());
+            diskVmElement.setDiskInterface(DiskInterface.VirtIO_SCSI);
+            diskVmElement.setPlugged(true);
+            disk.setDiskVmElements(Collections.singletonList(diskVmElement));
+            return disk;
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package org.ovirt.engine.core.utils.serialization.json;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.ovirt.engine.core.common.action.ActionParametersBase;
+import org.ovirt.engine.core.common.action.ActionType;
+import org.ovirt.engine.core.common.action.AddDiskParameters;
+import org.ovirt.engine.core.common.action.AddVmParameters;
+import org.ovirt.engine.core.common.action.RunVmParams;
+import org.ovirt.engine.core.common.businessentities.BiosType;
+import org.ovirt.engine.core.common.businessentities.OriginType;
+import org.ovirt.engine.core.common.businessentities.VmStatic;
+import org.ovirt.engine.core.common.businessentities.storage.DiskImage;
+import org.ovirt.engine.core.common.businessentities.storage.DiskInterface;
+import org.ovirt.engine.core.common.businessentities.storage.DiskVmElement;
+import org.ovirt.engine.core.common.businessentities.storage.VolumeFormat;
+import org.ovirt.engine.core.common.businessentities.storage.VolumeType;
+import org.ovirt.engine.core.common.config.Config;
+import org.ovirt.engine.core.common.config.ConfigValues;
+import org.ovirt.engine.core.common.config.IConfigUtilsInterface;
+import org.ovirt.engine.core.compat.Guid;
+
+/**
+ * <p> Benchmarks writing and reading the parameters of commands, as done by the commands cache whenever a command is
+ * saved and for every command when the engine starts.</p>
+ * <p> The parameters are stored either as the indented JSON written by {@link JsonObjectSerializer#serialize}, or as
+ * the Smile form in Base64 written by {@link JsonObjectSerializer#serializeCompact}.</p>
+ * <p> The lengths of both stored values are printed when the parameters are set up.</p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CommandParametersSerializationBenchmark {
+
+    @Benchmark
+    public String serialize(BenchmarkState state) {
+        return state.serializer.serialize(state.parameters);
+    }
+
+    @Benchmark
+    public String serializeCompact(BenchmarkState state) {
+        return state.serializer.serializeCompact(state.parameters);
+    }
+
+    @Benchmark
+    public ActionParametersBase deserialize(BenchmarkState state) {
+        return state.deserializer.deserialize(state.json, state.parameters.getClass());
+    }
+
+    @Benchmark
+    public ActionParametersBase deserializeCompact(BenchmarkState state) {
+        return state.deserializer.deserialize(state.compactJson, state.parameters.getClass());
+    }
+
+    @State(Scope.Thread)
+    public static class BenchmarkState {
+
+        /**
+         * The parameters of a VM started from the UI, of a new VM, and of a disk added as a child command of a new VM
+         * which carries the parameters of its parent.
+         */
+        @Param({ "RunVm", "AddVm", "AddDisk" })
+        private String parametersType;
+
+        private final JsonObjectSerializer serializer = new JsonObjectSerializer();
+        private final JsonObjectDeserializer deserializer = new JsonObjectDeserializer();
+        private ActionParametersBase parameters;
+        private String json;
+        private String compactJson;
+
+        @Setup
+        public void setUp() {
+            IConfigUtilsInterface configUtils = mock(IConfigUtilsInterface.class);
+            when(configUtils.getValue(eq(ConfigValues.PropagateDiskErrors), any())).thenReturn(false);
+            Config.setConfigUtils(configUtils);
+
+            switch (parametersType) {
+            case "RunVm":
+                parameters = createRunVmParameters();
+                break;
+            case "AddVm":
+                parameters = createAddVmParameters();
+                break;
+            case "AddDisk":
+                parameters = createAddDiskParameters();
+                break;
+            default:
+                throw new IllegalArgumentException(parametersType);
+            }
+            json = serializer.serialize(parameters);
+            compactJson = serializer.serializeCompact(parameters);
+            System.out.printf("%s parameters are stored in %d chars as JSON and %d chars in the compact form%n",
+                    parametersType, json.length(), compactJson.length());
+        }
+
+        private static RunVmParams createRunVmParameters() {
+            RunVmParams parameters = new RunVmParams(Guid.newGuid());
+            parameters.setCorrelationId("a2ba5b11-3f8c-4ab4-b73a-d21b9e9e5c43");
+            parameters.setSessionId("4n3Q0bZ0IjBDbNvvTlM3oz2tpjWRCjU5nWVvJvGmSL2mN5G7pWJQyDSIaWyqCPl0bBtiIkCfT1V7WE0A");
+            parameters.setRunAndPause(false);
+            parameters.setRunAsStateless(false);
+            return parameters;
+        }
+
+        private static AddVmParameters createAddVmParameters() {
+            AddVmParameters parameters = new AddVmParameters(createVmStatic());
+            parameters.setCorrelationId("a2ba5b11-3f8c-4ab4-b73a-d21b9e9e5c43");
+            parameters.setSessionId("4n3Q0bZ0IjBDbNvvTlM3oz2tpjWRCjU5nWVvJvGmSL2mN5G7pWJQyDSIaWyqCPl0bBtiIkCfT1V7WE0A");
+            parameters.setSoundDeviceEnabled(true);
+            parameters.setVirtioScsiEnabled(true);
+            parameters.setConsoleEnabled(true);
+            return parameters;
+        }
+
+        private static AddDiskParameters createAddDiskParameters() {
+            AddVmParameters addVmParameters = createAddVmParameters();
+            Guid vmId = addVmParameters.getVmStaticData().getId();
+
+            DiskImage disk = new DiskImage();
+            disk.setId(Guid.newGuid());
+            disk.setImageId(Guid.newGuid());
+            disk.setSize(10L * 1024 * 1024 * 1024);
+            disk.setVolumeFormat(VolumeFormat.COW);
+            disk.setVolumeType(VolumeType.Sparse);
+            disk.setDiskAlias("vm-0001_Disk1");
+            disk.setDescription("benchmark");
+            disk.setStorageIds(Arrays.asList(Guid.newGuid()));
+            disk.setStoragePoolId(Guid.newGuid());
+
+            DiskVmElement diskVmElement = new DiskVmElement(disk.getId(), vmId);
+            diskVmElement.setDiskInterface(DiskInterface.VirtIO_SCSI);
+            diskVmElement.setBoot(true);
+
+            AddDiskParameters parameters = new AddDiskParameters(diskVmElement, disk);
+            parameters.setStorageDomainId(disk.getStorageIds().get(0));
+            parameters.setParentCommand(ActionType.AddVm);
+            parameters.setParentParameters(addVmParameters);
+            parameters.setCorrelationId(addVmParameters.getCorrelationId());
+            parameters.setSessionId(addVmParameters.getSessionId());
+            return parameters;
+        }
+
+        private static VmStatic createVmStatic() {
+            VmStatic vmStatic = new VmStatic();
+            vmStatic.setId(Guid.newGuid());
+            vmStatic.setName("vm-0001");
+            vmStatic.setDescription("benchmark");
+            vmStatic.setComment("created by the benchmark");
+            vmStatic.setClusterId(Guid.newGuid());
+            vmStatic.setVmtGuid(Guid.Empty);
+            vmStatic.setOrigin(OriginType.OVIRT);
+            vmStatic.setOsId(1);
+            vmStatic.setMemSizeMb(4096);
+            vmStatic.setMaxMemorySizeMb(16384);
+            vmStatic.setMinAllocatedMem(4096);
+            vmStatic.setNumOfSockets(2);
+            vmStatic.setCpuPerSocket(2);
+            vmStatic.setThreadsPerCpu(1);
+            vmStatic.setBiosType(BiosType.Q35_SEA_BIOS);
+            return vmStatic;
+        }
+    }
+}
@@ -4,8 +4,10 @@ import static java.util.stream.Collectors.toList;
 import static java.util.stream.Collectors.toSet;
 
 import java.net.URI;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 import javax.ws.rs.core.Response;
 
@@ -36,6 +38,12 @@ public abstract class AbstractBackendCollectionResource<R extends BaseResource,
     public static final String CASE_SENSITIVE_CONSTRAINT_PARAMETER = "case_sensitive";
     private static final Logger log = LoggerFactory.getLogger(AbstractBackendCollectionResource.class);
 
+    /**
+     * The types of searches which can be filtered by the permissions of the user as part of the search itself
+     */
+    private static final Set<SearchType> PERMISSIONS_FILTERED_SEARCH_TYPES =
+            EnumSet.of(SearchType.VM, SearchType.VDS, SearchType.VmTemplate, SearchType.Disk);
+
     protected AbstractBackendCollectionResource(Class<R> modelType, Class<Q> entityType) {
         super(modelType, entityType);
     }
@@ -69,7 +77,8 @@ public abstract class AbstractBackendCollectionResource<R extends BaseResource,
     }
 
     /**
-     * get the entities according to the filter and intersect them with those resulted from running the search query
+     * get the entities according to the filter and the search query - either by a search query which is filtered by
+     * the permissions of the user, or by intersecting the entities of the filtered-query with those of the search query
      */
     protected List<Q> getBackendCollection(QueryType query, QueryParametersBase queryParams, SearchType searchType) {
         // get the search predicate from the URL
@@ -77,22 +86,37 @@ public abstract class AbstractBackendCollectionResource<R extends BaseResource,
         // if no search predicate provided - return the result of the filtered query as is
         if (search == null) {
             return getBackendCollection(entityType, query, queryParams);
-        } else { // if search predicate is provided - proceed by checking for 'max' parameter:
+        }
+        long start = System.nanoTime();
+        List<Q> results;
+        // if the search can be filtered by the permissions of the user - let the search query apply both the
+        // filter and 'max', instead of loading everything the filtered-query and the search query return
+        if (PERMISSIONS_FILTERED_SEARCH_TYPES.contains(searchType)) {
+            SearchParameters searchParams = getSearchParameters(searchType,
+                    QueryHelper.getConstraint(httpHeaders, uriInfo, "", modelType));
+            searchParams.setPermissionsFiltered(true);
+            results = getBackendCollection(entityType, QueryType.Search, searchParams);
+        } else { // otherwise proceed by checking for 'max' parameter:
             int max = ParametersHelper
                     .getIntegerParameter(httpHeaders, uriInfo, MAX, Integer.MAX_VALUE, Integer.MAX_VALUE);
             // if 'max' parameter does not exist - return the intersection between the
             // filtered-query and the search query with no need for additional manipulation
             if (max == Integer.MAX_VALUE) {
-                return intersect(query, queryParams, searchType);
+                results = intersect(query, queryParams, searchType);
             } else { // if 'max' parameter does exists:
                 // 1. Remove 'max' from parameters
                 ParametersHelper.removeParameter(MAX);
                 // 2. Get filtered-query and search-query results, and intersect them
-                List<Q> results = intersect(query, queryParams, searchType);
+                results = intersect(query, queryParams, searchType);
                 // 3. Manually apply 'max' to the result set
-                return results.subList(0, max <= results.size() ? max : results.size());
+                results = results.subList(0, max <= results.size() ? max : results.size());
             }
         }
+        log.debug("Filtered search on {} returned {} entities in {} ms",
+                searchType,
+                results.size(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return results;
     }
 
     /**
@@ -51,10 +51,17 @@ public class BackendDiskResource
         extends AbstractBackendActionableResource<Disk, org.ovirt.engine.core.common.businessentities.storage.Disk>
         implements DiskResource {
 
+    private org.ovirt.engine.core.common.businessentities.storage.Disk disk;
+
     protected BackendDiskResource(String id) {
         super(id, Disk.class, org.ovirt.engine.core.common.businessentities.storage.Disk.class);
     }
 
+    protected BackendDiskResource(org.ovirt.engine.core.common.businessentities.storage.Disk disk) {
+        this(disk.getId().toString());
+        this.disk = disk;
+    }
+
     @Override
     public CreationResource getCreationResource(String ids) {
         return inject(new BackendCreationResource(ids));
@@ -185,6 +192,9 @@ public class BackendDiskResource
 
     @Override
     public Disk get() {
+        if (disk != null) {
+            return addLinks(populate(map(disk, null), disk));
+        }
         return performGet(QueryType.GetDiskAndSnapshotsByDiskId, new IdQueryParameters(guid));
     }
 
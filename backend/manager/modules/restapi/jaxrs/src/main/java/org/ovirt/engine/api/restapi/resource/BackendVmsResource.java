@@ -77,8 +77,10 @@ import org.ovirt.engine.core.common.businessentities.VmRngDevice;
 import org.ovirt.engine.core.common.businessentities.VmStatic;
 import org.ovirt.engine.core.common.businessentities.VmTemplate;
 import org.ovirt.engine.core.common.businessentities.VmWatchdog;
+import org.ovirt.engine.core.common.businessentities.network.VmNetworkInterface;
 import org.ovirt.engine.core.common.businessentities.storage.BaseDisk;
 import org.ovirt.engine.core.common.businessentities.storage.DiskImage;
+import org.ovirt.engine.core.common.businessentities.storage.DiskVmElement;
 import org.ovirt.engine.core.common.interfaces.SearchType;
 import org.ovirt.engine.core.common.osinfo.OsRepository;
 import org.ovirt.engine.core.common.queries.GetFilteredAndSortedParameters;
@@ -114,6 +116,9 @@ public class BackendVmsResource extends
     private static final String HOST_DEVICES = "host_devices";
     private static final String WATCHDOGS = "watchdogs";
     private static final String SNAPSHOTS = "snapshots";
+    private static final String NICS = "nics";
+    private static final String DISK_ATTACHMENTS = "disk_attachments";
+    private static final String DISK = "disk";
 
     private Map<String, VM> vmIdToVm = Collections.emptyMap();
 
@@ -794,6 +799,74 @@ public class BackendVmsResource extends
             vms.getVms().forEach(this::setSnapshots);
             node.setFollowed(true);
         });
+        // The links below are fetched for all the VMs with a single query, instead of a query per VM, and so are the
+        // disks of the disk attachments. Other links nested under them are still followed by the link follower,
+        // starting from the fetched entities.
+        findNics(linksTree).ifPresent(node -> {
+            Vms vms = (Vms) entity;
+            Map<Guid, List<VmNetworkInterface>> nics =
+                    getEntitiesByVmIds(vms, QueryType.GetVmInterfacesByVmIds, "GetVmInterfacesByVmIds");
+            vms.getVms().forEach(vm -> setNics(vm, nics.getOrDefault(asGuid(vm.getId()), Collections.emptyList())));
+            node.setFollowed(true);
+        });
+        findDiskAttachments(linksTree).ifPresent(node -> {
+            Vms vms = (Vms) entity;
+            Map<Guid, List<DiskVmElement>> diskVmElements =
+                    getEntitiesByVmIds(vms, QueryType.GetDiskVmElementsByVmIds, "GetDiskVmElementsByVmIds");
+            vms.getVms().forEach(vm -> setDiskAttachments(vm,
+                    diskVmElements.getOrDefault(asGuid(vm.getId()), Collections.emptyList())));
+            node.setFollowed(true);
+            findNode(node, DISK).ifPresent(diskNode -> {
+                if (setDisks(vms)) {
+                    diskNode.setFollowed(true);
+                }
+            });
+        });
+    }
+
+    /**
+     * Sets the disks of all the disk attachments of the given VMs, fetched with a single query. If a disk is not
+     * found, no disk is set and the disks are left to the link follower, which reports the missing disk as usual.
+     */
+    private boolean setDisks(Vms vms) {
+        List<DiskAttachment> attachments = vms.getVms().stream()
+                .flatMap(vm -> vm.getDiskAttachments().getDiskAttachments().stream())
+                .collect(Collectors.toList());
+        if (attachments.isEmpty()) {
+            return true;
+        }
+        List<Guid> diskIds = attachments.stream()
+                .map(attachment -> asGuid(attachment.getDisk().getId()))
+                .distinct()
+                .collect(Collectors.toList());
+        List<org.ovirt.engine.core.common.businessentities.storage.Disk> disks = getBackendCollection(
+                org.ovirt.engine.core.common.businessentities.storage.Disk.class,
+                QueryType.GetDisksAndSnapshotsByDiskIds,
+                new IdsQueryParameters(diskIds));
+        Map<String, Disk> disksById = new HashMap<>();
+        for (org.ovirt.engine.core.common.businessentities.storage.Disk disk : disks) {
+            disksById.put(disk.getId().toString(), inject(new BackendDiskResource(disk)).get());
+        }
+        if (!disksById.keySet().containsAll(
+                diskIds.stream().map(Guid::toString).collect(Collectors.toList()))) {
+            return false;
+        }
+        attachments.forEach(attachment -> attachment.setDisk(disksById.get(attachment.getDisk().getId())));
+        return true;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> Map<Guid, List<T>> getEntitiesByVmIds(Vms vms, QueryType queryType, String identifier) {
+        List<Guid> vmIds = vms.getVms().stream().map(Vm::getId).map(this::asGuid).collect(Collectors.toList());
+        return getEntity(Map.class, queryType, new IdsQueryParameters(vmIds), identifier, true);
+    }
+
+    private void setNics(Vm vm, List<VmNetworkInterface> interfaces) {
+        vm.setNics(inject(new BackendVmNicsResource(asGuid(vm.getId()), interfaces)).list());
+    }
+
+    private void setDiskAttachments(Vm vm, List<DiskVmElement> diskVmElements) {
+        vm.setDiskAttachments(inject(new BackendDiskAttachmentsResource(asGuid(vm.getId()), diskVmElements)).list());
     }
 
     private List<VmWatchdog> getWatchdogs(Vms vms) {
@@ -856,6 +929,14 @@ public class BackendVmsResource extends
         return findNode(linksTree, SNAPSHOTS);
     }
 
+    private Optional<LinksTreeNode> findNics(LinksTreeNode linksTree) {
+        return findNode(linksTree, NICS);
+    }
+
+    private Optional<LinksTreeNode> findDiskAttachments(LinksTreeNode linksTree) {
+        return findNode(linksTree, DISK_ATTACHMENTS);
+    }
+
     protected InstanceType lookupInstance(Template template) {
         return getEntity(InstanceType.class,
                 QueryType.GetInstanceType,
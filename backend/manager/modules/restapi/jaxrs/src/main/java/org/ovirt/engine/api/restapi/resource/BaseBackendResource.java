@@ -337,8 +337,11 @@ public class BaseBackendResource {
      * TODO: consider making it recursive
      */
     protected Optional<LinksTreeNode> findNode(LinksTreeNode linksTree, String link) {
-        link = normalizeLinkName(link);
-        return linksTree.getChild(link);
+        String normalizedLink = normalizeLinkName(link);
+        return linksTree.getChildren()
+                .stream()
+                .filter(child -> normalizeLinkName(child.getElement()).equals(normalizedLink))
+                .findFirst();
     }
 
     /**
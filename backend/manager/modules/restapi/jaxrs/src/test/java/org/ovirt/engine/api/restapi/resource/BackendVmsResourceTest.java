@@ -5,8 +5,13 @@ import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.util.ArrayList;
@@ -34,13 +39,16 @@ import org.ovirt.engine.api.model.DiskAttachments;
 import org.ovirt.engine.api.model.Host;
 import org.ovirt.engine.api.model.Hosts;
 import org.ovirt.engine.api.model.Initialization;
+import org.ovirt.engine.api.model.Nic;
 import org.ovirt.engine.api.model.Snapshot;
 import org.ovirt.engine.api.model.Snapshots;
 import org.ovirt.engine.api.model.StorageDomain;
 import org.ovirt.engine.api.model.Template;
 import org.ovirt.engine.api.model.Vm;
 import org.ovirt.engine.api.model.VmPlacementPolicy;
+import org.ovirt.engine.api.model.Vms;
 import org.ovirt.engine.api.restapi.logging.Messages;
+import org.ovirt.engine.api.restapi.resource.utils.LinksTreeNode;
 import org.ovirt.engine.core.common.action.ActionType;
 import org.ovirt.engine.core.common.action.AddVmFromSnapshotParameters;
 import org.ovirt.engine.core.common.action.AddVmParameters;
@@ -61,7 +69,13 @@ import org.ovirt.engine.core.common.businessentities.VmInit;
 import org.ovirt.engine.core.common.businessentities.VmPayload;
 import org.ovirt.engine.core.common.businessentities.VmStatistics;
 import org.ovirt.engine.core.common.businessentities.VmType;
+import org.ovirt.engine.core.common.businessentities.network.VmNetworkInterface;
 import org.ovirt.engine.core.common.businessentities.storage.DiskImage;
+import org.ovirt.engine.core.common.businessentities.storage.DiskVmElement;
+import org.ovirt.engine.core.common.businessentities.storage.ImageStatus;
+import org.ovirt.engine.core.common.businessentities.storage.PropagateErrors;
+import org.ovirt.engine.core.common.businessentities.storage.VolumeFormat;
+import org.ovirt.engine.core.common.businessentities.storage.VolumeType;
 import org.ovirt.engine.core.common.config.ConfigValues;
 import org.ovirt.engine.core.common.interfaces.SearchType;
 import org.ovirt.engine.core.common.queries.GetVmFromConfigurationQueryParameters;
@@ -73,6 +87,7 @@ import org.ovirt.engine.core.common.queries.IdsQueryParameters;
 import org.ovirt.engine.core.common.queries.NameQueryParameters;
 import org.ovirt.engine.core.common.queries.QueryParametersBase;
 import org.ovirt.engine.core.common.queries.QueryType;
+import org.ovirt.engine.core.common.queries.SearchParameters;
 import org.ovirt.engine.core.common.utils.VmDeviceType;
 import org.ovirt.engine.core.compat.Guid;
 import org.ovirt.engine.core.compat.Version;
@@ -1277,6 +1292,119 @@ public class BackendVmsResourceTest
         verifyCollection(getCollection());
     }
 
+    @Test
+    public void testFollowNicsAndDiskAttachmentsOfAllVmsAtOnce() {
+        setUriInfo(setUpBasicUriExpectations());
+        Vms vms = new Vms();
+        Map<Guid, List<VmNetworkInterface>> interfaces = new HashMap<>();
+        Map<Guid, List<DiskVmElement>> diskVmElements = new HashMap<>();
+        for (int i = 0; i < 2; i++) {
+            Vm vm = new Vm();
+            vm.setId(GUIDS[i].toString());
+            vms.getVms().add(vm);
+            VmNetworkInterface vmInterface = new VmNetworkInterface();
+            vmInterface.setId(GUIDS[i + 2]);
+            vmInterface.setVmId(GUIDS[i]);
+            vmInterface.setName(NAMES[i]);
+            vmInterface.setMacAddress("00:1a:4a:16:01:5" + i);
+            vmInterface.setType(0);
+            interfaces.put(GUIDS[i], Collections.singletonList(vmInterface));
+            diskVmElements.put(GUIDS[i], Collections.singletonList(new DiskVmElement(GUIDS[i + 2], GUIDS[i])));
+        }
+        setUpEntityQueryExpectations(QueryType.GetVmInterfacesByVmIds,
+                IdsQueryParameters.class,
+                new String[] { "Ids" },
+                new Object[] { Arrays.asList(GUIDS[0], GUIDS[1]) },
+                interfaces);
+        setUpEntityQueryExpectations(QueryType.GetDiskVmElementsByVmIds,
+                IdsQueryParameters.class,
+                new String[] { "Ids" },
+                new Object[] { Arrays.asList(GUIDS[0], GUIDS[1]) },
+                diskVmElements);
+        LinksTreeNode linksTree = new LinksTreeNode("vms");
+        linksTree.addChild("nics");
+        linksTree.addChild("disk_attachments");
+
+        collection.follow(vms, linksTree);
+
+        assertTrue(linksTree.getChild("nics").get().isFollowed());
+        assertTrue(linksTree.getChild("disk_attachments").get().isFollowed());
+        for (int i = 0; i < 2; i++) {
+            Vm vm = vms.getVms().get(i);
+            assertEquals(1, vm.getNics().getNics().size());
+            Nic nic = vm.getNics().getNics().get(0);
+            assertEquals(GUIDS[i + 2].toString(), nic.getId());
+            assertEquals(NAMES[i], nic.getName());
+            assertEquals("00:1a:4a:16:01:5" + i, nic.getMac().getAddress());
+            assertEquals(GUIDS[i].toString(), nic.getVm().getId());
+            assertEquals(1, vm.getDiskAttachments().getDiskAttachments().size());
+            DiskAttachment attachment = vm.getDiskAttachments().getDiskAttachments().get(0);
+            assertEquals(GUIDS[i + 2].toString(), attachment.getDisk().getId());
+            assertEquals(GUIDS[i].toString(), attachment.getVm().getId());
+        }
+        verify(backend, never()).runQuery(eq(QueryType.GetVmInterfacesByVmId), any());
+        verify(backend, never()).runQuery(eq(QueryType.GetDiskVmElementsByVmId), any());
+    }
+
+    @Test
+    public void testFollowDisksOfDiskAttachmentsOfAllVmsAtOnce() {
+        setUriInfo(setUpBasicUriExpectations());
+        Vms vms = new Vms();
+        Map<Guid, List<DiskVmElement>> diskVmElements = new HashMap<>();
+        List<org.ovirt.engine.core.common.businessentities.storage.Disk> disks = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            Vm vm = new Vm();
+            vm.setId(GUIDS[i].toString());
+            vms.getVms().add(vm);
+            diskVmElements.put(GUIDS[i], Collections.singletonList(new DiskVmElement(GUIDS[i + 2], GUIDS[i])));
+            DiskImage disk = new DiskImage();
+            disk.setId(GUIDS[i + 2]);
+            disk.setVolumeFormat(VolumeFormat.RAW);
+            disk.setImageStatus(ImageStatus.OK);
+            disk.setVolumeType(VolumeType.Sparse);
+            disk.setPropagateErrors(PropagateErrors.On);
+            disks.add(disk);
+        }
+        setUpEntityQueryExpectations(QueryType.GetDiskVmElementsByVmIds,
+                IdsQueryParameters.class,
+                new String[] { "Ids" },
+                new Object[] { Arrays.asList(GUIDS[0], GUIDS[1]) },
+                diskVmElements);
+        setUpEntityQueryExpectations(QueryType.GetDisksAndSnapshotsByDiskIds,
+                IdsQueryParameters.class,
+                new String[] { "Ids" },
+                new Object[] { Arrays.asList(GUIDS[2], GUIDS[3]) },
+                disks);
+        LinksTreeNode linksTree = new LinksTreeNode("vms");
+        linksTree.addChild("disk_attachments");
+        linksTree.getChild("disk_attachments").get().addChild("disk");
+
+        collection.follow(vms, linksTree);
+
+        assertTrue(linksTree.getChild("disk_attachments").get().getChild("disk").get().isFollowed());
+        for (int i = 0; i < 2; i++) {
+            DiskAttachment attachment = vms.getVms().get(i).getDiskAttachments().getDiskAttachments().get(0);
+            assertEquals(GUIDS[i + 2].toString(), attachment.getDisk().getId());
+            assertNotNull(attachment.getDisk().getHref());
+        }
+        verify(backend, never()).runQuery(eq(QueryType.GetDiskAndSnapshotsByDiskId), any());
+    }
+
+    @Test
+    public void testQueryFiltered() throws Exception {
+        UriInfo uriInfo = setUpUriExpectations(QUERY);
+        when(httpHeaders.getRequestHeader(USER_FILTER_HEADER)).thenReturn(Collections.singletonList("true"));
+
+        setUpGetGraphicsMultipleExpectations(3);
+        setUpQueryExpectations(QUERY);
+        collection.setUriInfo(uriInfo);
+        verifyCollection(getCollection());
+        // the search itself is filtered by the permissions of the user, so there is nothing to intersect with
+        verify(backend).runQuery(eq(QueryType.Search), argThat(params ->
+                params instanceof SearchParameters && ((SearchParameters) params).isPermissionsFiltered()));
+        verify(backend, never()).runQuery(eq(QueryType.GetAllVms), any());
+    }
+
     private void doTestBadAdd(boolean valid, boolean success, String detail) {
         setUpEntityQueryExpectations(QueryType.GetVmTemplate,
                                      GetVmTemplateParameters.class,
@@ -581,6 +581,20 @@ public class SearchObjectAutoCompleter extends SearchObjectsBaseAutoCompleter {
         return entitySearchInfo.get(singular(key));
     }
 
+    /**
+     * The views holding the entities each user is permitted to see, for the search objects whose results can be
+     * filtered by the permissions of the searching user
+     */
+    @SuppressWarnings("serial")
+    private static final Map<String, String> permissionsViews = Collections.unmodifiableMap(new HashMap<String, String>() {
+        {
+            put(SearchObjects.VM_OBJ_NAME, "user_vm_permissions_view");
+            put(SearchObjects.VDS_OBJ_NAME, "user_vds_permissions_view");
+            put(SearchObjects.TEMPLATE_OBJ_NAME, "user_vm_template_permissions_view");
+            put(SearchObjects.DISK_OBJ_NAME, "user_disk_permissions_view");
+        }
+    });
+
     @SuppressWarnings("serial")
     private static final Map<String, String> singulars = Collections.unmodifiableMap(new HashMap<String, String>() {
         {
@@ -741,6 +755,10 @@ public class SearchObjectAutoCompleter extends SearchObjectsBaseAutoCompleter {
         return "";
     }
 
+    public String getPermissionsView(String obj) {
+        return obj == null ? null : permissionsViews.get(singular(obj));
+    }
+
     public List<String> getCommaDelimitedListColumns(String obj) {
         return getEntitySearchInfo(obj).commaDelimitedListColumns;
     }
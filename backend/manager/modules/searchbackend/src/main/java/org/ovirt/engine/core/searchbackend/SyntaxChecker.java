@@ -887,6 +887,22 @@ public class SyntaxChecker implements ISyntaxChecker {
                 whereBuilder.add("not deleted");
             }
 
+            // Filtering by the permissions of the user is done along with the search conditions, so paging and
+            // max count apply to the entities the user is permitted to see
+            if (syntax.getPermissionsUserId() != null) {
+                String permissionsView = searchObjectAC.getPermissionsView(searchObjStr);
+                if (permissionsView == null) {
+                    throw new RuntimeException(String.format(
+                            "Search on %s can not be filtered by permissions", searchObjStr));
+                }
+                whereBuilder.add(StringFormat.format(
+                        "EXISTS (SELECT 1 FROM %1$s WHERE %1$s.user_id = '%2$s' AND %1$s.entity_id = %3$s.%4$s)",
+                        permissionsView,
+                        syntax.getPermissionsUserId(),
+                        searchObjectAC.getRelatedTableName(searchObjStr, useTags),
+                        searchObjectAC.getPrimeryKeyName(searchObjStr)));
+            }
+
             // adding WHERE if required and All implicit AND
             StringBuilder wherePhrase = new StringBuilder();
             if (whereBuilder.size() > 0) {
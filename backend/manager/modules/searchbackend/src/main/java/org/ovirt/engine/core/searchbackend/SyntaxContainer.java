@@ -6,6 +6,8 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.ListIterator;
 
+import org.ovirt.engine.core.compat.Guid;
+
 public class SyntaxContainer implements Iterable<SyntaxObject> {
 
     private final String origText;
@@ -19,6 +21,7 @@ public class SyntaxContainer implements Iterable<SyntaxObject> {
     private int privateMaxCount;
     private long searchFrom = 0;
     private boolean caseSensitive=true;
+    private Guid permissionsUserId;
 
     /**
      * Some of the searches needs to combine view table which holds tags.
@@ -56,6 +59,17 @@ public class SyntaxContainer implements Iterable<SyntaxObject> {
         searchFrom = value;
     }
 
+    public Guid getPermissionsUserId() {
+        return permissionsUserId;
+    }
+
+    /**
+     * Restricts the results of the search to the entities the given user has permissions on
+     */
+    public void setPermissionsUserId(Guid value) {
+        permissionsUserId = value;
+    }
+
     public boolean getvalid() {
         return valid;
     }
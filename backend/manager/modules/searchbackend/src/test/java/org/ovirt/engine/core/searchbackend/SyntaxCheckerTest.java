@@ -2,6 +2,7 @@ package org.ovirt.engine.core.searchbackend;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
@@ -16,6 +17,7 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.ovirt.engine.core.common.businessentities.Tags;
 import org.ovirt.engine.core.common.config.ConfigValues;
 import org.ovirt.engine.core.common.interfaces.ITagsHandler;
+import org.ovirt.engine.core.compat.Guid;
 import org.ovirt.engine.core.utils.MockConfigDescriptor;
 import org.ovirt.engine.core.utils.MockConfigExtension;
 import org.ovirt.engine.core.utils.MockedConfig;
@@ -528,6 +530,24 @@ public class SyntaxCheckerTest {
                 "SELECT * FROM (SELECT * FROM vms WHERE ( vm_guid IN (SELECT distinct vms_with_tags.vm_guid FROM  vms_with_tags   LEFT OUTER JOIN storage_domains_with_hosts_view ON vms_with_tags.storage_id=storage_domains_with_hosts_view.id    WHERE (  vms_with_tags.status = '1'  AND  (  storage_domains_with_hosts_view.storage_comment LIKE '%iscsi%' OR  storage_domains_with_hosts_view.storage_description LIKE '%iscsi%' OR  storage_domains_with_hosts_view.storage_name LIKE '%iscsi%' OR  storage_domains_with_hosts_view.storage_pool_name::text LIKE '%iscsi%' )  )))  ORDER BY vm_name ASC ) as T1 OFFSET (1 -1) LIMIT 0");
     }
 
+    @Test
+    public void testVmFilteredByPermissions() {
+        SyntaxChecker chkr = new SyntaxChecker();
+        SyntaxContainer res = chkr.analyzeSyntaxState("Vms: name=web*", true);
+        res.setMaxCount(10);
+        res.setPermissionsUserId(new Guid("9b9002d1-ec33-4083-8a7b-31f6b8931648"));
+        assertEquals("SELECT * FROM ((SELECT  vms.* FROM  vms   WHERE  vms.vm_name LIKE web%  AND EXISTS (SELECT 1 FROM user_vm_permissions_view WHERE user_vm_permissions_view.user_id = '9b9002d1-ec33-4083-8a7b-31f6b8931648' AND user_vm_permissions_view.entity_id = vms.vm_guid))  ORDER BY vm_name ASC ) as T1 OFFSET (1 -1) LIMIT 10",
+                chkr.generateQueryFromSyntaxContainer(res, true));
+    }
+
+    @Test
+    public void testFilteringByPermissionsNotSupported() {
+        SyntaxChecker chkr = new SyntaxChecker();
+        SyntaxContainer res = chkr.analyzeSyntaxState("Events: severity=error", true);
+        res.setPermissionsUserId(Guid.newGuid());
+        assertThrows(RuntimeException.class, () -> chkr.generateQueryFromSyntaxContainer(res, true));
+    }
+
     private void testValidSql(String dynamicQuery, String exepctedSQLResult) {
         SyntaxChecker chkr = new SyntaxChecker();
         ISyntaxChecker curSyntaxChecker = SyntaxCheckerFactory.createBackendSyntaxChecker("foo");
@@ -4,12 +4,23 @@ import java.io.OutputStream;
 
 import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
 import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.apache.commons.compress.archivers.tar.TarConstants;
 
 public class InMemoryTar implements AutoCloseable{
+    /**
+     * The header of an entry takes a record, and its data is padded to whole records
+     */
+    private static final int RECORD_SIZE = TarConstants.DEFAULT_RCDSIZE;
+
+    /**
+     * The tar ends with two empty records
+     */
+    private static final int END_OF_ARCHIVE_SIZE = 2 * RECORD_SIZE;
+
     private TarArchiveOutputStream tarArchiveOutputStream;
 
     public InMemoryTar(OutputStream outputStream) {
-        tarArchiveOutputStream = new TarArchiveOutputStream(outputStream);
+        tarArchiveOutputStream = new TarArchiveOutputStream(outputStream, RECORD_SIZE);
     }
 
     public void addTarEntry(byte[] data, String name) throws Exception {
@@ -20,6 +31,23 @@ public class InMemoryTar implements AutoCloseable{
         tarArchiveOutputStream.closeArchiveEntry();
     }
 
+    /**
+     * Returns the number of bytes an entry with data of the given size takes in the tar, when its name fits in the
+     * header of the entry
+     */
+    public static long getEntrySize(long dataSize) {
+        return RECORD_SIZE + (dataSize + RECORD_SIZE - 1) / RECORD_SIZE * RECORD_SIZE;
+    }
+
+    /**
+     * Returns the size of the tar holding entries which take the given number of bytes altogether
+     *
+     * @see #getEntrySize(long)
+     */
+    public static long getTarSize(long entriesSize) {
+        return entriesSize + END_OF_ARCHIVE_SIZE;
+    }
+
     @Override
     public void close() throws Exception {
         tarArchiveOutputStream.close();
@@ -0,0 +1,111 @@
+package org.ovirt.engine.core.utils.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free histogram of latencies, kept in fixed buckets of milliseconds. It is cheap enough to be updated by
+ * every monitoring cycle or command and gives the distribution of the latencies, not only their average.
+ */
+public class LatencyHistogram {
+
+    /** The upper bounds, in milliseconds, of the buckets, the last bucket holds everything above the last bound **/
+    private static final long[] BUCKET_BOUNDS = { 1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000, 10000, 30000 };
+
+    private final String name;
+    private final LongAdder[] buckets = new LongAdder[BUCKET_BOUNDS.length + 1];
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalMillis = new LongAdder();
+    private final LongAccumulator maxMillis = new LongAccumulator(Long::max, 0L);
+
+    public LatencyHistogram(String name) {
+        this.name = name;
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Records the time elapsed since the given {@link System#nanoTime()} value
+     */
+    public void recordSince(long startNanos) {
+        record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+    }
+
+    public void record(long millis) {
+        buckets[bucketIndex(millis)].increment();
+        count.increment();
+        totalMillis.add(millis);
+        maxMillis.accumulate(millis);
+    }
+
+    private static int bucketIndex(long millis) {
+        for (int i = 0; i < BUCKET_BOUNDS.length; i++) {
+            if (millis <= BUCKET_BOUNDS[i]) {
+                return i;
+            }
+        }
+        return BUCKET_BOUNDS.length;
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getMeanMillis() {
+        long samples = count.sum();
+        return samples == 0 ? 0 : totalMillis.sum() / samples;
+    }
+
+    public long getMaxMillis() {
+        return maxMillis.get();
+    }
+
+    /**
+     * Returns the upper bound of the bucket holding the given percentile of the recorded latencies, or the maximal
+     * recorded latency if it falls in the last bucket
+     * @param percentile
+     *            - a value between 0 and 100
+     */
+    public long getPercentileMillis(double percentile) {
+        long samples = count.sum();
+        if (samples == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(samples * percentile / 100);
+        long seen = 0;
+        for (int i = 0; i < BUCKET_BOUNDS.length; i++) {
+            seen += buckets[i].sum();
+            if (seen >= rank) {
+                return BUCKET_BOUNDS[i];
+            }
+        }
+        return getMaxMillis();
+    }
+
+    public void reset() {
+        for (LongAdder bucket : buckets) {
+            bucket.reset();
+        }
+        count.reset();
+        totalMillis.reset();
+        maxMillis.reset();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: count=%d, mean=%dms, p50<=%dms, p95<=%dms, p99<=%dms, max=%dms",
+                name,
+                getCount(),
+                getMeanMillis(),
+                getPercentileMillis(50),
+                getPercentileMillis(95),
+                getPercentileMillis(99),
+                getMaxMillis());
+    }
+}
@@ -0,0 +1,412 @@
+package org.ovirt.engine.core.utils.ovf.xml;
+
+import java.io.StringReader;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.w3c.dom.Element;
+
+/**
+ * A read only {@link XmlDocument} which is read in a single pass by a StAX reader into a light tree of elements, without
+ * building a DOM.
+ * <p>
+ * The nodes are selected by the subset of XPath the OVF readers use: paths of element names, optionally with a prefix
+ * resolved by the given namespace manager, or {@code *}, separated by {@code /} or {@code //}, where a step may have a
+ * predicate comparing a child element to a number or a string, as in {@code //Item[rasd:ResourceType=10]}. The
+ * nodes are selected in the document order, as by XPath. Other expressions are rejected.
+ */
+public class StreamedXmlDocument extends XmlDocument {
+
+    /**
+     * Makes the reader of the JDK report a CDATA section as such, and not as characters, to keep it apart from the text
+     */
+    private static final String REPORT_CDATA_PROPERTY = "http://java.sun.com/xml/stream/properties/report-cdata-event";
+    private static final XMLInputFactory inputFactory = createInputFactory();
+
+    private static final String NAME = "[\\w.-]+(?::[\\w.-]+)?";
+    private static final String NUMBER = "-?(?:\\d+(?:\\.\\d*)?|\\.\\d+)";
+    private static final Pattern STEP_PATTERN = Pattern.compile(
+            "(\\*|" + NAME + ")(?:\\[(" + NAME + ")=(?:'([^']*)'|\"([^\"]*)\"|(" + NUMBER + "))\\])?");
+    private static final Pattern XPATH_NUMBER_PATTERN = Pattern.compile(NUMBER);
+    /**
+     * Stands for the namespace of a prefix with no namespace context, the namespace of no element is empty
+     */
+    private static final String NO_NAMESPACE_CONTEXT = "";
+    private static final Map<String, List<Step>> compiledPaths = new ConcurrentHashMap<>();
+
+    private final String outerXml;
+
+    /**
+     * The parent of the root element, as the document node of the DOM
+     */
+    private final StreamedXmlElement documentNode;
+
+    /**
+     * All the elements, in the document order
+     */
+    private final List<StreamedXmlElement> elements = new ArrayList<>();
+
+    public StreamedXmlDocument(String xml) throws Exception {
+        outerXml = xml;
+        documentNode = new StreamedXmlElement(null, null, null, Collections.emptyMap(), -1);
+        XMLStreamReader reader = inputFactory.createXMLStreamReader(new StringReader(xml));
+        try {
+            read(reader);
+        } finally {
+            reader.close();
+        }
+    }
+
+    private static XMLInputFactory createInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, false);
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        if (factory.isPropertySupported(REPORT_CDATA_PROPERTY)) {
+            factory.setProperty(REPORT_CDATA_PROPERTY, true);
+        }
+        return factory;
+    }
+
+    private void read(XMLStreamReader reader) throws XMLStreamException {
+        Deque<StreamedXmlElement> openElements = new ArrayDeque<>();
+        openElements.push(documentNode);
+        StringBuilder text = new StringBuilder();
+        while (reader.hasNext()) {
+            int event = reader.next();
+            switch (event) {
+            case XMLStreamConstants.START_ELEMENT:
+                addText(openElements.peek(), text);
+                StreamedXmlElement element = new StreamedXmlElement(getQualifiedName(reader.getPrefix(),
+                        reader.getLocalName()),
+                        emptyToNull(reader.getNamespaceURI()),
+                        reader.getLocalName(),
+                        getAttributes(reader),
+                        elements.size());
+                elements.add(element);
+                openElements.peek().addChildNode(element);
+                openElements.push(element);
+                break;
+            case XMLStreamConstants.END_ELEMENT:
+                addText(openElements.pop(), text);
+                break;
+            case XMLStreamConstants.CHARACTERS:
+            case XMLStreamConstants.SPACE:
+                // the text around the root element is not a part of the document
+                if (openElements.size() > 1) {
+                    text.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+                }
+                break;
+            case XMLStreamConstants.CDATA:
+                addText(openElements.peek(), text);
+                openElements.peek().addChildNode(new StreamedXmlElement.NonTextNode(reader.getText()));
+                break;
+            case XMLStreamConstants.COMMENT:
+            case XMLStreamConstants.PROCESSING_INSTRUCTION:
+                if (openElements.size() > 1) {
+                    addText(openElements.peek(), text);
+                    openElements.peek().addChildNode(StreamedXmlElement.NonTextNode.WITHOUT_TEXT);
+                }
+                break;
+            case XMLStreamConstants.DTD:
+                throw new XMLStreamException("DOCTYPE is disallowed", reader.getLocation());
+            default:
+                break;
+            }
+        }
+    }
+
+    private static void addText(StreamedXmlElement element, StringBuilder text) {
+        if (text.length() > 0) {
+            element.addChildNode(text.toString());
+            text.setLength(0);
+        }
+    }
+
+    /**
+     * Returns the attributes of the current element by their qualified names, including the namespace declarations as
+     * the DOM does
+     */
+    private static Map<String, String> getAttributes(XMLStreamReader reader) {
+        int attributeCount = reader.getAttributeCount();
+        int namespaceCount = reader.getNamespaceCount();
+        if (attributeCount + namespaceCount == 0) {
+            return Collections.emptyMap();
+        }
+
+        Map<String, String> attributes = new HashMap<>(2 * (attributeCount + namespaceCount));
+        for (int i = 0; i < namespaceCount; i++) {
+            String prefix = reader.getNamespacePrefix(i);
+            attributes.put(prefix == null || prefix.isEmpty() ? "xmlns" : "xmlns:" + prefix,
+                    reader.getNamespaceURI(i));
+        }
+        for (int i = 0; i < attributeCount; i++) {
+            attributes.put(getQualifiedName(reader.getAttributePrefix(i), reader.getAttributeLocalName(i)),
+                    reader.getAttributeValue(i));
+        }
+        return attributes;
+    }
+
+    private static String getQualifiedName(String prefix, String localName) {
+        return prefix == null || prefix.isEmpty() ? localName : prefix + ":" + localName;
+    }
+
+    private static String emptyToNull(String namespaceUri) {
+        return namespaceUri == null || namespaceUri.isEmpty() ? null : namespaceUri;
+    }
+
+    @Override
+    public XmlNode selectSingleNode(String string) {
+        return selectSingleNode(documentNode, string, null);
+    }
+
+    @Override
+    public XmlNode selectSingleNode(String string, XmlNamespaceManager _xmlns) {
+        return selectSingleNode(documentNode, string, _xmlns);
+    }
+
+    @Override
+    public XmlNodeList selectNodes(String string) {
+        return selectNodes(documentNode, string, null);
+    }
+
+    @Override
+    public XmlNodeList selectNodes(String string, XmlNamespaceManager _xmlns) {
+        return selectNodes(documentNode, string, _xmlns);
+    }
+
+    XmlNode selectSingleNode(StreamedXmlElement context, String path, XmlNamespaceManager xmlns) {
+        List<StreamedXmlElement> selected = select(context, path, xmlns);
+        return selected.isEmpty() ? null : new StreamedXmlNode(this, selected.get(0));
+    }
+
+    XmlNodeList selectNodes(StreamedXmlElement context, String path, XmlNamespaceManager xmlns) {
+        List<StreamedXmlElement> selected = select(context, path, xmlns);
+        List<XmlNode> nodes = new ArrayList<>(selected.size());
+        for (StreamedXmlElement element : selected) {
+            nodes.add(new StreamedXmlNode(this, element));
+        }
+        return new XmlNodeList(nodes);
+    }
+
+    @Override
+    public Element createElement(String name) {
+        throw new UnsupportedOperationException("A streamed document is read only");
+    }
+
+    @Override
+    public String convertToString() {
+        return outerXml;
+    }
+
+    @Override
+    public String getOuterXml() {
+        return outerXml;
+    }
+
+    private List<StreamedXmlElement> select(StreamedXmlElement context, String path, XmlNamespaceManager xmlns) {
+        List<Step> steps = compiledPaths.computeIfAbsent(path, StreamedXmlDocument::compile);
+        List<StreamedXmlElement> current = Collections.singletonList(steps.get(0).absolute ? documentNode : context);
+        for (Step step : steps) {
+            String namespaceUri = resolveNamespace(step.prefix, xmlns, path);
+            String predicateNamespaceUri = resolveNamespace(step.predicatePrefix, xmlns, path);
+            if (step.descendants) {
+                current = getDescendantsOrSelf(current);
+            }
+
+            List<StreamedXmlElement> next = new ArrayList<>();
+            for (StreamedXmlElement element : current) {
+                for (StreamedXmlElement child : element.getChildElements()) {
+                    if (step.matches(child, namespaceUri, predicateNamespaceUri)) {
+                        next.add(child);
+                    }
+                }
+            }
+            if (current.size() > 1) {
+                sortInDocumentOrder(next);
+            }
+            current = next;
+        }
+        return current;
+    }
+
+    private List<StreamedXmlElement> getDescendantsOrSelf(List<StreamedXmlElement> contexts) {
+        if (contexts.size() == 1 && contexts.get(0) == documentNode) {
+            List<StreamedXmlElement> all = new ArrayList<>(elements.size() + 1);
+            all.add(documentNode);
+            all.addAll(elements);
+            return all;
+        }
+
+        List<StreamedXmlElement> descendants = new ArrayList<>();
+        for (StreamedXmlElement context : contexts) {
+            addDescendantsOrSelf(context, descendants);
+        }
+        if (contexts.size() > 1) {
+            sortInDocumentOrder(descendants);
+        }
+        return descendants;
+    }
+
+    private static void addDescendantsOrSelf(StreamedXmlElement element, List<StreamedXmlElement> descendants) {
+        descendants.add(element);
+        for (StreamedXmlElement child : element.getChildElements()) {
+            addDescendantsOrSelf(child, descendants);
+        }
+    }
+
+    /**
+     * Sorts the elements by the document order and removes the duplicates
+     */
+    private static void sortInDocumentOrder(List<StreamedXmlElement> elements) {
+        elements.sort((first, second) -> Integer.compare(first.getIndex(), second.getIndex()));
+        for (int i = elements.size() - 1; i > 0; i--) {
+            if (elements.get(i) == elements.get(i - 1)) {
+                elements.remove(i);
+            }
+        }
+    }
+
+    private static String resolveNamespace(String prefix, XmlNamespaceManager xmlns, String path) {
+        if (prefix == null) {
+            return null;
+        }
+        // as by XPath, a prefixed name matches no element without a namespace context, and fails with a context
+        // which does not know the prefix
+        if (xmlns == null) {
+            return NO_NAMESPACE_CONTEXT;
+        }
+        String namespaceUri = xmlns.getNamespaceURI(prefix);
+        if (namespaceUri == null) {
+            throw new RuntimeException("Failed to evaluate xpath: " + path,
+                    new IllegalArgumentException("Unknown namespace prefix: " + prefix));
+        }
+        return namespaceUri;
+    }
+
+    private static List<Step> compile(String path) {
+        List<Step> steps = new ArrayList<>();
+        boolean absolute = path.startsWith("/");
+        int position = 0;
+        while (position < path.length() || steps.isEmpty()) {
+            boolean descendants = false;
+            if (path.startsWith("//", position)) {
+                descendants = true;
+                position += 2;
+            } else if (path.startsWith("/", position)) {
+                position++;
+            } else if (position > 0) {
+                throw unsupported(path);
+            }
+
+            Matcher matcher = STEP_PATTERN.matcher(path).region(position, path.length());
+            if (!matcher.lookingAt()) {
+                throw unsupported(path);
+            }
+            steps.add(new Step(steps.isEmpty() && absolute, descendants, matcher));
+            position = matcher.end();
+        }
+        return steps;
+    }
+
+    private static RuntimeException unsupported(String path) {
+        return new RuntimeException("Failed to evaluate xpath: " + path,
+                new IllegalArgumentException("The expression is not supported by a streamed document"));
+    }
+
+    /**
+     * A location step selecting the child elements of the given name, optionally having a child element with the given
+     * value
+     */
+    private static final class Step {
+        private final boolean absolute;
+        private final boolean descendants;
+        private final String prefix;
+        private final String localName;
+        private final String predicatePrefix;
+        private final String predicateLocalName;
+        private final String predicateString;
+        private final Double predicateNumber;
+
+        Step(boolean absolute, boolean descendants, Matcher matcher) {
+            this.absolute = absolute;
+            this.descendants = descendants;
+            String[] name = splitQualifiedName(matcher.group(1));
+            prefix = name[0];
+            localName = name[1];
+            if (matcher.group(2) != null) {
+                String[] predicateName = splitQualifiedName(matcher.group(2));
+                predicatePrefix = predicateName[0];
+                predicateLocalName = predicateName[1];
+                predicateString = matcher.group(3) != null ? matcher.group(3) : matcher.group(4);
+                predicateNumber = matcher.group(5) != null ? Double.valueOf(matcher.group(5)) : null;
+            } else {
+                predicatePrefix = null;
+                predicateLocalName = null;
+                predicateString = null;
+                predicateNumber = null;
+            }
+        }
+
+        private static String[] splitQualifiedName(String name) {
+            int colon = name.indexOf(':');
+            return colon < 0
+                    ? new String[] { null, name }
+                    : new String[] { name.substring(0, colon), name.substring(colon + 1) };
+        }
+
+        boolean matches(StreamedXmlElement element, String namespaceUri, String predicateNamespaceUri) {
+            if (!matchesName(element, prefix, localName, namespaceUri)) {
+                return false;
+            }
+            if (predicateLocalName == null) {
+                return true;
+            }
+            for (StreamedXmlElement child : element.getChildElements()) {
+                if (matchesName(child, predicatePrefix, predicateLocalName, predicateNamespaceUri)
+                        && matchesValue(child.getTextContent())) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private static boolean matchesName(StreamedXmlElement element,
+                String prefix,
+                String localName,
+                String namespaceUri) {
+            if ("*".equals(localName)) {
+                return true;
+            }
+            return localName.equals(element.getLocalName())
+                    && (prefix == null ? element.getNamespaceUri() == null
+                            : namespaceUri.equals(element.getNamespaceUri()));
+        }
+
+        /**
+         * Compares the value as XPath does, converting it to a number when compared to a number
+         */
+        private boolean matchesValue(String value) {
+            if (predicateNumber == null) {
+                return predicateString.equals(value);
+            }
+            String trimmed = value.trim();
+            return XPATH_NUMBER_PATTERN.matcher(trimmed).matches()
+                    && Double.parseDouble(trimmed) == predicateNumber;
+        }
+    }
+}
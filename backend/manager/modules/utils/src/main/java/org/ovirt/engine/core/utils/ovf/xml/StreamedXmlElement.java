@@ -0,0 +1,107 @@
+package org.ovirt.engine.core.utils.ovf.xml;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An element of a {@link StreamedXmlDocument}. Besides its child elements, the element keeps its other child nodes as
+ * the DOM would have them: a {@link String} for a text node, and a {@link NonTextNode} for a CDATA section, a comment
+ * or a processing instruction.
+ */
+final class StreamedXmlElement {
+
+    private final String name;
+    private final String namespaceUri;
+    private final String localName;
+    private final Map<String, String> attributes;
+    private final int index;
+    private final List<Object> childNodes = new ArrayList<>(1);
+    private final List<StreamedXmlElement> childElements = new ArrayList<>(1);
+
+    /**
+     * @param index
+     *            the position of the element in the document order
+     */
+    StreamedXmlElement(String name, String namespaceUri, String localName, Map<String, String> attributes, int index) {
+        this.name = name;
+        this.namespaceUri = namespaceUri;
+        this.localName = localName;
+        this.attributes = attributes;
+        this.index = index;
+    }
+
+    void addChildNode(Object childNode) {
+        childNodes.add(childNode);
+        if (childNode instanceof StreamedXmlElement) {
+            childElements.add((StreamedXmlElement) childNode);
+        }
+    }
+
+    String getName() {
+        return name;
+    }
+
+    String getNamespaceUri() {
+        return namespaceUri;
+    }
+
+    String getLocalName() {
+        return localName;
+    }
+
+    Map<String, String> getAttributes() {
+        return attributes;
+    }
+
+    int getIndex() {
+        return index;
+    }
+
+    List<Object> getChildNodes() {
+        return Collections.unmodifiableList(childNodes);
+    }
+
+    List<StreamedXmlElement> getChildElements() {
+        return childElements;
+    }
+
+    /**
+     * Returns the text of the element and its descendants, as {@link org.w3c.dom.Node#getTextContent()} does
+     */
+    String getTextContent() {
+        if (childNodes.size() == 1 && childNodes.get(0) instanceof String) {
+            return (String) childNodes.get(0);
+        }
+        StringBuilder builder = new StringBuilder();
+        appendTextContent(builder);
+        return builder.toString();
+    }
+
+    private void appendTextContent(StringBuilder builder) {
+        for (Object childNode : childNodes) {
+            if (childNode instanceof String) {
+                builder.append((String) childNode);
+            } else if (childNode instanceof StreamedXmlElement) {
+                ((StreamedXmlElement) childNode).appendTextContent(builder);
+            } else if (((NonTextNode) childNode).text != null) {
+                builder.append(((NonTextNode) childNode).text);
+            }
+        }
+    }
+
+    /**
+     * A child node which is not a text node: a CDATA section with its text, or a comment or a processing instruction,
+     * which do not take part in the text of their parent
+     */
+    static final class NonTextNode {
+        static final NonTextNode WITHOUT_TEXT = new NonTextNode(null);
+
+        private final String text;
+
+        NonTextNode(String text) {
+            this.text = text;
+        }
+    }
+}
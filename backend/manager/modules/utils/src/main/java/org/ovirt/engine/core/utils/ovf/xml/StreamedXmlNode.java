@@ -0,0 +1,77 @@
+package org.ovirt.engine.core.utils.ovf.xml;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+/**
+ * A node of a {@link StreamedXmlDocument}. Like the node of a DOM document, its text is taken once it is selected.
+ */
+class StreamedXmlNode extends XmlNode {
+
+    private final StreamedXmlDocument document;
+    private final StreamedXmlElement element;
+
+    StreamedXmlNode(StreamedXmlDocument document, StreamedXmlElement element) {
+        super(element.getTextContent(), new XmlAttributeCollection(element.getAttributes()));
+        this.document = document;
+        this.element = element;
+    }
+
+    @Override
+    public XmlNode selectSingleNode(String string, XmlNamespaceManager _xmlns) {
+        return document.selectSingleNode(element, string, _xmlns);
+    }
+
+    @Override
+    public XmlNode selectSingleNode(String string) {
+        return document.selectSingleNode(element, string, null);
+    }
+
+    @Override
+    public XmlNodeList selectNodes(String string) {
+        return document.selectNodes(element, string, null);
+    }
+
+    @Override
+    public XmlNodeList selectNodes(String string, XmlNamespaceManager xmlns) {
+        return document.selectNodes(element, string, xmlns);
+    }
+
+    @Override
+    public NodeList getChildNodes() {
+        throw new UnsupportedOperationException("A streamed document has no DOM nodes");
+    }
+
+    @Override
+    public XmlNode appendChild(Node child) {
+        throw new UnsupportedOperationException("A streamed document is read only");
+    }
+
+    @Override
+    public String getName() {
+        return element.getName();
+    }
+
+    @Override
+    public List<XmlNode> getChildElements() {
+        List<XmlNode> elements = new ArrayList<>(element.getChildElements().size());
+        for (StreamedXmlElement childElement : element.getChildElements()) {
+            elements.add(new StreamedXmlNode(document, childElement));
+        }
+        return elements;
+    }
+
+    @Override
+    public int getChildNodesCount() {
+        return element.getChildNodes().size();
+    }
+
+    @Override
+    public String getSingleText() {
+        List<Object> childNodes = element.getChildNodes();
+        return childNodes.size() == 1 && childNodes.get(0) instanceof String ? (String) childNodes.get(0) : null;
+    }
+}
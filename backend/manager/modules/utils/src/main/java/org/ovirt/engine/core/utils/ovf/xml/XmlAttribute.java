@@ -8,7 +8,11 @@ public class XmlAttribute extends XmlNode {
         super(node);
     }
 
+    public XmlAttribute(String value) {
+        super(value, null);
+    }
+
     public String getValue() {
-        return node.getTextContent();
+        return node != null ? node.getTextContent() : innerText;
     }
 }
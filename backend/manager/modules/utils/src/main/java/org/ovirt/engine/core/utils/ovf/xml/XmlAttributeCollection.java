@@ -1,17 +1,31 @@
 package org.ovirt.engine.core.utils.ovf.xml;
 
+import java.util.Map;
+
 import org.w3c.dom.NamedNodeMap;
 import org.w3c.dom.Node;
 
 public class XmlAttributeCollection {
 
     private NamedNodeMap nodesMap;
+    private Map<String, String> values;
 
     public XmlAttributeCollection(NamedNodeMap nodesMap) {
         this.nodesMap = nodesMap;
     }
 
+    /**
+     * Creates a collection of the given attribute values, by their qualified names
+     */
+    public XmlAttributeCollection(Map<String, String> values) {
+        this.values = values;
+    }
+
     public XmlAttribute get(String nodeName) {
+        if (values != null) {
+            String value = values.get(nodeName);
+            return value != null ? new XmlAttribute(value) : null;
+        }
         Node temp = nodesMap.getNamedItem(nodeName);
         if (temp != null) {
             XmlAttribute returnValue = new XmlAttribute(temp);
@@ -1,5 +1,8 @@
 package org.ovirt.engine.core.utils.ovf.xml;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import javax.xml.xpath.XPath;
 import javax.xml.xpath.XPathConstants;
 import javax.xml.xpath.XPathFactory;
@@ -20,6 +23,11 @@ public class XmlNode {
 
     }
 
+    protected XmlNode(String innerText, XmlAttributeCollection attributes) {
+        this.innerText = innerText;
+        this.attributes = attributes;
+    }
+
     public XmlNode selectSingleNode(String string, XmlNamespaceManager _xmlns) {
         try {
             XPathFactory factory = XPathFactory.newInstance();
@@ -74,4 +82,42 @@ public class XmlNode {
         return new XmlNode(node.appendChild(child));
     }
 
+    /**
+     * Returns the qualified name of the node, as written in the document
+     */
+    public String getName() {
+        return node.getNodeName();
+    }
+
+    /**
+     * Returns the child nodes of the node which are elements
+     */
+    public List<XmlNode> getChildElements() {
+        List<XmlNode> elements = new ArrayList<>();
+        NodeList list = node.getChildNodes();
+        for (int i = 0; i < list.getLength(); i++) {
+            if (list.item(i).getNodeType() == Node.ELEMENT_NODE) {
+                elements.add(new XmlNode(list.item(i)));
+            }
+        }
+        return elements;
+    }
+
+    /**
+     * Returns the number of all the child nodes of the node, including text, comments and the like
+     */
+    public int getChildNodesCount() {
+        return node.getChildNodes().getLength();
+    }
+
+    /**
+     * Returns the text of the node if its only child node is a text node, {@code null} otherwise
+     */
+    public String getSingleText() {
+        NodeList list = node.getChildNodes();
+        if (list.getLength() == 1 && list.item(0).getNodeType() == Node.TEXT_NODE) {
+            return list.item(0).getNodeValue();
+        }
+        return null;
+    }
 }
@@ -9,13 +9,21 @@ import org.w3c.dom.NodeList;
 public class XmlNodeList implements Iterable<XmlNode> {
 
     private NodeList nodeList;
+    private List<XmlNode> nodes;
 
     public XmlNodeList(NodeList nodeList) {
         this.nodeList = nodeList;
     }
 
+    public XmlNodeList(List<XmlNode> nodes) {
+        this.nodes = nodes;
+    }
+
     @Override
     public Iterator<XmlNode> iterator() {
+        if (nodes != null) {
+            return nodes.iterator();
+        }
         List<XmlNode> list = new LinkedList<>();
         for (int i = 0; i < nodeList.getLength(); i++) {
             list.add(new XmlNode(nodeList.item(i)));
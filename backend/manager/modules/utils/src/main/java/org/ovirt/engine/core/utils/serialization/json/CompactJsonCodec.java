@@ -0,0 +1,60 @@
+package org.ovirt.engine.core.utils.serialization.json;
+
+import java.io.IOException;
+import java.util.Base64;
+import java.util.UUID;
+
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.std.ToStringSerializer;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+
+/**
+ * Encodes the compact text form stored in place of JSON: a version prefix followed by the Smile (binary JSON) form of
+ * the object in Base64, as the columns holding it are text. The prefix cannot start a JSON document, so a stored value
+ * is known to be compact by its first characters, and JSON written by older engines is still read as is.
+ */
+final class CompactJsonCodec {
+
+    /**
+     * The prefix of version 1 of the compact form. A new version must use a new prefix, and still decode this one.
+     */
+    static final String V1_PREFIX = "S1:";
+
+    private CompactJsonCodec() {
+    }
+
+    /**
+     * Creates the factory of the mappers which write and read the Smile form. Repeated string values, such as the
+     * class names written by the default typing, are written once and referenced afterwards.
+     */
+    static SmileFactory createSmileFactory() {
+        return SmileFactory.builder()
+                .enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES)
+                .build();
+    }
+
+    /**
+     * Creates the module of the mapper which writes the Smile form. UUIDs are written as text, as in JSON, rather than
+     * as Smile binary values, because the creators which read them back, such as the one of {@code Guid}, take text.
+     */
+    static Module createSmileWriterModule() {
+        return new SimpleModule("CompactJson").addSerializer(UUID.class, ToStringSerializer.instance);
+    }
+
+    static boolean isCompact(String value) {
+        return value.startsWith(V1_PREFIX);
+    }
+
+    static String encode(byte[] smile) {
+        return V1_PREFIX + Base64.getEncoder().encodeToString(smile);
+    }
+
+    static byte[] decode(String value) throws IOException {
+        if (!isCompact(value)) {
+            throw new IOException("Unknown compact JSON version");
+        }
+        return Base64.getDecoder().decode(value.substring(V1_PREFIX.length()));
+    }
+}
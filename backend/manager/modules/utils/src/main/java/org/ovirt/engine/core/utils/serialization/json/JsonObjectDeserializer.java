@@ -37,34 +37,53 @@ public class JsonObjectDeserializer implements Deserializer {
 
     private static final ObjectMapper unformattedMapper = new ObjectMapper();
     private static final ObjectMapper formattedMapper;
+    private static final ObjectMapper compactMapper;
     static {
-        formattedMapper = new ObjectMapper();
-        formattedMapper.addMixIn(Guid.class, JsonGuidMixIn.class);
-        formattedMapper.addMixIn(ActionParametersBase.class,
+        formattedMapper = addMixIns(new ObjectMapper());
+        compactMapper = addMixIns(new ObjectMapper(CompactJsonCodec.createSmileFactory()));
+    }
+
+    private static ObjectMapper addMixIns(ObjectMapper mapper) {
+        mapper.addMixIn(Guid.class, JsonGuidMixIn.class);
+        mapper.addMixIn(ActionParametersBase.class,
                 JsonActionParametersBaseMixIn.class);
-        formattedMapper.addMixIn(Queryable.class,
+        mapper.addMixIn(Queryable.class,
                 JsonQueryableMixIn.class);
-        formattedMapper.addMixIn(VM.class, JsonVmMixIn.class);
-        formattedMapper.addMixIn(AddVmTemplateParameters.class,
+        mapper.addMixIn(VM.class, JsonVmMixIn.class);
+        mapper.addMixIn(AddVmTemplateParameters.class,
                 JsonAddVmTemplateParametersMixIn.class);
-        formattedMapper.addMixIn(VmManagementParametersBase.class,
+        mapper.addMixIn(VmManagementParametersBase.class,
                 JsonVmManagementParametersBaseMixIn.class);
-        formattedMapper.addMixIn(VmBase.class, JsonVmBaseMixIn.class);
-        formattedMapper.addMixIn(VmStatic.class, JsonVmStaticMixIn.class);
-        formattedMapper.addMixIn(RunVmParams.class, JsonRunVmParamsMixIn.class);
-        formattedMapper.addMixIn(EngineFault.class, JsonEngineFaultMixIn.class);
-        formattedMapper.configure(FAIL_ON_UNKNOWN_PROPERTIES, false);
-        formattedMapper.configure(READ_UNKNOWN_ENUM_VALUES_AS_NULL, true);
+        mapper.addMixIn(VmBase.class, JsonVmBaseMixIn.class);
+        mapper.addMixIn(VmStatic.class, JsonVmStaticMixIn.class);
+        mapper.addMixIn(RunVmParams.class, JsonRunVmParamsMixIn.class);
+        mapper.addMixIn(EngineFault.class, JsonEngineFaultMixIn.class);
+        mapper.configure(FAIL_ON_UNKNOWN_PROPERTIES, false);
+        mapper.configure(READ_UNKNOWN_ENUM_VALUES_AS_NULL, true);
 
-        formattedMapper.activateDefaultTyping(LaissezFaireSubTypeValidator.instance);
+        mapper.activateDefaultTyping(LaissezFaireSubTypeValidator.instance);
+        return mapper;
     }
 
+    /**
+     * Deserializes both JSON and the compact form written by {@link JsonObjectSerializer#serializeCompact(Object)}.
+     */
     @Override
     public <T extends Serializable> T deserialize(Object source, Class<T> type) throws SerializationException {
         if (source == null) {
             return null;
         }
-        return readJsonString(source, type, formattedMapper);
+        String value = source.toString();
+        if (!CompactJsonCodec.isCompact(value)) {
+            return readJsonString(value, type, formattedMapper);
+        }
+        try {
+            return compactMapper.readValue(CompactJsonCodec.decode(value), type);
+        } catch (IOException | IllegalArgumentException e) {
+            log.error("Cannot deserialize compact JSON because of {}", ExceptionUtils.getRootCauseMessage(e));
+            log.debug("Cannot deserialize {}. Details {}", value, ExceptionUtils.getFullStackTrace(e));
+            throw new SerializationException(e);
+        }
     }
 
     /**
@@ -42,29 +42,37 @@ public class JsonObjectSerializer implements Serializer {
     private static final Logger log = LoggerFactory.getLogger(JsonObjectSerializer.class);
     private static final ObjectMapper unformattedMapper = new ObjectMapper();
     private static final ObjectMapper formattedMapper;
+    private static final ObjectMapper compactMapper;
     static {
-        formattedMapper = new ObjectMapper();
-        formattedMapper.addMixIn(Guid.class, JsonGuidMixIn.class);
-        formattedMapper.addMixIn(ActionParametersBase.class,
+        formattedMapper = addMixIns(new ObjectMapper());
+        formattedMapper.configure(INDENT_OUTPUT, true);
+
+        compactMapper = addMixIns(new ObjectMapper(CompactJsonCodec.createSmileFactory()));
+        compactMapper.registerModule(CompactJsonCodec.createSmileWriterModule());
+    }
+
+    private static ObjectMapper addMixIns(ObjectMapper mapper) {
+        mapper.addMixIn(Guid.class, JsonGuidMixIn.class);
+        mapper.addMixIn(ActionParametersBase.class,
                 JsonActionParametersBaseMixIn.class);
-        formattedMapper.addMixIn(Queryable.class, JsonQueryableMixIn.class);
-        formattedMapper.addMixIn(VM.class, JsonVmMixIn.class);
-        formattedMapper.addMixIn(AddVmTemplateParameters.class,
+        mapper.addMixIn(Queryable.class, JsonQueryableMixIn.class);
+        mapper.addMixIn(VM.class, JsonVmMixIn.class);
+        mapper.addMixIn(AddVmTemplateParameters.class,
                 JsonAddVmTemplateParametersMixIn.class);
-        formattedMapper.addMixIn(VmManagementParametersBase.class,
+        mapper.addMixIn(VmManagementParametersBase.class,
                 JsonVmManagementParametersBaseMixIn.class);
-        formattedMapper.addMixIn(VmBase.class, JsonVmBaseMixIn.class);
-        formattedMapper.addMixIn(VmStatic.class, JsonVmStaticMixIn.class);
-        formattedMapper.addMixIn(VmPayload.class, JsonVmPayloadMixIn.class);
-        formattedMapper.addMixIn(RunVmParams.class, JsonRunVmParamsMixIn.class);
-        formattedMapper.addMixIn(EngineFault.class, JsonEngineFaultMixIn.class);
-        formattedMapper.addMixIn(Collection.class, JsonCollectionMixIn.class);
-        formattedMapper.addMixIn(Map.class, JsonMapMixIn.class);
-        formattedMapper.addMixIn(Cluster.class, JsonClusterMixIn.class);
-        formattedMapper.addMixIn(VdsDynamic.class, JsonVdsDynamicMixIn.class);
-        formattedMapper.addMixIn(DestroyImageParameters.class, JsonDestroyImageParametersMixIn.class);
-        formattedMapper.activateDefaultTyping(LaissezFaireSubTypeValidator.instance);
-        formattedMapper.configure(INDENT_OUTPUT, true);
+        mapper.addMixIn(VmBase.class, JsonVmBaseMixIn.class);
+        mapper.addMixIn(VmStatic.class, JsonVmStaticMixIn.class);
+        mapper.addMixIn(VmPayload.class, JsonVmPayloadMixIn.class);
+        mapper.addMixIn(RunVmParams.class, JsonRunVmParamsMixIn.class);
+        mapper.addMixIn(EngineFault.class, JsonEngineFaultMixIn.class);
+        mapper.addMixIn(Collection.class, JsonCollectionMixIn.class);
+        mapper.addMixIn(Map.class, JsonMapMixIn.class);
+        mapper.addMixIn(Cluster.class, JsonClusterMixIn.class);
+        mapper.addMixIn(VdsDynamic.class, JsonVdsDynamicMixIn.class);
+        mapper.addMixIn(DestroyImageParameters.class, JsonDestroyImageParametersMixIn.class);
+        mapper.activateDefaultTyping(LaissezFaireSubTypeValidator.instance);
+        return mapper;
     }
 
     @Override
@@ -76,6 +84,27 @@ public class JsonObjectSerializer implements Serializer {
         }
     }
 
+    /**
+     * Serializes the payload like {@link #serialize(Object)}, but into the compact form, which is read back by
+     * {@link JsonObjectDeserializer#deserialize(Object, Class)} as well.
+     *
+     * @param payload
+     *            - The payload to be serialized.
+     * @return The compact form of the serialized object.
+     */
+    public String serializeCompact(Object payload) throws SerializationException {
+        if (payload == null) {
+            return null;
+        }
+        try {
+            return CompactJsonCodec.encode(compactMapper.writeValueAsBytes(payload));
+        } catch (IOException e) {
+            log.error("Cannot serialize {} because {}", payload, ExceptionUtils.getRootCauseMessage(e));
+            log.debug("Cannot serialize {}. Details {}", payload, ExceptionUtils.getFullStackTrace(e));
+            throw new SerializationException(e);
+        }
+    }
+
     /**
      * Use the ObjectMapper to parse the payload to String.
      *
@@ -50,6 +50,43 @@ public class TransactionSupport {
         }
     }
 
+    /**
+     * Attaches a handler, which is run right before the current transaction commits, to the current transaction
+     *
+     * @return {@code true} if the handler was attached, {@code false} if there is no active transaction
+     */
+    public static boolean registerBeforeCommitHandler(Runnable beforeCommitHandler) {
+        try {
+            Transaction transaction = current();
+            if (transaction == null || transaction.getStatus() != Status.STATUS_ACTIVE) {
+                return false;
+            }
+            transaction.registerSynchronization(new BeforeCommitHandlerSynchronization(beforeCommitHandler));
+            return true;
+        } catch (Exception e) {
+            throw new RuntimeException("Unable to register synchronization to current transaction", e);
+        }
+    }
+
+    /**
+     * Attaches a handler, which is run once the current transaction is committed or rolled back, to the current
+     * transaction
+     *
+     * @return {@code true} if the handler was attached, {@code false} if there is no active transaction
+     */
+    public static boolean registerAfterCompletionHandler(Runnable afterCompletionHandler) {
+        try {
+            Transaction transaction = current();
+            if (transaction == null || transaction.getStatus() != Status.STATUS_ACTIVE) {
+                return false;
+            }
+            transaction.registerSynchronization(new AfterCompletionHandlerSynchronization(afterCompletionHandler));
+            return true;
+        } catch (Exception e) {
+            throw new RuntimeException("Unable to register synchronization to current transaction", e);
+        }
+    }
+
     private static boolean needToRollback(int status) {
         return status == Status.STATUS_MARKED_ROLLBACK || status == Status.STATUS_ROLLEDBACK
                 || status == Status.STATUS_ROLLING_BACK;
@@ -252,4 +289,38 @@ public class TransactionSupport {
             }
         }
     }
+
+    private static class BeforeCommitHandlerSynchronization implements Synchronization {
+        private final Runnable beforeCommitHandler;
+
+        public BeforeCommitHandlerSynchronization(Runnable beforeCommitHandler) {
+            this.beforeCommitHandler = beforeCommitHandler;
+        }
+
+        @Override
+        public void beforeCompletion() {
+            beforeCommitHandler.run();
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+        }
+    }
+
+    private static class AfterCompletionHandlerSynchronization implements Synchronization {
+        private final Runnable afterCompletionHandler;
+
+        public AfterCompletionHandlerSynchronization(Runnable afterCompletionHandler) {
+            this.afterCompletionHandler = afterCompletionHandler;
+        }
+
+        @Override
+        public void beforeCompletion() {
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            afterCompletionHandler.run();
+        }
+    }
 }
@@ -0,0 +1,33 @@
+package org.ovirt.engine.core.utils.archivers.tar;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Map;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.ovirt.engine.core.compat.Guid;
+
+public class InMemoryTarTest {
+
+    @ParameterizedTest
+    @ValueSource(ints = { 0, 1, 511, 512, 513, 1024, 10239, 10240, 100_000 })
+    public void testTarSize(int dataSize) throws Exception {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        String name = Guid.newGuid() + ".ovf";
+        try (InMemoryTar tar = new InMemoryTar(outputStream)) {
+            tar.addTarEntry("info".getBytes(), "info.json");
+            tar.addTarEntry(new byte[dataSize], name);
+        }
+
+        long entriesSize = InMemoryTar.getEntrySize("info".length()) + InMemoryTar.getEntrySize(dataSize);
+        assertEquals(InMemoryTar.getTarSize(entriesSize), outputStream.size());
+        try (TarInMemoryExport tar = new TarInMemoryExport(new ByteArrayInputStream(outputStream.toByteArray()))) {
+            Map<String, ByteBuffer> entries = tar.unTar();
+            assertEquals(dataSize, entries.get(name).limit());
+        }
+    }
+}
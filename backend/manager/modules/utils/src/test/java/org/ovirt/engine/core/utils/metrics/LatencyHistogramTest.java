@@ -0,0 +1,47 @@
+package org.ovirt.engine.core.utils.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+public class LatencyHistogramTest {
+
+    private final LatencyHistogram histogram = new LatencyHistogram("test");
+
+    @Test
+    public void testEmpty() {
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMeanMillis());
+        assertEquals(0, histogram.getPercentileMillis(99));
+    }
+
+    @Test
+    public void testPercentiles() {
+        for (int i = 0; i < 90; i++) {
+            histogram.record(3);
+        }
+        for (int i = 0; i < 10; i++) {
+            histogram.record(150);
+        }
+        assertEquals(100, histogram.getCount());
+        assertEquals(17, histogram.getMeanMillis());
+        assertEquals(5, histogram.getPercentileMillis(50));
+        assertEquals(5, histogram.getPercentileMillis(90));
+        assertEquals(200, histogram.getPercentileMillis(95));
+        assertEquals(150, histogram.getMaxMillis());
+    }
+
+    @Test
+    public void testLatencyAboveLastBucket() {
+        histogram.record(60000);
+        assertEquals(60000, histogram.getPercentileMillis(50));
+    }
+
+    @Test
+    public void testReset() {
+        histogram.record(10);
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMaxMillis());
+    }
+}
@@ -0,0 +1,133 @@
+package org.ovirt.engine.core.utils.ovf.xml;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+public class StreamedXmlDocumentTest {
+
+    private static final String OVF_URI = "http://schemas.dmtf.org/ovf/envelope/1";
+    private static final String RASD_URI =
+            "http://schemas.dmtf.org/wbem/wscim/1/cim-schema/2/CIM_ResourceAllocationSettingData";
+
+    private static final String XML = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+            + "<!-- envelope -->\n"
+            + "<ovf:Envelope xmlns:ovf=\"" + OVF_URI + "\" xmlns:rasd=\"" + RASD_URI + "\" ovf:version=\"4.4\">\n"
+            + "  <Content ovf:id=\"out\">\n"
+            + "    <Name>vm &amp; more</Name>\n"
+            + "    <Section>\n"
+            + "      <Item><rasd:ResourceType> 10 </rasd:ResourceType><Nested><Item>inner</Item></Nested></Item>\n"
+            + "      <Item><![CDATA[<cdata>]]></Item>\n"
+            + "      <Item>before<!-- comment -->after<?pi data?></Item>\n"
+            + "      <Item><rasd:ResourceType>10.0</rasd:ResourceType><Type>disk</Type>\n"
+            + "        <SpecParams><vram>32</vram><empty/><nested><a>1</a></nested><c><![CDATA[z]]></c></SpecParams>\n"
+            + "      </Item>\n"
+            + "      <Item><rasd:ResourceType>3</rasd:ResourceType></Item>\n"
+            + "    </Section>\n"
+            + "  </Content>\n"
+            + "  <Content/>\n"
+            + "</ovf:Envelope>\n";
+
+    private final XmlDocument domDocument;
+    private final XmlDocument streamedDocument;
+
+    public StreamedXmlDocumentTest() throws Exception {
+        domDocument = new XmlDocument(XML);
+        streamedDocument = new StreamedXmlDocument(XML);
+    }
+
+    private static XmlNamespaceManager createNamespaceManager() {
+        XmlNamespaceManager xmlns = new XmlNamespaceManager();
+        xmlns.addNamespace("ovf", OVF_URI);
+        xmlns.addNamespace("rasd", RASD_URI);
+        return xmlns;
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "//ovf:Envelope",
+            "//Envelope",
+            "//*",
+            "//*/Content",
+            "//*/Content/Section",
+            "//*/Item",
+            "//Section//Item",
+            "//*/Item[rasd:ResourceType=10]",
+            "//*/Item[rasd:ResourceType=3]",
+            "//*/Item[Type='disk']",
+            "//*/Item[Type=\"disk\"]",
+            "//*/Nothing" })
+    public void testSelectFromDocument(String path) {
+        XmlNamespaceManager xmlns = createNamespaceManager();
+        assertEquals(describe(domDocument.selectNodes(path, xmlns)),
+                describe(streamedDocument.selectNodes(path, xmlns)));
+        assertEquals(describe(domDocument.selectSingleNode(path, xmlns)),
+                describe(streamedDocument.selectSingleNode(path, xmlns)));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = { "Name", "Section", "Section/Item", "Section/Item/SpecParams", "Section/*", "Nothing" })
+    public void testSelectFromNode(String path) {
+        XmlNamespaceManager xmlns = createNamespaceManager();
+        XmlNode domNode = domDocument.selectSingleNode("//*/Content", xmlns);
+        XmlNode streamedNode = streamedDocument.selectSingleNode("//*/Content", xmlns);
+        assertEquals(describe(domNode.selectNodes(path, xmlns)), describe(streamedNode.selectNodes(path, xmlns)));
+        assertEquals(describe(domNode.selectNodes(path)), describe(streamedNode.selectNodes(path)));
+    }
+
+    @Test
+    public void testPrefixWithoutNamespaceContextSelectsNothing() {
+        assertNull(domDocument.selectSingleNode("//*/rasd:ResourceType"));
+        assertNull(streamedDocument.selectSingleNode("//*/rasd:ResourceType"));
+    }
+
+    @Test
+    public void testUnsupportedPathIsRejected() {
+        assertThrows(RuntimeException.class, () -> streamedDocument.selectNodes("//Item[position()=1]"));
+    }
+
+    @Test
+    public void testDoctypeIsRejected() {
+        String xml = "<?xml version=\"1.0\"?><!DOCTYPE a [<!ENTITY x \"y\">]><a>&x;</a>";
+        assertThrows(Exception.class, () -> new XmlDocument(xml));
+        assertThrows(Exception.class, () -> new StreamedXmlDocument(xml));
+    }
+
+    @Test
+    public void testMalformedDocumentIsRejected() {
+        assertThrows(Exception.class, () -> new StreamedXmlDocument("<a><b>1</b>"));
+    }
+
+    private static String describe(XmlNodeList nodes) {
+        List<String> descriptions = new ArrayList<>();
+        for (XmlNode node : nodes) {
+            descriptions.add(describe(node));
+        }
+        return String.join("\n", descriptions);
+    }
+
+    private static String describe(XmlNode node) {
+        if (node == null) {
+            return null;
+        }
+        StringBuilder builder = new StringBuilder(node.getName())
+                .append('|').append(node.innerText)
+                .append('|').append(node.getChildNodesCount())
+                .append('|').append(node.getSingleText());
+        for (String attribute : new String[] { "ovf:id", "ovf:version", "xmlns:ovf" }) {
+            XmlAttribute value = node.attributes.get(attribute);
+            builder.append('|').append(value == null ? null : value.getValue());
+        }
+        for (XmlNode child : node.getChildElements()) {
+            builder.append("\n  ").append(describe(child));
+        }
+        return builder.toString();
+    }
+}
@@ -67,6 +67,12 @@ public class JsonObjectDeserializerTest {
         assertThrows(SerializationException.class, () -> checkJson("{\"success\":treue}"));
     }
 
+    @Test
+    public void testDeserializeCorruptCompactJson() {
+        assertThrows(SerializationException.class,
+                () -> new JsonObjectDeserializer().deserialize(CompactJsonCodec.V1_PREFIX + "not base64!", HashMap.class));
+    }
+
     @Test
     public void testDeserializeVdcActionParameters() {
         assertThrows(SerializationException.class,
@@ -1,6 +1,7 @@
 package org.ovirt.engine.core.utils.serialization.json;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -109,6 +110,39 @@ public class JsonObjectSerializerTest {
         assertEquals(params.getDiskIds(), deserializedParams.getDiskIds());
     }
 
+    @Test
+    @MockedConfig("mockConfiguration")
+    public void serializeCompactCreateSnapshotForVmParameters() {
+        Map<Guid, DiskImage> diskImagesMap = new HashMap<>();
+        diskImagesMap.put(Guid.newGuid(), new DiskImage());
+        diskImagesMap.put(Guid.newGuid(), new DiskImage());
+        CreateSnapshotForVmParameters params = new CreateSnapshotForVmParameters(
+                Guid.newGuid(),
+                "Test",
+                false,
+                new TreeSet<>(diskImagesMap.keySet()));
+        params.setDiskImagesMap(diskImagesMap);
+
+        JsonObjectSerializer serializer = new JsonObjectSerializer();
+        String json = serializer.serialize(params);
+        String compact = serializer.serializeCompact(params);
+        assertTrue(compact.startsWith(CompactJsonCodec.V1_PREFIX));
+        assertTrue(compact.length() < json.length());
+
+        JsonObjectDeserializer deserializer = new JsonObjectDeserializer();
+        CreateSnapshotForVmParameters deserializedParams =
+                deserializer.deserialize(compact, CreateSnapshotForVmParameters.class);
+        assertEquals(params.getDiskIds(), deserializedParams.getDiskIds());
+        assertEquals(params.getDiskImagesMap().keySet(), deserializedParams.getDiskImagesMap().keySet());
+        assertEquals(deserializer.deserialize(json, CreateSnapshotForVmParameters.class).getDiskIds(),
+                deserializedParams.getDiskIds());
+    }
+
+    @Test
+    public void serializeCompactNull() {
+        assertNull(new JsonObjectSerializer().serializeCompact(null));
+    }
+
     @Test
     @MockedConfig("mockConfiguration")
     public void serializeCreateSnapshotForVmParametersMapFailure() {
@@ -12,6 +12,7 @@ import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.stream.Collectors;
 
@@ -80,6 +81,7 @@ import org.ovirt.engine.core.vdsbroker.monitoring.HostMonitoringInterface;
 import org.ovirt.engine.core.vdsbroker.monitoring.MonitoringStrategy;
 import org.ovirt.engine.core.vdsbroker.monitoring.MonitoringStrategyFactory;
 import org.ovirt.engine.core.vdsbroker.monitoring.RefresherFactory;
+import org.ovirt.engine.core.vdsbroker.monitoring.StatisticsChangeDetector;
 import org.ovirt.engine.core.vdsbroker.monitoring.VmStatsRefresher;
 import org.ovirt.engine.core.vdsbroker.monitoring.kubevirt.KubevirtNodesMonitoring;
 import org.ovirt.engine.core.vdsbroker.vdsbroker.HostNetworkTopologyPersister;
@@ -154,10 +156,17 @@ public class VdsManager {
     @Inject
     private PrometheusUrlResolver prometheusUrlResolver;
 
+    @Inject
+    private StatisticsChangeDetector statisticsChangeDetector;
+
     private final AtomicInteger unrespondedAttempts;
     private final Guid vdsId;
     private final VdsMonitor vdsMonitor = new VdsMonitor();
     private VDS cachedVds;
+    /** A snapshot of the statistics as they were last persisted **/
+    private volatile StatisticsChangeDetector.Snapshot<VdsStatistics> persistedStatistics;
+    /** Incremented whenever the NUMA nodes of the host are written to the database **/
+    private final AtomicLong numaNodesVersion = new AtomicLong();
     private long lastUpdate;
     private long updateStartTime;
     private long nextMaintenanceAttemptTime;
@@ -542,10 +551,14 @@ public class VdsManager {
     }
 
     /**
-     * Save statistics data to cache and DB.
+     * Save statistics data to cache and DB. The statistics are written to the DB only if they changed significantly
+     * since they were last written.
      */
     public void updateStatisticsData(VdsStatistics statisticsData) {
-        vdsStatisticsDao.update(statisticsData);
+        if (statisticsChangeDetector.shouldPersist(statisticsData, persistedStatistics)) {
+            vdsStatisticsDao.update(statisticsData);
+            persistedStatistics = StatisticsChangeDetector.snapshot(statisticsData);
+        }
         cachedVds.setStatisticsData(statisticsData);
 
         statisticsData.getCpuCoreStatistics().stream().forEach(statistics -> {
@@ -629,6 +642,21 @@ public class VdsManager {
                     }
                     return null;
                 });
+        numaNodesUpdated();
+    }
+
+    /**
+     * Marks the NUMA nodes of the host as changed in the database, so copies of them are not used anymore
+     */
+    public void numaNodesUpdated() {
+        numaNodesVersion.incrementAndGet();
+    }
+
+    /**
+     * Returns a version of the NUMA nodes of the host, which changes whenever they are written to the database
+     */
+    public long getNumaNodesVersion() {
+        return numaNodesVersion.get();
     }
 
     public void refreshHostSync(VDS vds) {
@@ -33,6 +33,7 @@ import org.ovirt.engine.core.dao.VmDynamicDao;
 import org.ovirt.engine.core.dao.VmStaticDao;
 import org.ovirt.engine.core.dao.VmStatisticsDao;
 import org.ovirt.engine.core.dao.network.VmNetworkStatisticsDao;
+import org.ovirt.engine.core.vdsbroker.monitoring.StatisticsChangeDetector;
 import org.ovirt.engine.core.vdsbroker.monitoring.VdsmVm;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -70,6 +71,8 @@ public class VmManager {
     private Double lastStatusEventTimestamp;
     private Guid lastStatusEventReporterId;
     private VmStatistics statistics;
+    /** A snapshot of the statistics as they were last persisted by the monitoring **/
+    private volatile StatisticsChangeDetector.Snapshot<VmStatistics> persistedStatistics;
 
     private boolean coldReboot;
 
@@ -189,6 +192,7 @@ public class VmManager {
     public void update(VmStatistics statistics) {
         vmStatisticsDao.update(statistics);
         setStatistics(statistics);
+        setPersistedStatistics(StatisticsChangeDetector.snapshot(statistics));
     }
 
     public void update(VmNetworkStatistics networkStatistics) {
@@ -287,6 +291,14 @@ public class VmManager {
         this.statistics = statistics;
     }
 
+    public StatisticsChangeDetector.Snapshot<VmStatistics> getPersistedStatistics() {
+        return persistedStatistics;
+    }
+
+    public void setPersistedStatistics(StatisticsChangeDetector.Snapshot<VmStatistics> persistedStatistics) {
+        this.persistedStatistics = persistedStatistics;
+    }
+
     public String getName() {
         return name;
     }
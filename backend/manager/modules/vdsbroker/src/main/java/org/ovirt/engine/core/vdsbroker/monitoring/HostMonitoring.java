@@ -308,6 +308,7 @@ public class HostMonitoring implements HostMonitoringInterface {
         }
         if (!vdsNumaNodesToSave.isEmpty()) {
             vdsNumaNodeDao.massUpdateNumaNodeStatistics(vdsNumaNodesToSave);
+            vdsManager.numaNodesUpdated();
         }
     }
 
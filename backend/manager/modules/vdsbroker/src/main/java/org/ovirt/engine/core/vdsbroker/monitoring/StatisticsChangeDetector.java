@@ -0,0 +1,214 @@
+package org.ovirt.engine.core.vdsbroker.monitoring;
+
+import java.util.ArrayList;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.inject.Singleton;
+
+import org.ovirt.engine.core.common.businessentities.VdsStatistics;
+import org.ovirt.engine.core.common.businessentities.VmStatistics;
+import org.ovirt.engine.core.utils.EngineLocalConfig;
+
+/**
+ * Decides whether the statistics of a VM or a host changed enough since they were last persisted to be written to
+ * the database again.
+ * <p>
+ * Numeric values are compared with an epsilon: percentages and CPU times by their absolute difference, memory sizes
+ * by their difference relative to the persisted value. The uptime of a VM is expected to grow on every cycle, so it is
+ * considered changed only when it goes backwards. Other values must be equal. The statistics are persisted anyway once
+ * the persisted snapshot is older than the maximal age, so the values in the database are never too stale.
+ */
+@Singleton
+public class StatisticsChangeDetector {
+
+    private static final int DEFAULT_PERCENT_EPSILON = 1;
+    private static final int DEFAULT_CPU_EPSILON = 1;
+    private static final int DEFAULT_MEMORY_EPSILON_PERCENT = 1;
+    private static final long DEFAULT_MAX_AGE_IN_SECONDS = 300;
+
+    private int percentEpsilon;
+    private int cpuEpsilon;
+    private int memoryEpsilonPercent;
+    private long maxAgeNanos;
+
+    public StatisticsChangeDetector() {
+        this(DEFAULT_PERCENT_EPSILON, DEFAULT_CPU_EPSILON, DEFAULT_MEMORY_EPSILON_PERCENT, DEFAULT_MAX_AGE_IN_SECONDS);
+    }
+
+    StatisticsChangeDetector(int percentEpsilon, int cpuEpsilon, int memoryEpsilonPercent, long maxAgeInSeconds) {
+        this.percentEpsilon = percentEpsilon;
+        this.cpuEpsilon = cpuEpsilon;
+        this.memoryEpsilonPercent = memoryEpsilonPercent;
+        this.maxAgeNanos = TimeUnit.SECONDS.toNanos(maxAgeInSeconds);
+    }
+
+    @PostConstruct
+    public void init() {
+        EngineLocalConfig config = EngineLocalConfig.getInstance();
+        percentEpsilon = config.getInteger("STATISTICS_PERSIST_PERCENT_EPSILON", DEFAULT_PERCENT_EPSILON);
+        cpuEpsilon = config.getInteger("STATISTICS_PERSIST_CPU_EPSILON", DEFAULT_CPU_EPSILON);
+        memoryEpsilonPercent =
+                config.getInteger("STATISTICS_PERSIST_MEMORY_EPSILON_PERCENT", DEFAULT_MEMORY_EPSILON_PERCENT);
+        maxAgeNanos = TimeUnit.SECONDS.toNanos(
+                config.getLong("STATISTICS_PERSIST_MAX_AGE_IN_SECONDS", DEFAULT_MAX_AGE_IN_SECONDS));
+    }
+
+    /**
+     * Returns whether the given VM statistics should be persisted
+     *
+     * @param statistics The current statistics
+     * @param persisted The snapshot of the statistics as they were last persisted, {@code null} if not known
+     */
+    public boolean shouldPersist(VmStatistics statistics, Snapshot<VmStatistics> persisted) {
+        if (persisted == null || persisted.isOlderThan(maxAgeNanos)) {
+            return true;
+        }
+        VmStatistics before = persisted.getStatistics();
+        return isCpuChanged(before.getCpuSys(), statistics.getCpuSys())
+                || isCpuChanged(before.getCpuUser(), statistics.getCpuUser())
+                || isPercentChanged(before.getUsageCpuPercent(), statistics.getUsageCpuPercent())
+                || isPercentChanged(before.getUsageMemPercent(), statistics.getUsageMemPercent())
+                || isPercentChanged(before.getUsageNetworkPercent(), statistics.getUsageNetworkPercent())
+                || isMemoryChanged(before.getGuestMemoryBuffered(), statistics.getGuestMemoryBuffered())
+                || isMemoryChanged(before.getGuestMemoryCached(), statistics.getGuestMemoryCached())
+                || isUptimeChanged(before.getElapsedTime(), statistics.getElapsedTime())
+                || !Objects.equals(before.getDisksUsage(), statistics.getDisksUsage());
+    }
+
+    /**
+     * Returns whether the given host statistics should be persisted
+     *
+     * @param statistics The current statistics
+     * @param persisted The snapshot of the statistics as they were last persisted, {@code null} if not known
+     */
+    public boolean shouldPersist(VdsStatistics statistics, Snapshot<VdsStatistics> persisted) {
+        if (persisted == null || persisted.isOlderThan(maxAgeNanos)) {
+            return true;
+        }
+        VdsStatistics before = persisted.getStatistics();
+        return isCpuChanged(before.getCpuIdle(), statistics.getCpuIdle())
+                || isCpuChanged(before.getCpuLoad(), statistics.getCpuLoad())
+                || isCpuChanged(before.getCpuSys(), statistics.getCpuSys())
+                || isCpuChanged(before.getCpuUser(), statistics.getCpuUser())
+                || isPercentChanged(before.getUsageCpuPercent(), statistics.getUsageCpuPercent())
+                || isPercentChanged(before.getUsageMemPercent(), statistics.getUsageMemPercent())
+                || isPercentChanged(before.getUsageNetworkPercent(), statistics.getUsageNetworkPercent())
+                || isPercentChanged(before.getKsmCpuPercent(), statistics.getKsmCpuPercent())
+                || isMemoryChanged(before.getMemFree(), statistics.getMemFree())
+                || isMemoryChanged(before.getMemShared(), statistics.getMemShared())
+                || isMemoryChanged(before.getSwapFree(), statistics.getSwapFree())
+                || isMemoryChanged(before.getSwapTotal(), statistics.getSwapTotal())
+                || isMemoryChanged(before.getKsmPages(), statistics.getKsmPages())
+                || isMemoryChanged((long) before.getAnonymousHugePages(), (long) statistics.getAnonymousHugePages())
+                || !Objects.equals(before.getKsmState(), statistics.getKsmState())
+                || !Objects.equals(before.getBootTime(), statistics.getBootTime())
+                || before.getHighlyAvailableScore() != statistics.getHighlyAvailableScore()
+                || before.getHighlyAvailableIsConfigured() != statistics.getHighlyAvailableIsConfigured()
+                || before.getHighlyAvailableIsActive() != statistics.getHighlyAvailableIsActive()
+                || before.getHighlyAvailableGlobalMaintenance() != statistics.getHighlyAvailableGlobalMaintenance()
+                || before.getHighlyAvailableLocalMaintenance() != statistics.getHighlyAvailableLocalMaintenance()
+                || !Objects.equals(before.getCpuOverCommitTimeStamp(), statistics.getCpuOverCommitTimeStamp())
+                || !Objects.equals(before.getHugePages(), statistics.getHugePages());
+    }
+
+    private boolean isCpuChanged(Double before, Double after) {
+        if (before == null || after == null) {
+            return before != after;
+        }
+        return Math.abs(after - before) > cpuEpsilon;
+    }
+
+    private boolean isPercentChanged(Integer before, Integer after) {
+        if (before == null || after == null) {
+            return before != after;
+        }
+        return Math.abs(after - before) > percentEpsilon;
+    }
+
+    private boolean isMemoryChanged(Long before, Long after) {
+        if (before == null || after == null) {
+            return before != after;
+        }
+        return Math.abs(after - before) * 100 > Math.abs(before) * memoryEpsilonPercent;
+    }
+
+    private static boolean isUptimeChanged(Double before, Double after) {
+        if (before == null || after == null) {
+            return before != after;
+        }
+        return after < before;
+    }
+
+    /**
+     * Takes a snapshot of the persisted columns of the given VM statistics, which are then mutated by the monitoring
+     */
+    public static Snapshot<VmStatistics> snapshot(VmStatistics statistics) {
+        VmStatistics copy = new VmStatistics(statistics.getId());
+        copy.setCpuSys(statistics.getCpuSys());
+        copy.setCpuUser(statistics.getCpuUser());
+        copy.setElapsedTime(statistics.getElapsedTime());
+        copy.setUsageCpuPercent(statistics.getUsageCpuPercent());
+        copy.setUsageMemPercent(statistics.getUsageMemPercent());
+        copy.setUsageNetworkPercent(statistics.getUsageNetworkPercent());
+        copy.setDisksUsage(statistics.getDisksUsage());
+        copy.setGuestMemoryBuffered(statistics.getGuestMemoryBuffered());
+        copy.setGuestMemoryCached(statistics.getGuestMemoryCached());
+        return new Snapshot<>(copy);
+    }
+
+    /**
+     * Takes a snapshot of the persisted columns of the given host statistics, which are then mutated by the monitoring
+     */
+    public static Snapshot<VdsStatistics> snapshot(VdsStatistics statistics) {
+        VdsStatistics copy = new VdsStatistics();
+        copy.setId(statistics.getId());
+        copy.setCpuIdle(statistics.getCpuIdle());
+        copy.setCpuLoad(statistics.getCpuLoad());
+        copy.setCpuSys(statistics.getCpuSys());
+        copy.setCpuUser(statistics.getCpuUser());
+        copy.setUsageCpuPercent(statistics.getUsageCpuPercent());
+        copy.setUsageMemPercent(statistics.getUsageMemPercent());
+        copy.setUsageNetworkPercent(statistics.getUsageNetworkPercent());
+        copy.setMemFree(statistics.getMemFree());
+        copy.setMemShared(statistics.getMemShared());
+        copy.setSwapFree(statistics.getSwapFree());
+        copy.setSwapTotal(statistics.getSwapTotal());
+        copy.setKsmCpuPercent(statistics.getKsmCpuPercent());
+        copy.setKsmPages(statistics.getKsmPages());
+        copy.setKsmState(statistics.getKsmState());
+        copy.setAnonymousHugePages(statistics.getAnonymousHugePages());
+        copy.setBootTime(statistics.getBootTime());
+        copy.setHighlyAvailableScore(statistics.getHighlyAvailableScore());
+        copy.setHighlyAvailableIsConfigured(statistics.getHighlyAvailableIsConfigured());
+        copy.setHighlyAvailableIsActive(statistics.getHighlyAvailableIsActive());
+        copy.setHighlyAvailableGlobalMaintenance(statistics.getHighlyAvailableGlobalMaintenance());
+        copy.setHighlyAvailableLocalMaintenance(statistics.getHighlyAvailableLocalMaintenance());
+        copy.setCpuOverCommitTimeStamp(statistics.getCpuOverCommitTimeStamp());
+        copy.setHugePages(statistics.getHugePages() != null ? new ArrayList<>(statistics.getHugePages()) : null);
+        return new Snapshot<>(copy);
+    }
+
+    /**
+     * A copy of statistics as they were persisted, and when
+     */
+    public static class Snapshot<T> {
+
+        private final T statistics;
+        private final long persistedTime;
+
+        private Snapshot(T statistics) {
+            this.statistics = statistics;
+            this.persistedTime = System.nanoTime();
+        }
+
+        public T getStatistics() {
+            return statistics;
+        }
+
+        boolean isOlderThan(long nanos) {
+            return System.nanoTime() - persistedTime >= nanos;
+        }
+    }
+}
@@ -1,32 +1,29 @@
 package org.ovirt.engine.core.vdsbroker.monitoring;
 
+import java.lang.management.ManagementFactory;
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
-import java.util.Objects;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.inject.Inject;
 import javax.inject.Singleton;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 
 import org.ovirt.engine.core.common.businessentities.IVdsEventListener;
 import org.ovirt.engine.core.common.businessentities.VmDynamic;
-import org.ovirt.engine.core.common.businessentities.VmStatistics;
 import org.ovirt.engine.core.common.utils.Pair;
 import org.ovirt.engine.core.compat.Guid;
-import org.ovirt.engine.core.compat.TransactionScopeOption;
 import org.ovirt.engine.core.dal.dbbroker.auditloghandling.AuditLogDirector;
-import org.ovirt.engine.core.dao.DiskImageDynamicDao;
 import org.ovirt.engine.core.dao.VdsDynamicDao;
 import org.ovirt.engine.core.dao.VmDynamicDao;
-import org.ovirt.engine.core.dao.VmGuestAgentInterfaceDao;
-import org.ovirt.engine.core.dao.VmNumaNodeDao;
-import org.ovirt.engine.core.dao.VmStatisticsDao;
 import org.ovirt.engine.core.dao.network.VmNetworkInterfaceDao;
-import org.ovirt.engine.core.dao.network.VmNetworkStatisticsDao;
-import org.ovirt.engine.core.utils.transaction.TransactionSupport;
+import org.ovirt.engine.core.utils.metrics.LatencyHistogram;
 import org.ovirt.engine.core.vdsbroker.ResourceManager;
 import org.ovirt.engine.core.vdsbroker.VdsManager;
 import org.ovirt.engine.core.vdsbroker.VmManager;
@@ -37,9 +34,11 @@ import org.slf4j.LoggerFactory;
  * invoke all Vm analyzers in hand and iterate over their report
  * and take actions - fire VDSM commands (destroy,run/rerun,migrate), report complete actions,
  * hand-over migration and save-to-db
+ * <p>
+ * The latency of each stage of the monitoring cycles is kept in a histogram, exposed over JMX.
  */
 @Singleton
-public class VmsMonitoring {
+public class VmsMonitoring implements VmsMonitoringMXBean {
 
     @Inject
     private AuditLogDirector auditLogDirector;
@@ -51,26 +50,50 @@ public class VmsMonitoring {
     private LunDisksMonitoring lunDisksMonitoring;
     @Inject
     private VmJobsMonitoring vmJobsMonitoring;
-
     @Inject
-    private DiskImageDynamicDao diskImageDynamicDao;
+    private VmsMonitoringBatchFlusher batchFlusher;
+
     @Inject
     private VmDynamicDao vmDynamicDao;
     @Inject
-    private VmNetworkStatisticsDao vmNetworkStatisticsDao;
-    @Inject
-    private VmStatisticsDao vmStatisticsDao;
-    @Inject
-    private VmGuestAgentInterfaceDao vmGuestAgentInterfaceDao;
-    @Inject
     private VmNetworkInterfaceDao vmNetworkInterfaceDao;
     @Inject
     private VdsDynamicDao vdsDynamicDao;
-    @Inject
-    private VmNumaNodeDao vmNumaNodeDao;
 
     private static final Logger log = LoggerFactory.getLogger(VmsMonitoring.class);
 
+    private final LatencyHistogram analyzeLatency = new LatencyHistogram("analyze");
+    private final LatencyHistogram flushLatency = new LatencyHistogram("flush");
+    private final LatencyHistogram postFlushLatency = new LatencyHistogram("postFlush");
+    private final LatencyHistogram cycleLatency = new LatencyHistogram("cycle");
+
+    private MBeanServer platformMBeanServer;
+    private ObjectName objectName;
+
+    @PostConstruct
+    public void init() {
+        try {
+            objectName = new ObjectName("VmsMonitoring:type=" + getClass().getName());
+            platformMBeanServer = ManagementFactory.getPlatformMBeanServer();
+            platformMBeanServer.registerMBean(this, objectName);
+        } catch (Exception e) {
+            log.warn("Problem during registration of vms monitoring into JMX: {}", e.getMessage());
+            log.debug("Exception", e);
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        try {
+            if (objectName != null) {
+                platformMBeanServer.unregisterMBean(objectName);
+            }
+        } catch (Exception e) {
+            log.warn("Problem during unregistration of vms monitoring from JMX: {}", e.getMessage());
+            log.debug("Exception", e);
+        }
+    }
+
     /**
      * analyze and react upon changes on the monitoredVms. relevant changes would
      * be persisted and state transitions and internal commands would
@@ -92,14 +115,21 @@ public class VmsMonitoring {
             return;
         }
 
+        long start = System.nanoTime();
         List<VmAnalyzer> vmAnalyzers = Collections.emptyList();
         try {
             vmAnalyzers = analyzeVms(monitoredVms, fetchTime, vdsManager, updateStatistics);
+            analyzeLatency.recordSince(start);
             // It is important to add the unmanaged VMs before flushing the dynamic data into the database
             addUnmanagedVms(vmAnalyzers, vdsManager.getVdsId());
-            flush(vmAnalyzers);
+            long flushStart = System.nanoTime();
+            batchFlusher.flush(vmAnalyzers);
+            flushLatency.recordSince(flushStart);
+            long postFlushStart = System.nanoTime();
             postFlush(vmAnalyzers, vdsManager, fetchTime);
+            postFlushLatency.recordSince(postFlushStart);
             vdsManager.vmsMonitoringInitFinished();
+            cycleLatency.recordSince(start);
         } catch (RuntimeException ex) {
             log.error("Failed during vms monitoring on host {} error is: {}", vdsManager.getVdsName(), ex);
             log.error("Exception:", ex);
@@ -257,6 +287,8 @@ public class VmsMonitoring {
 
         getVdsEventListener().updateSlaPolicies(succeededToRunVms, vdsManager.getVdsId());
 
+        getVdsEventListener().vmsMovedToHost(succeededToRunVms, vdsManager.getVdsId());
+
         // need to execute this before processOnVmStop that might remove unmanaged devices
         getVdsEventListener().refreshHostIfAnyVmHasHostDevices(succeededToRunVms, movedToDownVms, vdsManager.getVdsId());
 
@@ -286,59 +318,6 @@ public class VmsMonitoring {
                 vmIdsWithGuestAgentDownAndBalloonInfalted);
     }
 
-    private void flush(List<VmAnalyzer> vmAnalyzers) {
-        saveVmGuestAgentNetworkDevices(vmAnalyzers);
-        saveVmDynamic(vmAnalyzers);
-        saveVmStatistics(vmAnalyzers);
-        saveVmInterfaceStatistics(vmAnalyzers);
-        saveVmDiskImageStatistics(vmAnalyzers);
-        clearVmNuma(vmAnalyzers);
-    }
-
-    private void saveVmDiskImageStatistics(List<VmAnalyzer> vmAnalyzers) {
-        diskImageDynamicDao.updateAllDiskImageDynamicWithDiskIdByVmId(vmAnalyzers.stream()
-                .map(VmAnalyzer::getVmDiskImageDynamicToSave)
-                .flatMap(Collection::stream)
-                .collect(Collectors.toList()));
-    }
-
-    private void saveVmDynamic(List<VmAnalyzer> vmAnalyzers) {
-        vmDynamicDao.updateAllInBatch(vmAnalyzers.stream()
-                .map(VmAnalyzer::getVmDynamicToSave)
-                .filter(Objects::nonNull)
-                .collect(Collectors.toList()));
-    }
-
-    private void saveVmInterfaceStatistics(List<VmAnalyzer> vmAnalyzers) {
-        vmNetworkStatisticsDao.updateAllInBatch(vmAnalyzers.stream()
-                .map(VmAnalyzer::getVmNetworkStatistics)
-                .flatMap(List::stream)
-                .collect(Collectors.toList()));
-    }
-
-    private void saveVmStatistics(List<VmAnalyzer> vmAnalyzers) {
-        List<VmStatistics> statistics = vmAnalyzers.stream()
-                .map(VmAnalyzer::getVmStatisticsToSave)
-                .filter(Objects::nonNull)
-                .collect(Collectors.toList());
-        vmStatisticsDao.updateAllInBatch(statistics);
-        statistics.forEach(stats -> {
-            VmManager vmManager = getVmManager(stats.getId(), false);
-            if (vmManager != null) {
-                vmManager.setStatistics(stats);
-            }
-        });
-    }
-
-    private void clearVmNuma(List<VmAnalyzer> vmAnalyzers) {
-        List<Guid> vmIds = vmAnalyzers.stream()
-                .map(VmAnalyzer::getClearNumaVmId)
-                .filter(Objects::nonNull)
-                .collect(Collectors.toList());
-
-        vmNumaNodeDao.massRemoveAllNumaNodeByVmId(vmIds);
-    }
-
     protected void addUnmanagedVms(List<VmAnalyzer> vmAnalyzers, Guid vdsId) {
         List<Guid> unmanagedVmIds = vmAnalyzers.stream()
                 .filter(VmAnalyzer::isUnmanagedVm)
@@ -347,28 +326,33 @@ public class VmsMonitoring {
         getVdsEventListener().addUnmanagedVms(vdsId, unmanagedVmIds);
     }
 
-    // ***** DB interaction *****
+    // ***** Statistics *****
 
-    private void saveVmGuestAgentNetworkDevices(List<VmAnalyzer> vmAnalyzers) {
-        List<VmAnalyzer> analyzersWithChangeGuestAgentNics = vmAnalyzers.stream()
-                .filter(analyzer -> analyzer.getVmGuestAgentNics() != null)
+    @Override
+    public List<String> getStageLatencies() {
+        return getLatencyHistograms()
+                .map(LatencyHistogram::toString)
                 .collect(Collectors.toList());
-        if (analyzersWithChangeGuestAgentNics.isEmpty()) {
-            return;
-        }
+    }
 
-        TransactionSupport.executeInScope(TransactionScopeOption.Required, () -> {
-            List<Guid> vmIds = analyzersWithChangeGuestAgentNics.stream()
-                    .map(VmAnalyzer::getVmId)
-                    .collect(Collectors.toList());
-            vmGuestAgentInterfaceDao.removeAllForVms(vmIds);
-
-            analyzersWithChangeGuestAgentNics.stream()
-                .map(VmAnalyzer::getVmGuestAgentNics)
-                .flatMap(List::stream)
-                .forEach(vmGuestAgentInterfaceDao::save);
-            return null;
-        });
+    @Override
+    public long getFlushBatches() {
+        return batchFlusher.getBatches();
+    }
+
+    @Override
+    public long getBatchedHostFlushes() {
+        return batchFlusher.getBatchedFlushes();
+    }
+
+    @Override
+    public void resetStageLatencies() {
+        getLatencyHistograms().forEach(LatencyHistogram::reset);
+    }
+
+    private Stream<LatencyHistogram> getLatencyHistograms() {
+        return Stream.concat(Stream.of(cycleLatency, analyzeLatency, flushLatency, postFlushLatency),
+                batchFlusher.getLatencyHistograms().stream());
     }
 
     // ***** Helpers and sub-methods *****
@@ -0,0 +1,381 @@
+package org.ovirt.engine.core.vdsbroker.monitoring;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+import javax.annotation.PostConstruct;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.ovirt.engine.core.common.businessentities.VmStatistics;
+import org.ovirt.engine.core.compat.Guid;
+import org.ovirt.engine.core.compat.TransactionScopeOption;
+import org.ovirt.engine.core.dao.DiskImageDynamicDao;
+import org.ovirt.engine.core.dao.VmDynamicDao;
+import org.ovirt.engine.core.dao.VmGuestAgentInterfaceDao;
+import org.ovirt.engine.core.dao.VmNumaNodeDao;
+import org.ovirt.engine.core.dao.VmStatisticsDao;
+import org.ovirt.engine.core.dao.network.VmNetworkStatisticsDao;
+import org.ovirt.engine.core.utils.EngineLocalConfig;
+import org.ovirt.engine.core.utils.metrics.LatencyHistogram;
+import org.ovirt.engine.core.utils.transaction.TransactionSupport;
+import org.ovirt.engine.core.vdsbroker.ResourceManager;
+import org.ovirt.engine.core.vdsbroker.VmManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Persists the data analyzed by the VMs monitoring of the hosts.
+ * <p>
+ * The hosts are monitored concurrently, each by its own refresher thread. Instead of having every host write its VMs
+ * in its own set of small batch updates, the hosts which flush within the same time window are grouped into a single
+ * batch, which is written with one batch update per table. The first host to flush opens the batch and writes it once
+ * the window elapses or the batch is full, the other hosts join the open batch and wait for it to be written. Since
+ * the writing host doesn't hold the batch lock while writing, the next batch is collected while the previous one is
+ * written.
+ * <p>
+ * A host returns from {@link #flush(List)} only after its VMs were persisted, so the actions taken after the flush see
+ * the updated data, as before.
+ */
+@Singleton
+public class VmsMonitoringBatchFlusher {
+
+    private static final Logger log = LoggerFactory.getLogger(VmsMonitoringBatchFlusher.class);
+
+    private static final long DEFAULT_BATCH_WINDOW_IN_MILLIS = 50;
+    private static final int DEFAULT_BATCH_MAX_VMS = 2000;
+
+    @Inject
+    private ResourceManager resourceManager;
+    @Inject
+    private StatisticsChangeDetector statisticsChangeDetector;
+    @Inject
+    private DiskImageDynamicDao diskImageDynamicDao;
+    @Inject
+    private VmDynamicDao vmDynamicDao;
+    @Inject
+    private VmNetworkStatisticsDao vmNetworkStatisticsDao;
+    @Inject
+    private VmStatisticsDao vmStatisticsDao;
+    @Inject
+    private VmGuestAgentInterfaceDao vmGuestAgentInterfaceDao;
+    @Inject
+    private VmNumaNodeDao vmNumaNodeDao;
+
+    private final Lock lock = new ReentrantLock();
+    private final Condition batchClosed = lock.newCondition();
+    /** The batch which hosts that flush now join, {@code null} when there is no batch collecting hosts **/
+    private Batch openBatch;
+
+    private long batchWindowNanos;
+    private int batchMaxVms;
+
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder batchedFlushes = new LongAdder();
+
+    private final LatencyHistogram batchWriteLatency = new LatencyHistogram("batchWrite");
+    private final LatencyHistogram guestAgentNicsLatency = new LatencyHistogram("saveVmGuestAgentNetworkDevices");
+    private final LatencyHistogram vmDynamicLatency = new LatencyHistogram("saveVmDynamic");
+    private final LatencyHistogram vmStatisticsLatency = new LatencyHistogram("saveVmStatistics");
+    private final LatencyHistogram vmInterfaceStatisticsLatency = new LatencyHistogram("saveVmInterfaceStatistics");
+    private final LatencyHistogram vmDiskImageStatisticsLatency = new LatencyHistogram("saveVmDiskImageStatistics");
+    private final LatencyHistogram vmNumaLatency = new LatencyHistogram("clearVmNuma");
+
+    public VmsMonitoringBatchFlusher() {
+        this(DEFAULT_BATCH_WINDOW_IN_MILLIS, DEFAULT_BATCH_MAX_VMS);
+    }
+
+    VmsMonitoringBatchFlusher(long batchWindowMillis, int batchMaxVms) {
+        this.batchWindowNanos = TimeUnit.MILLISECONDS.toNanos(batchWindowMillis);
+        this.batchMaxVms = batchMaxVms;
+    }
+
+    @PostConstruct
+    public void init() {
+        EngineLocalConfig config = EngineLocalConfig.getInstance();
+        batchWindowNanos = TimeUnit.MILLISECONDS.toNanos(
+                config.getLong("VMS_MONITORING_FLUSH_BATCH_WINDOW_IN_MILLIS", DEFAULT_BATCH_WINDOW_IN_MILLIS));
+        batchMaxVms = config.getInteger("VMS_MONITORING_FLUSH_BATCH_MAX_VMS", DEFAULT_BATCH_MAX_VMS);
+    }
+
+    /**
+     * Persists the data of the given analyzers, together with the data of other hosts that flush at the same time
+     *
+     * @param vmAnalyzers The analyzers of the VMs of a single host
+     */
+    public void flush(List<VmAnalyzer> vmAnalyzers) {
+        if (batchWindowNanos <= 0) {
+            write(vmAnalyzers);
+            return;
+        }
+
+        Batch batch;
+        boolean writer = false;
+        lock.lock();
+        try {
+            if (openBatch == null) {
+                openBatch = new Batch();
+                writer = true;
+            }
+            batch = openBatch;
+            batch.add(vmAnalyzers);
+            if (batch.getVmsCount() >= batchMaxVms) {
+                closeBatch();
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        if (writer) {
+            awaitBatchClosed(batch);
+            writeBatch(batch);
+        } else {
+            batch.awaitWritten();
+        }
+
+        RuntimeException failure = batch.getFailure();
+        if (failure != null) {
+            if (batch.getHostsCount() == 1) {
+                throw failure;
+            }
+            // write the VMs of this host on their own, so the data of a single host can't fail all the others
+            log.warn("Failed to write VMs monitoring batch of {} hosts, writing each host separately: {}",
+                    batch.getHostsCount(),
+                    failure.getMessage());
+            write(vmAnalyzers);
+        }
+    }
+
+    private void closeBatch() {
+        openBatch = null;
+        batchClosed.signalAll();
+    }
+
+    private void awaitBatchClosed(Batch batch) {
+        long deadline = System.nanoTime() + batchWindowNanos;
+        lock.lock();
+        try {
+            while (openBatch == batch) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    closeBatch();
+                    break;
+                }
+                try {
+                    batchClosed.awaitNanos(remaining);
+                } catch (InterruptedException e) {
+                    // the hosts in the batch are waiting for it, so it is written anyway
+                    Thread.currentThread().interrupt();
+                    closeBatch();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void writeBatch(Batch batch) {
+        batches.increment();
+        batchedFlushes.add(batch.getHostsCount());
+        try {
+            write(batch.getVmAnalyzers());
+        } catch (RuntimeException ex) {
+            batch.setFailure(ex);
+        } finally {
+            batch.setWritten();
+        }
+    }
+
+    private void write(List<VmAnalyzer> vmAnalyzers) {
+        long start = System.nanoTime();
+        // sorting the VMs across hosts is important to avoid deadlocks
+        List<VmAnalyzer> sortedVmAnalyzers = new ArrayList<>(vmAnalyzers);
+        sortedVmAnalyzers.sort(Comparator.comparing(VmAnalyzer::getVmId));
+        timed(guestAgentNicsLatency, () -> saveVmGuestAgentNetworkDevices(sortedVmAnalyzers));
+        timed(vmDynamicLatency, () -> saveVmDynamic(sortedVmAnalyzers));
+        timed(vmStatisticsLatency, () -> saveVmStatistics(sortedVmAnalyzers));
+        timed(vmInterfaceStatisticsLatency, () -> saveVmInterfaceStatistics(sortedVmAnalyzers));
+        timed(vmDiskImageStatisticsLatency, () -> saveVmDiskImageStatistics(sortedVmAnalyzers));
+        timed(vmNumaLatency, () -> clearVmNuma(sortedVmAnalyzers));
+        batchWriteLatency.recordSince(start);
+    }
+
+    private static void timed(LatencyHistogram histogram, Runnable stage) {
+        long start = System.nanoTime();
+        stage.run();
+        histogram.recordSince(start);
+    }
+
+    // ***** DB interaction *****
+
+    private void saveVmDiskImageStatistics(List<VmAnalyzer> vmAnalyzers) {
+        diskImageDynamicDao.updateAllDiskImageDynamicWithDiskIdByVmId(vmAnalyzers.stream()
+                .map(VmAnalyzer::getVmDiskImageDynamicToSave)
+                .flatMap(Collection::stream)
+                .collect(Collectors.toList()));
+    }
+
+    private void saveVmDynamic(List<VmAnalyzer> vmAnalyzers) {
+        vmDynamicDao.updateAllInBatch(vmAnalyzers.stream()
+                .map(VmAnalyzer::getVmDynamicToSave)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList()));
+    }
+
+    private void saveVmInterfaceStatistics(List<VmAnalyzer> vmAnalyzers) {
+        vmNetworkStatisticsDao.updateAllInBatch(vmAnalyzers.stream()
+                .map(VmAnalyzer::getVmNetworkStatistics)
+                .flatMap(List::stream)
+                .collect(Collectors.toList()));
+    }
+
+    private void saveVmStatistics(List<VmAnalyzer> vmAnalyzers) {
+        List<VmStatistics> statistics = vmAnalyzers.stream()
+                .map(VmAnalyzer::getVmStatisticsToSave)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+        List<VmStatistics> changedStatistics = statistics.stream()
+                .filter(stats -> {
+                    VmManager vmManager = resourceManager.getVmManager(stats.getId(), false);
+                    return vmManager == null
+                            || statisticsChangeDetector.shouldPersist(stats, vmManager.getPersistedStatistics());
+                })
+                .collect(Collectors.toList());
+        // unchanged statistics are not written at all, so idle VMs don't generate write traffic
+        if (!changedStatistics.isEmpty()) {
+            vmStatisticsDao.updateAllInBatch(changedStatistics);
+        }
+        statistics.forEach(stats -> {
+            VmManager vmManager = resourceManager.getVmManager(stats.getId(), false);
+            if (vmManager != null) {
+                vmManager.setStatistics(stats);
+            }
+        });
+        changedStatistics.forEach(stats -> {
+            VmManager vmManager = resourceManager.getVmManager(stats.getId(), false);
+            if (vmManager != null) {
+                vmManager.setPersistedStatistics(StatisticsChangeDetector.snapshot(stats));
+            }
+        });
+    }
+
+    private void clearVmNuma(List<VmAnalyzer> vmAnalyzers) {
+        List<Guid> vmIds = vmAnalyzers.stream()
+                .map(VmAnalyzer::getClearNumaVmId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+
+        vmNumaNodeDao.massRemoveAllNumaNodeByVmId(vmIds);
+    }
+
+    private void saveVmGuestAgentNetworkDevices(List<VmAnalyzer> vmAnalyzers) {
+        List<VmAnalyzer> analyzersWithChangeGuestAgentNics = vmAnalyzers.stream()
+                .filter(analyzer -> analyzer.getVmGuestAgentNics() != null)
+                .collect(Collectors.toList());
+        if (analyzersWithChangeGuestAgentNics.isEmpty()) {
+            return;
+        }
+
+        TransactionSupport.executeInScope(TransactionScopeOption.Required, () -> {
+            List<Guid> vmIds = analyzersWithChangeGuestAgentNics.stream()
+                    .map(VmAnalyzer::getVmId)
+                    .collect(Collectors.toList());
+            vmGuestAgentInterfaceDao.removeAllForVms(vmIds);
+
+            analyzersWithChangeGuestAgentNics.stream()
+                .map(VmAnalyzer::getVmGuestAgentNics)
+                .flatMap(List::stream)
+                .forEach(vmGuestAgentInterfaceDao::save);
+            return null;
+        });
+    }
+
+    // ***** Statistics *****
+
+    public long getBatches() {
+        return batches.sum();
+    }
+
+    public long getBatchedFlushes() {
+        return batchedFlushes.sum();
+    }
+
+    public List<LatencyHistogram> getLatencyHistograms() {
+        return Arrays.asList(batchWriteLatency,
+                guestAgentNicsLatency,
+                vmDynamicLatency,
+                vmStatisticsLatency,
+                vmInterfaceStatisticsLatency,
+                vmDiskImageStatisticsLatency,
+                vmNumaLatency);
+    }
+
+    /**
+     * The VMs of the hosts which flush within the same window
+     */
+    private static class Batch {
+
+        private final List<VmAnalyzer> vmAnalyzers = new ArrayList<>();
+        private final CountDownLatch written = new CountDownLatch(1);
+        private int hostsCount;
+        private volatile RuntimeException failure;
+
+        public void add(List<VmAnalyzer> hostVmAnalyzers) {
+            vmAnalyzers.addAll(hostVmAnalyzers);
+            hostsCount++;
+        }
+
+        public List<VmAnalyzer> getVmAnalyzers() {
+            return vmAnalyzers;
+        }
+
+        public int getVmsCount() {
+            return vmAnalyzers.size();
+        }
+
+        public int getHostsCount() {
+            return hostsCount;
+        }
+
+        public RuntimeException getFailure() {
+            return failure;
+        }
+
+        public void setFailure(RuntimeException failure) {
+            this.failure = failure;
+        }
+
+        public void setWritten() {
+            written.countDown();
+        }
+
+        /**
+         * Waits for the batch to be written, the VMs of the waiting host are locked so it must not return before
+         */
+        public void awaitWritten() {
+            boolean interrupted = false;
+            while (true) {
+                try {
+                    written.await();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
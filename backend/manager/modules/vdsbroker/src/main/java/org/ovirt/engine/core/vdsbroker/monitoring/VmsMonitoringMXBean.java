@@ -0,0 +1,30 @@
+package org.ovirt.engine.core.vdsbroker.monitoring;
+
+import java.util.List;
+
+/**
+ * The following interface is used as interface for JMX bean of the vms monitoring
+ */
+public interface VmsMonitoringMXBean {
+
+    /**
+     * The following method will return the latency histogram of each stage of the vms monitoring cycles, including
+     * the batch writes of each table
+     */
+    List<String> getStageLatencies();
+
+    /**
+     * The following method will return the number of batches in which the monitored data was written
+     */
+    long getFlushBatches();
+
+    /**
+     * The following method will return the number of host flushes which were written in these batches
+     */
+    long getBatchedHostFlushes();
+
+    /**
+     * The following method will allow to reset the latency histograms via JMX console
+     */
+    void resetStageLatencies();
+}
@@ -0,0 +1,79 @@
+package org.ovirt.engine.core.vdsbroker.monitoring;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.ovirt.engine.core.common.businessentities.VdsStatistics;
+import org.ovirt.engine.core.common.businessentities.VmStatistics;
+import org.ovirt.engine.core.compat.Guid;
+
+public class StatisticsChangeDetectorTest {
+
+    private final StatisticsChangeDetector detector = new StatisticsChangeDetector(1, 1, 1, 300);
+
+    private VmStatistics vmStatistics;
+    private VdsStatistics vdsStatistics;
+
+    @BeforeEach
+    public void setUp() {
+        vmStatistics = new VmStatistics(Guid.newGuid());
+        vmStatistics.setCpuSys(10.0);
+        vmStatistics.setCpuUser(20.0);
+        vmStatistics.setUsageCpuPercent(30);
+        vmStatistics.setUsageMemPercent(40);
+        vmStatistics.setGuestMemoryCached(100000L);
+        vmStatistics.setElapsedTime(1000.0);
+
+        vdsStatistics = new VdsStatistics();
+        vdsStatistics.setId(Guid.newGuid());
+        vdsStatistics.setUsageCpuPercent(30);
+        vdsStatistics.setMemFree(100000L);
+    }
+
+    @Test
+    public void testUnknownPersistedStatisticsArePersisted() {
+        assertTrue(detector.shouldPersist(vmStatistics, null));
+        assertTrue(detector.shouldPersist(vdsStatistics, null));
+    }
+
+    @Test
+    public void testVmStatisticsWithinEpsilonAreNotPersisted() {
+        StatisticsChangeDetector.Snapshot<VmStatistics> persisted = StatisticsChangeDetector.snapshot(vmStatistics);
+        vmStatistics.setCpuSys(10.5);
+        vmStatistics.setUsageCpuPercent(31);
+        vmStatistics.setGuestMemoryCached(100500L);
+        vmStatistics.setElapsedTime(1015.0);
+        assertFalse(detector.shouldPersist(vmStatistics, persisted));
+    }
+
+    @Test
+    public void testVmStatisticsBeyondEpsilonArePersisted() {
+        StatisticsChangeDetector.Snapshot<VmStatistics> persisted = StatisticsChangeDetector.snapshot(vmStatistics);
+        vmStatistics.setUsageMemPercent(45);
+        assertTrue(detector.shouldPersist(vmStatistics, persisted));
+    }
+
+    @Test
+    public void testVmRestartIsPersisted() {
+        StatisticsChangeDetector.Snapshot<VmStatistics> persisted = StatisticsChangeDetector.snapshot(vmStatistics);
+        vmStatistics.setElapsedTime(5.0);
+        assertTrue(detector.shouldPersist(vmStatistics, persisted));
+    }
+
+    @Test
+    public void testVdsStatistics() {
+        StatisticsChangeDetector.Snapshot<VdsStatistics> persisted = StatisticsChangeDetector.snapshot(vdsStatistics);
+        vdsStatistics.setMemFree(100900L);
+        assertFalse(detector.shouldPersist(vdsStatistics, persisted));
+        vdsStatistics.setMemFree(110000L);
+        assertTrue(detector.shouldPersist(vdsStatistics, persisted));
+    }
+
+    @Test
+    public void testExpiredSnapshotIsPersisted() {
+        StatisticsChangeDetector expiringDetector = new StatisticsChangeDetector(1, 1, 1, 0);
+        assertTrue(expiringDetector.shouldPersist(vmStatistics, StatisticsChangeDetector.snapshot(vmStatistics)));
+    }
+}
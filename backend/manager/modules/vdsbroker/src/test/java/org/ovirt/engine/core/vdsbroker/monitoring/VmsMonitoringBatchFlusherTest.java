@@ -0,0 +1,128 @@
+package org.ovirt.engine.core.vdsbroker.monitoring;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.ovirt.engine.core.common.businessentities.VmDynamic;
+import org.ovirt.engine.core.compat.Guid;
+import org.ovirt.engine.core.dao.DiskImageDynamicDao;
+import org.ovirt.engine.core.dao.VmDynamicDao;
+import org.ovirt.engine.core.dao.VmGuestAgentInterfaceDao;
+import org.ovirt.engine.core.dao.VmNumaNodeDao;
+import org.ovirt.engine.core.dao.VmStatisticsDao;
+import org.ovirt.engine.core.dao.network.VmNetworkStatisticsDao;
+import org.ovirt.engine.core.vdsbroker.ResourceManager;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+public class VmsMonitoringBatchFlusherTest {
+
+    private static final Guid VM_ID_1 = new Guid("b7dfe5e6-5667-4e40-8ecb-6d97c8df504c");
+    private static final Guid VM_ID_2 = new Guid("b7dfe5e6-5667-4e40-8ecb-6d97c8df504d");
+
+    @Mock
+    private ResourceManager resourceManager;
+    @Mock
+    private DiskImageDynamicDao diskImageDynamicDao;
+    @Mock
+    private VmDynamicDao vmDynamicDao;
+    @Mock
+    private VmNetworkStatisticsDao vmNetworkStatisticsDao;
+    @Mock
+    private VmStatisticsDao vmStatisticsDao;
+    @Mock
+    private VmGuestAgentInterfaceDao vmGuestAgentInterfaceDao;
+    @Mock
+    private VmNumaNodeDao vmNumaNodeDao;
+
+    @Captor
+    private ArgumentCaptor<List<VmDynamic>> vmDynamicsCaptor;
+
+    /** A long window, so the batch is closed only when it is full **/
+    @InjectMocks
+    private VmsMonitoringBatchFlusher batchFlusher = new VmsMonitoringBatchFlusher(60000, 2);
+
+    private final ExecutorService hosts = Executors.newFixedThreadPool(2);
+
+    @AfterEach
+    public void tearDown() {
+        hosts.shutdownNow();
+    }
+
+    @Test
+    public void testFlushesOfHostsAreWrittenInOneBatch() throws Exception {
+        VmAnalyzer vm1 = mockVmAnalyzer(VM_ID_1);
+        VmAnalyzer vm2 = mockVmAnalyzer(VM_ID_2);
+
+        flushConcurrently(vm2, vm1);
+
+        verify(vmDynamicDao).updateAllInBatch(vmDynamicsCaptor.capture());
+        assertEquals(Arrays.asList(vm1.getVmDynamicToSave(), vm2.getVmDynamicToSave()),
+                vmDynamicsCaptor.getValue());
+        assertEquals(1, batchFlusher.getBatches());
+        assertEquals(2, batchFlusher.getBatchedFlushes());
+    }
+
+    @Test
+    public void testFailedBatchIsWrittenPerHost() throws Exception {
+        VmAnalyzer vm1 = mockVmAnalyzer(VM_ID_1);
+        VmAnalyzer vm2 = mockVmAnalyzer(VM_ID_2);
+        doThrow(new RuntimeException()).doNothing().when(vmDynamicDao).updateAllInBatch(any());
+
+        flushConcurrently(vm1, vm2);
+
+        verify(vmDynamicDao, times(3)).updateAllInBatch(vmDynamicsCaptor.capture());
+        assertEquals(2, vmDynamicsCaptor.getAllValues().get(0).size());
+        assertEquals(1, vmDynamicsCaptor.getAllValues().get(1).size());
+        assertEquals(1, vmDynamicsCaptor.getAllValues().get(2).size());
+    }
+
+    @Test
+    public void testFailedBatchOfSingleHostIsThrown() {
+        List<VmAnalyzer> vms = Arrays.asList(mockVmAnalyzer(VM_ID_1), mockVmAnalyzer(VM_ID_2));
+        doThrow(new IllegalStateException()).when(vmDynamicDao).updateAllInBatch(any());
+
+        assertThrows(IllegalStateException.class, () -> batchFlusher.flush(vms));
+        verify(vmDynamicDao).updateAllInBatch(any());
+    }
+
+    private void flushConcurrently(VmAnalyzer host1Vm, VmAnalyzer host2Vm) throws Exception {
+        Future<?> host1 = hosts.submit(() -> batchFlusher.flush(Collections.singletonList(host1Vm)));
+        Future<?> host2 = hosts.submit(() -> batchFlusher.flush(Collections.singletonList(host2Vm)));
+        host1.get();
+        host2.get();
+    }
+
+    private static VmAnalyzer mockVmAnalyzer(Guid vmId) {
+        VmAnalyzer vmAnalyzer = mock(VmAnalyzer.class);
+        VmDynamic vmDynamic = new VmDynamic();
+        vmDynamic.setId(vmId);
+        when(vmAnalyzer.getVmId()).thenReturn(vmId);
+        when(vmAnalyzer.getVmDynamicToSave()).thenReturn(vmDynamic);
+        when(vmAnalyzer.getVmGuestAgentNics()).thenReturn(null);
+        return vmAnalyzer;
+    }
+}
@@ -138,6 +138,30 @@ LANGUAGE plpgsql;
 
 
 
+CREATE OR REPLACE FUNCTION GetDiskVmElementsForVms(
+    v_vm_ids UUID[],
+    v_user_id UUID,
+    v_is_filtered boolean)
+RETURNS SETOF disk_vm_element_extended STABLE AS $FUNCTION$
+BEGIN
+    RETURN QUERY
+    SELECT *
+    FROM disk_vm_element_extended
+    WHERE vm_id = ANY(v_vm_ids)
+        AND (
+            NOT v_is_filtered
+            OR EXISTS (
+                SELECT 1
+                FROM user_vm_permissions_view
+                WHERE user_id = v_user_id
+                    AND entity_id = disk_vm_element_extended.vm_id
+                )
+            );
+END;$FUNCTION$
+LANGUAGE plpgsql;
+
+
+
 CREATE OR REPLACE FUNCTION GetDiskVmElementsPluggedToVm(
     v_vm_id UUID)
 RETURNS SETOF disk_vm_element_extended STABLE AS $FUNCTION$
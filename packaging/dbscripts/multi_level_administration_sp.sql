@@ -789,3 +789,18 @@ BEGIN
         AND object_id = v_object_id;
 END; $FUNCTION$
 LANGUAGE plpgsql;
+
+-- gets the ids of the objects of the given type the user has permissions on, as the filtered queries see them
+CREATE OR REPLACE FUNCTION GetEntityIdsVisibleToUser(
+    v_user_id UUID,
+    v_object_type_id INTEGER)
+RETURNS SETOF UUID STABLE
+    AS $FUNCTION$
+BEGIN
+    IF v_object_type_id = 2 THEN
+        RETURN QUERY SELECT DISTINCT entity_id FROM user_vm_permissions_view WHERE user_id = v_user_id;
+    ELSE
+        RAISE EXCEPTION 'Objects of type % cannot be listed by user permissions', v_object_type_id;
+    END IF;
+END; $FUNCTION$
+LANGUAGE plpgsql;
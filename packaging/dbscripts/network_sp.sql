@@ -1227,6 +1227,21 @@ BEGIN
 END;$FUNCTION$
 LANGUAGE plpgsql;
 
+CREATE OR REPLACE FUNCTION GetPluggedMacsByMacAddresses (v_mac_addresses VARCHAR[])
+RETURNS SETOF VARCHAR STABLE AS $FUNCTION$
+BEGIN
+    RETURN QUERY
+
+    SELECT DISTINCT vm_interface.mac_addr
+    FROM vm_interface
+    INNER JOIN vm_device
+        ON vm_interface.vm_guid = vm_device.vm_id
+            AND vm_interface.id = vm_device.device_id
+    WHERE vm_interface.mac_addr = ANY (v_mac_addresses)
+        AND vm_device.is_plugged = true;
+END;$FUNCTION$
+LANGUAGE plpgsql;
+
 CREATE OR REPLACE FUNCTION GetVmNetworkInterfaceViewByVmId (
     v_vm_id UUID,
     v_user_id UUID,
@@ -1251,6 +1266,30 @@ BEGIN
 END;$FUNCTION$
 LANGUAGE plpgsql;
 
+CREATE OR REPLACE FUNCTION GetVmNetworkInterfaceViewByVmIds (
+    v_vm_ids UUID[],
+    v_user_id UUID,
+    v_is_filtered BOOLEAN
+    )
+RETURNS SETOF vm_interface_view STABLE AS $FUNCTION$
+BEGIN
+    RETURN QUERY
+
+    SELECT *
+    FROM vm_interface_view
+    WHERE vm_guid = ANY (v_vm_ids)
+        AND (
+            NOT v_is_filtered
+            OR EXISTS (
+                SELECT 1
+                FROM user_vm_permissions_view
+                WHERE user_id = v_user_id
+                    AND entity_id = vm_interface_view.vm_guid
+                )
+            );
+END;$FUNCTION$
+LANGUAGE plpgsql;
+
 CREATE OR REPLACE FUNCTION GetVmNetworkInterfaceToMonitorByVmId (v_vm_id UUID)
 RETURNS SETOF vm_interface_monitoring_view STABLE AS $FUNCTION$
 BEGIN
@@ -0,0 +1,2 @@
+-- MAC pools look up the plugged interfaces using the MACs picked for allocation
+CREATE INDEX IF NOT EXISTS idx_vm_interface_mac_addr ON vm_interface (mac_addr);
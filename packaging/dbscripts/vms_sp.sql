@@ -79,6 +79,30 @@ BEGIN
 END;$FUNCTION$
 LANGUAGE plpgsql;
 
+DROP TYPE IF EXISTS ovf_data_size_rs CASCADE;
+CREATE TYPE ovf_data_size_rs AS (
+        vm_guid UUID,
+        ovf_generation BIGINT,
+        ovf_data_size INT
+        );
+
+CREATE OR REPLACE FUNCTION LoadOvfDataSizesForIds (v_ids VARCHAR(5000))
+RETURNS SETOF ovf_data_size_rs STABLE AS $FUNCTION$
+BEGIN
+    RETURN QUERY
+
+    SELECT ovf.vm_guid,
+        ovf.ovf_generation,
+        octet_length(ovf.ovf_data)
+    FROM vm_ovf_generations ovf
+    WHERE ovf.vm_guid IN (
+            SELECT *
+            FROM fnSplitterUuid(v_ids)
+            )
+        AND ovf.ovf_data IS NOT NULL;
+END;$FUNCTION$
+LANGUAGE plpgsql;
+
 CREATE OR REPLACE FUNCTION GetIdsForOvfDeletion (v_storage_pool_id UUID)
 RETURNS SETOF UUID STABLE AS $FUNCTION$
 BEGIN
@@ -984,6 +1008,22 @@ BEGIN
 END; $FUNCTION$
 LANGUAGE plpgsql;
 
+DROP TYPE IF EXISTS db_generation_rs CASCADE;
+CREATE TYPE db_generation_rs AS (
+        vm_guid UUID,
+        db_generation BIGINT
+        );
+
+Create or replace FUNCTION GetDbGenerations(v_vm_guids UUID[])
+RETURNS SETOF db_generation_rs STABLE
+   AS $FUNCTION$
+BEGIN
+      RETURN QUERY SELECT vm_guid, db_generation
+      FROM vm_static
+      WHERE vm_guid = ANY(v_vm_guids);
+END; $FUNCTION$
+LANGUAGE plpgsql;
+
 
 
 
@@ -1448,6 +1488,26 @@ BEGIN
 END; $FUNCTION$
 LANGUAGE plpgsql;
 
+-- Same as GetAllFromVmsFilteredAndSorted, for the VMs the user has direct or inherited permissions on, given by id
+Create or replace FUNCTION GetVmsByIdsFilteredAndSorted(v_vms_ids UUID[], v_user_id UUID, v_offset int, v_limit int) RETURNS SETOF vms STABLE
+   AS $FUNCTION$
+BEGIN
+   RETURN QUERY SELECT vms.*
+      FROM vms
+      WHERE vms.vm_guid = ANY(v_vms_ids)
+          -- VMs that are part of a pool only if the user has direct permissions on them
+          AND (vm_pool_id IS NULL
+              OR EXISTS (
+                  SELECT 1
+                  FROM permissions
+                  WHERE permissions.object_id = vms.vm_guid
+                      AND permissions.ad_element_id = v_user_id
+              ))
+      ORDER BY vm_name ASC
+      LIMIT v_limit OFFSET v_offset;
+END; $FUNCTION$
+LANGUAGE plpgsql;
+
 
 
 
@@ -48,6 +48,7 @@ CLEAR_COMPENSATION=
 CLEAR_JOB_STEPS=
 CLEAR_JOB_STEPS_AND_COMPENSATION=
 QUITE_MODE=
+COMMANDS_DISPLAYED=
 TASKS_FIELDS="task_id,task_type,status,started_at,result,action_type as command_type,command_id,step_id,storage_pool_id as DC"
 COMMANDS_FIELDS="command_id,command_type,root_command_id,command_parameters,command_params_class,created_at,status,return_value,return_value_class,executed"
 
@@ -71,6 +72,12 @@ Usage: $0 [options]
     -A            - Clear all Job Steps and compensation entries.
     -q            - Quite mode, do not prompt for confirmation.
 
+The command_parameters and return_value of commands which start with "S1:" are stored in the compact form,
+see COMMAND_ENTITIES_COMPACT_SERIALIZATION in engine.conf. They hold Smile, a binary form of JSON, in Base64. Smile
+keeps names and strings as text, so the ids and types of such a value are shown by:
+    echo "\${VALUE#S1:}" | base64 -d | strings
+Any Smile reader, such as the jackson-dataformat-smile module of the engine, converts them back to JSON.
+
 __EOF__
 }
 
@@ -251,8 +258,10 @@ elif [ -n "${ZOMBIES_ONLY}" ]; then #only display operations block
 	CMD1="SELECT ${TASKS_FIELDS} FROM GetAsyncTasksZombies();"
 elif [ -n "${ALL_COMMANDS}" ]; then #only display commands
 	CMD1="SELECT ${COMMANDS_FIELDS} FROM GetAllCommands();"
+	COMMANDS_DISPLAYED=1
 elif [ -n "${COMMANDS_WITH_RUNNING_TASKS_ONLY}" ]; then
 	CMD1="SELECT ${COMMANDS_FIELDS} FROM GetAllCommandsWithRunningTasks();"
+	COMMANDS_DISPLAYED=1
 elif [ -n "${CLEAR_COMMANDS}" ]; then
 	if [ -n "${COMMANDS_WITH_RUNNING_TASKS_ONLY}" ]; then
 		CMD1="SELECT DeleteAllCommandsWithRunningTasks();"
@@ -263,6 +272,7 @@ elif [ -n "${CLEAR_COMMANDS}" ]; then
 	fi
 elif [ -n "${ZOMBIE_COMMANDS_ONLY}" ]; then
 	CMD1="SELECT ${COMMANDS_FIELDS} FROM GetAllCommandsWithZombieTasks();"
+	COMMANDS_DISPLAYED=1
 else
 	CMD1="SELECT ${TASKS_FIELDS} FROM GetAllFromasync_tasks();"
 fi
@@ -273,6 +283,9 @@ dbfunc_psql_die --file="$(dirname "$0")/taskcleaner_sp_3_5.sql" > /dev/null
 
 # Execute
 dbfunc_psql_die --command="${CMD1}${CMD2}"
+if [ -n "${COMMANDS_DISPLAYED}" ]; then
+	echo "Values starting with \"S1:\" are stored in the compact form, see $0 -h to read them."
+fi
 
 # Drop taskcleaner procedures
 dbfunc_psql_die --file="$(dirname "$0")/taskcleaner_sp_drop.sql" > /dev/null